@@ -1,13 +1,193 @@
 package io.github.lmhjava;
 
+import io.github.lmhjava.cli.BatchRunner;
+import io.github.lmhjava.engine.compiled.CompiledDFA;
+import io.github.lmhjava.engine.exception.CheckpointException;
+import io.github.lmhjava.engine.exception.DFAFormatException;
+import io.github.lmhjava.engine.io.DFAFormat;
+import io.github.lmhjava.engine.runner.StreamRunner;
+import io.github.lmhjava.server.SimulationServer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
- * Hello world!
- *
+ * Command line entry of the engine:
+ * <ul>
+ *     <li>{@code serve} starts a headless simulation server, see {@link SimulationServer}</li>
+ *     <li>{@code run} runs a corpus of inputs through a DFA file, see {@link BatchRunner}</li>
+ *     <li>{@code stream} runs one long stream through a DFA file with checkpoints, see {@link StreamRunner}</li>
+ * </ul>
+ * Run without arguments for the usage.
  */
-public class Main
-{
-    public static void main( String[] args )
-    {
-        System.out.println( "Hello World!" );
+public class Main {
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    private static final String USAGE = String.join("\n",
+            "Usage:",
+            "  Main serve [--port PORT] [NAME=DFA_FILE]...",
+            "  Main run DFA_FILE [--input FILE] [--output FILE] [--threads N] [--queue N] [--batch N]",
+            "                    [--delimiter D] [--quiet]",
+            "  Main stream DFA_FILE --input FILE --checkpoint FILE [--interval CHARS]",
+            "",
+            "run reads one input per line from the input (default stdin), and writes true or false",
+            "per input to the output (default stdout), then a summary to stderr. Every code point of",
+            "a line is an alphabet, unless the alphabets are separated by --delimiter.",
+            "",
+            "stream runs the whole input as ONE input, counting its accepted prefixes. It resumes from",
+            "the checkpoint file if it exists, and writes it every --interval chars.");
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Runs a command.
+     *
+     * @param args command line arguments
+     * @param out standard output
+     * @param err standard error
+     * @return exit status, 0 on success, 1 on failure, 2 on invalid arguments
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        if (args.length == 0) {
+            err.println(USAGE);
+            return 2;
+        }
+        try {
+            switch (args[0]) {
+                case "serve":
+                    serve(args, out);
+                    return 0;
+                case "run":
+                    runCorpus(args, out, err);
+                    return 0;
+                case "stream":
+                    runStream(args, out);
+                    return 0;
+                default:
+                    throw new IllegalArgumentException(String.format("Unknown command %s", args[0]));
+            }
+        } catch (IllegalArgumentException e) {
+            err.printf("%s%n%s%n", e.getMessage(), USAGE);
+            return 2;
+        } catch (IOException | DFAFormatException | CheckpointException e) {
+            err.println(e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+
+    private static void serve(String[] args, PrintStream out) throws IOException, DFAFormatException, InterruptedException {
+        int port = DEFAULT_PORT;
+        final Map<String, Path> files = new LinkedHashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--port")) {
+                port = intOption(args, ++i);
+                continue;
+            }
+            final int separator = args[i].indexOf('=');
+            if (separator <= 0) throw new IllegalArgumentException(String.format("Invalid argument %s", args[i]));
+            files.put(args[i].substring(0, separator), Path.of(args[i].substring(separator + 1)));
+        }
+        final SimulationServer server = new SimulationServer(port);
+        for (Map.Entry<String, Path> file : files.entrySet()) {
+            server.load(file.getKey(), file.getValue());
+        }
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+        out.printf("Listening on http://127.0.0.1:%d%n", server.getPort());
+        // the server threads keep running after this returns
+        Thread.currentThread().join();
+    }
+
+    private static void runCorpus(String[] args, PrintStream out, PrintStream err)
+            throws IOException, DFAFormatException, InterruptedException {
+        if (args.length < 2 || args[1].startsWith("--")) throw new IllegalArgumentException("Missing DFA file");
+        final Path dfaFile = Path.of(args[1]);
+        Path input = null, output = null;
+        String delimiter = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        int batchSize = BatchRunner.DEFAULT_BATCH_SIZE;
+        boolean isQuiet = false;
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--input" -> input = Path.of(option(args, ++i));
+                case "--output" -> output = Path.of(option(args, ++i));
+                case "--threads" -> threads = intOption(args, ++i);
+                case "--queue" -> queueCapacity = intOption(args, ++i);
+                case "--batch" -> batchSize = intOption(args, ++i);
+                case "--delimiter" -> delimiter = option(args, ++i);
+                case "--quiet" -> isQuiet = true;
+                default -> throw new IllegalArgumentException(String.format("Invalid argument %s", args[i]));
+            }
+        }
+
+        final CompiledDFA dfa = CompiledDFA.compile(DFAFormat.read(dfaFile).getController());
+        final BatchRunner runner = new BatchRunner(dfa, threads, queueCapacity, batchSize, delimiter);
+        final BatchRunner.Summary summary;
+        try (BufferedReader corpus = input == null
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             Writer results = isQuiet ? null : output == null
+                     ? new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))
+                     : Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            summary = runner.run(corpus, results);
+        }
+        err.println(summary);
+    }
+
+    private static void runStream(String[] args, PrintStream out) throws IOException, DFAFormatException, CheckpointException {
+        if (args.length < 2 || args[1].startsWith("--")) throw new IllegalArgumentException("Missing DFA file");
+        final Path dfaFile = Path.of(args[1]);
+        Path input = null, checkpoint = null;
+        long interval = StreamRunner.DEFAULT_INTERVAL;
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--input" -> input = Path.of(option(args, ++i));
+                case "--checkpoint" -> checkpoint = Path.of(option(args, ++i));
+                case "--interval" -> interval = intOption(args, ++i);
+                default -> throw new IllegalArgumentException(String.format("Invalid argument %s", args[i]));
+            }
+        }
+        if (input == null || checkpoint == null) throw new IllegalArgumentException("Missing --input or --checkpoint");
+
+        final CompiledDFA dfa = CompiledDFA.compile(DFAFormat.read(dfaFile).getController());
+        final StreamRunner runner = new StreamRunner(dfa, checkpoint, interval);
+        try (BufferedReader stream = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            runner.run(stream);
+        }
+        out.printf("resumed_from=%d offset=%d accepted_prefixes=%d accepting=%b%n",
+                runner.getResumedOffset(), runner.getOffset(), runner.getAcceptedCount(), runner.isAccepting());
+    }
+
+    private static String option(String[] args, int i) {
+        if (i >= args.length) throw new IllegalArgumentException(String.format("Missing value of %s", args[i - 1]));
+        return args[i];
+    }
+
+    private static int intOption(String[] args, int i) {
+        final String value = option(args, i);
+        try {
+            final int number = Integer.parseInt(value);
+            if (number > 0) return number;
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException(String.format("Invalid value of %s: %s", args[i - 1], value));
     }
 }
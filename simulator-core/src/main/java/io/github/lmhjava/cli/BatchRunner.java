@@ -0,0 +1,273 @@
+package io.github.lmhjava.cli;
+
+import io.github.lmhjava.engine.compiled.CompiledDFA;
+import io.github.lmhjava.server.LatencyRecorder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * Runs a corpus of inputs through a {@link CompiledDFA} on several threads.
+ * <p>
+ * The corpus is read line by line, one input per line, and cut into batches. The batches go through
+ * a bounded queue to the worker threads, and their results are written in the order of the corpus.
+ * The reader blocks while the queue is full, so a corpus of any size runs in memory bounded by
+ * {@code queueCapacity * batchSize} lines.
+ *
+ * @implNote every worker records the time of each input in a recorder of its own, the recorders are
+ * only merged at the end, so the workers never contend.
+ */
+public final class BatchRunner {
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final CompiledDFA dfa;
+    private final int threadCount;
+    private final int queueCapacity;
+    private final int batchSize;
+    // null if every code point is an alphabet
+    private final Pattern delimiter;
+
+    /**
+     * Creates a runner.
+     *
+     * @param dfa DFA to run
+     * @param threadCount number of worker threads
+     * @param queueCapacity number of batches waiting for a worker or for the writer
+     * @param batchSize number of inputs in a batch
+     * @param delimiter delimiter between the alphabets of a line, or {@code null} if every code point
+     *                  is an alphabet
+     */
+    public BatchRunner(CompiledDFA dfa, int threadCount, int queueCapacity, int batchSize, String delimiter) {
+        assert dfa != null && threadCount > 0 && queueCapacity > 0 && batchSize > 0;
+        this.dfa = dfa;
+        this.threadCount = threadCount;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.delimiter = delimiter == null ? null : Pattern.compile(Pattern.quote(delimiter));
+    }
+
+    /**
+     * Runs every line of the corpus.
+     *
+     * @param corpus inputs, one per line
+     * @param results destination of "true" or "false" per input, in the order of the corpus,
+     *                or {@code null} to only summarize
+     * @return summary of the run
+     * @throws IOException if the corpus can not be read or the results can not be written
+     * @throws InterruptedException if the run is interrupted
+     * @implNote a failed or interrupted run interrupts the worker and writer threads, and waits for them
+     * to stop, instead of waiting for the batches in flight.
+     */
+    public Summary run(BufferedReader corpus, Writer results) throws IOException, InterruptedException {
+        final BlockingQueue<Batch> work = new ArrayBlockingQueue<>(queueCapacity);
+        // batches in the order of the corpus, bounded as well, so the reader never runs far ahead of the writer
+        final BlockingQueue<Batch> output = new ArrayBlockingQueue<>(queueCapacity + threadCount);
+        final AtomicReference<IOException> writeError = new AtomicReference<>();
+        final AtomicReference<RuntimeException> workError = new AtomicReference<>();
+        final List<LatencyRecorder> recorders = new ArrayList<>();
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            final LatencyRecorder recorder = new LatencyRecorder();
+            recorders.add(recorder);
+            threads.add(new Thread(() -> work(work, recorder, workError), "batch-worker-" + i));
+        }
+        final long[] acceptedCount = new long[1];
+        threads.add(new Thread(() -> write(output, results, acceptedCount, writeError), "batch-writer"));
+        threads.forEach(Thread::start);
+
+        final long start = System.nanoTime();
+        long inputCount = 0;
+        boolean isFinished = false;
+        try {
+            Batch batch = new Batch(batchSize);
+            String line;
+            while (workError.get() == null && (line = corpus.readLine()) != null) {
+                batch.inputs.add(line);
+                inputCount++;
+                if (batch.inputs.size() == batchSize) {
+                    // the writer first, so that it waits for the batch in order
+                    output.put(batch);
+                    work.put(batch);
+                    batch = new Batch(batchSize);
+                }
+            }
+            if (!batch.inputs.isEmpty()) {
+                output.put(batch);
+                work.put(batch);
+            }
+            // one end marker for every worker, and one for the writer
+            for (int i = 0; i < threadCount; i++) {
+                work.put(Batch.END);
+            }
+            output.put(Batch.END);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            isFinished = true;
+        } finally {
+            // a batch may be in the writer queue but never in the work queue, do not wait for it
+            if (!isFinished) stop(threads);
+        }
+        if (workError.get() != null) throw workError.get();
+        if (writeError.get() != null) throw writeError.get();
+        final LatencyRecorder latency = new LatencyRecorder();
+        recorders.forEach(latency::merge);
+        return new Summary(inputCount, acceptedCount[0], System.nanoTime() - start, latency);
+    }
+
+    // always counts the batch down, so that the writer never waits for a batch of a failed worker
+    private void work(BlockingQueue<Batch> work, LatencyRecorder recorder, AtomicReference<RuntimeException> error) {
+        try {
+            while (true) {
+                final Batch batch = work.take();
+                if (batch == Batch.END) return;
+                try {
+                    if (error.get() != null) continue;
+                    final List<String> inputs = batch.inputs;
+                    for (int i = 0; i < inputs.size(); i++) {
+                        final long start = System.nanoTime();
+                        batch.results[i] = accepts(inputs.get(i));
+                        recorder.record(System.nanoTime() - start);
+                    }
+                } catch (RuntimeException e) {
+                    error.compareAndSet(null, e);
+                } finally {
+                    batch.done.countDown();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // interrupts the threads, and waits for them even if the caller is interrupted again
+    private static void stop(List<Thread> threads) {
+        threads.forEach(Thread::interrupt);
+        boolean isInterrupted = false;
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    isInterrupted = true;
+                }
+            }
+        }
+        if (isInterrupted) Thread.currentThread().interrupt();
+    }
+
+    // keeps draining the batches after a write error, so that the reader never blocks
+    private void write(BlockingQueue<Batch> output, Writer results, long[] acceptedCount, AtomicReference<IOException> error) {
+        try {
+            while (true) {
+                final Batch batch = output.take();
+                if (batch == Batch.END) break;
+                batch.done.await();
+                for (int i = 0; i < batch.inputs.size(); i++) {
+                    if (batch.results[i]) acceptedCount[0]++;
+                }
+                if (results == null || error.get() != null) continue;
+                try {
+                    for (int i = 0; i < batch.inputs.size(); i++) {
+                        results.write(batch.results[i] ? "true\n" : "false\n");
+                    }
+                } catch (IOException e) {
+                    error.set(e);
+                }
+            }
+            if (results != null && error.get() == null) results.flush();
+        } catch (IOException e) {
+            error.set(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean accepts(String line) {
+        int state = dfa.getInitialState();
+        if (delimiter == null) {
+            for (int i = 0; i < line.length() && state != CompiledDFA.DEAD; ) {
+                final int codePoint = line.codePointAt(i);
+                state = dfa.step(state, dfa.classOfCodePoint(codePoint));
+                i += Character.charCount(codePoint);
+            }
+        } else if (!line.isEmpty()) {
+            for (String alphabet : delimiter.split(line, -1)) {
+                if (state == CompiledDFA.DEAD) break;
+                state = dfa.step(state, dfa.classOf(alphabet));
+            }
+        }
+        return dfa.isAccepting(state);
+    }
+
+    private static final class Batch {
+        private static final Batch END = new Batch(0);
+
+        private final List<String> inputs;
+        private final boolean[] results;
+        private final CountDownLatch done;
+
+        private Batch(int size) {
+            this.inputs = new ArrayList<>(size);
+            this.results = new boolean[size];
+            this.done = new CountDownLatch(1);
+        }
+    }
+
+    /**
+     * Statistics of a run.
+     */
+    public static final class Summary {
+        private final long inputCount;
+        private final long acceptedCount;
+        private final long elapsedNanos;
+        private final LatencyRecorder latency;
+
+        private Summary(long inputCount, long acceptedCount, long elapsedNanos, LatencyRecorder latency) {
+            this.inputCount = inputCount;
+            this.acceptedCount = acceptedCount;
+            this.elapsedNanos = elapsedNanos;
+            this.latency = latency;
+        }
+
+        public long getInputCount() {
+            return inputCount;
+        }
+
+        public long getAcceptedCount() {
+            return acceptedCount;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0 : inputCount * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Returns the time of each input, in nanoseconds.
+         *
+         * @return per-input times
+         */
+        public LatencyRecorder getLatency() {
+            return latency;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("inputs=%d accepted=%d seconds=%.3f inputs_per_second=%.1f p50_ns=%d p99_ns=%d",
+                    inputCount, acceptedCount, elapsedNanos / 1e9, getThroughput(),
+                    latency.getPercentile(50), latency.getPercentile(99));
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package io.github.lmhjava.engine.compiled;
+
+import io.github.lmhjava.engine.dfa.AlphabetRange;
+import io.github.lmhjava.engine.dfa.DFAEdge;
+import io.github.lmhjava.engine.dfa.DFANode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.IntConsumer;
+
+/**
+ * Partition of all alphabets into equivalence classes.
+ * Two alphabets are equivalent if they trigger the same transition on EVERY node,
+ * so a compiled transition table only needs one column per class instead of one per alphabet.
+ *
+ * @implNote Alphabets are either strings (e.g. "resume") or code points. Code points are
+ * grouped into disjoint intervals, so a range like [a-z] costs one interval instead of 26 entries.
+ * Class {@link #OTHER_CLASS} holds every alphabet that is not mentioned by any edge, which always
+ * follows the ELSE edge.
+ */
+public final class AlphabetPartition {
+    public static final int OTHER_CLASS = 0;
+    private static final int ASCII_SIZE = 128;
+
+    // classes of alphabets which are not a single code point
+    private final Map<String, Integer> stringClasses;
+    // sorted starts of disjoint intervals covering all code points, the first start is always 0
+    private final int[] intervalStarts;
+    private final int[] intervalClasses;
+    // fast path for the most common code points
+    private final int[] asciiClasses;
+    private final int classCount;
+
+    private AlphabetPartition(Map<String, Integer> stringClasses, int[] intervalStarts,
+                              int[] intervalClasses, int classCount) {
+        this.stringClasses = stringClasses;
+        this.intervalStarts = intervalStarts;
+        this.intervalClasses = intervalClasses;
+        this.classCount = classCount;
+        this.asciiClasses = new int[ASCII_SIZE];
+        for (int cp = 0; cp < ASCII_SIZE; cp++) {
+            asciiClasses[cp] = lookupInterval(cp);
+        }
+    }
+
+    /**
+     * Analyzes the transitions of all nodes and partitions the alphabets into equivalence classes.
+     *
+     * @param nodes all nodes of a DFA
+     * @param alphabets registered alphabets of the DFA, alphabets only used by edges are included anyway
+     * @return the partition
+     * @implNote The partition is refined node by node: on each node, the alphabets of a class which
+     * lead to the same head (other than the ELSE head) are split into a new class. The cost is linear
+     * in the total size of all transition tables.
+     */
+    public static AlphabetPartition of(Collection<DFANode> nodes, Collection<String> alphabets) {
+        final Map<DFANode, Integer> nodeIndex = new HashMap<>();
+        nodes.forEach((DFANode n) -> nodeIndex.putIfAbsent(n, nodeIndex.size()));
+
+        // collect the universe of alphabets: strings and the boundaries of code point intervals
+        final Map<String, Integer> stringIds = new LinkedHashMap<>();
+        final TreeSet<Integer> boundaries = new TreeSet<>();
+        boundaries.add(0);
+        alphabets.forEach((String al) -> collect(al, stringIds, boundaries));
+        for (DFANode node : nodes) {
+            node.getTransitionTable().keySet().forEach((String al) -> collect(al, stringIds, boundaries));
+            for (AlphabetRange range : node.getRangeTable().keySet()) {
+                boundaries.add(range.getFrom());
+                if (range.getTo() < Character.MAX_CODE_POINT) boundaries.add(range.getTo() + 1);
+            }
+        }
+        final int[] starts = boundaries.stream().mapToInt(Integer::intValue).toArray();
+        final int stringCount = stringIds.size();
+
+        // refine the partition node by node
+        final int[] classOf = new int[stringCount + starts.length];
+        final int[] lastVisitedBy = new int[classOf.length];
+        Arrays.fill(lastVisitedBy, -1);
+        int classCount = 1;
+        for (DFANode node : nodes) {
+            final int nodeId = nodeIndex.get(node);
+            final DFAEdge elseEdge = node.getElseEdge();
+            final int elseTarget = elseEdge == null ? -1 : nodeIndex.getOrDefault(elseEdge.getHead(), -1);
+            // (old class, target) -> new class
+            final Map<Long, Integer> splits = new HashMap<>();
+            for (Map.Entry<String, DFAEdge> entry : node.getTransitionTable().entrySet()) {
+                final int target = nodeIndex.getOrDefault(entry.getValue().getHead(), -1);
+                final int codePoint = AlphabetRange.codePointOf(entry.getKey());
+                final int symbol = codePoint >= 0
+                        ? stringCount + Arrays.binarySearch(starts, codePoint)
+                        : stringIds.get(entry.getKey());
+                classCount = split(symbol, target, elseTarget, nodeId, classOf, lastVisitedBy, splits, classCount);
+            }
+            for (Map.Entry<AlphabetRange, DFAEdge> entry : node.getRangeTable().entrySet()) {
+                final int target = nodeIndex.getOrDefault(entry.getValue().getHead(), -1);
+                final int first = Arrays.binarySearch(starts, entry.getKey().getFrom());
+                for (int i = first; i < starts.length && starts[i] <= entry.getKey().getTo(); i++) {
+                    classCount = split(stringCount + i, target, elseTarget, nodeId, classOf, lastVisitedBy, splits, classCount);
+                }
+            }
+        }
+
+        // renumber the classes compactly, OTHER_CLASS always stays 0
+        final int[] renumber = new int[classCount];
+        Arrays.fill(renumber, -1);
+        renumber[OTHER_CLASS] = OTHER_CLASS;
+        int compactCount = 1;
+        for (int i = 0; i < classOf.length; i++) {
+            if (renumber[classOf[i]] < 0) renumber[classOf[i]] = compactCount++;
+            classOf[i] = renumber[classOf[i]];
+        }
+
+        final Map<String, Integer> stringClasses = new HashMap<>();
+        stringIds.forEach((String al, Integer id) -> stringClasses.put(al, classOf[id]));
+        // merge the adjacent intervals in the same class
+        final int[] mergedStarts = new int[starts.length];
+        final int[] mergedClasses = new int[starts.length];
+        int size = 0;
+        for (int i = 0; i < starts.length; i++) {
+            final int cls = classOf[stringCount + i];
+            if (size > 0 && mergedClasses[size - 1] == cls) continue;
+            mergedStarts[size] = starts[i];
+            mergedClasses[size] = cls;
+            size++;
+        }
+        return new AlphabetPartition(stringClasses, Arrays.copyOf(mergedStarts, size),
+                Arrays.copyOf(mergedClasses, size), compactCount);
+    }
+
+    private static void collect(String alphabet, Map<String, Integer> stringIds, TreeSet<Integer> boundaries) {
+        final int codePoint = AlphabetRange.codePointOf(alphabet);
+        if (codePoint >= 0) {
+            boundaries.add(codePoint);
+            if (codePoint < Character.MAX_CODE_POINT) boundaries.add(codePoint + 1);
+        } else {
+            stringIds.putIfAbsent(alphabet, stringIds.size());
+        }
+    }
+
+    private static int split(int symbol, int target, int elseTarget, int nodeId, int[] classOf,
+                             int[] lastVisitedBy, Map<Long, Integer> splits, int classCount) {
+        // alphabets going to the ELSE head behave the same as the unmentioned ones
+        if (target == elseTarget || lastVisitedBy[symbol] == nodeId) return classCount;
+        lastVisitedBy[symbol] = nodeId;
+        final long key = ((long) classOf[symbol] << 32) | (target & 0xFFFFFFFFL);
+        final Integer newClass = splits.get(key);
+        if (newClass != null) {
+            classOf[symbol] = newClass;
+            return classCount;
+        }
+        splits.put(key, classCount);
+        classOf[symbol] = classCount;
+        return classCount + 1;
+    }
+
+    /**
+     * Returns the number of equivalence classes, including {@link #OTHER_CLASS}.
+     *
+     * @return number of classes
+     */
+    public int getClassCount() {
+        return classCount;
+    }
+
+    /**
+     * Returns the class of an alphabet.
+     *
+     * @param alphabet alphabet
+     * @return class id
+     */
+    public int classOf(String alphabet) {
+        final int codePoint = AlphabetRange.codePointOf(alphabet);
+        if (codePoint >= 0) return classOfCodePoint(codePoint);
+        return stringClasses.getOrDefault(alphabet, OTHER_CLASS);
+    }
+
+    /**
+     * Returns the class of a single-code-point alphabet.
+     *
+     * @param codePoint code point
+     * @return class id
+     */
+    public int classOfCodePoint(int codePoint) {
+        if (codePoint >= 0 && codePoint < ASCII_SIZE) return asciiClasses[codePoint];
+        return lookupInterval(codePoint);
+    }
+
+    private int lookupInterval(int codePoint) {
+        if (codePoint < 0) return OTHER_CLASS;
+        int low = 0, high = intervalStarts.length - 1;
+        // find the last interval starting at or before the code point
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (intervalStarts[mid] <= codePoint) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return intervalClasses[low];
+    }
+
+    /**
+     * Returns the number of code point intervals after merging the equivalent neighbours.
+     *
+     * @return number of intervals
+     */
+    public int getIntervalCount() {
+        return intervalStarts.length;
+    }
+
+    int[] getIntervalStarts() {
+        return intervalStarts;
+    }
+
+    int[] getIntervalClasses() {
+        return intervalClasses;
+    }
+
+    Map<String, Integer> getStringClasses() {
+        return stringClasses;
+    }
+
+    /**
+     * Calls the consumer with the class of every interval overlapping the range.
+     *
+     * @param range code point range
+     * @param consumer consumer of class ids
+     */
+    void forEachClassIn(AlphabetRange range, IntConsumer consumer) {
+        int i = Arrays.binarySearch(intervalStarts, range.getFrom());
+        if (i < 0) i = -i - 2;
+        for (; i < intervalStarts.length && intervalStarts[i] <= range.getTo(); i++) {
+            consumer.accept(intervalClasses[i]);
+        }
+    }
+
+    /**
+     * Groups the given alphabets by their equivalence classes.
+     *
+     * @param alphabets alphabets, e.g. {@code DFAController.getAlphabetSet()}
+     * @return list of equivalence classes, alphabets in the same set behave identically on every node
+     */
+    public List<Set<String>> group(Collection<String> alphabets) {
+        final Map<Integer, Set<String>> groups = new LinkedHashMap<>();
+        alphabets.stream().sorted().forEach((String al) -> groups.computeIfAbsent(classOf(al), k -> new TreeSet<>()).add(al));
+        return new ArrayList<>(groups.values());
+    }
+}
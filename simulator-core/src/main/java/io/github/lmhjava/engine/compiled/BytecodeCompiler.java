@@ -0,0 +1,393 @@
+package io.github.lmhjava.engine.compiled;
+
+import io.github.lmhjava.engine.dfa.DFAController;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Generates a class specialized for one {@link CompiledDFA}, whose {@code accepts} method encodes
+ * every state as a case of a {@code switch} inside a loop:
+ * <pre>{@code
+ * int state = INITIAL;
+ * for (int i = from; i < to; i++) {
+ *     switch (state) {
+ *         case 0: switch (classes[i]) { case 0: state = 1; continue; ... default: return false; }
+ *         ...
+ *         default: return false;
+ *     }
+ * }
+ * switch (state) { case ACCEPTED_STATE: return true; ... default: return false; }
+ * }</pre>
+ * The transitions become constants in the code, so the JIT can compile the DFA like a hand-written
+ * one, without loading from a transition table.
+ * <p>
+ * The class is defined as a hidden class, so it is unloaded as soon as the matcher is unreachable.
+ * DFAs above the size threshold, or whose method would exceed the 64KB limit of the JVM, are not
+ * generated, and the table-driven {@link CompiledDFA} is returned instead.
+ *
+ * @implNote The class file is written by hand with version 49, which is verified by type inference
+ * and does not need a StackMapTable. Every jump uses a 4-byte offset, so the layout is computed in
+ * one pass regardless of the size of the method.
+ */
+public final class BytecodeCompiler {
+    /**
+     * Default maximum number of states to generate.
+     */
+    public static final int DEFAULT_MAX_STATES = 1024;
+    // limit of the code length of a method
+    private static final int MAX_CODE_LENGTH = 65535;
+    private static final String CLASS_NAME = "io/github/lmhjava/engine/compiled/GeneratedDFA";
+    private static final String INTERFACE_NAME = "io/github/lmhjava/engine/compiled/DFAMatcher";
+
+    // local variables of accepts(int[] classes, int from, int to)
+    private static final int LOCAL_CLASSES = 1;
+    private static final int LOCAL_INDEX = 2;
+    private static final int LOCAL_TO = 3;
+    private static final int LOCAL_STATE = 4;
+    private static final int LOCAL_CLASS = 5;
+
+    // opcodes
+    private static final int ICONST_0 = 0x03;
+    private static final int ICONST_1 = 0x04;
+    private static final int SIPUSH = 0x11;
+    private static final int ILOAD = 0x15;
+    private static final int ALOAD = 0x19;
+    private static final int IALOAD = 0x2e;
+    private static final int ISTORE = 0x36;
+    private static final int IINC = 0x84;
+    private static final int IF_ICMPLT = 0xa1;
+    private static final int TABLESWITCH = 0xaa;
+    private static final int IRETURN = 0xac;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int GOTO_W = 0xc8;
+
+    private BytecodeCompiler() {
+    }
+
+    /**
+     * Compiles the current structure of a DFA and generates a matcher for it.
+     *
+     * @param controller DFA to compile
+     * @return generated matcher, or a {@link CompiledDFA} if the DFA is too large
+     */
+    public static DFAMatcher generate(DFAController controller) {
+        return generate(CompiledDFA.compile(controller), DEFAULT_MAX_STATES);
+    }
+
+    /**
+     * Generates a matcher for a compiled DFA.
+     *
+     * @param dfa compiled DFA
+     * @return generated matcher, or the compiled DFA itself if it is too large
+     */
+    public static DFAMatcher generate(CompiledDFA dfa) {
+        return generate(dfa, DEFAULT_MAX_STATES);
+    }
+
+    /**
+     * Generates a matcher for a compiled DFA.
+     * The generated matcher takes the same alphabet classes as the compiled DFA.
+     *
+     * @param dfa compiled DFA
+     * @param maxStates maximum number of states to generate
+     * @return generated matcher, or the compiled DFA itself if it is too large, or if the runtime forbids
+     * defining classes
+     * @throws LinkageError if the generated class is invalid, a bug of the generator
+     */
+    public static DFAMatcher generate(CompiledDFA dfa, int maxStates) {
+        if (!isGeneratable(dfa, maxStates)) return dfa;
+        final byte[] bytes = generateClassFile(dfa);
+        final MethodHandle constructor;
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            constructor = lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class));
+        } catch (IllegalAccessException | SecurityException | UnsupportedOperationException e) {
+            // e.g. a security manager forbids defining classes, the table engine still works
+            return dfa;
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Generated matcher without a constructor", e);
+        }
+        try {
+            return (DFAMatcher) constructor.invoke();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            // the generated constructor only calls Object()
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns true if a matcher can be generated for the DFA.
+     *
+     * @param dfa compiled DFA
+     * @param maxStates maximum number of states to generate
+     * @return whether the DFA is small enough
+     */
+    public static boolean isGeneratable(CompiledDFA dfa, int maxStates) {
+        final int stateCount = dfa.getStateCount();
+        if (dfa.getInitialState() == CompiledDFA.DEAD || dfa.getClassCount() == 0) return false;
+        if (stateCount > maxStates || stateCount > Short.MAX_VALUE) return false;
+        return estimateCodeLength(stateCount, dfa.getClassCount()) <= MAX_CODE_LENGTH;
+    }
+
+    private static long estimateCodeLength(int stateCount, int classCount) {
+        // prologue, loop head, state switch, one class switch and one assignment per state, epilogue
+        final long stateSwitch = 2 + 16 + 4L * stateCount;
+        final long classSwitches = stateCount * (2 + 16 + 4L * classCount);
+        final long assignments = stateCount * 10L;
+        return 32 + stateSwitch + classSwitches + assignments + stateSwitch + 4;
+    }
+
+    /**
+     * Writes the class file of the generated matcher.
+     *
+     * @param dfa compiled DFA
+     * @return bytes of the class file
+     */
+    static byte[] generateClassFile(CompiledDFA dfa) {
+        final byte[] code = generateCode(dfa);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(code.length + 256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(49);
+            // constant pool
+            out.writeShort(14);
+            writeUtf8(out, CLASS_NAME);                              // #1
+            writeClass(out, 1);                                      // #2
+            writeUtf8(out, "java/lang/Object");                      // #3
+            writeClass(out, 3);                                      // #4
+            writeUtf8(out, INTERFACE_NAME);                          // #5
+            writeClass(out, 5);                                      // #6
+            writeUtf8(out, "<init>");                                // #7
+            writeUtf8(out, "()V");                                   // #8
+            out.writeByte(12);                                       // #9 NameAndType <init>()V
+            out.writeShort(7);
+            out.writeShort(8);
+            out.writeByte(10);                                       // #10 Object.<init>()V
+            out.writeShort(4);
+            out.writeShort(9);
+            writeUtf8(out, "accepts");                               // #11
+            writeUtf8(out, "([III)Z");                               // #12
+            writeUtf8(out, "Code");                                  // #13
+            // public final super, this, super, interfaces, no fields
+            out.writeShort(0x0031);
+            out.writeShort(2);
+            out.writeShort(4);
+            out.writeShort(1);
+            out.writeShort(6);
+            out.writeShort(0);
+            out.writeShort(2);
+            // public <init>() { super(); }
+            writeMethod(out, 7, 8, 1, 1, new byte[]{
+                    (byte) ALOAD, 0, (byte) INVOKESPECIAL, 0, 10, (byte) RETURN});
+            // public boolean accepts(int[], int, int)
+            writeMethod(out, 11, 12, 2, 6, code);
+            // no class attributes
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] generateCode(CompiledDFA dfa) {
+        final int stateCount = dfa.getStateCount();
+        final int classCount = dfa.getClassCount();
+        final int[] table = dfa.getTable();
+        final Code code = new Code();
+        final int loop = code.newLabel();
+        final int end = code.newLabel();
+        final int rejected = code.newLabel();
+        final int accepted = code.newLabel();
+        final int[] stateLabels = code.newLabels(stateCount);
+        final int[] assignLabels = code.newLabels(stateCount);
+
+        // state = INITIAL
+        code.pushState(dfa.getInitialState());
+        code.op(ISTORE, LOCAL_STATE);
+        // while (i < to)
+        code.bind(loop);
+        code.op(ILOAD, LOCAL_INDEX);
+        code.op(ILOAD, LOCAL_TO);
+        code.op(IF_ICMPLT);
+        code.u2(8);
+        code.jump(end);
+        // cls = classes[i++]
+        code.op(ALOAD, LOCAL_CLASSES);
+        code.op(ILOAD, LOCAL_INDEX);
+        code.op(IALOAD);
+        code.op(ISTORE, LOCAL_CLASS);
+        code.op(IINC, LOCAL_INDEX);
+        code.u1(1);
+        // switch (state)
+        code.op(ILOAD, LOCAL_STATE);
+        code.tableSwitch(stateLabels, rejected);
+        // case state: switch (cls)
+        final int[] targets = new int[classCount];
+        for (int state = 0; state < stateCount; state++) {
+            code.bind(stateLabels[state]);
+            code.op(ILOAD, LOCAL_CLASS);
+            for (int cls = 0; cls < classCount; cls++) {
+                final int next = table[state * classCount + cls];
+                targets[cls] = next == CompiledDFA.DEAD ? rejected : assignLabels[next];
+            }
+            code.tableSwitch(targets, rejected);
+        }
+        // state = next; continue
+        for (int state = 0; state < stateCount; state++) {
+            code.bind(assignLabels[state]);
+            code.pushState(state);
+            code.op(ISTORE, LOCAL_STATE);
+            code.jump(loop);
+        }
+        // return isAccepting(state)
+        code.bind(end);
+        code.op(ILOAD, LOCAL_STATE);
+        final int[] results = new int[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            results[state] = dfa.isAccepting(state) ? accepted : rejected;
+        }
+        code.tableSwitch(results, rejected);
+        code.bind(rejected);
+        code.op(ICONST_0);
+        code.op(IRETURN);
+        code.bind(accepted);
+        code.op(ICONST_1);
+        code.op(IRETURN);
+        return code.toByteArray();
+    }
+
+    private static void writeUtf8(DataOutputStream out, String value) throws IOException {
+        out.writeByte(1);
+        out.writeUTF(value);
+    }
+
+    private static void writeClass(DataOutputStream out, int nameIndex) throws IOException {
+        out.writeByte(7);
+        out.writeShort(nameIndex);
+    }
+
+    private static void writeMethod(DataOutputStream out, int nameIndex, int descriptorIndex,
+                                    int maxStack, int maxLocals, byte[] code) throws IOException {
+        out.writeShort(0x0001);
+        out.writeShort(nameIndex);
+        out.writeShort(descriptorIndex);
+        out.writeShort(1);
+        // Code attribute
+        out.writeShort(13);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        // no exception table, no attributes
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    /**
+     * A growable bytecode buffer with labels.
+     * Jumps are written as 4-byte placeholders and patched once all labels are bound.
+     */
+    private static final class Code {
+        private byte[] bytes = new byte[256];
+        private int length;
+        private final List<Integer> labelOffsets = new ArrayList<>();
+        // (position of the placeholder, offset of the jumping instruction, label)
+        private final List<int[]> fixups = new ArrayList<>();
+
+        int newLabel() {
+            labelOffsets.add(-1);
+            return labelOffsets.size() - 1;
+        }
+
+        int[] newLabels(int count) {
+            final int[] labels = new int[count];
+            for (int i = 0; i < count; i++) {
+                labels[i] = newLabel();
+            }
+            return labels;
+        }
+
+        void bind(int label) {
+            labelOffsets.set(label, length);
+        }
+
+        void u1(int value) {
+            if (length == bytes.length) bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            bytes[length++] = (byte) value;
+        }
+
+        void u2(int value) {
+            u1(value >>> 8);
+            u1(value);
+        }
+
+        void u4(int value) {
+            u2(value >>> 16);
+            u2(value);
+        }
+
+        void op(int opcode) {
+            u1(opcode);
+        }
+
+        void op(int opcode, int local) {
+            u1(opcode);
+            u1(local);
+        }
+
+        void pushState(int state) {
+            op(SIPUSH);
+            u2(state);
+        }
+
+        void jump(int label) {
+            final int start = length;
+            op(GOTO_W);
+            placeholder(start, label);
+        }
+
+        // tableswitch over 0 .. labels.length - 1
+        void tableSwitch(int[] labels, int defaultLabel) {
+            final int start = length;
+            op(TABLESWITCH);
+            while (length % 4 != 0) u1(0);
+            placeholder(start, defaultLabel);
+            u4(0);
+            u4(labels.length - 1);
+            for (int label : labels) {
+                placeholder(start, label);
+            }
+        }
+
+        private void placeholder(int instruction, int label) {
+            fixups.add(new int[]{length, instruction, label});
+            u4(0);
+        }
+
+        byte[] toByteArray() {
+            for (int[] fixup : fixups) {
+                final int offset = labelOffsets.get(fixup[2]) - fixup[1];
+                final int position = fixup[0];
+                bytes[position] = (byte) (offset >>> 24);
+                bytes[position + 1] = (byte) (offset >>> 16);
+                bytes[position + 2] = (byte) (offset >>> 8);
+                bytes[position + 3] = (byte) offset;
+            }
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package io.github.lmhjava.engine.compiled;
+
+import io.github.lmhjava.engine.dfa.AlphabetRange;
+import io.github.lmhjava.engine.dfa.DFAController;
+import io.github.lmhjava.engine.dfa.DFAEdge;
+import io.github.lmhjava.engine.dfa.DFANode;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable, table-driven snapshot of a DFA.
+ * States are numbered from 0 and the transition table is indexed by (state, alphabet class),
+ * see {@link AlphabetPartition}.
+ *
+ * @implNote Unlike {@link DFAController}, a compiled DFA does not notify any listeners nor update
+ * the current state of nodes. Later edits on the controller are NOT reflected, compile again instead.
+ */
+public final class CompiledDFA implements DFAMatcher {
+    /**
+     * State of an undefined transition. The dead state never accepts and never leaves.
+     */
+    public static final int DEAD = -1;
+
+    private final DFANode[] nodes;
+    private final Map<DFANode, Integer> stateOf;
+    private final AlphabetPartition partition;
+    private final int classCount;
+    // table[state * classCount + class] = next state
+    private final int[] table;
+    private final boolean[] accepting;
+    private final int initialState;
+    // outputs[state * classCount + class] = output of the transition, null if the DFA has no outputs
+    private final int[] outputs;
+
+    private CompiledDFA(DFANode[] nodes, Map<DFANode, Integer> stateOf, AlphabetPartition partition,
+                        int[] table, boolean[] accepting, int initialState, int[] outputs) {
+        this.nodes = nodes;
+        this.stateOf = stateOf;
+        this.partition = partition;
+        this.classCount = partition.getClassCount();
+        this.table = table;
+        this.accepting = accepting;
+        this.initialState = initialState;
+        this.outputs = outputs;
+    }
+
+    /**
+     * Compiles the current structure of a DFA.
+     *
+     * @param controller DFA to compile
+     * @return compiled DFA
+     */
+    public static CompiledDFA compile(DFAController controller) {
+        final List<DFANode> nodeList = controller.getNodeSet();
+        final DFANode[] nodes = nodeList.toArray(new DFANode[0]);
+        final Map<DFANode, Integer> stateOf = new HashMap<>();
+        for (int i = 0; i < nodes.length; i++) {
+            stateOf.put(nodes[i], i);
+        }
+        final AlphabetPartition partition = AlphabetPartition.of(nodeList, controller.getAlphabetSet());
+        final int classCount = partition.getClassCount();
+        final int[] table = new int[nodes.length * classCount];
+        final boolean[] accepting = new boolean[nodes.length];
+        for (int state = 0; state < nodes.length; state++) {
+            final DFANode node = nodes[state];
+            final int row = state * classCount;
+            final DFAEdge elseEdge = node.getElseEdge();
+            Arrays.fill(table, row, row + classCount, elseEdge == null ? DEAD : stateOf.getOrDefault(elseEdge.getHead(), DEAD));
+            for (Map.Entry<String, DFAEdge> entry : node.getTransitionTable().entrySet()) {
+                table[row + partition.classOf(entry.getKey())] = stateOf.getOrDefault(entry.getValue().getHead(), DEAD);
+            }
+            for (Map.Entry<AlphabetRange, DFAEdge> entry : node.getRangeTable().entrySet()) {
+                final int target = stateOf.getOrDefault(entry.getValue().getHead(), DEAD);
+                partition.forEachClassIn(entry.getKey(), (int cls) -> table[row + cls] = target);
+            }
+            accepting[state] = node.isAccepted();
+        }
+        final DFANode initialNode = controller.getInitialNode();
+        final int initialState = initialNode == null ? DEAD : stateOf.getOrDefault(initialNode, DEAD);
+        return new CompiledDFA(nodes, stateOf, partition, table, accepting, initialState,
+                compileOutputs(nodes, controller.getEdgeSet(), partition));
+    }
+
+    /**
+     * Resolves the output of every transition, e.g. the output of the edge if any,
+     * otherwise the output of the head node.
+     *
+     * @return output table, or null if no edge or node has an output
+     */
+    private static int[] compileOutputs(DFANode[] nodes, List<DFAEdge> edges, AlphabetPartition partition) {
+        final boolean hasOutputs = Arrays.stream(nodes).anyMatch(DFANode::hasOutput)
+                || edges.stream().anyMatch(DFAEdge::hasOutput);
+        if (!hasOutputs) return null;
+        final int classCount = partition.getClassCount();
+        final int[] outputs = new int[nodes.length * classCount];
+        // same order as the transition table: ELSE edge first, then alphabets and ranges
+        for (int state = 0; state < nodes.length; state++) {
+            final DFANode node = nodes[state];
+            final int row = state * classCount;
+            Arrays.fill(outputs, row, row + classCount, outputOf(node.getElseEdge()));
+            for (Map.Entry<String, DFAEdge> entry : node.getTransitionTable().entrySet()) {
+                outputs[row + partition.classOf(entry.getKey())] = outputOf(entry.getValue());
+            }
+            for (Map.Entry<AlphabetRange, DFAEdge> entry : node.getRangeTable().entrySet()) {
+                final int output = outputOf(entry.getValue());
+                partition.forEachClassIn(entry.getKey(), (int cls) -> outputs[row + cls] = output);
+            }
+        }
+        return outputs;
+    }
+
+    private static int outputOf(DFAEdge edge) {
+        if (edge == null) return DFAEdge.NO_OUTPUT;
+        return edge.hasOutput() ? edge.getOutput() : edge.getHead().getOutput();
+    }
+
+    public int getInitialState() {
+        return initialState;
+    }
+
+    public int getStateCount() {
+        return nodes.length;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    public AlphabetPartition getPartition() {
+        return partition;
+    }
+
+    /**
+     * Returns the node a state is compiled from.
+     *
+     * @param state state
+     * @return node of the state, or {@code null} for {@link #DEAD}
+     */
+    public DFANode getNode(int state) {
+        return state == DEAD ? null : nodes[state];
+    }
+
+    /**
+     * Returns the state a node is compiled into.
+     *
+     * @param node node
+     * @return state of the node, or {@link #DEAD} if the node is not compiled
+     */
+    public int stateOf(DFANode node) {
+        return stateOf.getOrDefault(node, DEAD);
+    }
+
+    public int classOf(String alphabet) {
+        return partition.classOf(alphabet);
+    }
+
+    public int classOfCodePoint(int codePoint) {
+        return partition.classOfCodePoint(codePoint);
+    }
+
+    /**
+     * Returns the next state after a transition with an alphabet class.
+     *
+     * @param state current state
+     * @param cls alphabet class
+     * @return next state, or {@link #DEAD} if the transition is undefined
+     */
+    public int step(int state, int cls) {
+        return state == DEAD ? DEAD : table[state * classCount + cls];
+    }
+
+    /**
+     * Returns the next state after a transition with an alphabet.
+     *
+     * @param state current state
+     * @param alphabet input
+     * @return next state, or {@link #DEAD} if the transition is undefined
+     */
+    public int next(int state, String alphabet) {
+        return step(state, partition.classOf(alphabet));
+    }
+
+    public boolean isAccepting(int state) {
+        return state != DEAD && accepting[state];
+    }
+
+    public boolean hasOutputs() {
+        return outputs != null;
+    }
+
+    /**
+     * Returns the output of a transition.
+     *
+     * @param state current state
+     * @param cls alphabet class
+     * @return output of the transition, or {@link DFAEdge#NO_OUTPUT} if it has none
+     */
+    public int output(int state, int cls) {
+        return outputs == null || state == DEAD ? DFAEdge.NO_OUTPUT : outputs[state * classCount + cls];
+    }
+
+    /**
+     * Runs the whole input from the initial state.
+     *
+     * @param input sequence of alphabets
+     * @return true if the DFA ends on an accepted state
+     */
+    public boolean accepts(Iterable<String> input) {
+        int state = initialState;
+        for (String alphabet : input) {
+            if (state == DEAD) return false;
+            state = table[state * classCount + partition.classOf(alphabet)];
+        }
+        return isAccepting(state);
+    }
+
+    /**
+     * Runs the whole text from the initial state, each code point is an alphabet.
+     *
+     * @param text input text
+     * @return true if the DFA ends on an accepted state
+     */
+    public boolean accepts(CharSequence text) {
+        int state = initialState;
+        for (int i = 0; i < text.length() && state != DEAD; ) {
+            final int codePoint = Character.codePointAt(text, i);
+            state = table[state * classCount + partition.classOfCodePoint(codePoint)];
+            i += Character.charCount(codePoint);
+        }
+        return isAccepting(state);
+    }
+
+    /**
+     * Runs a slice of pre-classified input from the initial state.
+     *
+     * @param classes alphabet classes, e.g. from {@link #classOf(String)}
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @return true if the DFA ends on an accepted state
+     */
+    @Override
+    public boolean accepts(int[] classes, int from, int to) {
+        int state = initialState;
+        for (int i = from; i < to && state != DEAD; i++) {
+            state = table[state * classCount + classes[i]];
+        }
+        return isAccepting(state);
+    }
+
+    /**
+     * Returns a copy of the transition table, indexed by {@code state * getClassCount() + class}.
+     *
+     * @return transition table
+     */
+    public int[] getTable() {
+        return table.clone();
+    }
+}
@@ -0,0 +1,179 @@
+package io.github.lmhjava.engine.compiled;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A hash of the behavior of a {@link CompiledDFA}, and a numbering of its states which does not
+ * depend on how the DFA is built.
+ * <p>
+ * The state ids of a compiled DFA follow the order of {@code DFAController.getNodeSet()}, which differs
+ * from one process to another, even for the same DFA file. This class numbers the states reachable
+ * from the initial state in breadth-first order instead, trying the alphabet classes in a fixed order,
+ * so two compiled copies of the same DFA get the same canonical ids and the same hash.
+ *
+ * @implNote The hash is SHA-256 over the alphabet partition (every code point interval and every
+ * string alphabet, with its canonical class), and over the accept flag, the transitions, and the
+ * outputs of every reachable state. Unreachable states do not change the hash, since no run
+ * from the initial state can tell them apart.
+ */
+public final class DFAFingerprint {
+    private final String hash;
+    // canonical id of every state, -1 if unreachable
+    private final int[] canonicalOf;
+    // state of every canonical id
+    private final int[] stateOf;
+
+    private DFAFingerprint(String hash, int[] canonicalOf, int[] stateOf) {
+        this.hash = hash;
+        this.canonicalOf = canonicalOf;
+        this.stateOf = stateOf;
+    }
+
+    /**
+     * Computes the fingerprint of a compiled DFA.
+     *
+     * @param dfa compiled DFA
+     * @return fingerprint
+     */
+    public static DFAFingerprint of(CompiledDFA dfa) {
+        final AlphabetPartition partition = dfa.getPartition();
+        final int classCount = dfa.getClassCount();
+        final int[] intervalStarts = partition.getIntervalStarts();
+        final int[] intervalClasses = partition.getIntervalClasses();
+        final Map<String, Integer> stringClasses = new TreeMap<>(partition.getStringClasses());
+
+        // classes in the order of their first interval, then of their first string
+        final int[] classOrder = new int[classCount];
+        final int[] canonicalClass = new int[classCount];
+        Arrays.fill(canonicalClass, -1);
+        canonicalClass[AlphabetPartition.OTHER_CLASS] = 0;
+        classOrder[0] = AlphabetPartition.OTHER_CLASS;
+        int orderedCount = 1;
+        for (int cls : intervalClasses) {
+            if (canonicalClass[cls] < 0) {
+                canonicalClass[cls] = orderedCount;
+                classOrder[orderedCount++] = cls;
+            }
+        }
+        for (int cls : stringClasses.values()) {
+            if (canonicalClass[cls] < 0) {
+                canonicalClass[cls] = orderedCount;
+                classOrder[orderedCount++] = cls;
+            }
+        }
+
+        // breadth-first numbering from the initial state
+        final int stateCount = dfa.getStateCount();
+        final int[] canonicalOf = new int[stateCount];
+        Arrays.fill(canonicalOf, -1);
+        final int[] stateOf = new int[stateCount];
+        int reachableCount = 0;
+        final int initialState = dfa.getInitialState();
+        if (initialState != CompiledDFA.DEAD) {
+            canonicalOf[initialState] = 0;
+            stateOf[reachableCount++] = initialState;
+        }
+        for (int head = 0; head < reachableCount; head++) {
+            for (int i = 0; i < orderedCount; i++) {
+                final int target = dfa.step(stateOf[head], classOrder[i]);
+                if (target != CompiledDFA.DEAD && canonicalOf[target] < 0) {
+                    canonicalOf[target] = reachableCount;
+                    stateOf[reachableCount++] = target;
+                }
+            }
+        }
+
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES * Math.max(4, orderedCount * 2 + 2));
+        buffer.putInt(orderedCount).putInt(intervalStarts.length);
+        update(digest, buffer);
+        for (int i = 0; i < intervalStarts.length; i++) {
+            buffer.putInt(intervalStarts[i]).putInt(canonicalClass[intervalClasses[i]]);
+            update(digest, buffer);
+        }
+        buffer.putInt(stringClasses.size());
+        update(digest, buffer);
+        for (Map.Entry<String, Integer> entry : stringClasses.entrySet()) {
+            final byte[] bytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(bytes.length);
+            update(digest, buffer);
+            digest.update(bytes);
+            buffer.putInt(canonicalClass[entry.getValue()]);
+            update(digest, buffer);
+        }
+        buffer.putInt(reachableCount).putInt(dfa.hasOutputs() ? 1 : 0);
+        update(digest, buffer);
+        for (int id = 0; id < reachableCount; id++) {
+            final int state = stateOf[id];
+            buffer.putInt(dfa.isAccepting(state) ? 1 : 0);
+            for (int i = 0; i < orderedCount; i++) {
+                final int target = dfa.step(state, classOrder[i]);
+                buffer.putInt(target == CompiledDFA.DEAD ? -1 : canonicalOf[target]);
+                if (dfa.hasOutputs()) buffer.putInt(dfa.output(state, classOrder[i]));
+            }
+            update(digest, buffer);
+        }
+
+        final StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return new DFAFingerprint(hex.toString(), canonicalOf, Arrays.copyOf(stateOf, reachableCount));
+    }
+
+    private static void update(MessageDigest digest, ByteBuffer buffer) {
+        digest.update(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+
+    /**
+     * Returns the hash of the DFA, two DFAs with the same hash behave the same on every input.
+     *
+     * @return SHA-256 in lowercase hex
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * Returns the number of states reachable from the initial state.
+     *
+     * @return number of canonical ids
+     */
+    public int getReachableCount() {
+        return stateOf.length;
+    }
+
+    /**
+     * Returns the canonical id of a state.
+     *
+     * @param state state of the compiled DFA
+     * @return canonical id, or {@link CompiledDFA#DEAD} if the state is dead or unreachable
+     */
+    public int toCanonical(int state) {
+        return state == CompiledDFA.DEAD ? CompiledDFA.DEAD : canonicalOf[state];
+    }
+
+    /**
+     * Returns the state of a canonical id.
+     *
+     * @param canonicalState canonical id
+     * @return state of the compiled DFA, or {@link CompiledDFA#DEAD} if the id is dead or out of range
+     */
+    public int fromCanonical(int canonicalState) {
+        if (canonicalState < 0 || canonicalState >= stateOf.length) return CompiledDFA.DEAD;
+        return stateOf[canonicalState];
+    }
+}
@@ -0,0 +1,18 @@
+package io.github.lmhjava.engine.compiled;
+
+/**
+ * A frozen DFA which decides whether it accepts an input.
+ * The input is given as alphabet classes, see {@link CompiledDFA#classOf(String)}.
+ */
+public interface DFAMatcher {
+
+    /**
+     * Runs a slice of pre-classified input from the initial state.
+     *
+     * @param classes alphabet classes
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @return true if the DFA ends on an accepted state
+     */
+    boolean accepts(int[] classes, int from, int to);
+}
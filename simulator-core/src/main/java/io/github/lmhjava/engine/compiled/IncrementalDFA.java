@@ -0,0 +1,431 @@
+package io.github.lmhjava.engine.compiled;
+
+import io.github.lmhjava.engine.dfa.AlphabetRange;
+import io.github.lmhjava.engine.dfa.DFAController;
+import io.github.lmhjava.engine.dfa.DFAEdge;
+import io.github.lmhjava.engine.dfa.DFANode;
+import io.github.lmhjava.engine.observable.MutationListener;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A transition table which follows the edits of a DFA, instead of being compiled again.
+ * <p>
+ * The table subscribes to the mutations of its controller. When an edge is added, removed or gets
+ * new alphabets, when an ELSE edge is toggled, or when the accept flag of a node changes, ONLY the
+ * row of the affected node is re-built. The cost of an edit is proportional to the size of one row,
+ * no matter how many states the DFA has.
+ * <p>
+ * Alphabet classes are only ever split, never merged: a new alphabet or a new range boundary adds a
+ * class whose <i>parent</i> is the class it is split from. Rows built before the split are shorter
+ * than the class count, and a lookup of a missing column falls back to the parent column, which held
+ * the same transition before the split. Removed nodes leave free rows which are reused by new nodes.
+ * <p>
+ * Short rows cost an extra walk up the parents on every lookup. Once the share of short rows crosses
+ * the compaction threshold, the rows are re-built to full length on the compaction executor, while
+ * edits and runs go on. A compacted row is only swapped in if its row is not re-built in the meantime.
+ *
+ * @implNote All methods are synchronized on this table, the listener callbacks included,
+ * so a run never sees a half-applied edit. Class ids are stable, but a split may move an alphabet into
+ * a new class, so classify the input with {@link #classOf(String)} right before a run.
+ */
+public final class IncrementalDFA implements MutationListener {
+    public static final int DEAD = -1;
+    public static final int OTHER_CLASS = AlphabetPartition.OTHER_CLASS;
+    public static final double DEFAULT_COMPACTION_THRESHOLD = 0.25;
+    private static final int ASCII_SIZE = 128;
+    private static final int MIN_CAPACITY = 16;
+
+    // a single daemon thread, so that compaction never keeps the JVM alive
+    private static final ExecutorService DEFAULT_COMPACTOR = Executors.newSingleThreadExecutor((Runnable r) -> {
+        final Thread thread = new Thread(r, "dfa-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final DFAController controller;
+    private final Executor compactor;
+    private final double compactionThreshold;
+
+    // classes of alphabets which are not a single code point
+    private final Map<String, Integer> stringClasses;
+    // start of every disjoint interval covering all code points -> class
+    private final TreeMap<Integer, Integer> intervalClasses;
+    private final int[] asciiClasses;
+    // parents[class] = class it is split from, always smaller than the class
+    private int[] parents;
+    private int classCount;
+
+    private final Map<DFANode, Integer> stateOf;
+    private DFANode[] nodes;
+    // rows[state][class] = next state, a row is null if the state is free
+    private int[][] rows;
+    private boolean[] accepting;
+    // number of used state ids, including free ones
+    private int stateLimit;
+    private int[] freeStates;
+    private int freeCount;
+    private int liveCount;
+    // rows shorter than the class count
+    private int shortRowCount;
+    private int initialState;
+
+    private boolean isCompacting;
+    private long rebuiltRowCount;
+    private long compactionCount;
+
+    public IncrementalDFA(DFAController controller) {
+        this(controller, DEFAULT_COMPACTOR, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Compiles the current structure of a DFA, and subscribes to its later edits.
+     *
+     * @param controller DFA to follow
+     * @param compactor executor of the background compaction
+     * @param compactionThreshold share of short rows from 0 to 1 which triggers a compaction
+     */
+    public IncrementalDFA(DFAController controller, Executor compactor, double compactionThreshold) {
+        assert controller != null && compactor != null;
+        assert compactionThreshold > 0 && compactionThreshold <= 1;
+        this.controller = controller;
+        this.compactor = compactor;
+        this.compactionThreshold = compactionThreshold;
+        this.stringClasses = new HashMap<>();
+        this.intervalClasses = new TreeMap<>();
+        this.asciiClasses = new int[ASCII_SIZE];
+        this.parents = new int[MIN_CAPACITY];
+        this.classCount = 1;
+        // code points get a class of their own, so that a range starting at 0 never covers the strings
+        final int codePointClass = addClass(OTHER_CLASS);
+        this.intervalClasses.put(0, codePointClass);
+        Arrays.fill(asciiClasses, codePointClass);
+        this.stateOf = new HashMap<>();
+        this.nodes = new DFANode[MIN_CAPACITY];
+        this.rows = new int[MIN_CAPACITY][];
+        this.accepting = new boolean[MIN_CAPACITY];
+        this.freeStates = new int[MIN_CAPACITY];
+        this.initialState = DEAD;
+        synchronized (this) {
+            // split all classes first, so that every row is built at full length
+            for (DFANode node : controller.getNodeSet()) {
+                splitClasses(node);
+            }
+            for (DFANode node : controller.getNodeSet()) {
+                stateOf.put(node, allocateState(node));
+            }
+            for (int state = 0; state < stateLimit; state++) {
+                buildRow(state);
+            }
+            initialNodeChanged(controller.getInitialNode());
+            controller.addMutationListener(this);
+        }
+    }
+
+    /**
+     * Stops following the edits of the controller.
+     */
+    public synchronized void detach() {
+        controller.removeMutationListener(this);
+    }
+
+    @Override
+    public synchronized void nodeAdded(DFANode node) {
+        if (stateOf.containsKey(node)) return;
+        splitClasses(node);
+        final int state = allocateState(node);
+        stateOf.put(node, state);
+        buildRow(state);
+    }
+
+    @Override
+    public synchronized void nodeRemoved(DFANode node) {
+        final Integer state = stateOf.remove(node);
+        if (state == null) return;
+        if (rows[state].length < classCount) shortRowCount--;
+        if (initialState == state) initialState = DEAD;
+        nodes[state] = null;
+        rows[state] = null;
+        accepting[state] = false;
+        liveCount--;
+        if (freeCount == freeStates.length) freeStates = Arrays.copyOf(freeStates, freeCount * 2);
+        freeStates[freeCount++] = state;
+    }
+
+    @Override
+    public synchronized void nodeChanged(DFANode node) {
+        final Integer state = stateOf.get(node);
+        if (state == null) return;
+        splitClasses(node);
+        if (rows[state].length < classCount) shortRowCount--;
+        buildRow(state);
+        compactIfFragmented();
+    }
+
+    @Override
+    public synchronized void initialNodeChanged(DFANode node) {
+        initialState = node == null ? DEAD : stateOf.getOrDefault(node, DEAD);
+    }
+
+    // takes a free state id, or a new one
+    private int allocateState(DFANode node) {
+        final int state;
+        if (freeCount > 0) {
+            state = freeStates[--freeCount];
+        } else {
+            if (stateLimit == nodes.length) {
+                final int capacity = stateLimit * 2;
+                nodes = Arrays.copyOf(nodes, capacity);
+                rows = Arrays.copyOf(rows, capacity);
+                accepting = Arrays.copyOf(accepting, capacity);
+            }
+            state = stateLimit++;
+        }
+        nodes[state] = node;
+        rows[state] = new int[0];
+        liveCount++;
+        return state;
+    }
+
+    // re-builds a row at full length from the transitions of its node
+    private void buildRow(int state) {
+        final DFANode node = nodes[state];
+        final int[] row = new int[classCount];
+        final DFAEdge elseEdge = node.getElseEdge();
+        Arrays.fill(row, elseEdge == null ? DEAD : stateOf.getOrDefault(elseEdge.getHead(), DEAD));
+        // alphabets win over ranges, the same as DFANode#getEdge
+        for (Map.Entry<AlphabetRange, DFAEdge> entry : node.getRangeTable().entrySet()) {
+            final int target = stateOf.getOrDefault(entry.getValue().getHead(), DEAD);
+            final AlphabetRange range = entry.getKey();
+            intervalClasses.subMap(range.getFrom(), true, range.getTo(), true)
+                    .values().forEach((Integer cls) -> row[cls] = target);
+        }
+        for (Map.Entry<String, DFAEdge> entry : node.getTransitionTable().entrySet()) {
+            row[lookupClass(entry.getKey())] = stateOf.getOrDefault(entry.getValue().getHead(), DEAD);
+        }
+        rows[state] = row;
+        accepting[state] = node.isAccepted();
+        rebuiltRowCount++;
+    }
+
+    // makes sure every alphabet and range boundary of the node has its own class
+    private void splitClasses(DFANode node) {
+        final int oldClassCount = classCount;
+        for (AlphabetRange range : node.getRangeTable().keySet()) {
+            splitIntervalAt(range.getFrom());
+            if (range.getTo() < Character.MAX_CODE_POINT) splitIntervalAt(range.getTo() + 1);
+        }
+        for (String alphabet : node.getTransitionTable().keySet()) {
+            final int codePoint = AlphabetRange.codePointOf(alphabet);
+            if (codePoint >= 0) {
+                splitIntervalAt(codePoint);
+                if (codePoint < Character.MAX_CODE_POINT) splitIntervalAt(codePoint + 1);
+            } else if (!stringClasses.containsKey(alphabet)) {
+                // the alphabet was in the OTHER class, i.e. on the ELSE edge of every node
+                stringClasses.put(alphabet, addClass(OTHER_CLASS));
+            }
+        }
+        if (classCount == oldClassCount) return;
+        // every row is short now, except those built after this split
+        shortRowCount = liveCount;
+        for (int cp = 0; cp < ASCII_SIZE; cp++) {
+            asciiClasses[cp] = intervalClasses.floorEntry(cp).getValue();
+        }
+    }
+
+    private void splitIntervalAt(int codePoint) {
+        final Map.Entry<Integer, Integer> interval = intervalClasses.floorEntry(codePoint);
+        if (interval.getKey() == codePoint) return;
+        intervalClasses.put(codePoint, addClass(interval.getValue()));
+    }
+
+    private int addClass(int parent) {
+        if (classCount == parents.length) parents = Arrays.copyOf(parents, classCount * 2);
+        parents[classCount] = parent;
+        return classCount++;
+    }
+
+    private void compactIfFragmented() {
+        if (isCompacting || liveCount == 0 || shortRowCount < compactionThreshold * liveCount) return;
+        isCompacting = true;
+        compactor.execute(this::compact);
+    }
+
+    // re-builds the short rows to full length, mostly outside the lock
+    private void compact() {
+        final int[][] snapshot;
+        final int[] parentSnapshot;
+        final int snapshotClassCount;
+        synchronized (this) {
+            snapshot = Arrays.copyOf(rows, stateLimit);
+            parentSnapshot = parents;
+            snapshotClassCount = classCount;
+        }
+        final int[][] compacted = new int[snapshot.length][];
+        for (int state = 0; state < snapshot.length; state++) {
+            final int[] row = snapshot[state];
+            if (row == null || row.length == snapshotClassCount) continue;
+            final int[] full = Arrays.copyOf(row, snapshotClassCount);
+            for (int cls = row.length; cls < snapshotClassCount; cls++) {
+                // parents are smaller, so they are already resolved
+                full[cls] = full[parentSnapshot[cls]];
+            }
+            compacted[state] = full;
+        }
+        synchronized (this) {
+            for (int state = 0; state < compacted.length; state++) {
+                // skip rows which are re-built or freed since the snapshot
+                if (compacted[state] == null || rows[state] != snapshot[state]) continue;
+                rows[state] = compacted[state];
+                if (snapshotClassCount == classCount) shortRowCount--;
+            }
+            isCompacting = false;
+            compactionCount++;
+        }
+    }
+
+    /**
+     * Returns the class of an alphabet.
+     *
+     * @param alphabet alphabet
+     * @return class id
+     */
+    public synchronized int classOf(String alphabet) {
+        return lookupClass(alphabet);
+    }
+
+    /**
+     * Returns the class of a single-code-point alphabet.
+     *
+     * @param codePoint code point
+     * @return class id
+     */
+    public synchronized int classOfCodePoint(int codePoint) {
+        return lookupClass(codePoint);
+    }
+
+    /**
+     * Returns the next state of a transition.
+     *
+     * @param state current state
+     * @param cls alphabet class
+     * @return next state, or {@link #DEAD}
+     */
+    public synchronized int step(int state, int cls) {
+        return lookup(state, cls);
+    }
+
+    // the lookups below are only called with the lock held
+
+    private int lookup(int state, int cls) {
+        if (state == DEAD) return DEAD;
+        final int[] row = rows[state];
+        int column = cls;
+        while (column >= row.length) {
+            column = parents[column];
+        }
+        return row[column];
+    }
+
+    private int lookupClass(String alphabet) {
+        final int codePoint = AlphabetRange.codePointOf(alphabet);
+        if (codePoint >= 0) return lookupClass(codePoint);
+        return stringClasses.getOrDefault(alphabet, OTHER_CLASS);
+    }
+
+    private int lookupClass(int codePoint) {
+        if (codePoint < 0) return OTHER_CLASS;
+        if (codePoint < ASCII_SIZE) return asciiClasses[codePoint];
+        return intervalClasses.floorEntry(codePoint).getValue();
+    }
+
+    public synchronized boolean isAccepting(int state) {
+        return state != DEAD && accepting[state];
+    }
+
+    public synchronized int getInitialState() {
+        return initialState;
+    }
+
+    public synchronized int stateOf(DFANode node) {
+        return stateOf.getOrDefault(node, DEAD);
+    }
+
+    /**
+     * Runs the whole input from the initial state.
+     *
+     * @param input sequence of alphabets
+     * @return true if the DFA ends on an accepted state
+     */
+    public synchronized boolean accepts(Iterable<String> input) {
+        int state = initialState;
+        for (String alphabet : input) {
+            if (state == DEAD) return false;
+            state = lookup(state, lookupClass(alphabet));
+        }
+        return state != DEAD && accepting[state];
+    }
+
+    /**
+     * Runs the whole text from the initial state, each code point is an alphabet.
+     *
+     * @param text input text
+     * @return true if the DFA ends on an accepted state
+     */
+    public synchronized boolean accepts(CharSequence text) {
+        int state = initialState;
+        for (int i = 0; i < text.length() && state != DEAD; ) {
+            final int codePoint = Character.codePointAt(text, i);
+            state = lookup(state, lookupClass(codePoint));
+            i += Character.charCount(codePoint);
+        }
+        return state != DEAD && accepting[state];
+    }
+
+    /**
+     * Runs a slice of pre-classified input from the initial state.
+     *
+     * @param classes alphabet classes, e.g. from {@link #classOf(String)}
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @return true if the DFA ends on an accepted state
+     */
+    public synchronized boolean accepts(int[] classes, int from, int to) {
+        int state = initialState;
+        for (int i = from; i < to && state != DEAD; i++) {
+            state = lookup(state, classes[i]);
+        }
+        return state != DEAD && accepting[state];
+    }
+
+    public synchronized int getStateCount() {
+        return liveCount;
+    }
+
+    public synchronized int getClassCount() {
+        return classCount;
+    }
+
+    /**
+     * Returns the share of live rows which are shorter than the class count.
+     *
+     * @return fragmentation from 0 to 1
+     */
+    public synchronized double getFragmentation() {
+        return liveCount == 0 ? 0 : (double) shortRowCount / liveCount;
+    }
+
+    public synchronized long getRebuiltRowCount() {
+        return rebuiltRowCount;
+    }
+
+    public synchronized long getCompactionCount() {
+        return compactionCount;
+    }
+}
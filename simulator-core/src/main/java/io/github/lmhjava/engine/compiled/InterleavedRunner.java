@@ -0,0 +1,110 @@
+package io.github.lmhjava.engine.compiled;
+
+/**
+ * Runs many independent inputs through one {@link CompiledDFA} in lockstep.
+ * <p>
+ * A single run is a chain of dependent loads: the next table lookup can not start before the
+ * previous one returns, so a run on a table larger than the cache stalls on every miss.
+ * This runner keeps {@code width} inputs in flight and advances each of them by ONE step per
+ * iteration. The lookups of different inputs do not depend on each other, so the CPU can
+ * overlap their cache misses. A lane whose input is finished is refilled with the next input
+ * right away, so inputs of different lengths keep all lanes busy.
+ *
+ * @implNote the best width depends on the machine and the size of the table, usually 4 to 16.
+ * For tables which fit in the cache, a width of 1 is as fast as {@link CompiledDFA#accepts(int[], int, int)}.
+ */
+public final class InterleavedRunner {
+    public static final int DEFAULT_WIDTH = 8;
+
+    private final CompiledDFA dfa;
+    private final int[] table;
+    private final int classCount;
+    private final int width;
+
+    public InterleavedRunner(CompiledDFA dfa) {
+        this(dfa, DEFAULT_WIDTH);
+    }
+
+    /**
+     * Creates a runner.
+     *
+     * @param dfa compiled DFA
+     * @param width number of inputs in flight
+     */
+    public InterleavedRunner(CompiledDFA dfa, int width) {
+        assert width > 0;
+        this.dfa = dfa;
+        this.table = dfa.getTable();
+        this.classCount = dfa.getClassCount();
+        this.width = width;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Runs every input from the initial state.
+     *
+     * @param inputs pre-classified inputs, see {@link CompiledDFA#classOf(String)}
+     * @return whether each input is accepted
+     */
+    public boolean[] acceptsAll(int[][] inputs) {
+        final boolean[] results = new boolean[inputs.length];
+        acceptsAll(inputs, results);
+        return results;
+    }
+
+    /**
+     * Runs every input from the initial state, without allocation.
+     *
+     * @param inputs pre-classified inputs, see {@link CompiledDFA#classOf(String)}
+     * @param results array to receive whether each input is accepted, at least as long as the inputs
+     */
+    public void acceptsAll(int[][] inputs, boolean[] results) {
+        assert results.length >= inputs.length;
+        final int initialState = dfa.getInitialState();
+        if (initialState == CompiledDFA.DEAD) {
+            for (int i = 0; i < inputs.length; i++) {
+                results[i] = false;
+            }
+            return;
+        }
+        final int lanes = Math.min(width, inputs.length);
+        // input, current state and position of every lane, an idle lane has no input
+        final int[] laneInput = new int[lanes];
+        final int[] laneState = new int[lanes];
+        final int[] lanePosition = new int[lanes];
+        int nextInput = 0;
+        int active = 0;
+        for (int lane = 0; lane < lanes; lane++) {
+            laneInput[lane] = nextInput++;
+            laneState[lane] = initialState;
+            active++;
+        }
+        while (active > 0) {
+            for (int lane = 0; lane < lanes; lane++) {
+                final int input = laneInput[lane];
+                if (input < 0) continue;
+                final int[] classes = inputs[input];
+                final int position = lanePosition[lane];
+                final int state = laneState[lane];
+                if (position < classes.length && state != CompiledDFA.DEAD) {
+                    laneState[lane] = table[state * classCount + classes[position]];
+                    lanePosition[lane] = position + 1;
+                    continue;
+                }
+                // the input is finished, refill the lane
+                results[input] = dfa.isAccepting(state);
+                if (nextInput < inputs.length) {
+                    laneInput[lane] = nextInput++;
+                    laneState[lane] = initialState;
+                    lanePosition[lane] = 0;
+                } else {
+                    laneInput[lane] = -1;
+                    active--;
+                }
+            }
+        }
+    }
+}
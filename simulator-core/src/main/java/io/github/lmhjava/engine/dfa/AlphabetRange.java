@@ -0,0 +1,101 @@
+package io.github.lmhjava.engine.dfa;
+
+/**
+ * An inclusive range of code points, e.g. [a-z].
+ * An edge labelled with a range accepts every single-code-point alphabet in the range,
+ * without registering them one by one.
+ */
+public final class AlphabetRange implements Comparable<AlphabetRange> {
+    private final int from;
+    private final int to;
+
+    public AlphabetRange(int from, int to) {
+        if (from < Character.MIN_CODE_POINT || to > Character.MAX_CODE_POINT || from > to) {
+            throw new IllegalArgumentException(String.format("Invalid code point range [%d, %d]", from, to));
+        }
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Creates a range from two single-code-point strings, e.g. {@code AlphabetRange.of("a", "z")}.
+     *
+     * @param from first alphabet of the range
+     * @param to last alphabet of the range
+     * @return the range
+     */
+    public static AlphabetRange of(String from, String to) {
+        final int fromCodePoint = codePointOf(from), toCodePoint = codePointOf(to);
+        if (fromCodePoint < 0 || toCodePoint < 0) {
+            throw new IllegalArgumentException(String.format("Range ends must be single code points: %s, %s", from, to));
+        }
+        return new AlphabetRange(fromCodePoint, toCodePoint);
+    }
+
+    /**
+     * Returns the only code point of the alphabet.
+     *
+     * @param alphabet alphabet
+     * @return code point of the alphabet, or -1 if the alphabet is not exactly one code point
+     */
+    public static int codePointOf(String alphabet) {
+        if (alphabet == null) return -1;
+        if (alphabet.length() == 1) {
+            final char c = alphabet.charAt(0);
+            return Character.isSurrogate(c) ? -1 : c;
+        }
+        if (alphabet.length() == 2 && Character.isSurrogatePair(alphabet.charAt(0), alphabet.charAt(1))) {
+            return Character.toCodePoint(alphabet.charAt(0), alphabet.charAt(1));
+        }
+        return -1;
+    }
+
+    public int getFrom() {
+        return from;
+    }
+
+    public int getTo() {
+        return to;
+    }
+
+    public boolean contains(int codePoint) {
+        return from <= codePoint && codePoint <= to;
+    }
+
+    /**
+     * Returns true if the alphabet is a single code point within this range.
+     *
+     * @param alphabet alphabet
+     * @return whether this range contains the alphabet
+     */
+    public boolean contains(String alphabet) {
+        return contains(codePointOf(alphabet));
+    }
+
+    public boolean overlaps(AlphabetRange other) {
+        return from <= other.to && other.from <= to;
+    }
+
+    @Override
+    public int compareTo(AlphabetRange other) {
+        return from != other.from ? Integer.compare(from, other.from) : Integer.compare(to, other.to);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AlphabetRange)) return false;
+        final AlphabetRange other = (AlphabetRange) o;
+        return from == other.from && to == other.to;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * from + to;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + new String(Character.toChars(from)) + "-" + new String(Character.toChars(to)) + "]";
+    }
+}
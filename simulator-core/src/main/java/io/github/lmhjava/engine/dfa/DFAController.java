@@ -1,12 +1,17 @@
 package io.github.lmhjava.engine.dfa;
 
+import io.github.lmhjava.engine.exception.DFAValidationException;
 import io.github.lmhjava.engine.exception.NextNodeUndefException;
 import io.github.lmhjava.engine.observable.ObservableController;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -19,11 +24,18 @@ public class DFAController extends ObservableController {
     private DFANode currentNode;
     private DFANode initialNode;
     private Set<String> alphabetSet;
+    // code point ranges registered as a whole, see AlphabetRange
+    private final Set<AlphabetRange> alphabetRanges;
+    // bumped by every modification of the structure, see getVersion()
+    private long version;
+    // whether a transaction is being applied
+    private boolean isCommitting;
 
     public DFAController() {
         this.edgeSet = new HashSet<>();
         this.nodeSet = new HashSet<>();
         this.alphabetSet = new HashSet<>();
+        this.alphabetRanges = new HashSet<>();
     }
 
     public DFAController(Set<DFAEdge> edgeSet, Set<DFANode> nodeSet,
@@ -31,7 +43,47 @@ public class DFAController extends ObservableController {
         this.edgeSet = new HashSet<>(edgeSet);
         this.nodeSet = new HashSet<>(nodeSet);
         this.alphabetSet = new HashSet<>(alphabetSet);
+        this.alphabetRanges = new HashSet<>();
         this.initialNode = initialNode;
+        this.nodeSet.forEach((DFANode node) -> node.addOwner(this));
+    }
+
+    /**
+     * Returns the modification counter of this DFA.
+     * The counter is bumped by every change which may change the language of the DFA, either made
+     * through this controller or directly on a registered node or edge (e.g. {@link DFAEdge#registerAlphabet(String)},
+     * {@link DFANode#setAccepted(boolean)}). Transitions by {@link #next(String)} do NOT bump it.
+     *
+     * @return current version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Bumps the modification counter and notifies the mutation listeners,
+     * called by registered nodes and edges when they are modified.
+     *
+     * @param node modified node, or the tail of the modified edge
+     */
+    void nodeModified(DFANode node) {
+        version++;
+        // a transaction reports its nodes once all of its edits are applied
+        if (!isCommitting) notifyNodeChanged(node);
+    }
+
+    /**
+     * Bumps the modification counter and notifies the mutation listeners of the edge and of its tail,
+     * called by registered edges when their alphabets, ranges, ELSE flag or output are modified.
+     *
+     * @param edge modified edge
+     */
+    void edgeModified(DFAEdge edge) {
+        version++;
+        if (!isCommitting) {
+            notifyEdgeChanged(edge);
+            notifyNodeChanged(edge.getTail());
+        }
     }
 
     /**
@@ -50,6 +102,7 @@ public class DFAController extends ObservableController {
      */
     public void setAlphabetSet(Set<String> alphabetSet) {
         this.alphabetSet = new HashSet<>(alphabetSet);
+        version++;
     }
 
     /**
@@ -110,22 +163,39 @@ public class DFAController extends ObservableController {
     /**
      * Sets initial node of DFA.
      *
-     * @param initialNode new initial node.
+     * @param initialNode new initial node, or {@code null} to unset it.
      */
     public void setInitialNode(DFANode initialNode) {
-        assert nodeSet.contains(initialNode);
+        assert initialNode == null || nodeSet.contains(initialNode);
         this.initialNode = initialNode;
+        version++;
+        notifyInitialNodeChanged(initialNode);
     }
 
     /**
      * Shallowly clones the current DFA (Node will be references.)
+     * The clone owns the shared nodes as well, so an edit of a node or edge through either DFA bumps the
+     * version of both and notifies the listeners of both. The nodes only hold their owners weakly, so a
+     * dropped clone is collected, and {@link #release()} detaches it at once.
      *
      * @implNote the new DFA will be at the initial state
      *  which had not experienced any transitions
      * @return shallow copy of the current DFA object.
      */
     public DFAController cloneDFA() {
-        return new DFAController(this.edgeSet, this.nodeSet, this.alphabetSet, this.initialNode);
+        final DFAController clone = new DFAController(this.edgeSet, this.nodeSet, this.alphabetSet, this.initialNode);
+        clone.alphabetRanges.addAll(this.alphabetRanges);
+        return clone;
+    }
+
+    /**
+     * Detaches this DFA from its nodes, e.g. a clone no longer used, or a DFA whose nodes were moved to
+     * another controller. Edits of the nodes and edges no longer bump the version of this DFA nor notify
+     * its listeners, without waiting for the DFA to be collected.
+     * The DFA should not be edited nor run afterwards.
+     */
+    public void release() {
+        nodeSet.forEach((DFANode node) -> node.removeOwner(this));
     }
 
     /**
@@ -143,11 +213,14 @@ public class DFAController extends ObservableController {
     public boolean registerEdge(DFAEdge edge) {
         assert edge != null && edge.getTail() != null;
         // check if the new alphabet is a subset of the general alphabet set
-        if (!alphabetSet.containsAll(edge.getAlphabets())) return false;
+        if (!edge.getAlphabets().stream().allMatch(this::isRegisteredAlphabet)) return false;
+        if (!edge.getRanges().stream().allMatch(this::isRegisteredRange)) return false;
         // register edge to the tail node
         if (edge.getTail().registerEdge(edge)) {
             edgeSet.add(edge);
             edge.setRegistered(true);
+            version++;
+            notifyNodeChanged(edge.getTail());
             return true;
         }
         return false;
@@ -161,7 +234,11 @@ public class DFAController extends ObservableController {
      */
     public boolean registerNode(DFANode node) {
         if (node == null) return false;
-        nodeSet.add(node);
+        if (nodeSet.add(node)) {
+            node.addOwner(this);
+            version++;
+            notifyNodeAdded(node);
+        }
         return true;
     }
 
@@ -177,6 +254,7 @@ public class DFAController extends ObservableController {
             return false;
         } else {
             alphabetSet.add(alphabet);
+            version++;
             return true;
         }
     }
@@ -188,7 +266,7 @@ public class DFAController extends ObservableController {
      */
     public void registerAlphabet(Set<String> alphabetSet) {
         assert alphabetSet != null;
-        this.alphabetSet.addAll(alphabetSet);
+        if (this.alphabetSet.addAll(alphabetSet)) version++;
     }
 
     /**
@@ -201,6 +279,75 @@ public class DFAController extends ObservableController {
         this.alphabetSet.remove(alphabet);
         // only need to traverse all the edges, these edges will notify nodes to update
         edgeSet.forEach((DFAEdge edge) -> edge.unregisterAlphabet(alphabet));
+        version++;
+    }
+
+    /**
+     * Returns all code point ranges registered in this DFA.
+     *
+     * @return set of ranges
+     */
+    public Set<AlphabetRange> getAlphabetRanges() {
+        return new HashSet<>(alphabetRanges);
+    }
+
+    /**
+     * Add a code point range to the DFA. Every single-code-point alphabet in the range is
+     * regarded as registered.
+     *
+     * @param range new range
+     * @return whether successfully added
+     */
+    public boolean registerAlphabetRange(AlphabetRange range) {
+        assert range != null;
+        if (!alphabetRanges.add(range)) return false;
+        version++;
+        return true;
+    }
+
+    /**
+     * Remove a code point range from DFA.
+     * Ranges of edges which are no longer covered by the registered ranges are removed as well.
+     *
+     * @param range range to remove
+     */
+    public void unregisterAlphabetRange(AlphabetRange range) {
+        assert range != null;
+        if (!alphabetRanges.remove(range)) return;
+        edgeSet.forEach((DFAEdge edge) -> edge.getRanges().stream()
+                .filter((AlphabetRange r) -> r.overlaps(range) && !isRegisteredRange(r))
+                .forEach(edge::unregisterRange));
+        version++;
+    }
+
+    /**
+     * Returns true if the alphabet is in the alphabet set or covered by a registered range.
+     *
+     * @param alphabet alphabet
+     * @return whether the alphabet is registered
+     */
+    public boolean isRegisteredAlphabet(String alphabet) {
+        if (alphabetSet.contains(alphabet)) return true;
+        final int codePoint = AlphabetRange.codePointOf(alphabet);
+        return codePoint >= 0 && alphabetRanges.stream().anyMatch((AlphabetRange r) -> r.contains(codePoint));
+    }
+
+    /**
+     * Returns true if every code point of the range is covered by the registered ranges.
+     *
+     * @param range range
+     * @return whether the range is registered
+     */
+    public boolean isRegisteredRange(AlphabetRange range) {
+        // walk through the registered ranges in order, and extend the covered prefix of the range
+        int covered = range.getFrom() - 1;
+        for (AlphabetRange r : alphabetRanges.stream().sorted().collect(Collectors.toList())) {
+            // there is a gap which no later range can fill
+            if (r.getFrom() > covered + 1) break;
+            covered = Math.max(covered, r.getTo());
+            if (covered >= range.getTo()) return true;
+        }
+        return false;
     }
 
     /**
@@ -214,6 +361,8 @@ public class DFAController extends ObservableController {
         if (edge.getTail().removeEdge(edge)) {
             edgeSet.remove(edge);
             edge.setRegistered(false);
+            version++;
+            notifyNodeChanged(edge.getTail());
             return true;
         }
         return false;
@@ -230,13 +379,17 @@ public class DFAController extends ObservableController {
      */
     public void removeNode(DFANode node) {
         assert node != null;
-        nodeSet.remove(node);
+        final boolean isRegistered = nodeSet.remove(node);
+        if (isRegistered) node.removeOwner(this);
+        version++;
 
         if (node == currentNode) {
-            currentNode = initialNode;
-            initialNode.setOnCurrentState(true);
+            // there is nowhere to go back to once the initial node itself is removed
+            currentNode = node == initialNode ? null : initialNode;
+            if (currentNode != null) currentNode.setOnCurrentState(true);
         }
-        if (node == initialNode) {
+        final boolean isInitialNode = node == initialNode;
+        if (isInitialNode) {
             initialNode = null;
         }
 
@@ -251,6 +404,200 @@ public class DFAController extends ObservableController {
         });
         // remove these edges
         edgeSet.removeAll(removalSubset);
+        removalSubset.stream().map(DFAEdge::getTail).filter((DFANode n) -> n != node).distinct().forEach(this::notifyNodeChanged);
+        if (isRegistered) notifyNodeRemoved(node);
+        if (isInitialNode) notifyInitialNodeChanged(null);
+    }
+
+    /**
+     * Applies a batch of edits to the DFA as a whole.
+     * For example:
+     * <pre>{@code
+     * controller.edit(tx -> {
+     *     tx.registerNode(node);
+     *     tx.registerEdge(edge);
+     *     tx.registerEdgeAlphabet(edge, "a");
+     * });
+     * }</pre>
+     *
+     * @param script function that stages all the edits in the given transaction
+     * @implNote Unlike calling the mutators one by one, the determinism of every affected node is
+     *          validated only once, and the transition table of every affected node is re-built
+     *          exactly once. If the validation fails, NONE of the edits is applied.
+     * @throws DFAValidationException if the DFA would not be valid after the edits
+     */
+    public void edit(Consumer<DFATransaction> script) throws DFAValidationException {
+        assert script != null;
+        final DFATransaction tx = new DFATransaction();
+        script.accept(tx);
+        commit(tx);
+    }
+
+    /**
+     * Validates and applies all staged edits of a transaction.
+     *
+     * @param tx transaction to commit
+     * @throws DFAValidationException if the DFA would not be valid after the edits
+     */
+    private void commit(DFATransaction tx) throws DFAValidationException {
+        // collect all edges being removed, including the ones connecting to removed nodes
+        final Set<DFAEdge> removedEdges = new HashSet<>();
+        tx.getRemovedEdges().stream().filter(edgeSet::contains).forEach(removedEdges::add);
+        if (!tx.getRemovedNodes().isEmpty()) {
+            edgeSet.stream()
+                    .filter((DFAEdge e) -> tx.getRemovedNodes().contains(e.getTail()) || tx.getRemovedNodes().contains(e.getHead()))
+                    .forEach(removedEdges::add);
+        }
+        final Set<DFAEdge> addedEdges = new HashSet<>(tx.getAddedEdges());
+        addedEdges.removeAll(edgeSet);
+
+        // staged alphabets of edges, removed alphabets are also removed from every edge
+        final Map<DFAEdge, Set<String>> edgeAlphabets = new HashMap<>(tx.getEdgeAlphabets());
+        if (!tx.getRemovedAlphabets().isEmpty()) {
+            final Set<DFAEdge> candidates = new HashSet<>(edgeSet);
+            candidates.addAll(addedEdges);
+            candidates.addAll(edgeAlphabets.keySet());
+            for (DFAEdge e : candidates) {
+                final Set<String> alphabets = edgeAlphabets.getOrDefault(e, e.getAlphabets());
+                if (alphabets.removeAll(tx.getRemovedAlphabets()) || edgeAlphabets.containsKey(e)) {
+                    edgeAlphabets.put(e, alphabets);
+                }
+            }
+        }
+
+        // find all the nodes whose transition table will change
+        final Set<DFANode> affectedNodes = new HashSet<>();
+        removedEdges.forEach((DFAEdge e) -> affectedNodes.add(e.getTail()));
+        addedEdges.forEach((DFAEdge e) -> affectedNodes.add(e.getTail()));
+        edgeAlphabets.keySet().stream().filter(edgeSet::contains).forEach((DFAEdge e) -> affectedNodes.add(e.getTail()));
+        tx.getElseFlags().keySet().stream().filter(edgeSet::contains).forEach((DFAEdge e) -> affectedNodes.add(e.getTail()));
+        tx.getEdgeRanges().keySet().stream().filter(edgeSet::contains).forEach((DFAEdge e) -> affectedNodes.add(e.getTail()));
+
+        // validate the new edges and the edges with new alphabets
+        final Set<DFAEdge> changedEdges = new HashSet<>(addedEdges);
+        edgeAlphabets.keySet().stream().filter(edgeSet::contains).forEach(changedEdges::add);
+        tx.getEdgeRanges().keySet().stream().filter(edgeSet::contains).forEach(changedEdges::add);
+        changedEdges.removeAll(removedEdges);
+        for (DFAEdge e : changedEdges) {
+            if (e.getHead() == null || !isNodeStaged(e.getTail(), tx) || !isNodeStaged(e.getHead(), tx)) {
+                throw new DFAValidationException(String.format("Edge %s connects a node which is not registered", e));
+            }
+            for (String al : edgeAlphabets.getOrDefault(e, e.getAlphabets())) {
+                if (!isAlphabetStaged(al, tx)) {
+                    throw new DFAValidationException(String.format("Alphabet %s of edge %s is not registered", al, e));
+                }
+            }
+            for (AlphabetRange range : tx.getEdgeRanges().getOrDefault(e, e.getRanges())) {
+                if (!isRegisteredRange(range)) {
+                    throw new DFAValidationException(String.format("Range %s of edge %s is not registered", range, e));
+                }
+            }
+        }
+
+        // group the new edges by tail once, instead of scanning all of them for every node
+        final Map<DFANode, List<DFAEdge>> addedEdgesByTail = addedEdges.stream()
+                .filter((DFAEdge e) -> !removedEdges.contains(e))
+                .collect(Collectors.groupingBy(DFAEdge::getTail));
+
+        // validate the determinism of every affected node, and stage its new outgoing edges
+        final Map<DFANode, Set<DFAEdge>> outgoingEdges = new HashMap<>();
+        for (DFANode node : affectedNodes) {
+            if (!isNodeStaged(node, tx)) continue;
+            final Set<DFAEdge> edges = new HashSet<>(node.getEdges());
+            if (node.getElseEdge() != null) edges.add(node.getElseEdge());
+            edges.removeAll(removedEdges);
+            edges.addAll(addedEdgesByTail.getOrDefault(node, List.of()));
+
+            DFAEdge elseEdge = null;
+            final Map<String, DFAEdge> occupied = new HashMap<>();
+            final Map<AlphabetRange, DFAEdge> occupiedRanges = new HashMap<>();
+            for (DFAEdge e : edges) {
+                if (tx.getElseFlags().getOrDefault(e, e.isElseEdge())) {
+                    if (elseEdge != null) {
+                        throw new DFAValidationException(String.format("Node %s has more than one ELSE edge", node));
+                    }
+                    elseEdge = e;
+                    continue;
+                }
+                for (String al : edgeAlphabets.getOrDefault(e, e.getAlphabets())) {
+                    if (occupied.putIfAbsent(al, e) != null) {
+                        throw new DFAValidationException(String.format("Alphabet %s is occupied by more than one edge of node %s", al, node));
+                    }
+                }
+                tx.getEdgeRanges().getOrDefault(e, e.getRanges()).forEach((AlphabetRange range) -> occupiedRanges.put(range, e));
+            }
+            // ranges of different edges must not overlap each other, or any alphabet of another edge
+            for (Map.Entry<AlphabetRange, DFAEdge> entry : occupiedRanges.entrySet()) {
+                final AlphabetRange range = entry.getKey();
+                final boolean isOverlapped = occupiedRanges.entrySet().stream()
+                        .anyMatch(other -> other.getValue() != entry.getValue() && other.getKey().overlaps(range))
+                        || occupied.entrySet().stream()
+                        .anyMatch(other -> other.getValue() != entry.getValue() && range.contains(other.getKey()));
+                if (isOverlapped) {
+                    throw new DFAValidationException(String.format("Range %s is occupied by more than one edge of node %s", range, node));
+                }
+            }
+            outgoingEdges.put(node, edges);
+        }
+
+        final DFANode newInitialNode = tx.isInitialNodeChanged() ? tx.getInitialNode() : initialNode;
+        if (tx.isInitialNodeChanged() && newInitialNode != null && !isNodeStaged(newInitialNode, tx)) {
+            throw new DFAValidationException(String.format("Initial node %s is not registered", newInitialNode));
+        }
+
+        // ALL validations are passed, apply the edits
+        alphabetSet.addAll(tx.getAddedAlphabets());
+        alphabetSet.removeAll(tx.getRemovedAlphabets());
+        isCommitting = true;
+        final List<DFANode> addedNodes = tx.getAddedNodes().stream().filter(nodeSet::add).collect(Collectors.toList());
+        final List<DFANode> removedNodes = tx.getRemovedNodes().stream().filter(nodeSet::remove).collect(Collectors.toList());
+        addedNodes.forEach((DFANode n) -> n.addOwner(this));
+        removedNodes.forEach((DFANode n) -> n.removeOwner(this));
+        removedEdges.forEach((DFAEdge e) -> e.setRegistered(false));
+        edgeSet.removeAll(removedEdges);
+        addedEdges.stream().filter((DFAEdge e) -> !removedEdges.contains(e)).forEach((DFAEdge e) -> {
+            e.setRegistered(true);
+            edgeSet.add(e);
+        });
+        edgeAlphabets.forEach(DFAEdge::overwriteAlphabets);
+        tx.getEdgeRanges().forEach(DFAEdge::overwriteRanges);
+        tx.getElseFlags().forEach(DFAEdge::overwriteElseEdge);
+        tx.getAcceptFlags().forEach(DFANode::setAccepted);
+        // re-build each affected node exactly once
+        tx.getRemovedNodes().forEach((DFANode n) -> n.setEdges(Set.of()));
+        outgoingEdges.forEach(DFANode::setEdges);
+
+        final DFANode oldInitialNode = initialNode;
+        initialNode = newInitialNode != null && nodeSet.contains(newInitialNode) ? newInitialNode : null;
+        version++;
+        isCommitting = false;
+
+        // report the added nodes first, so that the changed nodes can refer to them
+        addedNodes.forEach(this::notifyNodeAdded);
+        // then the edges which are kept but edited, before their tails
+        final Set<DFAEdge> editedEdges = new LinkedHashSet<>(edgeAlphabets.keySet());
+        editedEdges.addAll(tx.getEdgeRanges().keySet());
+        editedEdges.addAll(tx.getElseFlags().keySet());
+        editedEdges.stream().filter((DFAEdge e) -> edgeSet.contains(e) && !addedEdges.contains(e)).forEach(this::notifyEdgeChanged);
+        final Set<DFANode> changedNodes = new LinkedHashSet<>(outgoingEdges.keySet());
+        changedNodes.addAll(tx.getAcceptFlags().keySet());
+        changedNodes.stream().filter(nodeSet::contains).forEach(this::notifyNodeChanged);
+        removedNodes.forEach(this::notifyNodeRemoved);
+        if (initialNode != oldInitialNode) notifyInitialNodeChanged(initialNode);
+        if (currentNode != null && tx.getRemovedNodes().contains(currentNode)) {
+            currentNode.setOnCurrentState(false);
+            currentNode = initialNode;
+            if (currentNode != null) currentNode.setOnCurrentState(true);
+        }
+    }
+
+    private boolean isNodeStaged(DFANode node, DFATransaction tx) {
+        return (nodeSet.contains(node) || tx.getAddedNodes().contains(node)) && !tx.getRemovedNodes().contains(node);
+    }
+
+    private boolean isAlphabetStaged(String alphabet, DFATransaction tx) {
+        if (tx.getRemovedAlphabets().contains(alphabet)) return false;
+        return tx.getAddedAlphabets().contains(alphabet) || isRegisteredAlphabet(alphabet);
     }
 
     /**
@@ -9,16 +9,27 @@ import java.util.Set;
  */
 
 public class DFAEdge {
+    /**
+     * Output value of an edge or a node which does not emit anything.
+     */
+    public static final int NO_OUTPUT = Integer.MIN_VALUE;
+
     private final DFANode tail;
     private final DFANode head;
     private final Set<String> alphabets;
+    // code point ranges, each of them stands for all the single-code-point alphabets in it
+    private final Set<AlphabetRange> ranges;
     private boolean isElseEdge;
     private boolean isRegistered;
+    // value emitted when this edge is taken in transducer mode
+    private int output;
 
     public DFAEdge(DFANode tail, DFANode head) {
         this.tail = tail;
         this.head = head;
         this.alphabets = new HashSet<>();
+        this.ranges = new HashSet<>();
+        this.output = NO_OUTPUT;
     }
 
     public DFAEdge(DFANode tail, DFANode head, String alphabet) {
@@ -26,6 +37,17 @@ public class DFAEdge {
         this.head = head;
         this.alphabets = new HashSet<>();
         this.alphabets.add(alphabet);
+        this.ranges = new HashSet<>();
+        this.output = NO_OUTPUT;
+    }
+
+    public DFAEdge(DFANode tail, DFANode head, AlphabetRange range) {
+        this.tail = tail;
+        this.head = head;
+        this.alphabets = new HashSet<>();
+        this.ranges = new HashSet<>();
+        this.ranges.add(range);
+        this.output = NO_OUTPUT;
     }
 
     public boolean isElseEdge() {
@@ -46,16 +68,74 @@ public class DFAEdge {
      * @param elseEdge is else edge or not.
      */
     public void setElseEdge(boolean elseEdge) {
+        isElseEdge = elseEdge;
         if (this.isRegistered) {
             if (elseEdge) {
                 tail.setElseEdge(this);
             } else {
                 tail.setElseEdge(null);
             }
+            tail.notifyModified(this);
         }
+    }
+
+    /**
+     * Overwrites the ELSE flag WITHOUT notifying the tail node.
+     * Only used by {@link DFATransaction}, which re-builds the tail node afterward.
+     *
+     * @param elseEdge is else edge or not.
+     */
+    void overwriteElseEdge(boolean elseEdge) {
         isElseEdge = elseEdge;
     }
 
+    /**
+     * Overwrites the alphabets WITHOUT notifying the tail node.
+     * Only used by {@link DFATransaction}, which re-builds the tail node afterward.
+     *
+     * @param alphabets new alphabets of this edge
+     */
+    void overwriteAlphabets(Set<String> alphabets) {
+        this.alphabets.clear();
+        this.alphabets.addAll(alphabets);
+    }
+
+    /**
+     * Overwrites the ranges WITHOUT notifying the tail node.
+     * Only used by {@link DFATransaction}, which re-builds the tail node afterward.
+     *
+     * @param ranges new ranges of this edge
+     */
+    void overwriteRanges(Set<AlphabetRange> ranges) {
+        this.ranges.clear();
+        this.ranges.addAll(ranges);
+    }
+
+    /**
+     * Returns the value emitted when this edge is taken, see {@code Transducer}.
+     *
+     * @return output of this edge, or {@link #NO_OUTPUT} if it has none
+     */
+    public int getOutput() {
+        return output;
+    }
+
+    /**
+     * Sets the value emitted when this edge is taken.
+     * An edge output takes precedence over the output of its head node.
+     *
+     * @param output new output, {@link #NO_OUTPUT} clears it
+     */
+    public void setOutput(int output) {
+        if (this.output == output) return;
+        this.output = output;
+        if (this.isRegistered) tail.notifyModified(this);
+    }
+
+    public boolean hasOutput() {
+        return output != NO_OUTPUT;
+    }
+
     public DFANode getHead() {
         return head;
     }
@@ -74,14 +154,16 @@ public class DFAEdge {
      * @implNote the caller must ensure the new alphabet is registered in the associated {@code DFAController}
      * to avoid unexpected behaviors.
      * @param alphabet new alphabet
+     * @return false if the edge is registered and another edge of the tail already takes the alphabet,
+     * the edge is then left unchanged
      */
-    public void registerAlphabet(String alphabet) {
+    public boolean registerAlphabet(String alphabet) {
         assert alphabet != null;
-        if (alphabets.contains(alphabet)) return;
-        if (this.isRegistered) {
-            this.tail.addAlphabet(alphabet, this);
-        }
+        if (alphabets.contains(alphabet)) return true;
+        if (this.isRegistered && !this.tail.addAlphabet(alphabet, this)) return false;
         this.alphabets.add(alphabet);
+        if (this.isRegistered) this.tail.notifyModified(this);
+        return true;
     }
 
     /**
@@ -94,10 +176,50 @@ public class DFAEdge {
     public void unregisterAlphabet(String alphabet) {
         assert alphabet != null;
         if (!alphabets.contains(alphabet)) return;
+        this.alphabets.remove(alphabet);
         if (this.isRegistered) {
             this.tail.removeAlphabet(alphabet);
+            this.tail.notifyModified(this);
+        }
+    }
+
+    public Set<AlphabetRange> getRanges() {
+        return new HashSet<>(ranges);
+    }
+
+    /**
+     * Register a code point range for this edge and update the tail node.
+     *
+     * @implNote the caller must ensure the new range is registered in the associated {@code DFAController}
+     * to avoid unexpected behaviors.
+     * @param range new range
+     * @return false if the edge is registered and the range overlaps another edge of the tail,
+     * the edge is then left unchanged
+     */
+    public boolean registerRange(AlphabetRange range) {
+        assert range != null;
+        if (ranges.contains(range)) return true;
+        if (this.isRegistered && !this.tail.addRange(range, this)) return false;
+        this.ranges.add(range);
+        if (this.isRegistered) this.tail.notifyModified(this);
+        return true;
+    }
+
+    /**
+     * Unregister a code point range from this edge and update the tail node.
+     *
+     * @implNote if range is not registered before this function is called,
+     * this function fails silently.
+     * @param range range to unregister
+     */
+    public void unregisterRange(AlphabetRange range) {
+        assert range != null;
+        if (!ranges.contains(range)) return;
+        this.ranges.remove(range);
+        if (this.isRegistered) {
+            this.tail.removeRange(range);
+            this.tail.notifyModified(this);
         }
-        this.alphabets.remove(alphabet);
     }
 
     /**
@@ -125,8 +247,10 @@ public class DFAEdge {
         return "DFAEdge{\nTail Node = " + tail + "\n" +
                 "Head Node = " + head + "\n" +
                 "Alphabets = " + alphabets + "\n" +
+                "Ranges = " + ranges + "\n" +
                 "Is Else Edge = " + isElseEdge + "\n" +
                 "Is Registered = " + isRegistered + "\n" +
+                "Output = " + (hasOutput() ? output : "NONE") + "\n" +
                 "ID = " + super.toString() + "}\n";
     }
 }
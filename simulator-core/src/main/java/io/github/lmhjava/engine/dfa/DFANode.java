@@ -2,10 +2,16 @@ package io.github.lmhjava.engine.dfa;
 
 import io.github.lmhjava.engine.exception.NextNodeUndefException;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * A node in a DFA graph.
@@ -18,27 +24,45 @@ public class DFANode {
     private DFAEdge elseEdge;
     // transition table for quick lookup transitions by inputs
     private final Map<String, DFAEdge> transitionTable;
+    // transition table for code point ranges
+    private final Map<AlphabetRange, DFAEdge> rangeTable;
+    // sorted and disjoint copy of the range table for binary search, re-built lazily after changes
+    private int[] rangeStarts;
+    private int[] rangeEnds;
+    private DFAEdge[] rangeEdges;
+    private boolean isRangeIndexDirty;
     // is current node selected
     private boolean onCurrentState;
     // content of the node
     private String content;
     // if this node is accepted
     private boolean isAccepted;
+    // value emitted when this node is entered in transducer mode
+    private int output;
 
     // a function to call when dfa is transited to current state
     private Runnable onCurrentStateUpdate;
+    // controllers this node is registered in, notified when this node or its edges are modified,
+    // held weakly so that a dropped clone of a DFA does not stay reachable from its nodes
+    private final List<WeakReference<DFAController>> owners = new ArrayList<>(1);
 
     public DFANode() {
         this.edges = new HashSet<>();
         this.transitionTable = new HashMap<>();
+        this.rangeTable = new HashMap<>();
+        this.isRangeIndexDirty = true;
         this.onCurrentState = false;
+        this.output = DFAEdge.NO_OUTPUT;
     }
 
     public DFANode(String content) {
         this.edges = new HashSet<>();
         this.transitionTable = new HashMap<>();
+        this.rangeTable = new HashMap<>();
+        this.isRangeIndexDirty = true;
         this.onCurrentState = false;
         this.content = content;
+        this.output = DFAEdge.NO_OUTPUT;
     }
 
     public String getContent() {
@@ -53,6 +77,24 @@ public class DFANode {
         return edges;
     }
 
+    /**
+     * Returns a read-only view of the transition table, which maps every alphabet to the edge it triggers.
+     *
+     * @return transition table of this node
+     */
+    public Map<String, DFAEdge> getTransitionTable() {
+        return Collections.unmodifiableMap(transitionTable);
+    }
+
+    /**
+     * Returns a read-only view of the range table, which maps every code point range to the edge it triggers.
+     *
+     * @return range table of this node
+     */
+    public Map<AlphabetRange, DFAEdge> getRangeTable() {
+        return Collections.unmodifiableMap(rangeTable);
+    }
+
     public DFAEdge getElseEdge() {
         return elseEdge;
     }
@@ -61,19 +103,31 @@ public class DFANode {
         this.elseEdge = elseEdge;
     }
 
+    /**
+     * Replaces all outgoing edges of this node and re-builds the transition table from scratch.
+     *
+     * @implNote the caller must ensure the given edges are deterministic (e.g. no two edges share
+     * an alphabet and there is at most one ELSE edge). {@link DFATransaction} validates this before
+     * calling this function.
+     * @param edges all edges starting from this node, including the ELSE edge if any
+     */
     protected void setEdges(Set<DFAEdge> edges) {
         // clear ELSE edge
         this.elseEdge = null;
-        // update edges
-        this.edges = edges;
+        // update edges, the ELSE edge is kept apart from the others
+        this.edges = new HashSet<>();
         // clear all caches since the edges are updated
         this.transitionTable.clear();
+        this.rangeTable.clear();
+        this.isRangeIndexDirty = true;
         // re-build the transition table
         edges.forEach((DFAEdge e) -> {
             if (e.isElseEdge()) {
                 this.elseEdge = e;
             } else {
+                this.edges.add(e);
                 e.getAlphabets().forEach((String key) -> this.transitionTable.put(key, e));
+                e.getRanges().forEach((AlphabetRange range) -> this.rangeTable.put(range, e));
             }
         });
     }
@@ -91,6 +145,65 @@ public class DFANode {
         this.onCurrentStateUpdate = onCurrentStateUpdate;
     }
 
+    /**
+     * Records a controller this node is registered in.
+     *
+     * @param owner controller
+     */
+    void addOwner(DFAController owner) {
+        if (!hasOwner(owner)) owners.add(new WeakReference<>(owner));
+    }
+
+    void removeOwner(DFAController owner) {
+        owners.removeIf((WeakReference<DFAController> reference) -> {
+            final DFAController o = reference.get();
+            return o == null || o == owner;
+        });
+    }
+
+    /**
+     * Returns true if the node is registered in the controller.
+     *
+     * @param owner controller
+     * @return whether the controller owns this node
+     */
+    boolean hasOwner(DFAController owner) {
+        for (WeakReference<DFAController> reference : owners) {
+            if (reference.get() == owner) return true;
+        }
+        return false;
+    }
+
+    // calls the action on every live owner, and drops the collected ones
+    private void forEachOwner(Consumer<DFAController> action) {
+        for (int i = 0; i < owners.size(); i++) {
+            final DFAController owner = owners.get(i).get();
+            if (owner == null) {
+                owners.remove(i--);
+            } else {
+                action.accept(owner);
+            }
+        }
+    }
+
+    /**
+     * Notifies every controller this node is registered in.
+     * Called when this node, or an edge starting from it, is modified.
+     */
+    void notifyModified() {
+        forEachOwner((DFAController owner) -> owner.nodeModified(this));
+    }
+
+    /**
+     * Notifies every controller this node is registered in that an edge starting from it is modified.
+     *
+     * @param edge modified edge
+     */
+    void notifyModified(DFAEdge edge) {
+        assert edge.getTail() == this;
+        forEachOwner((DFAController owner) -> owner.edgeModified(edge));
+    }
+
     /**
      * Returns the next node that DFA will get to, given the input.
      *
@@ -99,16 +212,27 @@ public class DFANode {
      * @throws NextNodeUndefException if next node is undefined
      */
     protected DFANode getNextNode(String input) throws NextNodeUndefException {
+        final DFAEdge edge = getEdge(input);
+        // nothing found, throw an exception.
+        if (edge == null) throw new NextNodeUndefException(this, input);
+        return edge.getHead();
+    }
+
+    /**
+     * Returns the edge triggered by the input, without updating any state.
+     *
+     * @param input input
+     * @return the triggered edge, or {@code null} if the transition is undefined
+     */
+    public DFAEdge getEdge(String input) {
         assert input != null;
-        if (transitionTable.containsKey(input)) {
-            DFAEdge edge = transitionTable.get(input);
-            return edge.getHead();
-        } else {
-            // check else edge
-            if (elseEdge != null) return elseEdge.getHead();
-            // nothing found, throw an exception.
-            throw new NextNodeUndefException(this, input);
-        }
+        final DFAEdge edge = transitionTable.get(input);
+        if (edge != null) return edge;
+        // check ranges
+        final DFAEdge rangeEdge = findRangeEdge(AlphabetRange.codePointOf(input));
+        if (rangeEdge != null) return rangeEdge;
+        // check else edge
+        return elseEdge;
     }
 
     /**
@@ -129,7 +253,11 @@ public class DFANode {
         if (edges.contains(edge) || elseEdge == edge) return false;
         // check if this edge contains alphabet key that is already registered
         for (String al : edge.getAlphabets()) {
-            if (transitionTable.containsKey(al)) return false;
+            if (transitionTable.containsKey(al) || isOccupiedByRange(al, edge)) return false;
+        }
+        // check if this edge contains range that overlaps the registered ones
+        for (AlphabetRange range : edge.getRanges()) {
+            if (isOccupied(range, edge)) return false;
         }
 
         // add this edge to this node
@@ -138,6 +266,8 @@ public class DFANode {
         } else {
             edges.add(edge);
             edge.getAlphabets().forEach((String al) -> transitionTable.put(al, edge));
+            edge.getRanges().forEach((AlphabetRange range) -> rangeTable.put(range, edge));
+            isRangeIndexDirty = true;
         }
         return true;
     }
@@ -154,14 +284,16 @@ public class DFANode {
         assert edge != null;
         if (edge.getTail() != this) return false;
         if (!edges.contains(edge) && elseEdge != edge) return false;
-        if (edge.isElseEdge()) {
-            elseEdge = null;
-            return true;
-        }
+        if (elseEdge == edge) elseEdge = null;
+        // an edge turned into an ELSE edge after registration still holds its alphabets
+        if (!edges.remove(edge)) return true;
         for (String al : edge.getAlphabets()) {
-            transitionTable.remove(al);
+            transitionTable.remove(al, edge);
+        }
+        for (AlphabetRange range : edge.getRanges()) {
+            rangeTable.remove(range, edge);
         }
-        edges.remove(edge);
+        isRangeIndexDirty = true;
         return true;
     }
 
@@ -170,7 +302,33 @@ public class DFANode {
     }
 
     public void setAccepted(boolean accepted) {
+        if (isAccepted == accepted) return;
         isAccepted = accepted;
+        notifyModified();
+    }
+
+    /**
+     * Returns the value emitted when this node is entered by an edge without output, see {@code Transducer}.
+     *
+     * @return output of this node, or {@link DFAEdge#NO_OUTPUT} if it has none
+     */
+    public int getOutput() {
+        return output;
+    }
+
+    /**
+     * Sets the value emitted when this node is entered.
+     *
+     * @param output new output, {@link DFAEdge#NO_OUTPUT} clears it
+     */
+    public void setOutput(int output) {
+        if (this.output == output) return;
+        this.output = output;
+        notifyModified();
+    }
+
+    public boolean hasOutput() {
+        return output != DFAEdge.NO_OUTPUT;
     }
 
     /**
@@ -188,7 +346,7 @@ public class DFANode {
         // check null preconditions
         if (edge.getTail() != this || edge.getHead() == null || edge.getAlphabets() == null) return false;
         // if edge is not registered to this node before
-        if (!edges.contains(edge) || transitionTable.containsKey(alphabet)) return false;
+        if (!edges.contains(edge) || transitionTable.containsKey(alphabet) || isOccupiedByRange(alphabet, edge)) return false;
 
         transitionTable.put(alphabet, edge);
         return true;
@@ -205,6 +363,111 @@ public class DFANode {
         transitionTable.remove(alphabet);
     }
 
+    /**
+     * Bind a new code point range with the edge
+     *
+     * @param range range being added
+     * @param edge edge bind to the new range
+     * @implNote to call this function, caller must ensure the edge is already registered to a node.
+     * The range is rejected if any of its code points is already occupied by another edge.
+     *
+     * @return successfully added or not
+     */
+    protected boolean addRange(AlphabetRange range, DFAEdge edge) {
+        assert range != null && edge != null;
+        if (edge.getTail() != this || edge.getHead() == null) return false;
+        if (!edges.contains(edge) || rangeTable.containsKey(range) || isOccupied(range, edge)) return false;
+
+        rangeTable.put(range, edge);
+        isRangeIndexDirty = true;
+        return true;
+    }
+
+    /**
+     * Remove a code point range registered in the node.
+     *
+     * @implNote if the range is not registered yet, this function will do nothing.
+     * @param range range to be removed.
+     */
+    protected void removeRange(AlphabetRange range) {
+        assert range != null;
+        if (rangeTable.remove(range) != null) {
+            isRangeIndexDirty = true;
+        }
+    }
+
+    /**
+     * Returns true if any code point of the range is occupied by an edge other than the given one.
+     */
+    boolean isOccupied(AlphabetRange range, DFAEdge edge) {
+        for (Map.Entry<AlphabetRange, DFAEdge> entry : rangeTable.entrySet()) {
+            if (entry.getValue() != edge && entry.getKey().overlaps(range)) return true;
+        }
+        for (Map.Entry<String, DFAEdge> entry : transitionTable.entrySet()) {
+            if (entry.getValue() != edge && range.contains(entry.getKey())) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the alphabet is covered by a range of an edge other than the given one.
+     */
+    boolean isOccupiedByRange(String alphabet, DFAEdge edge) {
+        final DFAEdge rangeEdge = findRangeEdge(AlphabetRange.codePointOf(alphabet));
+        return rangeEdge != null && rangeEdge != edge;
+    }
+
+    /**
+     * Looks up the edge whose range contains the code point by binary search.
+     *
+     * @param codePoint code point, negative values are never matched
+     * @return the edge, or {@code null} if no range contains the code point
+     */
+    private DFAEdge findRangeEdge(int codePoint) {
+        if (codePoint < 0 || rangeTable.isEmpty()) return null;
+        if (isRangeIndexDirty) rebuildRangeIndex();
+        int low = 0, high = rangeStarts.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (rangeStarts[mid] > codePoint) {
+                high = mid - 1;
+            } else if (rangeEnds[mid] < codePoint) {
+                low = mid + 1;
+            } else {
+                return rangeEdges[mid];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sorts the ranges and merges the overlapping ones.
+     *
+     * @implNote ranges of different edges never overlap, so merged ranges always belong to a single edge.
+     */
+    private void rebuildRangeIndex() {
+        final List<AlphabetRange> sorted = new ArrayList<>(rangeTable.keySet());
+        sorted.sort(null);
+        final int[] starts = new int[sorted.size()];
+        final int[] ends = new int[sorted.size()];
+        final DFAEdge[] targets = new DFAEdge[sorted.size()];
+        int size = 0;
+        for (AlphabetRange range : sorted) {
+            if (size > 0 && range.getFrom() <= ends[size - 1]) {
+                ends[size - 1] = Math.max(ends[size - 1], range.getTo());
+            } else {
+                starts[size] = range.getFrom();
+                ends[size] = range.getTo();
+                targets[size] = rangeTable.get(range);
+                size++;
+            }
+        }
+        rangeStarts = Arrays.copyOf(starts, size);
+        rangeEnds = Arrays.copyOf(ends, size);
+        rangeEdges = Arrays.copyOf(targets, size);
+        isRangeIndexDirty = false;
+    }
+
     @Override
     public String toString() {
         return "DFANode{" + "Content = '" + content + '\n' +
@@ -0,0 +1,239 @@
+package io.github.lmhjava.engine.dfa;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A batch of edits to a DFA which is applied as a whole.
+ * Use {@link DFAController#edit(java.util.function.Consumer)} to obtain one.
+ *
+ * @implNote Mutations are only staged here, none of them touches the DFA before commit.
+ * At commit, the controller validates the determinism of every affected node ONCE and re-builds
+ * its transition table ONCE. If any validation fails, nothing is applied.
+ */
+public class DFATransaction {
+    private final Set<DFANode> addedNodes;
+    private final Set<DFANode> removedNodes;
+    private final Set<DFAEdge> addedEdges;
+    private final Set<DFAEdge> removedEdges;
+    private final Set<String> addedAlphabets;
+    private final Set<String> removedAlphabets;
+    // staged alphabets of edges, copied from the edge on first modification
+    private final Map<DFAEdge, Set<String>> edgeAlphabets;
+    // staged ranges of edges, copied from the edge on first modification
+    private final Map<DFAEdge, Set<AlphabetRange>> edgeRanges;
+    private final Map<DFAEdge, Boolean> elseFlags;
+    private final Map<DFANode, Boolean> acceptFlags;
+    private DFANode initialNode;
+    private boolean isInitialNodeChanged;
+
+    DFATransaction() {
+        this.addedNodes = new LinkedHashSet<>();
+        this.removedNodes = new HashSet<>();
+        this.addedEdges = new LinkedHashSet<>();
+        this.removedEdges = new HashSet<>();
+        this.addedAlphabets = new HashSet<>();
+        this.removedAlphabets = new HashSet<>();
+        this.edgeAlphabets = new HashMap<>();
+        this.edgeRanges = new HashMap<>();
+        this.elseFlags = new HashMap<>();
+        this.acceptFlags = new HashMap<>();
+    }
+
+    /**
+     * Stages a node to be registered.
+     *
+     * @param node new node
+     */
+    public void registerNode(DFANode node) {
+        assert node != null;
+        removedNodes.remove(node);
+        addedNodes.add(node);
+    }
+
+    /**
+     * Stages a node to be removed, together with all relevant edges.
+     *
+     * @param node node to be deleted
+     */
+    public void removeNode(DFANode node) {
+        assert node != null;
+        addedNodes.remove(node);
+        removedNodes.add(node);
+    }
+
+    /**
+     * Stages an edge to be registered.
+     *
+     * @param edge edge being added
+     */
+    public void registerEdge(DFAEdge edge) {
+        assert edge != null && edge.getTail() != null;
+        removedEdges.remove(edge);
+        addedEdges.add(edge);
+    }
+
+    /**
+     * Stages an edge to be removed.
+     *
+     * @param edge edge to be deleted
+     */
+    public void removeEdge(DFAEdge edge) {
+        assert edge != null && edge.getTail() != null;
+        addedEdges.remove(edge);
+        removedEdges.add(edge);
+    }
+
+    /**
+     * Stages a new string to be added to the general alphabet set of the DFA.
+     *
+     * @param alphabet new string
+     */
+    public void registerAlphabet(String alphabet) {
+        assert alphabet != null;
+        removedAlphabets.remove(alphabet);
+        addedAlphabets.add(alphabet);
+    }
+
+    /**
+     * Stages an alphabet to be removed from the DFA and from all edges.
+     *
+     * @param alphabet alphabet to remove
+     */
+    public void unregisterAlphabet(String alphabet) {
+        assert alphabet != null;
+        addedAlphabets.remove(alphabet);
+        removedAlphabets.add(alphabet);
+    }
+
+    /**
+     * Stages an alphabet to be added to the given edge.
+     *
+     * @param edge edge to update
+     * @param alphabet new alphabet
+     */
+    public void registerEdgeAlphabet(DFAEdge edge, String alphabet) {
+        assert edge != null && alphabet != null;
+        stagedAlphabets(edge).add(alphabet);
+    }
+
+    /**
+     * Stages an alphabet to be removed from the given edge.
+     *
+     * @param edge edge to update
+     * @param alphabet alphabet to remove
+     */
+    public void unregisterEdgeAlphabet(DFAEdge edge, String alphabet) {
+        assert edge != null && alphabet != null;
+        stagedAlphabets(edge).remove(alphabet);
+    }
+
+    /**
+     * Stages a code point range to be added to the given edge.
+     *
+     * @param edge edge to update
+     * @param range new range
+     */
+    public void registerEdgeRange(DFAEdge edge, AlphabetRange range) {
+        assert edge != null && range != null;
+        edgeRanges.computeIfAbsent(edge, DFAEdge::getRanges).add(range);
+    }
+
+    /**
+     * Stages a code point range to be removed from the given edge.
+     *
+     * @param edge edge to update
+     * @param range range to remove
+     */
+    public void unregisterEdgeRange(DFAEdge edge, AlphabetRange range) {
+        assert edge != null && range != null;
+        edgeRanges.computeIfAbsent(edge, DFAEdge::getRanges).remove(range);
+    }
+
+    /**
+     * Stages the ELSE flag of the given edge.
+     *
+     * @param edge edge to update
+     * @param elseEdge is else edge or not
+     */
+    public void setElseEdge(DFAEdge edge, boolean elseEdge) {
+        assert edge != null;
+        elseFlags.put(edge, elseEdge);
+    }
+
+    /**
+     * Stages the accepted flag of the given node.
+     *
+     * @param node node to update
+     * @param accepted is accepted or not
+     */
+    public void setAccepted(DFANode node, boolean accepted) {
+        assert node != null;
+        acceptFlags.put(node, accepted);
+    }
+
+    /**
+     * Stages a new initial node.
+     *
+     * @param node new initial node, or {@code null} to clear it
+     */
+    public void setInitialNode(DFANode node) {
+        initialNode = node;
+        isInitialNodeChanged = true;
+    }
+
+    private Set<String> stagedAlphabets(DFAEdge edge) {
+        return edgeAlphabets.computeIfAbsent(edge, DFAEdge::getAlphabets);
+    }
+
+    Set<DFANode> getAddedNodes() {
+        return addedNodes;
+    }
+
+    Set<DFANode> getRemovedNodes() {
+        return removedNodes;
+    }
+
+    Set<DFAEdge> getAddedEdges() {
+        return addedEdges;
+    }
+
+    Set<DFAEdge> getRemovedEdges() {
+        return removedEdges;
+    }
+
+    Set<String> getAddedAlphabets() {
+        return addedAlphabets;
+    }
+
+    Set<String> getRemovedAlphabets() {
+        return removedAlphabets;
+    }
+
+    Map<DFAEdge, Set<String>> getEdgeAlphabets() {
+        return edgeAlphabets;
+    }
+
+    Map<DFAEdge, Set<AlphabetRange>> getEdgeRanges() {
+        return edgeRanges;
+    }
+
+    Map<DFAEdge, Boolean> getElseFlags() {
+        return elseFlags;
+    }
+
+    Map<DFANode, Boolean> getAcceptFlags() {
+        return acceptFlags;
+    }
+
+    DFANode getInitialNode() {
+        return initialNode;
+    }
+
+    boolean isInitialNodeChanged() {
+        return isInitialNodeChanged;
+    }
+}
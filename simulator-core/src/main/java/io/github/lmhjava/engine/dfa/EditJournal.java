@@ -0,0 +1,800 @@
+package io.github.lmhjava.engine.dfa;
+
+import io.github.lmhjava.engine.exception.JournalException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An append-only journal of the edits of a DFA, with undo and redo.
+ * <p>
+ * The journal owns its {@link DFAController}, and every edit goes through the journal, e.g.
+ * <pre>{@code
+ * final EditJournal journal = new EditJournal();
+ * journal.registerAlphabet("a");
+ * final DFANode q0 = journal.addNode("q0");
+ * journal.setInitialNode(q0);
+ * journal.addEdge(q0, q0, "a");
+ * journal.undo();
+ * }</pre>
+ * Each public mutator is ONE step of the history, {@link #undo()} and {@link #redo()} walk through the
+ * steps. An edit after an undo drops the undone steps from the history, but not from the journal:
+ * undo and redo are recorded as well, so {@link #replay(InputStream)} rebuilds the DFA and its
+ * history exactly as they were.
+ * <p>
+ * Edits made directly on the controller, its nodes or its edges are NOT recorded, and break undo.
+ *
+ * @implNote The journal is a byte array of records, an opcode followed by unsigned varints. Nodes,
+ * edges and strings are referred to by ids assigned in order of appearance, a string is spelled out
+ * once in a SYMBOL record, so a record takes a few bytes. Every record holds what its inverse
+ * needs, so undoing or redoing a step costs O(1) per record, plus what the controller spends on the edit.
+ * Removed nodes and edges are kept, so that undo re-registers the very same objects.
+ */
+public final class EditJournal {
+    private static final byte[] HEADER = {'D', 'F', 'A', 'J', 2};
+
+    // a new step of the history, the records up to STEP_END belong to it
+    private static final byte STEP = 1;
+    private static final byte UNDO = 2;
+    private static final byte REDO = 3;
+    // defines the next string id: LENGTH UTF8_BYTES
+    private static final byte SYMBOL = 4;
+    // NODE CONTENT+1, 0 for no content
+    private static final byte NODE_ADD = 5;
+    // NODE WAS_INITIAL, connected edges are removed by records of their own before
+    private static final byte NODE_REMOVE = 6;
+    // NODE NEW_FLAG
+    private static final byte NODE_ACCEPTED = 7;
+    // OLD_NODE+1 NEW_NODE+1, 0 for none
+    private static final byte INITIAL = 8;
+    // EDGE TAIL HEAD COUNT SYMBOL...
+    private static final byte EDGE_ADD = 9;
+    // EDGE
+    private static final byte EDGE_REMOVE = 10;
+    // EDGE SYMBOL
+    private static final byte EDGE_ALPHABET_ADD = 11;
+    private static final byte EDGE_ALPHABET_REMOVE = 12;
+    // EDGE NEW_FLAG
+    private static final byte EDGE_ELSE = 13;
+    // EDGE FROM TO
+    private static final byte EDGE_RANGE_ADD = 14;
+    private static final byte EDGE_RANGE_REMOVE = 15;
+    // SYMBOL
+    private static final byte ALPHABET_ADD = 16;
+    // FROM TO
+    private static final byte RANGE_ADD = 17;
+    // the step is complete, a step without it was cut by a crash
+    private static final byte STEP_END = 18;
+
+    private final DFAController controller;
+
+    private byte[] log;
+    private int size;
+    // bytes already written by appendTo()
+    private int appendedSize;
+
+    private final List<DFANode> nodes;
+    private final Map<DFANode, Integer> nodeIds;
+    private final List<DFAEdge> edges;
+    private final Map<DFAEdge, Integer> edgeIds;
+    private final List<String> symbols;
+    private final Map<String, Integer> symbolIds;
+
+    // log offsets of the first record and the end of every step in the history
+    private int[] stepStarts;
+    private int[] stepEnds;
+    private int stepCount;
+    // number of steps applied, the ones after it can be redone
+    private int position;
+
+    // decoded record: opcode, operands..., reused to avoid allocation
+    private int[] record;
+    // offsets of the records of the step being undone
+    private int[] recordOffsets;
+
+    public EditJournal() {
+        this.controller = new DFAController();
+        this.log = Arrays.copyOf(HEADER, 1024);
+        this.size = HEADER.length;
+        this.nodes = new ArrayList<>();
+        this.nodeIds = new IdentityHashMap<>();
+        this.edges = new ArrayList<>();
+        this.edgeIds = new IdentityHashMap<>();
+        this.symbols = new ArrayList<>();
+        this.symbolIds = new HashMap<>();
+        this.stepStarts = new int[64];
+        this.stepEnds = new int[64];
+        this.record = new int[8];
+        this.recordOffsets = new int[16];
+    }
+
+    public DFAController getController() {
+        return controller;
+    }
+
+    /**
+     * Returns the size of the journal, the header included.
+     *
+     * @return number of bytes
+     */
+    public int getByteCount() {
+        return size;
+    }
+
+    /**
+     * Returns the number of steps in the history, the undone ones included.
+     *
+     * @return number of steps
+     */
+    public int getStepCount() {
+        return stepCount;
+    }
+
+    /**
+     * Returns the number of steps applied.
+     *
+     * @return position in the history
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    public boolean canUndo() {
+        return position > 0;
+    }
+
+    public boolean canRedo() {
+        return position < stepCount;
+    }
+
+    /**
+     * Returns the id of a node in this journal, stable across replays.
+     *
+     * @param node node
+     * @return id of the node, or -1 if the node was not added through this journal
+     */
+    public int getNodeId(DFANode node) {
+        final Integer id = nodeIds.get(node);
+        return id == null ? -1 : id;
+    }
+
+    public DFANode getNode(int id) {
+        return nodes.get(id);
+    }
+
+    /**
+     * Adds a new node.
+     *
+     * @param content label of the node, may be {@code null}
+     * @return the new node
+     */
+    public DFANode addNode(String content) {
+        final DFANode node = new DFANode(content);
+        controller.registerNode(node);
+        final int id = nodes.size();
+        nodes.add(node);
+        nodeIds.put(node, id);
+        beginStep();
+        final int contentId = content == null ? 0 : symbolOf(content) + 1;
+        appendRecord(NODE_ADD, id, contentId);
+        endStep();
+        return node;
+    }
+
+    /**
+     * Removes a node together with all the edges connected to it.
+     *
+     * @param node node of this journal
+     * @return whether the node was removed, false if it is not in the DFA
+     */
+    public boolean removeNode(DFANode node) {
+        final int id = getNodeId(node);
+        if (id < 0 || !node.hasOwner(controller)) return false;
+        beginStep();
+        for (DFAEdge edge : controller.getEdgeSet()) {
+            if (edge.getTail() != node && edge.getHead() != node) continue;
+            controller.removeEdge(edge);
+            appendRecord(EDGE_REMOVE, edgeIds.get(edge));
+        }
+        final boolean isInitial = controller.getInitialNode() == node;
+        controller.removeNode(node);
+        appendRecord(NODE_REMOVE, id, isInitial ? 1 : 0);
+        endStep();
+        return true;
+    }
+
+    /**
+     * Sets whether a node is an accept state.
+     *
+     * @param node node of this journal
+     * @param accepted new flag
+     * @return whether the flag changed
+     */
+    public boolean setAccepted(DFANode node, boolean accepted) {
+        final int id = getNodeId(node);
+        if (id < 0 || node.isAccepted() == accepted) return false;
+        node.setAccepted(accepted);
+        beginStep();
+        appendRecord(NODE_ACCEPTED, id, accepted ? 1 : 0);
+        endStep();
+        return true;
+    }
+
+    /**
+     * Sets the initial node.
+     *
+     * @param node node in the DFA, or {@code null} to unset it
+     * @return whether the initial node changed
+     */
+    public boolean setInitialNode(DFANode node) {
+        final DFANode old = controller.getInitialNode();
+        if (node == old || (node != null && (getNodeId(node) < 0 || !node.hasOwner(controller)))) return false;
+        controller.setInitialNode(node);
+        beginStep();
+        appendRecord(INITIAL, old == null ? 0 : getNodeId(old) + 1, node == null ? 0 : getNodeId(node) + 1);
+        endStep();
+        return true;
+    }
+
+    /**
+     * Registers an alphabet to the DFA.
+     *
+     * @param alphabet new alphabet
+     * @return whether the alphabet was new
+     */
+    public boolean registerAlphabet(String alphabet) {
+        assert alphabet != null;
+        if (!controller.registerAlphabet(alphabet)) return false;
+        beginStep();
+        appendRecord(ALPHABET_ADD, symbolOf(alphabet));
+        endStep();
+        return true;
+    }
+
+    /**
+     * Registers a code point range to the DFA.
+     *
+     * @param range new range
+     * @return whether the range was new
+     */
+    public boolean registerAlphabetRange(AlphabetRange range) {
+        assert range != null;
+        if (!controller.registerAlphabetRange(range)) return false;
+        beginStep();
+        appendRecord(RANGE_ADD, range.getFrom(), range.getTo());
+        endStep();
+        return true;
+    }
+
+    /**
+     * Adds a new edge.
+     *
+     * @param tail tail node of this journal
+     * @param head head node of this journal
+     * @param alphabets alphabets of the edge, all registered in the DFA
+     * @return the new edge, or {@code null} if the controller rejects it, see {@link DFAController#registerEdge(DFAEdge)}
+     */
+    public DFAEdge addEdge(DFANode tail, DFANode head, String... alphabets) {
+        final int tailId = getNodeId(tail), headId = getNodeId(head);
+        if (tailId < 0 || headId < 0) return null;
+        final DFAEdge edge = new DFAEdge(tail, head);
+        edge.registerAllAlphabet(alphabets);
+        if (!tail.hasOwner(controller) || !head.hasOwner(controller) || !controller.registerEdge(edge)) return null;
+        final int id = edges.size();
+        edges.add(edge);
+        edgeIds.put(edge, id);
+        beginStep();
+        final int[] alphabetIds = new int[alphabets.length];
+        for (int i = 0; i < alphabets.length; i++) {
+            alphabetIds[i] = symbolOf(alphabets[i]);
+        }
+        final int[] operands = new int[4 + alphabetIds.length];
+        operands[0] = id;
+        operands[1] = tailId;
+        operands[2] = headId;
+        operands[3] = alphabetIds.length;
+        System.arraycopy(alphabetIds, 0, operands, 4, alphabetIds.length);
+        appendRecord(EDGE_ADD, operands);
+        endStep();
+        return edge;
+    }
+
+    /**
+     * Removes an edge.
+     *
+     * @param edge edge of this journal
+     * @return whether the edge was removed, false if it is not in the DFA
+     */
+    public boolean removeEdge(DFAEdge edge) {
+        final Integer id = edgeIds.get(edge);
+        if (id == null || !controller.removeEdge(edge)) return false;
+        beginStep();
+        appendRecord(EDGE_REMOVE, id);
+        endStep();
+        return true;
+    }
+
+    /**
+     * Adds an alphabet to an edge.
+     *
+     * @param edge edge of this journal
+     * @param alphabet alphabet registered in the DFA, and not taken by another edge of the tail
+     * @return whether the alphabet was added
+     */
+    public boolean addEdgeAlphabet(DFAEdge edge, String alphabet) {
+        final Integer id = edgeIds.get(edge);
+        if (id == null || !edge.isRegistered() || edge.getAlphabets().contains(alphabet)) return false;
+        if (!controller.isRegisteredAlphabet(alphabet)) return false;
+        final DFANode tail = edge.getTail();
+        if (tail.getTransitionTable().containsKey(alphabet) || tail.isOccupiedByRange(alphabet, edge)) return false;
+        edge.registerAlphabet(alphabet);
+        beginStep();
+        appendRecord(EDGE_ALPHABET_ADD, id, symbolOf(alphabet));
+        endStep();
+        return true;
+    }
+
+    /**
+     * Removes an alphabet from an edge.
+     *
+     * @param edge edge of this journal
+     * @param alphabet alphabet of the edge
+     * @return whether the alphabet was removed
+     */
+    public boolean removeEdgeAlphabet(DFAEdge edge, String alphabet) {
+        final Integer id = edgeIds.get(edge);
+        if (id == null || !edge.getAlphabets().contains(alphabet)) return false;
+        edge.unregisterAlphabet(alphabet);
+        beginStep();
+        appendRecord(EDGE_ALPHABET_REMOVE, id, symbolOf(alphabet));
+        endStep();
+        return true;
+    }
+
+    /**
+     * Adds a code point range to an edge.
+     *
+     * @param edge edge of this journal
+     * @param range range registered in the DFA, and not overlapping another edge of the tail
+     * @return whether the range was added
+     */
+    public boolean addEdgeRange(DFAEdge edge, AlphabetRange range) {
+        final Integer id = edgeIds.get(edge);
+        if (id == null || !edge.isRegistered() || edge.getRanges().contains(range)) return false;
+        if (!controller.isRegisteredRange(range) || edge.getTail().isOccupied(range, edge)) return false;
+        edge.registerRange(range);
+        beginStep();
+        appendRecord(EDGE_RANGE_ADD, id, range.getFrom(), range.getTo());
+        endStep();
+        return true;
+    }
+
+    /**
+     * Removes a code point range from an edge.
+     *
+     * @param edge edge of this journal
+     * @param range range of the edge
+     * @return whether the range was removed
+     */
+    public boolean removeEdgeRange(DFAEdge edge, AlphabetRange range) {
+        final Integer id = edgeIds.get(edge);
+        if (id == null || !edge.getRanges().contains(range)) return false;
+        edge.unregisterRange(range);
+        beginStep();
+        appendRecord(EDGE_RANGE_REMOVE, id, range.getFrom(), range.getTo());
+        endStep();
+        return true;
+    }
+
+    /**
+     * Sets whether an edge is the ELSE edge of its tail.
+     *
+     * @param edge registered edge of this journal
+     * @param elseEdge new flag
+     * @return whether the flag changed, false if the tail has another ELSE edge
+     */
+    public boolean setElseEdge(DFAEdge edge, boolean elseEdge) {
+        final Integer id = edgeIds.get(edge);
+        if (id == null || !edge.isRegistered() || edge.isElseEdge() == elseEdge) return false;
+        if (elseEdge && edge.getTail().getElseEdge() != null) return false;
+        edge.setElseEdge(elseEdge);
+        beginStep();
+        appendRecord(EDGE_ELSE, id, elseEdge ? 1 : 0);
+        endStep();
+        return true;
+    }
+
+    /**
+     * Reverts the last applied step.
+     *
+     * @return whether there was a step to undo
+     */
+    public boolean undo() {
+        if (!undoStep()) return false;
+        ensureCapacity(1);
+        log[size++] = UNDO;
+        return true;
+    }
+
+    /**
+     * Re-applies the last undone step.
+     *
+     * @return whether there was a step to redo
+     */
+    public boolean redo() {
+        if (!redoStep()) return false;
+        ensureCapacity(1);
+        log[size++] = REDO;
+        return true;
+    }
+
+    private boolean undoStep() {
+        if (position == 0) return false;
+        position--;
+        // records are decoded forward, and reverted backward
+        int count = 0;
+        for (int offset = stepStarts[position]; offset < stepEnds[position]; offset = decode(offset)) {
+            if (count == recordOffsets.length) recordOffsets = Arrays.copyOf(recordOffsets, count * 2);
+            recordOffsets[count++] = offset;
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            decode(recordOffsets[i]);
+            apply(false);
+        }
+        return true;
+    }
+
+    private boolean redoStep() {
+        if (position == stepCount) return false;
+        for (int offset = stepStarts[position]; offset < stepEnds[position]; ) {
+            offset = decode(offset);
+            apply(true);
+        }
+        position++;
+        return true;
+    }
+
+    /**
+     * Writes the records appended since the last call, e.g. to an append-only file.
+     * The first call writes the whole journal.
+     *
+     * @param out destination
+     * @return number of bytes written
+     * @throws IOException if the bytes can not be written
+     */
+    public int appendTo(OutputStream out) throws IOException {
+        final int count = size - appendedSize;
+        out.write(log, appendedSize, count);
+        appendedSize = size;
+        return count;
+    }
+
+    /**
+     * Rebuilds a DFA and its history from a journal.
+     * A truncated last step, as left by a crash in the middle of a write, is dropped as a whole, and the
+     * records of it already applied are reverted: a file being appended to should be cut to
+     * {@link #getByteCount()}, the end of the last complete step, before appending again.
+     *
+     * @param in journal written by {@link #appendTo(OutputStream)}
+     * @return journal at the end of the history it recorded
+     * @throws IOException if the journal can not be read
+     * @throws JournalException if the journal is damaged
+     */
+    public static EditJournal replay(InputStream in) throws IOException, JournalException {
+        final byte[] bytes = in.readAllBytes();
+        if (bytes.length < HEADER.length || !Arrays.equals(bytes, 0, HEADER.length, HEADER, 0, HEADER.length)) {
+            throw new JournalException("Not an edit journal", 0);
+        }
+        final EditJournal journal = new EditJournal();
+        journal.log = bytes;
+        // offset of the STEP record of the step not ended yet, or -1
+        int openStep = -1;
+        // what the open step overwrote or added, to drop it if it is never ended
+        int stepCount = 0, stepStart = 0, stepEnd = 0, nodeCount = 0, edgeCount = 0, symbolCount = 0;
+        int offset = HEADER.length;
+        while (offset < bytes.length) {
+            final int next;
+            try {
+                next = journal.decode(offset);
+            } catch (ArrayIndexOutOfBoundsException e) {
+                break;
+            } catch (IllegalStateException e) {
+                throw new JournalException(e.getMessage(), offset);
+            }
+            final byte opcode = (byte) journal.record[0];
+            if (openStep >= 0 && (opcode == STEP || opcode == UNDO || opcode == REDO)) {
+                throw new JournalException("Step not ended", offset);
+            }
+            switch (opcode) {
+                case STEP -> {
+                    openStep = offset;
+                    stepCount = journal.stepCount;
+                    if (journal.position < journal.stepCount) {
+                        stepStart = journal.stepStarts[journal.position];
+                        stepEnd = journal.stepEnds[journal.position];
+                    }
+                    nodeCount = journal.nodes.size();
+                    edgeCount = journal.edges.size();
+                    symbolCount = journal.symbols.size();
+                    journal.beginStepAt(offset);
+                }
+                case STEP_END -> {
+                    if (openStep < 0) throw new JournalException("End of a step never begun", offset);
+                    openStep = -1;
+                }
+                case UNDO -> {
+                    if (!journal.undoStep()) throw new JournalException("Nothing to undo", offset);
+                }
+                case REDO -> {
+                    if (!journal.redoStep()) throw new JournalException("Nothing to redo", offset);
+                }
+                case SYMBOL -> {
+                    final String symbol = new String(bytes, journal.record[2], journal.record[1], StandardCharsets.UTF_8);
+                    journal.symbols.add(symbol);
+                    journal.symbolIds.put(symbol, journal.symbols.size() - 1);
+                }
+                default -> {
+                    if (openStep < 0) throw new JournalException("Record outside of a step", offset);
+                    boolean isApplied;
+                    try {
+                        isApplied = journal.apply(true);
+                    } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+                        // an unknown id, or an invalid range
+                        isApplied = false;
+                    }
+                    if (!isApplied) throw new JournalException("Record does not apply to the DFA", offset);
+                    journal.stepEnds[journal.stepCount - 1] = next;
+                }
+            }
+            // the journal only grows by complete steps
+            if (openStep < 0) journal.size = next;
+            offset = next;
+        }
+        if (openStep >= 0) {
+            // revert the step cut by the crash, and restore the undone steps it dropped
+            journal.undoStep();
+            journal.stepCount = stepCount;
+            journal.stepStarts[journal.position] = stepStart;
+            journal.stepEnds[journal.position] = stepEnd;
+            journal.truncateIds(nodeCount, edgeCount, symbolCount);
+        }
+        journal.appendedSize = journal.size;
+        // room for the edits after the replay
+        journal.log = Arrays.copyOf(bytes, Math.max(journal.size * 2, 1024));
+        return journal;
+    }
+
+    private void beginStep() {
+        ensureCapacity(1);
+        log[size++] = STEP;
+        beginStepAt(size - 1);
+    }
+
+    // drops the undone steps, and opens a new step after the STEP record at the offset
+    private void beginStepAt(int offset) {
+        stepCount = position;
+        if (stepCount == stepStarts.length) {
+            stepStarts = Arrays.copyOf(stepStarts, stepCount * 2);
+            stepEnds = Arrays.copyOf(stepEnds, stepCount * 2);
+        }
+        stepStarts[stepCount] = offset + 1;
+        stepEnds[stepCount] = offset + 1;
+        stepCount++;
+        position++;
+    }
+
+    private void endStep() {
+        stepEnds[stepCount - 1] = size;
+        ensureCapacity(1);
+        log[size++] = STEP_END;
+    }
+
+    // forgets the nodes, edges and strings defined after the first ones, as if they never appeared
+    private void truncateIds(int nodeCount, int edgeCount, int symbolCount) {
+        final List<DFANode> droppedNodes = nodes.subList(nodeCount, nodes.size());
+        droppedNodes.forEach((DFANode node) -> nodeIds.remove(node));
+        droppedNodes.clear();
+        final List<DFAEdge> droppedEdges = edges.subList(edgeCount, edges.size());
+        droppedEdges.forEach((DFAEdge edge) -> edgeIds.remove(edge));
+        droppedEdges.clear();
+        final List<String> droppedSymbols = symbols.subList(symbolCount, symbols.size());
+        droppedSymbols.forEach((String symbol) -> symbolIds.remove(symbol));
+        droppedSymbols.clear();
+    }
+
+    /**
+     * Applies the decoded record in either direction.
+     *
+     * @param isForward true to apply the record, false to revert it
+     * @return whether the controller accepted the edit
+     */
+    private boolean apply(boolean isForward) {
+        switch (record[0]) {
+            case SYMBOL -> {
+                return true;
+            }
+            case NODE_ADD -> {
+                if (!isForward) {
+                    controller.removeNode(nodes.get(record[1]));
+                    return true;
+                }
+                if (record[1] == nodes.size()) {
+                    final DFANode node = new DFANode(record[2] == 0 ? null : symbols.get(record[2] - 1));
+                    nodes.add(node);
+                    nodeIds.put(node, record[1]);
+                }
+                return record[1] < nodes.size() && controller.registerNode(nodes.get(record[1]));
+            }
+            case NODE_REMOVE -> {
+                final DFANode node = nodes.get(record[1]);
+                if (isForward) {
+                    controller.removeNode(node);
+                } else {
+                    controller.registerNode(node);
+                    if (record[2] == 1) controller.setInitialNode(node);
+                }
+                return true;
+            }
+            case NODE_ACCEPTED -> {
+                nodes.get(record[1]).setAccepted((record[2] == 1) == isForward);
+                return true;
+            }
+            case INITIAL -> {
+                final int id = isForward ? record[2] : record[1];
+                controller.setInitialNode(id == 0 ? null : nodes.get(id - 1));
+                return true;
+            }
+            case EDGE_ADD -> {
+                if (!isForward) return controller.removeEdge(edges.get(record[1]));
+                if (record[1] == edges.size()) {
+                    final DFAEdge edge = new DFAEdge(nodes.get(record[2]), nodes.get(record[3]));
+                    for (int i = 0; i < record[4]; i++) {
+                        edge.registerAlphabet(symbols.get(record[5 + i]));
+                    }
+                    edges.add(edge);
+                    edgeIds.put(edge, record[1]);
+                }
+                return record[1] < edges.size() && controller.registerEdge(edges.get(record[1]));
+            }
+            case EDGE_REMOVE -> {
+                final DFAEdge edge = edges.get(record[1]);
+                return isForward ? controller.removeEdge(edge) : controller.registerEdge(edge);
+            }
+            case EDGE_ALPHABET_ADD, EDGE_ALPHABET_REMOVE -> {
+                final DFAEdge edge = edges.get(record[1]);
+                final String alphabet = symbols.get(record[2]);
+                if ((record[0] == EDGE_ALPHABET_ADD) == isForward) return edge.registerAlphabet(alphabet);
+                edge.unregisterAlphabet(alphabet);
+                return true;
+            }
+            case EDGE_RANGE_ADD, EDGE_RANGE_REMOVE -> {
+                final DFAEdge edge = edges.get(record[1]);
+                final AlphabetRange range = new AlphabetRange(record[2], record[3]);
+                if ((record[0] == EDGE_RANGE_ADD) == isForward) return edge.registerRange(range);
+                edge.unregisterRange(range);
+                return true;
+            }
+            case EDGE_ELSE -> {
+                edges.get(record[1]).setElseEdge((record[2] == 1) == isForward);
+                return true;
+            }
+            case ALPHABET_ADD -> {
+                if (isForward) return controller.registerAlphabet(symbols.get(record[1]));
+                controller.unregisterAlphabet(symbols.get(record[1]));
+                return true;
+            }
+            case RANGE_ADD -> {
+                final AlphabetRange range = new AlphabetRange(record[1], record[2]);
+                if (isForward) return controller.registerAlphabetRange(range);
+                controller.unregisterAlphabetRange(range);
+                return true;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    // returns the id of the string, and defines it first if it is new
+    private int symbolOf(String symbol) {
+        final Integer id = symbolIds.get(symbol);
+        if (id != null) return id;
+        final byte[] bytes = symbol.getBytes(StandardCharsets.UTF_8);
+        ensureCapacity(1 + 5 + bytes.length);
+        log[size++] = SYMBOL;
+        writeVarint(bytes.length);
+        System.arraycopy(bytes, 0, log, size, bytes.length);
+        size += bytes.length;
+        symbols.add(symbol);
+        symbolIds.put(symbol, symbols.size() - 1);
+        return symbols.size() - 1;
+    }
+
+    private void appendRecord(byte opcode, int... operands) {
+        ensureCapacity(1 + 5 * operands.length);
+        log[size++] = opcode;
+        for (int operand : operands) {
+            writeVarint(operand);
+        }
+    }
+
+    private void writeVarint(int value) {
+        assert value >= 0;
+        while ((value & ~0x7F) != 0) {
+            log[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        log[size++] = (byte) value;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > log.length) log = Arrays.copyOf(log, Math.max(log.length * 2, size + extra));
+    }
+
+    /**
+     * Decodes the record at the offset into {@link #record}.
+     *
+     * @param offset offset of the opcode
+     * @return offset of the next record
+     * @throws ArrayIndexOutOfBoundsException if the record is cut at the end of the journal
+     * @throws IllegalStateException if the record is damaged
+     */
+    private int decode(int offset) {
+        final int limit = log.length;
+        final byte opcode = log[offset++];
+        record[0] = opcode;
+        final int operandCount = switch (opcode) {
+            case STEP, STEP_END, UNDO, REDO -> 0;
+            case SYMBOL, EDGE_REMOVE, ALPHABET_ADD -> 1;
+            case NODE_ADD, NODE_REMOVE, NODE_ACCEPTED, INITIAL, EDGE_ALPHABET_ADD, EDGE_ALPHABET_REMOVE,
+                    EDGE_ELSE, RANGE_ADD -> 2;
+            case EDGE_RANGE_ADD, EDGE_RANGE_REMOVE -> 3;
+            case EDGE_ADD -> 4;
+            default -> throw new IllegalStateException(String.format("Unknown opcode %d", opcode));
+        };
+        for (int i = 1; i <= operandCount; i++) {
+            offset = readVarint(offset, i);
+        }
+        if (opcode == EDGE_ADD) {
+            // every alphabet takes a byte at least, a larger count is cut at the end of the journal
+            checkLength(record[4], offset, limit);
+            if (5 + record[4] > record.length) record = Arrays.copyOf(record, 5 + record[4]);
+            for (int i = 0; i < record[4]; i++) {
+                offset = readVarint(offset, 5 + i);
+            }
+        } else if (opcode == SYMBOL) {
+            // LENGTH, then the offset of the bytes
+            checkLength(record[1], offset, limit);
+            record[2] = offset;
+            offset += record[1];
+        }
+        return offset;
+    }
+
+    private static void checkLength(int length, int offset, int limit) {
+        if (length < 0) throw new IllegalStateException(String.format("Invalid length %d", length));
+        if (length > limit - offset) throw new ArrayIndexOutOfBoundsException(limit);
+    }
+
+    private int readVarint(int offset, int index) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            // 5 bytes hold 32 bits
+            if (shift > 28) throw new IllegalStateException("Invalid varint");
+            final byte b = log[offset++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) break;
+        }
+        record[index] = value;
+        return offset;
+    }
+
+}
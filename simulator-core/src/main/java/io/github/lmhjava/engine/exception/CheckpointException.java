@@ -0,0 +1,7 @@
+package io.github.lmhjava.engine.exception;
+
+public class CheckpointException extends Exception {
+    public CheckpointException(String description, Object path) {
+        super(String.format("%s: %s", description, path));
+    }
+}
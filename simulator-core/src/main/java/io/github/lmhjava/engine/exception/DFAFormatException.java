@@ -0,0 +1,11 @@
+package io.github.lmhjava.engine.exception;
+
+public class DFAFormatException extends Exception {
+    public DFAFormatException(String description, int line) {
+        super(String.format("%s at line %d", description, line));
+    }
+
+    public DFAFormatException(String description, Throwable cause) {
+        super(description, cause);
+    }
+}
@@ -1,4 +1,7 @@
 package io.github.lmhjava.engine.exception;
 
 public class DFAValidationException extends Exception {
+    public DFAValidationException(String message) {
+        super(message);
+    }
 }
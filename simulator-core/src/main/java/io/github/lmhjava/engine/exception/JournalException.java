@@ -0,0 +1,7 @@
+package io.github.lmhjava.engine.exception;
+
+public class JournalException extends Exception {
+    public JournalException(String description, long offset) {
+        super(String.format("%s at offset %d", description, offset));
+    }
+}
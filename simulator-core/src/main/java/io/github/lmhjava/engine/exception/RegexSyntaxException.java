@@ -0,0 +1,7 @@
+package io.github.lmhjava.engine.exception;
+
+public class RegexSyntaxException extends Exception {
+    public RegexSyntaxException(String description, String regex, int index) {
+        super(String.format("%s near index %d of regex %s", description, index, regex));
+    }
+}
@@ -0,0 +1,50 @@
+package io.github.lmhjava.engine.io;
+
+import io.github.lmhjava.engine.dfa.DFAController;
+import io.github.lmhjava.engine.dfa.DFANode;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A DFA read by {@link DFAFormat}, together with the ids and the optional positions of its nodes.
+ */
+public final class DFADocument {
+    private final DFAController controller;
+    private final Map<String, DFANode> nodes;
+    private final Map<DFANode, double[]> positions;
+
+    DFADocument(DFAController controller, Map<String, DFANode> nodes, Map<DFANode, double[]> positions) {
+        this.controller = controller;
+        this.nodes = Collections.unmodifiableMap(nodes);
+        this.positions = Collections.unmodifiableMap(positions);
+    }
+
+    public DFAController getController() {
+        return controller;
+    }
+
+    /**
+     * Returns the nodes by their ids in the file, in the order of the file.
+     *
+     * @return nodes by id
+     */
+    public Map<String, DFANode> getNodes() {
+        return nodes;
+    }
+
+    public DFANode getNode(String id) {
+        return nodes.get(id);
+    }
+
+    /**
+     * Returns the position of a node.
+     *
+     * @param node node
+     * @return {x, y}, or {@code null} if the file does not place the node
+     */
+    public double[] getPosition(DFANode node) {
+        final double[] position = positions.get(node);
+        return position == null ? null : position.clone();
+    }
+}
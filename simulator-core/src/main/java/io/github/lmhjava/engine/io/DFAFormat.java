@@ -0,0 +1,427 @@
+package io.github.lmhjava.engine.io;
+
+import io.github.lmhjava.engine.dfa.AlphabetRange;
+import io.github.lmhjava.engine.dfa.DFAController;
+import io.github.lmhjava.engine.dfa.DFAEdge;
+import io.github.lmhjava.engine.dfa.DFANode;
+import io.github.lmhjava.engine.exception.DFAFormatException;
+import io.github.lmhjava.engine.exception.DFAValidationException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Line-based text format of DFAs.
+ * For example:
+ * <pre>
+ * # comments start with #
+ * alphabet a b begin
+ * range U+0030 U+0039
+ * node q0 initial
+ * node q1 label "end state" accepted output 2 at 120.0 40.5
+ * edge q0 q1 : a begin
+ * edge q0 q0 range U+0030 U+0039
+ * edge q1 q0 else output 7
+ * </pre>
+ * Every line is a record, and the tokens of a record are separated by whitespace:
+ * <ul>
+ *     <li>{@code alphabet TOKEN...} registers alphabets</li>
+ *     <li>{@code range FROM TO} registers a code point range, code points are written as
+ *     {@code U+XXXX} or in decimal</li>
+ *     <li>{@code node ID [label TOKEN] [initial] [accepted] [output INT] [at X Y]} declares a node,
+ *     the label is the content of the node and defaults to its id</li>
+ *     <li>{@code edge TAIL HEAD [else] [output INT] [range FROM TO]... [: TOKEN...]} declares an edge,
+ *     every token after the colon is an alphabet of the edge</li>
+ * </ul>
+ * A token containing whitespace, quotes, {@code #} or {@code :} is quoted, e.g. {@code "a b"},
+ * with backslash escapes {@code \" \\ \n \r \t}. A {@code #} outside quotes starts a comment.
+ *
+ * @implNote the whole file is applied in ONE {@link DFAController#edit(java.util.function.Consumer)},
+ * so a file describing a non-deterministic DFA is rejected as a whole.
+ */
+public final class DFAFormat {
+
+    private DFAFormat() {
+    }
+
+    /**
+     * Reads a DFA file in UTF-8.
+     *
+     * @param path path of the file
+     * @return the DFA and the ids of its nodes
+     * @throws IOException if the file can not be read
+     * @throws DFAFormatException if the file is malformed or describes an invalid DFA
+     */
+    public static DFADocument read(Path path) throws IOException, DFAFormatException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+
+    /**
+     * Reads a DFA.
+     *
+     * @param reader source of the text
+     * @return the DFA and the ids of its nodes
+     * @throws IOException if the text can not be read
+     * @throws DFAFormatException if the text is malformed or describes an invalid DFA
+     */
+    public static DFADocument read(Reader reader) throws IOException, DFAFormatException {
+        final BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        final DFAController controller = new DFAController();
+        final Map<String, DFANode> nodes = new LinkedHashMap<>();
+        final Map<DFANode, double[]> positions = new HashMap<>();
+        final List<String> alphabets = new ArrayList<>();
+        final List<DFAEdge> edges = new ArrayList<>();
+        final Map<DFAEdge, List<String>> edgeAlphabets = new HashMap<>();
+        final Map<DFAEdge, List<AlphabetRange>> edgeRanges = new HashMap<>();
+        final List<DFAEdge> elseEdges = new ArrayList<>();
+        DFANode initialNode = null;
+
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            final List<Token> tokens = tokenize(line, lineNumber);
+            if (tokens.isEmpty()) continue;
+            final Cursor cursor = new Cursor(tokens, lineNumber);
+            final String record = cursor.next("record");
+            switch (record) {
+                case "alphabet":
+                    while (cursor.hasNext()) {
+                        alphabets.add(cursor.next("alphabet"));
+                    }
+                    break;
+                case "range":
+                    controller.registerAlphabetRange(cursor.nextRange());
+                    break;
+                case "node": {
+                    final String id = cursor.next("node id");
+                    if (nodes.containsKey(id)) throw new DFAFormatException(String.format("Duplicate node %s", id), lineNumber);
+                    final DFANode node = new DFANode(id);
+                    while (cursor.hasNext()) {
+                        final String attribute = cursor.next("attribute");
+                        switch (attribute) {
+                            case "label":
+                                node.setContent(cursor.next("label"));
+                                break;
+                            case "initial":
+                                if (initialNode != null) throw new DFAFormatException("More than one initial node", lineNumber);
+                                initialNode = node;
+                                break;
+                            case "accepted":
+                                node.setAccepted(true);
+                                break;
+                            case "output":
+                                node.setOutput(cursor.nextInt());
+                                break;
+                            case "at":
+                                positions.put(node, new double[]{cursor.nextDouble(), cursor.nextDouble()});
+                                break;
+                            default:
+                                throw new DFAFormatException(String.format("Unknown node attribute %s", attribute), lineNumber);
+                        }
+                    }
+                    nodes.put(id, node);
+                    break;
+                }
+                case "edge": {
+                    final DFANode tail = cursor.nextNode(nodes);
+                    final DFANode head = cursor.nextNode(nodes);
+                    final DFAEdge edge = new DFAEdge(tail, head);
+                    final List<String> symbols = new ArrayList<>();
+                    final List<AlphabetRange> ranges = new ArrayList<>();
+                    while (cursor.hasNext()) {
+                        if (cursor.isSeparator()) {
+                            cursor.next("separator");
+                            while (cursor.hasNext()) {
+                                symbols.add(cursor.next("alphabet"));
+                            }
+                            break;
+                        }
+                        final String attribute = cursor.next("attribute");
+                        switch (attribute) {
+                            case "else":
+                                elseEdges.add(edge);
+                                break;
+                            case "output":
+                                edge.setOutput(cursor.nextInt());
+                                break;
+                            case "range":
+                                ranges.add(cursor.nextRange());
+                                break;
+                            default:
+                                throw new DFAFormatException(String.format("Unknown edge attribute %s", attribute), lineNumber);
+                        }
+                    }
+                    edges.add(edge);
+                    edgeAlphabets.put(edge, symbols);
+                    edgeRanges.put(edge, ranges);
+                    break;
+                }
+                default:
+                    throw new DFAFormatException(String.format("Unknown record %s", record), lineNumber);
+            }
+        }
+
+        final DFANode initial = initialNode;
+        try {
+            controller.edit(tx -> {
+                alphabets.forEach(tx::registerAlphabet);
+                nodes.values().forEach(tx::registerNode);
+                for (DFAEdge edge : edges) {
+                    tx.registerEdge(edge);
+                    edgeAlphabets.get(edge).forEach((String alphabet) -> tx.registerEdgeAlphabet(edge, alphabet));
+                    edgeRanges.get(edge).forEach((AlphabetRange range) -> tx.registerEdgeRange(edge, range));
+                }
+                elseEdges.forEach((DFAEdge edge) -> tx.setElseEdge(edge, true));
+                if (initial != null) tx.setInitialNode(initial);
+            });
+        } catch (DFAValidationException e) {
+            throw new DFAFormatException(String.format("Invalid DFA: %s", e.getMessage()), e);
+        }
+        return new DFADocument(controller, nodes, positions);
+    }
+
+    /**
+     * Writes a DFA without node positions.
+     *
+     * @param controller DFA to write
+     * @param writer destination of the text
+     * @throws IOException if the text can not be written
+     */
+    public static void write(DFAController controller, Writer writer) throws IOException {
+        write(controller, (DFANode node) -> null, writer);
+    }
+
+    /**
+     * Writes a DFA. Nodes get the ids "q0", "q1", ..., the initial node first and the others
+     * in the order of their contents, which are written as labels.
+     *
+     * @param controller DFA to write
+     * @param positionOf position {x, y} of a node, or {@code null} to omit it
+     * @param writer destination of the text
+     * @throws IOException if the text can not be written
+     */
+    public static void write(DFAController controller, Function<DFANode, double[]> positionOf, Writer writer) throws IOException {
+        final List<DFANode> nodes = controller.getNodeSet();
+        // sorted by content, so that the same DFA is usually written the same way
+        nodes.sort(Comparator.comparing(DFANode::getContent, Comparator.nullsLast(Comparator.naturalOrder())));
+        final DFANode initialNode = controller.getInitialNode();
+        if (initialNode != null && nodes.remove(initialNode)) nodes.add(0, initialNode);
+        final Map<DFANode, String> idOf = new HashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            idOf.put(nodes.get(i), "q" + i);
+        }
+
+        final Set<String> alphabets = new TreeSet<>(controller.getAlphabetSet());
+        if (!alphabets.isEmpty()) {
+            writer.write("alphabet");
+            for (String alphabet : alphabets) {
+                writer.write(' ');
+                writer.write(quote(alphabet));
+            }
+            writer.write('\n');
+        }
+        for (AlphabetRange range : new TreeSet<>(controller.getAlphabetRanges())) {
+            writer.write("range " + formatRange(range) + "\n");
+        }
+        for (DFANode node : nodes) {
+            final StringBuilder record = new StringBuilder("node ").append(idOf.get(node));
+            if (!idOf.get(node).equals(node.getContent()) && node.getContent() != null) {
+                record.append(" label ").append(quote(node.getContent()));
+            }
+            if (node == initialNode) record.append(" initial");
+            if (node.isAccepted()) record.append(" accepted");
+            if (node.hasOutput()) record.append(" output ").append(node.getOutput());
+            final double[] position = positionOf.apply(node);
+            if (position != null) record.append(" at ").append(position[0]).append(' ').append(position[1]);
+            writer.write(record.append('\n').toString());
+        }
+        for (DFANode node : nodes) {
+            final List<DFAEdge> edges = new ArrayList<>(node.getEdges());
+            if (node.getElseEdge() != null && !edges.contains(node.getElseEdge())) edges.add(node.getElseEdge());
+            edges.sort(Comparator.comparing((DFAEdge e) -> idOf.getOrDefault(e.getHead(), ""))
+                    .thenComparing((DFAEdge e) -> new TreeSet<>(e.getAlphabets()).toString()));
+            for (DFAEdge edge : edges) {
+                if (!idOf.containsKey(edge.getHead())) continue;
+                final StringBuilder record = new StringBuilder("edge ")
+                        .append(idOf.get(node)).append(' ').append(idOf.get(edge.getHead()));
+                if (edge.isElseEdge()) record.append(" else");
+                if (edge.hasOutput()) record.append(" output ").append(edge.getOutput());
+                for (AlphabetRange range : new TreeSet<>(edge.getRanges())) {
+                    record.append(" range ").append(formatRange(range));
+                }
+                if (!edge.getAlphabets().isEmpty()) {
+                    record.append(" :");
+                    new TreeSet<>(edge.getAlphabets()).forEach((String alphabet) -> record.append(' ').append(quote(alphabet)));
+                }
+                writer.write(record.append('\n').toString());
+            }
+        }
+        writer.flush();
+    }
+
+    private static String formatRange(AlphabetRange range) {
+        return String.format("U+%04X U+%04X", range.getFrom(), range.getTo());
+    }
+
+    // quotes a token if it could be mistaken for something else
+    static String quote(String token) {
+        boolean isPlain = !token.isEmpty();
+        for (int i = 0; i < token.length() && isPlain; i++) {
+            final char c = token.charAt(i);
+            isPlain = !Character.isWhitespace(c) && c != '"' && c != '\\' && c != '#' && c != ':';
+        }
+        if (isPlain) return token;
+        final StringBuilder quoted = new StringBuilder("\"");
+        for (int i = 0; i < token.length(); i++) {
+            final char c = token.charAt(i);
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static List<Token> tokenize(String line, int lineNumber) throws DFAFormatException {
+        final List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < line.length()) {
+            final char c = line.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '#') {
+                break;
+            } else if (c == '"') {
+                final StringBuilder text = new StringBuilder();
+                i++;
+                while (true) {
+                    if (i >= line.length()) throw new DFAFormatException("Unterminated quote", lineNumber);
+                    final char d = line.charAt(i++);
+                    if (d == '"') break;
+                    if (d != '\\') {
+                        text.append(d);
+                        continue;
+                    }
+                    if (i >= line.length()) throw new DFAFormatException("Unterminated escape", lineNumber);
+                    final char escaped = line.charAt(i++);
+                    switch (escaped) {
+                        case '"', '\\' -> text.append(escaped);
+                        case 'n' -> text.append('\n');
+                        case 'r' -> text.append('\r');
+                        case 't' -> text.append('\t');
+                        default -> throw new DFAFormatException(String.format("Unknown escape \\%c", escaped), lineNumber);
+                    }
+                }
+                tokens.add(new Token(text.toString(), true));
+            } else {
+                final int start = i;
+                while (i < line.length() && !Character.isWhitespace(line.charAt(i)) && line.charAt(i) != '#') {
+                    i++;
+                }
+                tokens.add(new Token(line.substring(start, i), false));
+            }
+        }
+        return tokens;
+    }
+
+    private static final class Token {
+        private final String text;
+        // a quoted token is never a keyword
+        private final boolean isQuoted;
+
+        private Token(String text, boolean isQuoted) {
+            this.text = text;
+            this.isQuoted = isQuoted;
+        }
+    }
+
+    // reads the tokens of one record
+    private static final class Cursor {
+        private final List<Token> tokens;
+        private final int lineNumber;
+        private int index;
+
+        private Cursor(List<Token> tokens, int lineNumber) {
+            this.tokens = tokens;
+            this.lineNumber = lineNumber;
+        }
+
+        private boolean hasNext() {
+            return index < tokens.size();
+        }
+
+        private boolean isSeparator() {
+            final Token token = tokens.get(index);
+            return !token.isQuoted && token.text.equals(":");
+        }
+
+        private String next(String expected) throws DFAFormatException {
+            if (!hasNext()) throw new DFAFormatException(String.format("Missing %s", expected), lineNumber);
+            return tokens.get(index++).text;
+        }
+
+        private int nextInt() throws DFAFormatException {
+            final String text = next("integer");
+            try {
+                return Integer.parseInt(text);
+            } catch (NumberFormatException e) {
+                throw new DFAFormatException(String.format("Invalid integer %s", text), lineNumber);
+            }
+        }
+
+        private double nextDouble() throws DFAFormatException {
+            final String text = next("number");
+            try {
+                return Double.parseDouble(text);
+            } catch (NumberFormatException e) {
+                throw new DFAFormatException(String.format("Invalid number %s", text), lineNumber);
+            }
+        }
+
+        private int nextCodePoint() throws DFAFormatException {
+            final String text = next("code point");
+            try {
+                final int codePoint = text.startsWith("U+") ? Integer.parseInt(text.substring(2), 16) : Integer.parseInt(text);
+                if (Character.isValidCodePoint(codePoint)) return codePoint;
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+            throw new DFAFormatException(String.format("Invalid code point %s", text), lineNumber);
+        }
+
+        private AlphabetRange nextRange() throws DFAFormatException {
+            final int from = nextCodePoint();
+            final int to = nextCodePoint();
+            if (from > to) throw new DFAFormatException(String.format("Empty range U+%04X to U+%04X", from, to), lineNumber);
+            return new AlphabetRange(from, to);
+        }
+
+        private DFANode nextNode(Map<String, DFANode> nodes) throws DFAFormatException {
+            final String id = next("node id");
+            final DFANode node = nodes.get(id);
+            if (node == null) throw new DFAFormatException(String.format("Undeclared node %s", id), lineNumber);
+            return node;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package io.github.lmhjava.engine.nfa;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A deterministic automaton stored as a flat transition table, usually the output of
+ * {@link SubsetConstruction}. The start state is always 0.
+ *
+ * @implNote the table is partial, undefined transitions lead to {@link #DEAD}.
+ */
+public final class DFATable {
+    public static final int DEAD = -1;
+
+    private final int stateCount;
+    private final int symbolCount;
+    // table[state * symbolCount + symbol] = next state
+    private final int[] table;
+    private final boolean[] accepting;
+
+    public DFATable(int stateCount, int symbolCount, int[] table, boolean[] accepting) {
+        assert table.length == stateCount * symbolCount && accepting.length == stateCount;
+        this.stateCount = stateCount;
+        this.symbolCount = symbolCount;
+        this.table = table;
+        this.accepting = accepting;
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    public int getSymbolCount() {
+        return symbolCount;
+    }
+
+    public int step(int state, int symbol) {
+        return state == DEAD ? DEAD : table[state * symbolCount + symbol];
+    }
+
+    public boolean isAccepting(int state) {
+        return state != DEAD && accepting[state];
+    }
+
+    /**
+     * Runs the symbols from the start state.
+     *
+     * @param symbols input symbols
+     * @return true if the automaton ends on an accepted state
+     */
+    public boolean accepts(int... symbols) {
+        int state = stateCount == 0 ? DEAD : 0;
+        for (int i = 0; i < symbols.length && state != DEAD; i++) {
+            state = table[state * symbolCount + symbols[i]];
+        }
+        return isAccepting(state);
+    }
+
+    /**
+     * Returns the minimal automaton accepting the same language.
+     *
+     * @return minimized automaton
+     * @implNote Moore's partition refinement. Undefined transitions are treated as transitions to a
+     * virtual sink, and states equivalent to the sink are dropped from the result.
+     */
+    public DFATable minimize() {
+        final int sink = stateCount;
+        final int[] classOf = new int[stateCount + 1];
+        for (int s = 0; s < stateCount; s++) {
+            classOf[s] = accepting[s] ? 1 : 0;
+        }
+        classOf[sink] = 0;
+        int classCount = -1;
+        while (true) {
+            final Map<Signature, Integer> classes = new HashMap<>();
+            final int[] newClassOf = new int[stateCount + 1];
+            for (int s = 0; s <= stateCount; s++) {
+                final int[] signature = new int[symbolCount + 1];
+                signature[0] = classOf[s];
+                for (int symbol = 0; symbol < symbolCount; symbol++) {
+                    final int target = s == sink ? DEAD : table[s * symbolCount + symbol];
+                    signature[symbol + 1] = classOf[target == DEAD ? sink : target];
+                }
+                newClassOf[s] = classes.computeIfAbsent(new Signature(signature), k -> classes.size());
+            }
+            System.arraycopy(newClassOf, 0, classOf, 0, classOf.length);
+            if (classes.size() == classCount) break;
+            classCount = classes.size();
+        }
+
+        // renumber the classes in the order of first appearance, so the start state stays 0
+        final int[] renumber = new int[classCount];
+        Arrays.fill(renumber, -2);
+        renumber[classOf[sink]] = DEAD;
+        int newStateCount = 0;
+        for (int s = 0; s < stateCount; s++) {
+            if (renumber[classOf[s]] == -2) renumber[classOf[s]] = newStateCount++;
+        }
+        if (newStateCount == 0) {
+            // the language is empty, keep a single rejecting start state
+            final int[] emptyTable = new int[symbolCount];
+            Arrays.fill(emptyTable, DEAD);
+            return new DFATable(1, symbolCount, emptyTable, new boolean[1]);
+        }
+        final int[] newTable = new int[newStateCount * symbolCount];
+        final boolean[] newAccepting = new boolean[newStateCount];
+        for (int s = 0; s < stateCount; s++) {
+            final int newState = renumber[classOf[s]];
+            if (newState == DEAD) continue;
+            newAccepting[newState] = accepting[s];
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                final int target = table[s * symbolCount + symbol];
+                newTable[newState * symbolCount + symbol] = target == DEAD ? DEAD : renumber[classOf[target]];
+            }
+        }
+        return new DFATable(newStateCount, symbolCount, newTable, newAccepting);
+    }
+
+    /**
+     * Returns a copy of the transition table, indexed by {@code state * getSymbolCount() + symbol}.
+     *
+     * @return transition table
+     */
+    public int[] getTable() {
+        return table.clone();
+    }
+
+    private static final class Signature {
+        private final int[] values;
+        private final int hash;
+
+        private Signature(int[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Signature && Arrays.equals(values, ((Signature) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
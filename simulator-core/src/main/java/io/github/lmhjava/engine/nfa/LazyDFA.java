@@ -0,0 +1,257 @@
+package io.github.lmhjava.engine.nfa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs an {@link NFA} as a DFA which is determinized on demand.
+ * A determinized state (a set of NFA states) is only built when the input first reaches it,
+ * and its transitions are only computed when they are first taken. Built states and transitions
+ * are cached, so a later run through the same states costs one table lookup per input.
+ * <p>
+ * The cache is bounded by an estimated number of bytes. When it is full, the whole cache is
+ * flushed and the run continues from a re-built copy of its current state, so a run never fails
+ * no matter how many determinized states the NFA has.
+ *
+ * @implNote not thread-safe, since every run updates the cache.
+ */
+public class LazyDFA {
+    public static final int DEAD = -1;
+    // transition which is not computed yet
+    private static final int UNKNOWN = -2;
+    // rough bytes of the map entry, the StateSet object, and the list slot of a cached state
+    private static final int STATE_OVERHEAD = 96;
+    // a cache always holds at least a few states, so that a run can make progress
+    private static final int MIN_CACHED_STATES = 4;
+
+    private final NFA nfa;
+    private final int symbolCount;
+    private final long maxCacheBytes;
+    private final long bytesPerState;
+    private final int[] stack;
+    // symbol of every alphabet, only available when created from a controller
+    private final Map<String, Integer> symbolOf;
+
+    private final Map<StateSet, Integer> stateIds;
+    private final List<StateSet> states;
+    // transitions[state * symbolCount + symbol] = next state, DEAD, or UNKNOWN
+    private int[] transitions;
+    private boolean[] accepting;
+    private int startState;
+
+    private long cacheHits;
+    private long cacheMisses;
+    private long flushCount;
+
+    /**
+     * Creates a lazy DFA.
+     *
+     * @param nfa NFA to run
+     * @param maxCacheBytes estimated memory budget of the state cache
+     */
+    public LazyDFA(NFA nfa, long maxCacheBytes) {
+        this(nfa, Map.of(), maxCacheBytes);
+    }
+
+    /**
+     * Creates a lazy DFA of the current structure of an NFA graph.
+     *
+     * @param controller NFA to run
+     * @param maxCacheBytes estimated memory budget of the state cache
+     */
+    public LazyDFA(NFAController controller, long maxCacheBytes) {
+        this(controller.toNFA(), symbolsOf(controller.getAlphabets()), maxCacheBytes);
+    }
+
+    private LazyDFA(NFA nfa, Map<String, Integer> symbolOf, long maxCacheBytes) {
+        this.nfa = nfa;
+        this.symbolOf = symbolOf;
+        this.symbolCount = nfa.getSymbolCount();
+        this.stack = new int[nfa.getStateCount()];
+        this.bytesPerState = STATE_OVERHEAD + 8L * ((nfa.getStateCount() + 63) >>> 6) + 4L * symbolCount + 1;
+        this.maxCacheBytes = Math.max(maxCacheBytes, MIN_CACHED_STATES * bytesPerState);
+        this.stateIds = new HashMap<>();
+        this.states = new ArrayList<>();
+        this.transitions = new int[MIN_CACHED_STATES * symbolCount];
+        this.accepting = new boolean[MIN_CACHED_STATES];
+        this.startState = UNKNOWN;
+    }
+
+    /**
+     * Returns the start state, building it if it is not cached.
+     *
+     * @return start state
+     */
+    public int getStartState() {
+        if (startState == UNKNOWN) {
+            final StateSet start = new StateSet(nfa.getStateCount());
+            start.add(nfa.getStartState());
+            nfa.closure(start, stack);
+            startState = cache(start);
+        }
+        return startState;
+    }
+
+    /**
+     * Returns the next state after a transition.
+     *
+     * @param state current state, which must be returned by the latest call of this runner
+     * @param symbol input symbol
+     * @return next state, or {@link #DEAD} if no NFA state is left
+     * @implNote a state id is only valid until the next flush. Since a flush only happens inside
+     *          this method, the returned state is always valid.
+     */
+    public int step(int state, int symbol) {
+        if (state == DEAD) return DEAD;
+        final int index = state * symbolCount + symbol;
+        final int cached = transitions[index];
+        if (cached != UNKNOWN) {
+            cacheHits++;
+            return cached;
+        }
+        cacheMisses++;
+        final StateSet next = new StateSet(nfa.getStateCount());
+        nfa.step(states.get(state), symbol, next);
+        if (next.isEmpty()) {
+            transitions[index] = DEAD;
+            return DEAD;
+        }
+        nfa.closure(next, stack);
+        final long flushes = flushCount;
+        final int target = cache(next);
+        // after a flush, the id of the current state no longer exists
+        if (flushes == flushCount) transitions[index] = target;
+        return target;
+    }
+
+    public boolean isAccepting(int state) {
+        return state != DEAD && accepting[state];
+    }
+
+    /**
+     * Runs the symbols from the start state.
+     *
+     * @param symbols input symbols
+     * @return true if the NFA accepts the input
+     */
+    public boolean accepts(int... symbols) {
+        int state = getStartState();
+        for (int i = 0; i < symbols.length && state != DEAD; i++) {
+            state = step(state, symbols[i]);
+        }
+        return isAccepting(state);
+    }
+
+    /**
+     * Runs a slice of symbols from the start state.
+     *
+     * @param symbols input symbols
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @return true if the NFA accepts the input
+     */
+    public boolean accepts(int[] symbols, int from, int to) {
+        int state = getStartState();
+        for (int i = from; i < to && state != DEAD; i++) {
+            state = step(state, symbols[i]);
+        }
+        return isAccepting(state);
+    }
+
+    /**
+     * Runs a sequence of alphabets from the start state.
+     * Only available when this runner is created from an {@link NFAController}.
+     *
+     * @param input sequence of alphabets
+     * @return true if the NFA accepts the input, an unregistered alphabet is never accepted
+     */
+    public boolean accepts(Iterable<String> input) {
+        int state = getStartState();
+        for (String alphabet : input) {
+            final Integer symbol = symbolOf.get(alphabet);
+            if (symbol == null) return false;
+            state = step(state, symbol);
+            if (state == DEAD) return false;
+        }
+        return isAccepting(state);
+    }
+
+    private static Map<String, Integer> symbolsOf(List<String> alphabets) {
+        final Map<String, Integer> symbolOf = new HashMap<>();
+        for (int i = 0; i < alphabets.size(); i++) {
+            symbolOf.put(alphabets.get(i), i);
+        }
+        return symbolOf;
+    }
+
+    // returns the id of a state set, adding it to the cache if absent
+    private int cache(StateSet set) {
+        final Integer id = stateIds.get(set);
+        if (id != null) return id;
+        if ((states.size() + 1) * bytesPerState > maxCacheBytes) flush();
+        final int newId = states.size();
+        if (newId == accepting.length) {
+            accepting = Arrays.copyOf(accepting, newId * 2);
+            transitions = Arrays.copyOf(transitions, newId * 2 * symbolCount);
+        }
+        Arrays.fill(transitions, newId * symbolCount, (newId + 1) * symbolCount, UNKNOWN);
+        accepting[newId] = nfa.isAccepting(set);
+        stateIds.put(set, newId);
+        states.add(set);
+        return newId;
+    }
+
+    /**
+     * Drops all cached states.
+     */
+    public void flush() {
+        stateIds.clear();
+        states.clear();
+        startState = UNKNOWN;
+        flushCount++;
+    }
+
+    public int getCachedStateCount() {
+        return states.size();
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    /**
+     * Returns the ratio of transitions found in the cache.
+     *
+     * @return hit rate from 0 to 1, or 0 if no transition is taken yet
+     */
+    public double getHitRate() {
+        final long total = cacheHits + cacheMisses;
+        return total == 0 ? 0 : (double) cacheHits / total;
+    }
+
+    /**
+     * Returns the estimated bytes of the cached states.
+     *
+     * @return estimated bytes in use
+     */
+    public long getCacheBytes() {
+        return states.size() * bytesPerState;
+    }
+
+    public void resetStatistics() {
+        cacheHits = 0;
+        cacheMisses = 0;
+        flushCount = 0;
+    }
+}
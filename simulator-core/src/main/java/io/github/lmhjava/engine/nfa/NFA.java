@@ -0,0 +1,188 @@
+package io.github.lmhjava.engine.nfa;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A compact, immutable NFA with epsilon transitions.
+ * States are numbered from 0, and alphabets are numbered from 0 to {@code getSymbolCount() - 1}.
+ * Each transition is labelled with a SET of symbols, so a character class costs one transition.
+ * Use {@link Builder} to create one.
+ */
+public final class NFA {
+    private final int symbolCount;
+    private final int startState;
+    private final boolean[] accepting;
+    private final int[][] epsilonTargets;
+    private final int[][] transitionTargets;
+    private final BitSet[][] transitionSymbols;
+
+    private NFA(Builder builder) {
+        final int stateCount = builder.accepting.size();
+        this.symbolCount = builder.symbolCount;
+        this.startState = builder.startState;
+        this.accepting = new boolean[stateCount];
+        this.epsilonTargets = new int[stateCount][];
+        this.transitionTargets = new int[stateCount][];
+        this.transitionSymbols = new BitSet[stateCount][];
+        for (int state = 0; state < stateCount; state++) {
+            accepting[state] = builder.accepting.get(state);
+            epsilonTargets[state] = builder.epsilonTargets.get(state).stream().mapToInt(Integer::intValue).toArray();
+            transitionTargets[state] = builder.transitionTargets.get(state).stream().mapToInt(Integer::intValue).toArray();
+            transitionSymbols[state] = builder.transitionSymbols.get(state).toArray(new BitSet[0]);
+        }
+    }
+
+    public int getStateCount() {
+        return accepting.length;
+    }
+
+    public int getSymbolCount() {
+        return symbolCount;
+    }
+
+    public int getStartState() {
+        return startState;
+    }
+
+    public boolean isAccepting(int state) {
+        return accepting[state];
+    }
+
+    /**
+     * Returns true if any state in the set is accepting.
+     *
+     * @param states state set
+     * @return whether the set is accepting
+     */
+    public boolean isAccepting(StateSet states) {
+        for (int s = states.nextState(0); s >= 0; s = states.nextState(s + 1)) {
+            if (accepting[s]) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds every state reachable by epsilon transitions to the set, in place.
+     *
+     * @param states state set to expand
+     * @param stack scratch stack with at least {@code getStateCount()} slots
+     */
+    public void closure(StateSet states, int[] stack) {
+        int size = 0;
+        for (int s = states.nextState(0); s >= 0; s = states.nextState(s + 1)) {
+            stack[size++] = s;
+        }
+        while (size > 0) {
+            final int state = stack[--size];
+            for (int target : epsilonTargets[state]) {
+                if (!states.contains(target)) {
+                    states.add(target);
+                    stack[size++] = target;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the targets of all transitions on the symbol from the given states, WITHOUT closure.
+     *
+     * @param from source states
+     * @param symbol symbol
+     * @param to set to collect the targets
+     */
+    public void step(StateSet from, int symbol, StateSet to) {
+        for (int s = from.nextState(0); s >= 0; s = from.nextState(s + 1)) {
+            final BitSet[] symbols = transitionSymbols[s];
+            for (int i = 0; i < symbols.length; i++) {
+                if (symbols[i].get(symbol)) to.add(transitionTargets[s][i]);
+            }
+        }
+    }
+
+    int[] getTransitionTargets(int state) {
+        return transitionTargets[state];
+    }
+
+    BitSet[] getTransitionSymbols(int state) {
+        return transitionSymbols[state];
+    }
+
+    /**
+     * Builder of {@link NFA}.
+     */
+    public static final class Builder {
+        private final int symbolCount;
+        private final List<Boolean> accepting;
+        private final List<List<Integer>> epsilonTargets;
+        private final List<List<Integer>> transitionTargets;
+        private final List<List<BitSet>> transitionSymbols;
+        private int startState;
+
+        public Builder(int symbolCount) {
+            this.symbolCount = symbolCount;
+            this.accepting = new ArrayList<>();
+            this.epsilonTargets = new ArrayList<>();
+            this.transitionTargets = new ArrayList<>();
+            this.transitionSymbols = new ArrayList<>();
+        }
+
+        /**
+         * Adds a new state.
+         *
+         * @return the new state
+         */
+        public int addState() {
+            accepting.add(false);
+            epsilonTargets.add(new ArrayList<>());
+            transitionTargets.add(new ArrayList<>());
+            transitionSymbols.add(new ArrayList<>());
+            return accepting.size() - 1;
+        }
+
+        public Builder setStartState(int state) {
+            this.startState = state;
+            return this;
+        }
+
+        public Builder setAccepting(int state, boolean isAccepting) {
+            accepting.set(state, isAccepting);
+            return this;
+        }
+
+        public Builder addEpsilon(int from, int to) {
+            epsilonTargets.get(from).add(to);
+            return this;
+        }
+
+        /**
+         * Adds a transition triggered by any symbol in the set.
+         *
+         * @param from source state
+         * @param symbols symbols, must not be modified afterward
+         * @param to target state
+         * @return this builder
+         */
+        public Builder addTransition(int from, BitSet symbols, int to) {
+            if (symbols.isEmpty()) return this;
+            transitionTargets.get(from).add(to);
+            transitionSymbols.get(from).add(symbols);
+            return this;
+        }
+
+        public Builder addTransition(int from, int symbol, int to) {
+            final BitSet symbols = new BitSet(symbolCount);
+            symbols.set(symbol);
+            return addTransition(from, symbols, to);
+        }
+
+        public int getStateCount() {
+            return accepting.size();
+        }
+
+        public NFA build() {
+            return new NFA(this);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package io.github.lmhjava.engine.nfa;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Main controller of an NFA graph made of {@link NFANode} and {@link NFAEdge}.
+ * The graph is editable, and is converted into a compact {@link NFA} to run, see {@link #toNFA()}
+ * and {@link LazyDFA}.
+ */
+public class NFAController {
+    private final Set<NFAEdge> edgeSet;
+    private final Set<NFANode> nodeSet;
+    private final Set<String> alphabetSet;
+    private NFANode initialNode;
+
+    public NFAController() {
+        this.edgeSet = new HashSet<>();
+        this.nodeSet = new HashSet<>();
+        this.alphabetSet = new HashSet<>();
+    }
+
+    /**
+     * Returns the general alphabet set of this NFA.
+     *
+     * @return alphabet set of this NFA.
+     */
+    public Set<String> getAlphabetSet() {
+        return new HashSet<>(alphabetSet);
+    }
+
+    /**
+     * Returns the alphabets in the order of the symbols of {@link #toNFA()}.
+     *
+     * @return sorted alphabets
+     */
+    public List<String> getAlphabets() {
+        final List<String> alphabets = new ArrayList<>(alphabetSet);
+        Collections.sort(alphabets);
+        return alphabets;
+    }
+
+    public List<NFANode> getNodeSet() {
+        return new ArrayList<>(nodeSet);
+    }
+
+    public List<NFAEdge> getEdgeSet() {
+        return new ArrayList<>(edgeSet);
+    }
+
+    public NFANode getInitialNode() {
+        return initialNode;
+    }
+
+    /**
+     * Sets initial node of NFA.
+     *
+     * @param initialNode new initial node.
+     */
+    public void setInitialNode(NFANode initialNode) {
+        assert nodeSet.contains(initialNode);
+        this.initialNode = initialNode;
+    }
+
+    /**
+     * Register a node to the NFA.
+     *
+     * @param node new node
+     * @return successfully added or not.
+     */
+    public boolean registerNode(NFANode node) {
+        if (node == null) return false;
+        nodeSet.add(node);
+        return true;
+    }
+
+    /**
+     * Add an edge to the NFA.
+     *
+     * @param edge edge being added.
+     * @implNote if any end of the edge is not registered, or the edge contains an alphabet that is
+     *          not registered in this NFA, this operation will be rejected. Unlike DFAs, several edges
+     *          of a node may share alphabets.
+     * @return whether successfully added or not.
+     */
+    public boolean registerEdge(NFAEdge edge) {
+        assert edge != null;
+        if (!nodeSet.contains(edge.getTail()) || !nodeSet.contains(edge.getHead())) return false;
+        if (!edge.isEpsilonEdge() && !alphabetSet.containsAll(edge.getAlphabets())) return false;
+        return edgeSet.add(edge);
+    }
+
+    /**
+     * Add a new string to the general alphabet set of the NFA.
+     *
+     * @param alphabet new string
+     * @return whether successfully added
+     */
+    public boolean registerAlphabet(String alphabet) {
+        assert alphabet != null;
+        return alphabetSet.add(alphabet);
+    }
+
+    /**
+     * Add a new set of strings to the general alphabet set of the NFA.
+     *
+     * @param alphabetSet new alphabet set
+     */
+    public void registerAlphabet(Set<String> alphabetSet) {
+        assert alphabetSet != null;
+        this.alphabetSet.addAll(alphabetSet);
+    }
+
+    /**
+     * Remove alphabet from NFA and from all the edges.
+     *
+     * @param alphabet remove alphabet
+     */
+    public void unregisterAlphabet(String alphabet) {
+        assert alphabet != null;
+        alphabetSet.remove(alphabet);
+        edgeSet.forEach((NFAEdge edge) -> edge.unregisterAlphabet(alphabet));
+    }
+
+    /**
+     * Remove the given edge.
+     *
+     * @param edge edge to be deleted
+     * @return whether the edge is successfully removed
+     */
+    public boolean removeEdge(NFAEdge edge) {
+        assert edge != null;
+        return edgeSet.remove(edge);
+    }
+
+    /**
+     * Remove the given node from NFA and all relevant edges.
+     * If the node is the initial node, the initial node will be reset to null.
+     *
+     * @param node node to be deleted
+     */
+    public void removeNode(NFANode node) {
+        assert node != null;
+        nodeSet.remove(node);
+        if (node == initialNode) {
+            initialNode = null;
+        }
+        edgeSet.removeAll(edgeSet.stream()
+                .filter((NFAEdge e) -> e.getTail() == node || e.getHead() == node)
+                .collect(Collectors.toSet()));
+    }
+
+    /**
+     * Converts the current structure into a compact NFA.
+     * The symbol {@code i} of the result is the {@code i}-th alphabet of {@link #getAlphabets()}.
+     *
+     * @return compact NFA
+     * @implNote the initial node must be set. Later edits on this controller are NOT reflected.
+     */
+    public NFA toNFA() {
+        assert initialNode != null;
+        final List<String> alphabets = getAlphabets();
+        final Map<String, Integer> symbolOf = new HashMap<>();
+        for (int i = 0; i < alphabets.size(); i++) {
+            symbolOf.put(alphabets.get(i), i);
+        }
+        final NFA.Builder builder = new NFA.Builder(alphabets.size());
+        final Map<NFANode, Integer> stateOf = new HashMap<>();
+        for (NFANode node : nodeSet) {
+            final int state = builder.addState();
+            stateOf.put(node, state);
+            builder.setAccepting(state, node.isAccepted());
+        }
+        builder.setStartState(stateOf.get(initialNode));
+        for (NFAEdge edge : edgeSet) {
+            final int tail = stateOf.get(edge.getTail());
+            final int head = stateOf.get(edge.getHead());
+            if (edge.isEpsilonEdge()) {
+                builder.addEpsilon(tail, head);
+            } else {
+                final BitSet symbols = new BitSet(alphabets.size());
+                for (String alphabet : edge.getAlphabets()) {
+                    // alphabets added to the edge without registration are ignored
+                    final Integer symbol = symbolOf.get(alphabet);
+                    if (symbol != null) symbols.set(symbol);
+                }
+                builder.addTransition(tail, symbols, head);
+            }
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,110 @@
+package io.github.lmhjava.engine.nfa;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An NFA edge connecting two NFA nodes.
+ * An edge is either triggered by any of its alphabets, or it is an epsilon edge which is
+ * taken without consuming any input.
+ */
+public class NFAEdge {
+    private final NFANode tail;
+    private final NFANode head;
+    private final Set<String> alphabets;
+    private boolean isEpsilonEdge;
+
+    public NFAEdge(NFANode tail, NFANode head) {
+        this.tail = tail;
+        this.head = head;
+        this.alphabets = new HashSet<>();
+    }
+
+    public NFAEdge(NFANode tail, NFANode head, String alphabet) {
+        this.tail = tail;
+        this.head = head;
+        this.alphabets = new HashSet<>();
+        this.alphabets.add(alphabet);
+    }
+
+    /**
+     * Creates an epsilon edge.
+     *
+     * @param tail tail node
+     * @param head head node
+     * @return new epsilon edge
+     */
+    public static NFAEdge epsilon(NFANode tail, NFANode head) {
+        final NFAEdge edge = new NFAEdge(tail, head);
+        edge.setEpsilonEdge(true);
+        return edge;
+    }
+
+    public NFANode getTail() {
+        return tail;
+    }
+
+    public NFANode getHead() {
+        return head;
+    }
+
+    public boolean isEpsilonEdge() {
+        return isEpsilonEdge;
+    }
+
+    /**
+     * Sets this edge to be an epsilon edge. The alphabets of an epsilon edge are ignored.
+     *
+     * @param epsilonEdge is epsilon edge or not.
+     */
+    public void setEpsilonEdge(boolean epsilonEdge) {
+        isEpsilonEdge = epsilonEdge;
+    }
+
+    public Set<String> getAlphabets() {
+        return new HashSet<>(alphabets);
+    }
+
+    /**
+     * Register an alphabet for this edge.
+     *
+     * @implNote the caller must ensure the new alphabet is registered in the associated {@code NFAController}
+     * to avoid unexpected behaviors.
+     * @param alphabet new alphabet
+     */
+    public void registerAlphabet(String alphabet) {
+        assert alphabet != null;
+        alphabets.add(alphabet);
+    }
+
+    /**
+     * Unregister an alphabet from this edge.
+     *
+     * @param alphabet alphabet to unregister
+     */
+    public void unregisterAlphabet(String alphabet) {
+        assert alphabet != null;
+        alphabets.remove(alphabet);
+    }
+
+    /**
+     * Add all alphabet in a batch
+     *
+     * @param alphabets a set of alphabets
+     */
+    public void registerAllAlphabet(String... alphabets) {
+        for (String al : alphabets) {
+            registerAlphabet(al);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "NFAEdge{" +
+                "tail=" + tail +
+                ", head=" + head +
+                ", alphabets=" + alphabets +
+                ", isEpsilonEdge=" + isEpsilonEdge +
+                '}';
+    }
+}
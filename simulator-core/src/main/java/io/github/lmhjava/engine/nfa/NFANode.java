@@ -0,0 +1,44 @@
+package io.github.lmhjava.engine.nfa;
+
+/**
+ * A node in an NFA graph.
+ * Unlike {@code DFANode}, a node does not index its edges, since an NFA can always be in
+ * more than one node at a time. Transitions are looked up by {@link NFAController#toNFA()}.
+ */
+public class NFANode {
+    // content of the node
+    private String content;
+    // if this node is accepted
+    private boolean isAccepted;
+
+    public NFANode() {
+    }
+
+    public NFANode(String content) {
+        this.content = content;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public boolean isAccepted() {
+        return isAccepted;
+    }
+
+    public void setAccepted(boolean accepted) {
+        isAccepted = accepted;
+    }
+
+    @Override
+    public String toString() {
+        return "NFANode{" +
+                "content='" + content + '\'' +
+                ", isAccepted=" + isAccepted +
+                '}';
+    }
+}
@@ -0,0 +1,83 @@
+package io.github.lmhjava.engine.nfa;
+
+import java.util.Arrays;
+
+/**
+ * A set of NFA states stored as a bitset, with a cached hash code.
+ * Used as the key of determinized states, so that looking up an already-built state costs
+ * one hash and one array comparison instead of hashing a collection of boxed integers.
+ *
+ * @implNote a state set must not be modified after it is used as a key.
+ */
+public final class StateSet {
+    private final long[] words;
+    private int hash;
+    private boolean isHashed;
+
+    public StateSet(int capacity) {
+        this.words = new long[(capacity + 63) >>> 6];
+    }
+
+    private StateSet(long[] words) {
+        this.words = words;
+    }
+
+    public void add(int state) {
+        words[state >>> 6] |= 1L << state;
+        isHashed = false;
+    }
+
+    public boolean contains(int state) {
+        return (words[state >>> 6] & (1L << state)) != 0;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) return false;
+        }
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(words, 0);
+        isHashed = false;
+    }
+
+    /**
+     * Returns the next state in the set starting from the given one.
+     *
+     * @param from first state to check, inclusive
+     * @return the next state, or -1 if there is none
+     */
+    public int nextState(int from) {
+        int index = from >>> 6;
+        if (index >= words.length) return -1;
+        long word = words[index] & (-1L << from);
+        while (true) {
+            if (word != 0) return (index << 6) + Long.numberOfTrailingZeros(word);
+            if (++index == words.length) return -1;
+            word = words[index];
+        }
+    }
+
+    public StateSet copy() {
+        return new StateSet(words.clone());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof StateSet)) return false;
+        final StateSet other = (StateSet) o;
+        return hashCode() == other.hashCode() && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        if (!isHashed) {
+            hash = Arrays.hashCode(words);
+            isHashed = true;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,98 @@
+package io.github.lmhjava.engine.nfa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Determinizes an {@link NFA} with the subset construction.
+ *
+ * @implNote Every determinized state is keyed by a hashed bitset of NFA states ({@link StateSet}),
+ * and all successors of a state are collected in ONE pass over its NFA transitions, instead of
+ * one pass per symbol.
+ */
+public final class SubsetConstruction {
+
+    private SubsetConstruction() {
+    }
+
+    /**
+     * Determinizes the NFA. Only the states reachable from the start state are built,
+     * and the empty state set becomes {@link DFATable#DEAD}.
+     *
+     * @param nfa NFA to determinize
+     * @return deterministic automaton, whose state 0 is the start state
+     */
+    public static DFATable determinize(NFA nfa) {
+        return determinize(nfa, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Determinizes the NFA, giving up when too many states are built.
+     *
+     * @param nfa NFA to determinize
+     * @param maxStates maximum number of deterministic states
+     * @return deterministic automaton, whose state 0 is the start state
+     * @throws IllegalStateException if more than {@code maxStates} states are needed
+     */
+    public static DFATable determinize(NFA nfa, int maxStates) {
+        final int stateCount = nfa.getStateCount();
+        final int symbolCount = nfa.getSymbolCount();
+        final int[] stack = new int[stateCount];
+        final Map<StateSet, Integer> stateIds = new HashMap<>();
+        final List<StateSet> states = new ArrayList<>();
+        final List<int[]> rows = new ArrayList<>();
+
+        final StateSet start = new StateSet(stateCount);
+        start.add(nfa.getStartState());
+        nfa.closure(start, stack);
+        stateIds.put(start, 0);
+        states.add(start);
+
+        final StateSet[] successors = new StateSet[symbolCount];
+        for (int current = 0; current < states.size(); current++) {
+            final StateSet from = states.get(current);
+            // collect the successors of every symbol in one pass
+            for (int s = from.nextState(0); s >= 0; s = from.nextState(s + 1)) {
+                final int[] targets = nfa.getTransitionTargets(s);
+                final BitSet[] symbols = nfa.getTransitionSymbols(s);
+                for (int i = 0; i < targets.length; i++) {
+                    for (int symbol = symbols[i].nextSetBit(0); symbol >= 0; symbol = symbols[i].nextSetBit(symbol + 1)) {
+                        if (successors[symbol] == null) successors[symbol] = new StateSet(stateCount);
+                        successors[symbol].add(targets[i]);
+                    }
+                }
+            }
+            final int[] row = new int[symbolCount];
+            Arrays.fill(row, DFATable.DEAD);
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                final StateSet next = successors[symbol];
+                if (next == null) continue;
+                successors[symbol] = null;
+                nfa.closure(next, stack);
+                Integer id = stateIds.get(next);
+                if (id == null) {
+                    if (states.size() >= maxStates) {
+                        throw new IllegalStateException(String.format("Determinization needs more than %d states", maxStates));
+                    }
+                    id = states.size();
+                    stateIds.put(next, id);
+                    states.add(next);
+                }
+                row[symbol] = id;
+            }
+            rows.add(row);
+        }
+
+        final int[] table = new int[states.size() * symbolCount];
+        final boolean[] accepting = new boolean[states.size()];
+        for (int i = 0; i < states.size(); i++) {
+            System.arraycopy(rows.get(i), 0, table, i * symbolCount, symbolCount);
+            accepting[i] = nfa.isAccepting(states.get(i));
+        }
+        return new DFATable(states.size(), symbolCount, table, accepting);
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.lmhjava.engine.observable;
+
+import io.github.lmhjava.engine.dfa.DFAEdge;
+import io.github.lmhjava.engine.dfa.DFANode;
+
+/**
+ * Listener of structural modifications of a DFA, e.g. for engines that keep a derived copy of it.
+ * Every callback is made right after the modification is applied.
+ */
+public interface MutationListener {
+
+    /**
+     * A node is registered.
+     *
+     * @param node new node
+     */
+    default void nodeAdded(DFANode node) {
+    }
+
+    /**
+     * A node is removed. The tails of its incoming edges are reported by {@link #nodeChanged(DFANode)} first.
+     *
+     * @param node removed node
+     */
+    default void nodeRemoved(DFANode node) {
+    }
+
+    /**
+     * The outgoing transitions, the accept flag, or the output of a node are changed,
+     * e.g. an edge starting from it is added, removed, or gets a new alphabet.
+     *
+     * @param node changed node
+     */
+    default void nodeChanged(DFANode node) {
+    }
+
+    /**
+     * The alphabets, the ranges, the ELSE flag, or the output of a registered edge are changed,
+     * e.g. when an alphabet is removed from the DFA. Reported right before {@link #nodeChanged(DFANode)} of its tail.
+     * Edges being added or removed are not reported, only their tails are.
+     *
+     * @param edge changed edge
+     */
+    default void edgeChanged(DFAEdge edge) {
+    }
+
+    /**
+     * The initial node is changed.
+     *
+     * @param node new initial node, or {@code null}
+     */
+    default void initialNodeChanged(DFANode node) {
+    }
+}
@@ -1,8 +1,10 @@
 package io.github.lmhjava.engine.observable;
 
+import io.github.lmhjava.engine.dfa.DFAEdge;
 import io.github.lmhjava.engine.dfa.DFANode;
 
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 /**
@@ -10,9 +12,11 @@ import java.util.Set;
  */
 public class ObservableController {
     protected Set<StateListener> listeners;
+    protected Set<MutationListener> mutationListeners;
 
     protected ObservableController() {
         listeners = new HashSet<>();
+        mutationListeners = new LinkedHashSet<>();
     }
 
     protected void notifyChange(DFANode oldNode, DFANode newNode) {
@@ -22,4 +26,32 @@ public class ObservableController {
     public void addListener(final StateListener listener) {
         listeners.add(listener);
     }
+
+    public void addMutationListener(final MutationListener listener) {
+        mutationListeners.add(listener);
+    }
+
+    public void removeMutationListener(final MutationListener listener) {
+        mutationListeners.remove(listener);
+    }
+
+    protected void notifyNodeAdded(DFANode node) {
+        mutationListeners.forEach((MutationListener listener) -> listener.nodeAdded(node));
+    }
+
+    protected void notifyNodeRemoved(DFANode node) {
+        mutationListeners.forEach((MutationListener listener) -> listener.nodeRemoved(node));
+    }
+
+    protected void notifyNodeChanged(DFANode node) {
+        mutationListeners.forEach((MutationListener listener) -> listener.nodeChanged(node));
+    }
+
+    protected void notifyEdgeChanged(DFAEdge edge) {
+        mutationListeners.forEach((MutationListener listener) -> listener.edgeChanged(edge));
+    }
+
+    protected void notifyInitialNodeChanged(DFANode node) {
+        mutationListeners.forEach((MutationListener listener) -> listener.initialNodeChanged(node));
+    }
 }
@@ -0,0 +1,197 @@
+package io.github.lmhjava.engine.regex;
+
+import io.github.lmhjava.engine.dfa.DFAController;
+import io.github.lmhjava.engine.dfa.DFAEdge;
+import io.github.lmhjava.engine.dfa.DFANode;
+import io.github.lmhjava.engine.exception.DFAValidationException;
+import io.github.lmhjava.engine.exception.RegexSyntaxException;
+import io.github.lmhjava.engine.nfa.DFATable;
+import io.github.lmhjava.engine.nfa.NFA;
+import io.github.lmhjava.engine.nfa.SubsetConstruction;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiles regular expressions into DFAs over a fixed alphabet.
+ * <p>
+ * The dialect supports:
+ * <ul>
+ *     <li>literals, each of them must be a registered single-code-point alphabet</li>
+ *     <li>{@code <name>} for any registered alphabet, including multi-character ones</li>
+ *     <li>{@code .} for any registered alphabet</li>
+ *     <li>character classes {@code [a-z_]}, {@code [^0-9]}, and escapes {@code \d \w \s \D \W \S \n \t \r}</li>
+ *     <li>alternation {@code a|b} and grouping {@code (ab)}</li>
+ *     <li>repetition {@code * + ?} and bounded repetition {@code {m} {m,} {m,n}}</li>
+ * </ul>
+ * Classes and escapes only match the registered alphabets in them, e.g. {@code [a-z]} over
+ * the alphabet {a, b, 1} matches a and b.
+ *
+ * @implNote The regex is turned into a Thompson NFA whose symbols are the atoms of the regex, i.e.
+ * groups of alphabets that no character class can tell apart. The NFA is determinized with
+ * {@link SubsetConstruction} and optionally minimized, so the cost depends on the size of the
+ * regex instead of the size of the alphabet.
+ */
+public class RegexCompiler {
+    private final List<String> alphabets;
+    private final Map<String, Integer> indexOf;
+
+    /**
+     * Creates a compiler over the given alphabet.
+     *
+     * @param alphabetSet alphabet of the compiled DFAs
+     */
+    public RegexCompiler(Set<String> alphabetSet) {
+        assert alphabetSet != null;
+        this.alphabets = new ArrayList<>(alphabetSet);
+        Collections.sort(this.alphabets);
+        this.indexOf = new HashMap<>();
+        for (int i = 0; i < alphabets.size(); i++) {
+            indexOf.put(alphabets.get(i), i);
+        }
+    }
+
+    /**
+     * Creates a compiler over the alphabet registered in a DFA.
+     *
+     * @param controller DFA whose alphabet is used
+     * @implNote only the alphabet set is used, code point ranges of the DFA are ignored.
+     */
+    public RegexCompiler(DFAController controller) {
+        this(controller.getAlphabetSet());
+    }
+
+    /**
+     * Compiles a regex into a minimal DFA.
+     *
+     * @param regex regular expression
+     * @return a new DFA accepting exactly the sequences of alphabets matched by the regex
+     * @throws RegexSyntaxException if the regex is malformed
+     */
+    public DFAController compile(String regex) throws RegexSyntaxException {
+        return compile(regex, true);
+    }
+
+    /**
+     * Compiles a regex into a DFA.
+     * Nodes are named "q0", "q1", ... and "q0" is the initial node.
+     * Each pair of connected nodes is joined by ONE edge holding all the alphabets between them.
+     *
+     * @param regex regular expression
+     * @param minimize whether to minimize the DFA
+     * @return a new DFA accepting exactly the sequences of alphabets matched by the regex
+     * @throws RegexSyntaxException if the regex is malformed
+     */
+    public DFAController compile(String regex, boolean minimize) throws RegexSyntaxException {
+        final DFATable table = compileTable(regex, minimize);
+        final DFANode[] nodes = new DFANode[table.getStateCount()];
+        for (int state = 0; state < nodes.length; state++) {
+            nodes[state] = new DFANode("q" + state);
+        }
+        final List<DFAEdge> edges = new ArrayList<>();
+        final Map<DFAEdge, List<String>> edgeAlphabets = new HashMap<>();
+        for (int state = 0; state < nodes.length; state++) {
+            // group the alphabets by target
+            final Map<Integer, DFAEdge> edgeTo = new LinkedHashMap<>();
+            for (int i = 0; i < alphabets.size(); i++) {
+                final int target = table.step(state, i);
+                if (target == DFATable.DEAD) continue;
+                final DFANode tail = nodes[state];
+                final DFAEdge edge = edgeTo.computeIfAbsent(target, (Integer t) -> new DFAEdge(tail, nodes[t]));
+                edgeAlphabets.computeIfAbsent(edge, (DFAEdge e) -> new ArrayList<>()).add(alphabets.get(i));
+            }
+            edges.addAll(edgeTo.values());
+        }
+
+        final DFAController controller = new DFAController();
+        try {
+            controller.edit(tx -> {
+                alphabets.forEach(tx::registerAlphabet);
+                for (int state = 0; state < nodes.length; state++) {
+                    tx.registerNode(nodes[state]);
+                    tx.setAccepted(nodes[state], table.isAccepting(state));
+                }
+                for (DFAEdge edge : edges) {
+                    tx.registerEdge(edge);
+                    edgeAlphabets.get(edge).forEach((String alphabet) -> tx.registerEdgeAlphabet(edge, alphabet));
+                }
+                tx.setInitialNode(nodes[0]);
+            });
+        } catch (DFAValidationException e) {
+            // a determinized table can never produce conflicting edges
+            throw new IllegalStateException(e);
+        }
+        return controller;
+    }
+
+    /**
+     * Compiles a regex into a transition table indexed by alphabets, in the sorted order of the alphabet.
+     *
+     * @param regex regular expression
+     * @param minimize whether to minimize the table
+     * @return a table whose symbol {@code i} is the {@code i}-th alphabet in sorted order
+     * @throws RegexSyntaxException if the regex is malformed
+     */
+    public DFATable compileTable(String regex, boolean minimize) throws RegexSyntaxException {
+        assert regex != null;
+        final RegexNode root = new RegexParser(regex, alphabets, indexOf).parse();
+
+        // split the alphabet into atoms, i.e. groups of alphabets in exactly the same leaves
+        final List<BitSet> leaves = new ArrayList<>();
+        root.collectSymbolSets(leaves);
+        final int[] atomOf = new int[alphabets.size()];
+        int atomCount = alphabets.isEmpty() ? 0 : 1;
+        for (BitSet leaf : leaves) {
+            final Map<Long, Integer> split = new HashMap<>();
+            for (int i = 0; i < alphabets.size(); i++) {
+                final long key = ((long) atomOf[i] << 1) | (leaf.get(i) ? 1 : 0);
+                atomOf[i] = split.computeIfAbsent(key, (Long k) -> split.size());
+            }
+            atomCount = split.size();
+        }
+        // leaves are SHARED with the tree, so they are rewritten in place
+        for (BitSet leaf : leaves) {
+            final BitSet atoms = new BitSet(atomCount);
+            for (int i = leaf.nextSetBit(0); i >= 0; i = leaf.nextSetBit(i + 1)) {
+                atoms.set(atomOf[i]);
+            }
+            leaf.clear();
+            leaf.or(atoms);
+        }
+
+        final NFA.Builder builder = new NFA.Builder(atomCount);
+        final int start = builder.addState();
+        final int end = builder.addState();
+        builder.setStartState(start).setAccepting(end, true);
+        root.build(builder, start, end);
+        DFATable atomTable = SubsetConstruction.determinize(builder.build());
+        if (minimize) atomTable = atomTable.minimize();
+
+        // expand the atoms back to alphabets
+        final int stateCount = atomTable.getStateCount();
+        final int[] table = new int[stateCount * alphabets.size()];
+        final boolean[] accepting = new boolean[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            accepting[state] = atomTable.isAccepting(state);
+            for (int i = 0; i < alphabets.size(); i++) {
+                table[state * alphabets.size() + i] = atomTable.step(state, atomOf[i]);
+            }
+        }
+        return new DFATable(stateCount, alphabets.size(), table, accepting);
+    }
+
+    /**
+     * Returns the alphabets in the order of the symbols of {@link #compileTable(String, boolean)}.
+     *
+     * @return sorted alphabets
+     */
+    public List<String> getAlphabets() {
+        return Collections.unmodifiableList(alphabets);
+    }
+}
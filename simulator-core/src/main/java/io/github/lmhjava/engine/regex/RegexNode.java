@@ -0,0 +1,149 @@
+package io.github.lmhjava.engine.regex;
+
+import io.github.lmhjava.engine.nfa.NFA;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Syntax tree of a regular expression.
+ * Each node builds its Thompson fragment between two given NFA states.
+ */
+abstract class RegexNode {
+
+    /**
+     * Builds the fragment, so that {@code end} is reachable from {@code start} by exactly the
+     * strings matched by this node.
+     *
+     * @param builder NFA builder
+     * @param start entry state of the fragment
+     * @param end exit state of the fragment
+     */
+    abstract void build(NFA.Builder builder, int start, int end);
+
+    /**
+     * Collects the symbol sets of all leaves.
+     *
+     * @param sets list to collect the sets
+     */
+    abstract void collectSymbolSets(List<BitSet> sets);
+
+    /**
+     * Matches any symbol in a set, e.g. a literal, a character class or a dot.
+     */
+    static final class SymbolSet extends RegexNode {
+        // symbols are the alphabet indices at first, and are replaced by atom indices before building
+        BitSet symbols;
+
+        SymbolSet(BitSet symbols) {
+            this.symbols = symbols;
+        }
+
+        @Override
+        void build(NFA.Builder builder, int start, int end) {
+            builder.addTransition(start, symbols, end);
+        }
+
+        @Override
+        void collectSymbolSets(List<BitSet> sets) {
+            sets.add(symbols);
+        }
+    }
+
+    static final class Concat extends RegexNode {
+        private final List<RegexNode> children;
+
+        Concat(List<RegexNode> children) {
+            this.children = children;
+        }
+
+        @Override
+        void build(NFA.Builder builder, int start, int end) {
+            if (children.isEmpty()) {
+                builder.addEpsilon(start, end);
+                return;
+            }
+            int from = start;
+            for (int i = 0; i < children.size(); i++) {
+                final int to = i == children.size() - 1 ? end : builder.addState();
+                children.get(i).build(builder, from, to);
+                from = to;
+            }
+        }
+
+        @Override
+        void collectSymbolSets(List<BitSet> sets) {
+            children.forEach(child -> child.collectSymbolSets(sets));
+        }
+    }
+
+    static final class Alternation extends RegexNode {
+        private final List<RegexNode> children;
+
+        Alternation(List<RegexNode> children) {
+            this.children = children;
+        }
+
+        @Override
+        void build(NFA.Builder builder, int start, int end) {
+            for (RegexNode child : children) {
+                // separate entry states, so that a loop inside one branch never leaks into another
+                final int entry = builder.addState();
+                builder.addEpsilon(start, entry);
+                child.build(builder, entry, end);
+            }
+        }
+
+        @Override
+        void collectSymbolSets(List<BitSet> sets) {
+            children.forEach(child -> child.collectSymbolSets(sets));
+        }
+    }
+
+    /**
+     * Repeats the child from {@code min} to {@code max} times, {@code max < 0} means unbounded.
+     */
+    static final class Repeat extends RegexNode {
+        private final RegexNode child;
+        private final int min;
+        private final int max;
+
+        Repeat(RegexNode child, int min, int max) {
+            this.child = child;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        void build(NFA.Builder builder, int start, int end) {
+            int from = start;
+            // mandatory copies
+            for (int i = 0; i < min; i++) {
+                final int to = builder.addState();
+                child.build(builder, from, to);
+                from = to;
+            }
+            if (max < 0) {
+                // Kleene star on a fresh loop state
+                final int loop = builder.addState();
+                builder.addEpsilon(from, loop);
+                child.build(builder, loop, loop);
+                builder.addEpsilon(loop, end);
+                return;
+            }
+            // optional copies, each of them can be skipped to the end
+            for (int i = min; i < max; i++) {
+                final int to = builder.addState();
+                builder.addEpsilon(from, end);
+                child.build(builder, from, to);
+                from = to;
+            }
+            builder.addEpsilon(from, end);
+        }
+
+        @Override
+        void collectSymbolSets(List<BitSet> sets) {
+            child.collectSymbolSets(sets);
+        }
+    }
+}
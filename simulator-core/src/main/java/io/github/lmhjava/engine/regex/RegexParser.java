@@ -0,0 +1,337 @@
+package io.github.lmhjava.engine.regex;
+
+import io.github.lmhjava.engine.exception.RegexSyntaxException;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Recursive descent parser of the regex dialect, see {@link RegexCompiler}.
+ * Every leaf is resolved against the alphabet right away, so the tree only holds sets of alphabet indices.
+ */
+class RegexParser {
+    // upper bound of {m,n}, to keep the Thompson NFA from exploding
+    static final int MAX_REPETITION = 1000;
+
+    private final String regex;
+    private final List<String> alphabets;
+    private final Map<String, Integer> indexOf;
+    private int pos;
+
+    RegexParser(String regex, List<String> alphabets, Map<String, Integer> indexOf) {
+        this.regex = regex;
+        this.alphabets = alphabets;
+        this.indexOf = indexOf;
+    }
+
+    /**
+     * Parses the whole regex.
+     *
+     * @return syntax tree
+     * @throws RegexSyntaxException if the regex is malformed or refers to an unregistered alphabet
+     */
+    RegexNode parse() throws RegexSyntaxException {
+        final RegexNode node = parseAlternation();
+        if (pos < regex.length()) {
+            throw error(regex.charAt(pos) == ')' ? "Unmatched closing ')'" : "Unexpected character");
+        }
+        return node;
+    }
+
+    // alternation := concat ('|' concat)*
+    private RegexNode parseAlternation() throws RegexSyntaxException {
+        final List<RegexNode> branches = new ArrayList<>();
+        branches.add(parseConcat());
+        while (peek() == '|') {
+            pos++;
+            branches.add(parseConcat());
+        }
+        return branches.size() == 1 ? branches.get(0) : new RegexNode.Alternation(branches);
+    }
+
+    // concat := repeat*
+    private RegexNode parseConcat() throws RegexSyntaxException {
+        final List<RegexNode> parts = new ArrayList<>();
+        while (pos < regex.length() && peek() != '|' && peek() != ')') {
+            parts.add(parseRepeat());
+        }
+        return parts.size() == 1 ? parts.get(0) : new RegexNode.Concat(parts);
+    }
+
+    // repeat := atom ('*' | '+' | '?' | '{' m (',' n?)? '}')*
+    private RegexNode parseRepeat() throws RegexSyntaxException {
+        RegexNode node = parseAtom();
+        while (pos < regex.length()) {
+            final char c = peek();
+            if (c == '*') {
+                pos++;
+                node = new RegexNode.Repeat(node, 0, -1);
+            } else if (c == '+') {
+                pos++;
+                node = new RegexNode.Repeat(node, 1, -1);
+            } else if (c == '?') {
+                pos++;
+                node = new RegexNode.Repeat(node, 0, 1);
+            } else if (c == '{') {
+                pos++;
+                final int min = parseNumber();
+                int max = min;
+                if (peek() == ',') {
+                    pos++;
+                    max = peek() == '}' ? -1 : parseNumber();
+                }
+                expect('}');
+                if (max >= 0 && max < min) {
+                    throw error(String.format("Invalid repetition {%d,%d}", min, max));
+                }
+                node = new RegexNode.Repeat(node, min, max);
+            } else {
+                break;
+            }
+        }
+        return node;
+    }
+
+    private RegexNode parseAtom() throws RegexSyntaxException {
+        final char c = peek();
+        switch (c) {
+            case '(': {
+                pos++;
+                final RegexNode node = parseAlternation();
+                expect(')');
+                return node;
+            }
+            case '.':
+                pos++;
+                return leaf(all());
+            case '[':
+                return leaf(parseClass());
+            case '<':
+                return leaf(parseNamedAlphabet());
+            case '\\':
+                return leaf(parseEscape(false));
+            case '*':
+            case '+':
+            case '?':
+            case '{':
+                throw error("Dangling repetition '" + c + "'");
+            default:
+                return leaf(single(nextCodePoint()));
+        }
+    }
+
+    // class := '[' '^'? (item ('-' item)?)+ ']'
+    private BitSet parseClass() throws RegexSyntaxException {
+        expect('[');
+        final boolean negated = peek() == '^';
+        if (negated) pos++;
+        final BitSet set = new BitSet(alphabets.size());
+        boolean first = true;
+        while (pos < regex.length() && (first || peek() != ']')) {
+            first = false;
+            if (peek() == '\\') {
+                final int escapeStart = pos;
+                final BitSet escaped = parseEscape(true);
+                final int from = rangeBoundOf(escapeStart);
+                if (from >= 0 && peek() == '-' && pos + 1 < regex.length() && regex.charAt(pos + 1) != ']') {
+                    pos++;
+                    set.or(range(from, parseRangeEnd()));
+                } else {
+                    set.or(escaped);
+                }
+            } else if (peek() == '<') {
+                set.or(parseNamedAlphabet());
+            } else {
+                final int from = nextCodePoint();
+                if (peek() == '-' && pos + 1 < regex.length() && regex.charAt(pos + 1) != ']') {
+                    pos++;
+                    set.or(range(from, parseRangeEnd()));
+                } else {
+                    final Integer index = indexOf.get(new String(Character.toChars(from)));
+                    if (index != null) set.set(index);
+                }
+            }
+        }
+        expect(']');
+        if (negated) set.flip(0, alphabets.size());
+        return set;
+    }
+
+    private int parseRangeEnd() throws RegexSyntaxException {
+        if (peek() == '\\') {
+            final int escapeStart = pos;
+            parseEscape(true);
+            final int to = rangeBoundOf(escapeStart);
+            if (to < 0) throw error("Invalid range end");
+            return to;
+        }
+        return nextCodePoint();
+    }
+
+    // returns the single code point of an already parsed escape, or -1 if it escapes a set like \d
+    private int rangeBoundOf(int escapeStart) {
+        final char c = regex.charAt(escapeStart + 1);
+        switch (c) {
+            case 'n':
+                return '\n';
+            case 't':
+                return '\t';
+            case 'r':
+                return '\r';
+            case 'd':
+            case 'D':
+            case 'w':
+            case 'W':
+            case 's':
+            case 'S':
+                return -1;
+            default:
+                return regex.codePointAt(escapeStart + 1);
+        }
+    }
+
+    private BitSet parseEscape(boolean inClass) throws RegexSyntaxException {
+        expect('\\');
+        if (pos >= regex.length()) throw error("Trailing backslash");
+        final int c = regex.codePointAt(pos);
+        pos += Character.charCount(c);
+        switch (c) {
+            case 'n':
+                return inClass ? lookup('\n') : single('\n');
+            case 't':
+                return inClass ? lookup('\t') : single('\t');
+            case 'r':
+                return inClass ? lookup('\r') : single('\r');
+            case 'd':
+                return matching(Character::isDigit, false);
+            case 'D':
+                return matching(Character::isDigit, true);
+            case 'w':
+                return matching(RegexParser::isWordCharacter, false);
+            case 'W':
+                return matching(RegexParser::isWordCharacter, true);
+            case 's':
+                return matching(Character::isWhitespace, false);
+            case 'S':
+                return matching(Character::isWhitespace, true);
+            default:
+                if (Character.isLetterOrDigit(c)) {
+                    pos -= Character.charCount(c);
+                    throw error("Unknown escape '\\" + new String(Character.toChars(c)) + "'");
+                }
+                return inClass ? lookup(c) : single(c);
+        }
+    }
+
+    // named := '<' name '>', refers to a (possibly multi-character) alphabet
+    private BitSet parseNamedAlphabet() throws RegexSyntaxException {
+        final int start = pos;
+        expect('<');
+        final int end = regex.indexOf('>', pos);
+        if (end < 0) {
+            pos = start;
+            throw error("Unclosed alphabet name");
+        }
+        final String name = regex.substring(pos, end);
+        final Integer index = indexOf.get(name);
+        if (index == null) {
+            pos = start;
+            throw error(String.format("Alphabet <%s> is not registered", name));
+        }
+        pos = end + 1;
+        final BitSet set = new BitSet(alphabets.size());
+        set.set(index);
+        return set;
+    }
+
+    private int parseNumber() throws RegexSyntaxException {
+        final int start = pos;
+        while (pos < regex.length() && Character.isDigit(regex.charAt(pos)) && pos - start < 5) {
+            pos++;
+        }
+        if (pos == start) throw error("Expected a number");
+        final int value = Integer.parseInt(regex.substring(start, pos));
+        if (value > MAX_REPETITION || (pos < regex.length() && Character.isDigit(regex.charAt(pos)))) {
+            pos = start;
+            throw error(String.format("Repetition is larger than %d", MAX_REPETITION));
+        }
+        return value;
+    }
+
+    // a literal outside a class must be a registered alphabet
+    private BitSet single(int codePoint) throws RegexSyntaxException {
+        final String alphabet = new String(Character.toChars(codePoint));
+        final Integer index = indexOf.get(alphabet);
+        if (index == null) {
+            pos -= Character.charCount(codePoint);
+            throw error(String.format("Alphabet \"%s\" is not registered", alphabet));
+        }
+        final BitSet set = new BitSet(alphabets.size());
+        set.set(index);
+        return set;
+    }
+
+    // a literal inside a class may be unregistered, it simply matches nothing
+    private BitSet lookup(int codePoint) {
+        final BitSet set = new BitSet(alphabets.size());
+        final Integer index = indexOf.get(new String(Character.toChars(codePoint)));
+        if (index != null) set.set(index);
+        return set;
+    }
+
+    private BitSet range(int from, int to) throws RegexSyntaxException {
+        if (to < from) throw error("Invalid range");
+        return matching((int codePoint) -> codePoint >= from && codePoint <= to, false);
+    }
+
+    // all single-code-point alphabets satisfying the predicate, or all other alphabets if negated
+    private BitSet matching(IntPredicate predicate, boolean negated) {
+        final BitSet set = new BitSet(alphabets.size());
+        for (int i = 0; i < alphabets.size(); i++) {
+            final String alphabet = alphabets.get(i);
+            final boolean isSingle = alphabet.codePointCount(0, alphabet.length()) == 1;
+            final boolean matched = isSingle && predicate.test(alphabet.codePointAt(0));
+            if (matched != negated) set.set(i);
+        }
+        return set;
+    }
+
+    private BitSet all() {
+        final BitSet set = new BitSet(alphabets.size());
+        set.set(0, alphabets.size());
+        return set;
+    }
+
+    private static RegexNode leaf(BitSet symbols) {
+        return new RegexNode.SymbolSet(symbols);
+    }
+
+    private static boolean isWordCharacter(int codePoint) {
+        return Character.isLetterOrDigit(codePoint) || codePoint == '_';
+    }
+
+    private char peek() {
+        return pos < regex.length() ? regex.charAt(pos) : '\0';
+    }
+
+    private int nextCodePoint() throws RegexSyntaxException {
+        if (pos >= regex.length()) throw error("Unexpected end of regex");
+        final int codePoint = regex.codePointAt(pos);
+        pos += Character.charCount(codePoint);
+        return codePoint;
+    }
+
+    private void expect(char c) throws RegexSyntaxException {
+        if (pos >= regex.length() || regex.charAt(pos) != c) {
+            throw error("Expected '" + c + "'");
+        }
+        pos++;
+    }
+
+    private RegexSyntaxException error(String description) {
+        return new RegexSyntaxException(description, regex, pos);
+    }
+}
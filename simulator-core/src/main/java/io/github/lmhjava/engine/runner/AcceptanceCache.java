@@ -0,0 +1,96 @@
+package io.github.lmhjava.engine.runner;
+
+import io.github.lmhjava.engine.dfa.DFAController;
+import io.github.lmhjava.engine.dfa.DFAEdge;
+import io.github.lmhjava.engine.dfa.DFANode;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A size-bounded LRU cache of acceptance results of a DFA, keyed by input.
+ * <p>
+ * Every result is tagged with the version of the DFA, see {@link DFAController#getVersion()}.
+ * Once the DFA is modified, all the results of older versions are dropped at the next query,
+ * so an edit never leads to a stale answer.
+ *
+ * @implNote queries are synchronized, but the DFA must not be modified while a query is running.
+ * Queries walk the nodes directly and do NOT move the current node of the controller.
+ */
+public class AcceptanceCache {
+    private final DFAController controller;
+    private final int maxEntries;
+    private final Map<List<String>, Boolean> results;
+    // version of the DFA that all the cached results belong to
+    private long version;
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a cache.
+     *
+     * @param controller DFA to query
+     * @param maxEntries maximum number of cached inputs, the least recently used one is evicted first
+     */
+    public AcceptanceCache(DFAController controller, int maxEntries) {
+        assert controller != null && maxEntries > 0;
+        this.controller = controller;
+        this.maxEntries = maxEntries;
+        this.version = controller.getVersion();
+        this.results = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<String>, Boolean> eldest) {
+                return size() > AcceptanceCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns true if the DFA accepts the whole input from its initial node.
+     *
+     * @param input sequence of alphabets
+     * @return whether the input is accepted
+     */
+    public synchronized boolean accepts(List<String> input) {
+        if (version != controller.getVersion()) {
+            results.clear();
+            version = controller.getVersion();
+        }
+        final Boolean cached = results.get(input);
+        if (cached != null) {
+            hits++;
+            return cached;
+        }
+        misses++;
+        final boolean result = run(input);
+        // copy the key, so that later changes to the input list do not corrupt the cache
+        results.put(List.copyOf(input), result);
+        return result;
+    }
+
+    private boolean run(List<String> input) {
+        DFANode node = controller.getInitialNode();
+        for (int i = 0; i < input.size() && node != null; i++) {
+            final DFAEdge edge = node.getEdge(input.get(i));
+            node = edge == null ? null : edge.getHead();
+        }
+        return node != null && node.isAccepted();
+    }
+
+    public synchronized int size() {
+        return results.size();
+    }
+
+    public synchronized void clear() {
+        results.clear();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
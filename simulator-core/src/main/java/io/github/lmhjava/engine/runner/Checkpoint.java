@@ -0,0 +1,172 @@
+package io.github.lmhjava.engine.runner;
+
+import io.github.lmhjava.engine.exception.CheckpointException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * A snapshot of a run over a stream: the state, the offset in the stream, and optional counters.
+ * <p>
+ * A checkpoint file is a few lines of text, for example:
+ * <pre>
+ * dfa-checkpoint 1
+ * fingerprint 3f2a...
+ * state 4
+ * offset 1048576
+ * counter accepted 512
+ * crc 2864434397
+ * </pre>
+ * The state is a canonical id of {@link io.github.lmhjava.engine.compiled.DFAFingerprint}, which is
+ * stable across processes, and the fingerprint ties the checkpoint to ONE automaton.
+ *
+ * @implNote A checkpoint is written to a temporary file in the same directory, forced to the disk,
+ * and renamed over the old checkpoint. A crash leaves either the old or the new checkpoint, never a
+ * torn one. The CRC of the lines above it catches any other damage.
+ */
+public final class Checkpoint {
+    private static final String HEADER = "dfa-checkpoint 1";
+
+    private final String fingerprint;
+    private final int state;
+    private final long offset;
+    private final Map<String, Long> counters;
+
+    /**
+     * Creates a checkpoint.
+     *
+     * @param fingerprint hash of the DFA, see {@link io.github.lmhjava.engine.compiled.DFAFingerprint#getHash()}
+     * @param state canonical id of the current state, or -1 if the run is dead
+     * @param offset position in the stream
+     * @param counters counters of the run, names without whitespace
+     */
+    public Checkpoint(String fingerprint, int state, long offset, Map<String, Long> counters) {
+        assert fingerprint != null && offset >= 0;
+        this.fingerprint = fingerprint;
+        this.state = state;
+        this.offset = offset;
+        this.counters = Collections.unmodifiableMap(new TreeMap<>(counters));
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public int getState() {
+        return state;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    public long getCounter(String name) {
+        return counters.getOrDefault(name, 0L);
+    }
+
+    /**
+     * Atomically replaces the checkpoint file.
+     *
+     * @param path checkpoint file
+     * @throws IOException if the file can not be written
+     */
+    public void write(Path path) throws IOException {
+        final StringBuilder text = new StringBuilder();
+        text.append(HEADER).append('\n');
+        text.append("fingerprint ").append(fingerprint).append('\n');
+        text.append("state ").append(state).append('\n');
+        text.append("offset ").append(offset).append('\n');
+        counters.forEach((String name, Long value) -> text.append("counter ").append(name).append(' ').append(value).append('\n'));
+        final long crc = crcOf(text.toString());
+        text.append("crc ").append(crc).append('\n');
+
+        final Path absolute = path.toAbsolutePath();
+        final Path temporary = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            final ByteBuffer bytes = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temporary, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING);
+        }
+        // persist the rename as well, where directories can be opened (not on Windows)
+        try (FileChannel directory = FileChannel.open(absolute.getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // the rename is still atomic, only its durability is up to the file system
+        }
+    }
+
+    /**
+     * Reads a checkpoint file.
+     *
+     * @param path checkpoint file
+     * @return the checkpoint, or {@code null} if the file does not exist
+     * @throws IOException if the file can not be read
+     * @throws CheckpointException if the file is damaged
+     */
+    public static Checkpoint read(Path path) throws IOException, CheckpointException {
+        final List<String> lines;
+        try {
+            lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (lines.size() < 5 || !lines.get(0).equals(HEADER)) throw new CheckpointException("Not a checkpoint", path);
+        final StringBuilder checked = new StringBuilder();
+        for (String line : lines.subList(0, lines.size() - 1)) {
+            checked.append(line).append('\n');
+        }
+        if (!lines.get(lines.size() - 1).equals("crc " + crcOf(checked.toString()))) {
+            throw new CheckpointException("Damaged checkpoint", path);
+        }
+        try {
+            final String fingerprint = valueOf(lines.get(1), "fingerprint", path);
+            final int state = Integer.parseInt(valueOf(lines.get(2), "state", path));
+            final long offset = Long.parseLong(valueOf(lines.get(3), "offset", path));
+            final Map<String, Long> counters = new TreeMap<>();
+            for (String line : lines.subList(4, lines.size() - 1)) {
+                final String[] counter = valueOf(line, "counter", path).split(" ");
+                if (counter.length != 2) throw new CheckpointException("Malformed counter", path);
+                counters.put(counter[0], Long.parseLong(counter[1]));
+            }
+            return new Checkpoint(fingerprint, state, offset, counters);
+        } catch (NumberFormatException e) {
+            throw new CheckpointException("Malformed number", path);
+        }
+    }
+
+    private static String valueOf(String line, String key, Path path) throws CheckpointException {
+        if (!line.startsWith(key + " ")) throw new CheckpointException(String.format("Missing %s", key), path);
+        return line.substring(key.length() + 1);
+    }
+
+    private static long crcOf(String text) {
+        final CRC32 crc = new CRC32();
+        crc.update(text.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
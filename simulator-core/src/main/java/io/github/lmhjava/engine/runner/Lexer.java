@@ -0,0 +1,157 @@
+package io.github.lmhjava.engine.runner;
+
+import io.github.lmhjava.engine.compiled.CompiledDFA;
+import io.github.lmhjava.engine.dfa.DFAController;
+import io.github.lmhjava.engine.dfa.DFANode;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits an input into tokens with a DFA, by the longest-match rule.
+ * <p>
+ * From the start of a token, the DFA runs until no transition exists, while remembering the last
+ * position where it was on an accepted node. The input up to that position becomes a token whose
+ * type is the type of that node, and the DFA restarts from the initial node right after it.
+ * If no accepted node is reached, one alphabet is reported as {@link #ERROR_TOKEN} and skipped.
+ * <p>
+ * Tokens are reported as {@code [start, end)} offsets into the source, so no substring is created.
+ *
+ * @implNote the DFA is compiled once when the lexer is created, later edits are NOT reflected.
+ * Like every longest-match lexer, an input which runs far beyond its last accepted position
+ * is scanned again from there.
+ */
+public final class Lexer {
+    /**
+     * Type of an alphabet which does not start any token.
+     */
+    public static final int ERROR_TOKEN = -1;
+    /**
+     * Type of an accepted node which is not given a type.
+     */
+    public static final int DEFAULT_TOKEN = 0;
+
+    /**
+     * Receiver of tokens.
+     */
+    @FunctionalInterface
+    public interface TokenSink {
+        /**
+         * Receives a token.
+         *
+         * @param type token type, or {@link #ERROR_TOKEN}
+         * @param start offset of the first alphabet, inclusive
+         * @param end offset after the last alphabet, exclusive
+         */
+        void token(int type, int start, int end);
+    }
+
+    private final CompiledDFA dfa;
+    // token type of every state, only meaningful for accepted states
+    private final int[] tokenTypes;
+
+    /**
+     * Creates a lexer whose token types are the outputs of accepted nodes, see {@link DFANode#getOutput()}.
+     * Accepted nodes without output have {@link #DEFAULT_TOKEN}.
+     *
+     * @param controller DFA recognizing tokens
+     */
+    public Lexer(DFAController controller) {
+        this(controller, Map.of());
+    }
+
+    /**
+     * Creates a lexer.
+     *
+     * @param controller DFA recognizing tokens
+     * @param tokenTypes token type of accepted nodes, unmapped nodes fall back to their output
+     *                   or {@link #DEFAULT_TOKEN}
+     */
+    public Lexer(DFAController controller, Map<DFANode, Integer> tokenTypes) {
+        this.dfa = CompiledDFA.compile(controller);
+        this.tokenTypes = new int[dfa.getStateCount()];
+        for (int state = 0; state < dfa.getStateCount(); state++) {
+            final DFANode node = dfa.getNode(state);
+            this.tokenTypes[state] = tokenTypes.getOrDefault(node, node.hasOutput() ? node.getOutput() : DEFAULT_TOKEN);
+        }
+    }
+
+    /**
+     * Tokenizes a text, each code point is an alphabet. Offsets are char indices of the text.
+     *
+     * @param text source text
+     * @param sink receiver of tokens
+     * @return number of tokens, including error tokens
+     */
+    public int tokenize(CharSequence text, TokenSink sink) {
+        return tokenize(text, 0, text.length(), sink);
+    }
+
+    /**
+     * Tokenizes a part of a text, each code point is an alphabet. Offsets are char indices of the text.
+     *
+     * @param text source text
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param sink receiver of tokens
+     * @return number of tokens, including error tokens
+     */
+    public int tokenize(CharSequence text, int from, int to, TokenSink sink) {
+        final int initialState = dfa.getInitialState();
+        int count = 0;
+        int start = from;
+        while (start < to) {
+            int state = initialState;
+            int lastEnd = -1;
+            int lastType = ERROR_TOKEN;
+            int i = start;
+            while (i < to && state != CompiledDFA.DEAD) {
+                final int codePoint = Character.codePointAt(text, i);
+                state = dfa.step(state, dfa.classOfCodePoint(codePoint));
+                i += Character.charCount(codePoint);
+                if (dfa.isAccepting(state)) {
+                    lastEnd = i;
+                    lastType = tokenTypes[state];
+                }
+            }
+            if (lastEnd < 0) {
+                // skip one code point
+                lastEnd = start + Character.charCount(Character.codePointAt(text, start));
+            }
+            sink.token(lastType, start, lastEnd);
+            count++;
+            start = lastEnd;
+        }
+        return count;
+    }
+
+    /**
+     * Tokenizes a sequence of alphabets. Offsets are indices of the list.
+     *
+     * @param input sequence of alphabets
+     * @param sink receiver of tokens
+     * @return number of tokens, including error tokens
+     */
+    public int tokenize(List<String> input, TokenSink sink) {
+        final int initialState = dfa.getInitialState();
+        int count = 0;
+        int start = 0;
+        while (start < input.size()) {
+            int state = initialState;
+            int lastEnd = -1;
+            int lastType = ERROR_TOKEN;
+            for (int i = start; i < input.size() && state != CompiledDFA.DEAD; i++) {
+                state = dfa.step(state, dfa.classOf(input.get(i)));
+                if (dfa.isAccepting(state)) {
+                    lastEnd = i + 1;
+                    lastType = tokenTypes[state];
+                }
+            }
+            if (lastEnd < 0) lastEnd = start + 1;
+            sink.token(lastType, start, lastEnd);
+            count++;
+            start = lastEnd;
+        }
+        return count;
+    }
+}
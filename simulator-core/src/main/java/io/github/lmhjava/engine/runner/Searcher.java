@@ -0,0 +1,214 @@
+package io.github.lmhjava.engine.runner;
+
+import io.github.lmhjava.engine.compiled.CompiledDFA;
+import io.github.lmhjava.engine.dfa.DFAController;
+import io.github.lmhjava.engine.nfa.LazyDFA;
+import io.github.lmhjava.engine.nfa.NFA;
+
+import java.util.BitSet;
+
+/**
+ * Finds the substrings of a text which are accepted by a DFA.
+ * <p>
+ * The text is scanned once by an unanchored automaton, i.e. the DFA with a loop in front of its
+ * initial node, which detects the END of every match. Once a match ends, the reversed DFA is run
+ * backward from there to recover its leftmost START. The scan then continues after the match, so
+ * the reported matches never overlap:
+ * <ul>
+ *     <li>by default, each match is the one ending EARLIEST, starting at its leftmost position,
+ *     and every character is scanned at most twice, i.e. linear time</li>
+ *     <li>with longest matching, a match is extended as long as the DFA accepts a longer one
+ *     from the same start, which is linear for most DFAs, but may scan a part of the text again
+ *     if the DFA runs far beyond its last accepted state</li>
+ * </ul>
+ * Empty matches are never reported, e.g. searching {@code a*} in {@code "bab"} only finds {@code "a"}.
+ *
+ * @implNote Both automata are determinized lazily by {@link LazyDFA}, so a DFA whose unanchored
+ * version has exponentially many states is still searched in bounded memory. The DFA is compiled
+ * when the searcher is created, later edits are NOT reflected. Not thread-safe.
+ */
+public final class Searcher {
+    /**
+     * Default memory budget of each lazily determinized automaton.
+     */
+    public static final long DEFAULT_CACHE_BYTES = 1 << 20;
+
+    /**
+     * Receiver of matches.
+     */
+    @FunctionalInterface
+    public interface MatchSink {
+        /**
+         * Receives a match.
+         *
+         * @param start offset of the first char, inclusive
+         * @param end offset after the last char, exclusive
+         */
+        void match(int start, int end);
+    }
+
+    private final CompiledDFA dfa;
+    private final boolean isLongest;
+    private final LazyDFA forward;
+    private final LazyDFA reverse;
+
+    public Searcher(DFAController controller) {
+        this(CompiledDFA.compile(controller), false, DEFAULT_CACHE_BYTES);
+    }
+
+    /**
+     * Creates a searcher.
+     *
+     * @param dfa compiled DFA to search with
+     * @param isLongest whether to extend every match to the longest one from its start
+     * @param cacheBytes memory budget of each lazily determinized automaton
+     */
+    public Searcher(CompiledDFA dfa, boolean isLongest, long cacheBytes) {
+        this.dfa = dfa;
+        this.isLongest = isLongest;
+        this.forward = new LazyDFA(unanchored(dfa), cacheBytes);
+        this.reverse = new LazyDFA(reversed(dfa), cacheBytes);
+    }
+
+    /**
+     * Returns the automaton accepting every text that ENDS with a non-empty match.
+     * States are the states of the DFA plus a looping start state, and an entry state which is a
+     * copy of the initial state that never accepts, so that a match takes at least one code point.
+     */
+    private static NFA unanchored(CompiledDFA dfa) {
+        final int stateCount = dfa.getStateCount();
+        final int classCount = dfa.getClassCount();
+        final NFA.Builder builder = new NFA.Builder(classCount);
+        for (int state = 0; state <= stateCount + 1; state++) {
+            builder.addState();
+        }
+        final int loop = stateCount;
+        final int entry = stateCount + 1;
+        builder.setStartState(loop);
+        final BitSet allClasses = new BitSet(classCount);
+        allClasses.set(0, classCount);
+        builder.addTransition(loop, allClasses, loop);
+        if (dfa.getInitialState() != CompiledDFA.DEAD) {
+            builder.addEpsilon(loop, entry);
+            for (int cls = 0; cls < classCount; cls++) {
+                final int next = dfa.step(dfa.getInitialState(), cls);
+                if (next != CompiledDFA.DEAD) builder.addTransition(entry, cls, next);
+            }
+        }
+        for (int state = 0; state < stateCount; state++) {
+            builder.setAccepting(state, dfa.isAccepting(state));
+            for (int cls = 0; cls < classCount; cls++) {
+                final int next = dfa.step(state, cls);
+                if (next != CompiledDFA.DEAD) builder.addTransition(state, cls, next);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the automaton accepting the reversed matches.
+     * States are the states of the DFA plus a start state leading to every accepted state.
+     */
+    private static NFA reversed(CompiledDFA dfa) {
+        final int stateCount = dfa.getStateCount();
+        final int classCount = dfa.getClassCount();
+        final NFA.Builder builder = new NFA.Builder(classCount);
+        for (int state = 0; state <= stateCount; state++) {
+            builder.addState();
+        }
+        final int start = stateCount;
+        builder.setStartState(start);
+        for (int state = 0; state < stateCount; state++) {
+            if (dfa.isAccepting(state)) builder.addEpsilon(start, state);
+            for (int cls = 0; cls < classCount; cls++) {
+                final int next = dfa.step(state, cls);
+                if (next != CompiledDFA.DEAD) builder.addTransition(next, cls, state);
+            }
+        }
+        if (dfa.getInitialState() != CompiledDFA.DEAD) builder.setAccepting(dfa.getInitialState(), true);
+        return builder.build();
+    }
+
+    /**
+     * Searches a whole text, each code point is an alphabet.
+     *
+     * @param text text to search
+     * @param sink receiver of matches, in increasing order
+     * @return number of matches
+     */
+    public int search(CharSequence text, MatchSink sink) {
+        return search(text, 0, text.length(), sink);
+    }
+
+    /**
+     * Searches a part of a text, each code point is an alphabet. Offsets are char indices of the text.
+     *
+     * @param text text to search
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param sink receiver of matches, in increasing order
+     * @return number of matches
+     */
+    public int search(CharSequence text, int from, int to, MatchSink sink) {
+        if (dfa.getInitialState() == CompiledDFA.DEAD) return 0;
+        int count = 0;
+        int restart = from;
+        int state = forward.getStartState();
+        int i = from;
+        while (i < to) {
+            final int codePoint = Character.codePointAt(text, i);
+            state = forward.step(state, dfa.classOfCodePoint(codePoint));
+            i += Character.charCount(codePoint);
+            if (!forward.isAccepting(state)) continue;
+            // a match ends at i, find its leftmost start
+            final int start = findStart(text, restart, i);
+            final int end = isLongest ? findLongestEnd(text, start, i, to) : i;
+            sink.match(start, end);
+            count++;
+            restart = end;
+            i = end;
+            state = forward.getStartState();
+        }
+        return count;
+    }
+
+    // runs the reversed DFA from the end back to the bound, and returns the last accepted position,
+    // a non-empty match ends at the end, so the position is before it
+    private int findStart(CharSequence text, int bound, int end) {
+        int state = reverse.getStartState();
+        int start = end;
+        int i = end;
+        while (i > bound) {
+            final int codePoint = Character.codePointBefore(text, i);
+            state = reverse.step(state, dfa.classOfCodePoint(codePoint));
+            if (state == LazyDFA.DEAD) break;
+            i -= Character.charCount(codePoint);
+            if (reverse.isAccepting(state)) start = i;
+        }
+        assert start < end;
+        return start;
+    }
+
+    // runs the DFA from the start, and returns the last accepted position
+    private int findLongestEnd(CharSequence text, int start, int end, int to) {
+        int state = dfa.getInitialState();
+        int longest = end;
+        int i = start;
+        while (i < to && state != CompiledDFA.DEAD) {
+            final int codePoint = Character.codePointAt(text, i);
+            state = dfa.step(state, dfa.classOfCodePoint(codePoint));
+            i += Character.charCount(codePoint);
+            if (i > longest && dfa.isAccepting(state)) longest = i;
+        }
+        return longest;
+    }
+
+    /**
+     * Returns the hit rate of the lazily determinized unanchored automaton, for tuning the cache size.
+     *
+     * @return hit rate from 0 to 1
+     */
+    public double getCacheHitRate() {
+        return forward.getHitRate();
+    }
+}
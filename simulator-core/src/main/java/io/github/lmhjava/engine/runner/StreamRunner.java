@@ -0,0 +1,172 @@
+package io.github.lmhjava.engine.runner;
+
+import io.github.lmhjava.engine.compiled.CompiledDFA;
+import io.github.lmhjava.engine.compiled.DFAFingerprint;
+import io.github.lmhjava.engine.exception.CheckpointException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Runs one long stream of text through a {@link CompiledDFA}, every code point is an alphabet.
+ * The run counts the accepted prefixes of the stream, and writes a {@link Checkpoint} every
+ * {@code interval} chars and at the end of the stream.
+ * <p>
+ * When the checkpoint file exists, the run resumes from it: the state and the counters are restored,
+ * and the part of the stream before the checkpoint is skipped without running it. A checkpoint of a
+ * different DFA is rejected by its fingerprint.
+ *
+ * @implNote offsets count UTF-16 chars, the unit of {@link Reader#skip(long)}. Checkpoints are only
+ * taken between code points, so a resumed run never starts in the middle of a surrogate pair.
+ */
+public final class StreamRunner {
+    public static final String ACCEPTED_COUNTER = "accepted";
+    public static final long DEFAULT_INTERVAL = 1 << 20;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final CompiledDFA dfa;
+    private final DFAFingerprint fingerprint;
+    private final Path checkpointPath;
+    private final long interval;
+
+    private int state;
+    private long offset;
+    private long acceptedCount;
+    private long resumedOffset;
+    private long checkpointCount;
+
+    /**
+     * Creates a runner.
+     *
+     * @param dfa DFA to run
+     * @param checkpointPath checkpoint file, read on start if it exists
+     * @param interval chars between two checkpoints
+     */
+    public StreamRunner(CompiledDFA dfa, Path checkpointPath, long interval) {
+        assert dfa != null && checkpointPath != null && interval > 0;
+        this.dfa = dfa;
+        this.fingerprint = DFAFingerprint.of(dfa);
+        this.checkpointPath = checkpointPath;
+        this.interval = interval;
+    }
+
+    /**
+     * Runs the stream from the latest checkpoint to its end.
+     *
+     * @param stream the whole stream, from its very start
+     * @throws IOException if the stream can not be read or the checkpoint can not be written
+     * @throws CheckpointException if the checkpoint is damaged, of another DFA, or beyond the stream
+     */
+    public void run(Reader stream) throws IOException, CheckpointException {
+        resume();
+        for (long skipped = 0; skipped < offset; ) {
+            final long count = stream.skip(offset - skipped);
+            if (count <= 0) {
+                // skip() may return 0 before the end, read() tells for sure
+                if (stream.read() < 0) throw new CheckpointException("Stream ends before the checkpoint", checkpointPath);
+                skipped++;
+            } else {
+                skipped += count;
+            }
+        }
+
+        final char[] buffer = new char[BUFFER_SIZE];
+        long nextCheckpoint = offset + interval;
+        // chars carried over from the last read, i.e. a high surrogate waiting for its pair
+        int length = 0;
+        int read;
+        while (true) {
+            read = stream.read(buffer, length, buffer.length - length);
+            final boolean isEnd = read < 0;
+            if (!isEnd) length += read;
+            int i = 0;
+            while (i < length) {
+                if (!isEnd && i + 1 == length && Character.isHighSurrogate(buffer[i])) break;
+                final int codePoint = Character.codePointAt(buffer, i, length);
+                final int width = Character.charCount(codePoint);
+                if (state != CompiledDFA.DEAD) {
+                    state = dfa.step(state, dfa.classOfCodePoint(codePoint));
+                    if (dfa.isAccepting(state)) acceptedCount++;
+                }
+                i += width;
+                offset += width;
+                if (offset >= nextCheckpoint) {
+                    checkpoint();
+                    nextCheckpoint = offset + interval;
+                }
+            }
+            System.arraycopy(buffer, i, buffer, 0, length - i);
+            length -= i;
+            if (isEnd) break;
+        }
+        checkpoint();
+    }
+
+    // restores the run from the checkpoint, or starts over without one
+    private void resume() throws IOException, CheckpointException {
+        final Checkpoint checkpoint = Checkpoint.read(checkpointPath);
+        if (checkpoint == null) {
+            state = dfa.getInitialState();
+            offset = 0;
+            acceptedCount = 0;
+        } else {
+            if (!checkpoint.getFingerprint().equals(fingerprint.getHash())) {
+                throw new CheckpointException("Checkpoint of another DFA", checkpointPath);
+            }
+            state = fingerprint.fromCanonical(checkpoint.getState());
+            if (state == CompiledDFA.DEAD && checkpoint.getState() != CompiledDFA.DEAD) {
+                throw new CheckpointException("Unknown state in checkpoint", checkpointPath);
+            }
+            offset = checkpoint.getOffset();
+            acceptedCount = checkpoint.getCounter(ACCEPTED_COUNTER);
+        }
+        resumedOffset = offset;
+    }
+
+    private void checkpoint() throws IOException {
+        new Checkpoint(fingerprint.getHash(), fingerprint.toCanonical(state), offset,
+                Map.of(ACCEPTED_COUNTER, acceptedCount)).write(checkpointPath);
+        checkpointCount++;
+    }
+
+    /**
+     * Returns the current state.
+     *
+     * @return state of the compiled DFA, or {@link CompiledDFA#DEAD}
+     */
+    public int getState() {
+        return state;
+    }
+
+    public boolean isAccepting() {
+        return dfa.isAccepting(state);
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the number of accepted prefixes of the stream, those before the checkpoint included.
+     *
+     * @return number of accepted prefixes
+     */
+    public long getAcceptedCount() {
+        return acceptedCount;
+    }
+
+    /**
+     * Returns the offset the last run started from.
+     *
+     * @return offset of the checkpoint, or 0 if the run started over
+     */
+    public long getResumedOffset() {
+        return resumedOffset;
+    }
+
+    public long getCheckpointCount() {
+        return checkpointCount;
+    }
+}
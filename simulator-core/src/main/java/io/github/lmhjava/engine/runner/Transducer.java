@@ -0,0 +1,163 @@
+package io.github.lmhjava.engine.runner;
+
+import io.github.lmhjava.engine.compiled.CompiledDFA;
+import io.github.lmhjava.engine.dfa.DFAController;
+import io.github.lmhjava.engine.dfa.DFAEdge;
+import io.github.lmhjava.engine.dfa.DFANode;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs a DFA as a Mealy machine, which emits one output per input.
+ * The output of a step is the output of the taken edge, or the output of the entered node if the
+ * edge has none, or {@link DFAEdge#NO_OUTPUT} if neither has one.
+ * <p>
+ * A transducer either walks the object graph of a {@link DFAController}, which reflects later edits
+ * right away, or runs a {@link CompiledDFA}. Neither way updates the current node of the controller
+ * or notifies any listener. Outputs are written into primitive sinks, so a run does not allocate per step.
+ *
+ * @implNote not thread-safe, since the state reached by the latest run is kept, see {@link #isAccepted()}.
+ */
+public final class Transducer {
+    private final DFAController controller;
+    private final CompiledDFA dfa;
+    private boolean isAccepted;
+
+    /**
+     * Creates a transducer on the object graph of a DFA.
+     *
+     * @param controller DFA to run
+     */
+    public Transducer(DFAController controller) {
+        assert controller != null;
+        this.controller = controller;
+        this.dfa = null;
+    }
+
+    /**
+     * Creates a transducer on a compiled DFA.
+     *
+     * @param dfa DFA to run
+     */
+    public Transducer(CompiledDFA dfa) {
+        assert dfa != null;
+        this.controller = null;
+        this.dfa = dfa;
+    }
+
+    /**
+     * Returns true if the latest run consumed its whole input and ended on an accepted state.
+     *
+     * @return whether the latest input is accepted
+     */
+    public boolean isAccepted() {
+        return isAccepted;
+    }
+
+    /**
+     * Runs the input from the initial state, and sends one output per consumed input to the sink.
+     *
+     * @param input sequence of alphabets
+     * @param sink receiver of outputs
+     * @return number of consumed inputs, less than the input size if a transition is undefined
+     */
+    public int run(List<String> input, IntConsumer sink) {
+        if (dfa != null) {
+            int state = dfa.getInitialState();
+            for (int i = 0; i < input.size(); i++) {
+                final int cls = dfa.classOf(input.get(i));
+                final int next = dfa.step(state, cls);
+                if (next == CompiledDFA.DEAD) return stop(i);
+                sink.accept(dfa.output(state, cls));
+                state = next;
+            }
+            isAccepted = dfa.isAccepting(state);
+            return input.size();
+        }
+        DFANode node = controller.getInitialNode();
+        for (int i = 0; i < input.size(); i++) {
+            final DFAEdge edge = node == null ? null : node.getEdge(input.get(i));
+            if (edge == null) return stop(i);
+            node = edge.getHead();
+            sink.accept(edge.hasOutput() ? edge.getOutput() : node.getOutput());
+        }
+        isAccepted = node != null && node.isAccepted();
+        return input.size();
+    }
+
+    /**
+     * Runs the input from the initial state, and writes one output per consumed input to the array.
+     *
+     * @param input sequence of alphabets
+     * @param out array to receive the outputs, which must fit all of them
+     * @param offset index of the first output
+     * @return number of consumed inputs, less than the input size if a transition is undefined
+     */
+    public int run(List<String> input, int[] out, int offset) {
+        assert offset >= 0 && out.length - offset >= input.size();
+        if (dfa != null) {
+            int state = dfa.getInitialState();
+            for (int i = 0; i < input.size(); i++) {
+                final int cls = dfa.classOf(input.get(i));
+                final int next = dfa.step(state, cls);
+                if (next == CompiledDFA.DEAD) return stop(i);
+                out[offset + i] = dfa.output(state, cls);
+                state = next;
+            }
+            isAccepted = dfa.isAccepting(state);
+            return input.size();
+        }
+        DFANode node = controller.getInitialNode();
+        for (int i = 0; i < input.size(); i++) {
+            final DFAEdge edge = node == null ? null : node.getEdge(input.get(i));
+            if (edge == null) return stop(i);
+            node = edge.getHead();
+            out[offset + i] = edge.hasOutput() ? edge.getOutput() : node.getOutput();
+        }
+        isAccepted = node != null && node.isAccepted();
+        return input.size();
+    }
+
+    /**
+     * Runs the input from the initial state, and puts one int output per consumed input to the buffer.
+     *
+     * @param input sequence of alphabets
+     * @param out buffer to receive the outputs, which must have enough remaining space
+     * @return number of consumed inputs, less than the input size if a transition is undefined
+     */
+    public int run(List<String> input, ByteBuffer out) {
+        assert out.remaining() >= input.size() * Integer.BYTES;
+        return run(input, out::putInt);
+    }
+
+    /**
+     * Runs a slice of pre-classified input on the compiled DFA, and writes one output per consumed
+     * input to the array.
+     *
+     * @param classes alphabet classes, see {@link CompiledDFA#classOf(String)}
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param out array to receive the outputs, {@code out[i]} is the output of {@code classes[i]}
+     * @return number of consumed inputs, less than {@code to - from} if a transition is undefined
+     * @throws IllegalStateException if this transducer is not created from a compiled DFA
+     */
+    public int run(int[] classes, int from, int to, int[] out) {
+        if (dfa == null) throw new IllegalStateException("Pre-classified input needs a compiled DFA");
+        int state = dfa.getInitialState();
+        for (int i = from; i < to; i++) {
+            final int next = dfa.step(state, classes[i]);
+            if (next == CompiledDFA.DEAD) return stop(i - from);
+            out[i] = dfa.output(state, classes[i]);
+            state = next;
+        }
+        isAccepted = dfa.isAccepting(state);
+        return to - from;
+    }
+
+    private int stop(int consumed) {
+        isAccepted = false;
+        return consumed;
+    }
+}
@@ -0,0 +1,102 @@
+package io.github.lmhjava.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies, for percentiles of concurrent requests.
+ *
+ * @implNote Values are counted in log-linear buckets: every power of two is split into 16 buckets,
+ * so a percentile is at most about 6% above the exact value, with a fixed memory of 8KB.
+ */
+public final class LatencyRecorder {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong count;
+    private final AtomicLong total;
+    private final AtomicLong max;
+
+    public LatencyRecorder() {
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.count = new AtomicLong();
+        this.total = new AtomicLong();
+        this.max = new AtomicLong();
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param value non-negative value, e.g. microseconds
+     */
+    public void record(long value) {
+        assert value >= 0;
+        counts.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Adds all values recorded by another recorder, e.g. of another thread.
+     *
+     * @param other recorder to add
+     */
+    public void merge(LatencyRecorder other) {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            final long bucketCount = other.counts.get(bucket);
+            if (bucketCount != 0) counts.addAndGet(bucket, bucketCount);
+        }
+        count.addAndGet(other.count.get());
+        total.addAndGet(other.total.get());
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    // largest value of a bucket
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        final int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        final long sub = bucket & (SUB_BUCKETS - 1);
+        return ((SUB_BUCKETS + sub + 1) << shift) - 1;
+    }
+
+    /**
+     * Returns a percentile of the recorded values.
+     *
+     * @param percentile from 0 to 100
+     * @return the upper bound of the bucket holding the percentile, or 0 if nothing is recorded
+     */
+    public long getPercentile(double percentile) {
+        assert percentile >= 0 && percentile <= 100;
+        final long recorded = count.get();
+        if (recorded == 0) return 0;
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * recorded));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) return Math.min(upperBoundOf(bucket), max.get());
+        }
+        return max.get();
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        final long recorded = count.get();
+        return recorded == 0 ? 0 : (double) total.get() / recorded;
+    }
+}
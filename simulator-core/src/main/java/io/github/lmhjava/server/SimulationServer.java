@@ -0,0 +1,292 @@
+package io.github.lmhjava.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.lmhjava.engine.compiled.CompiledDFA;
+import io.github.lmhjava.engine.dfa.DFAController;
+import io.github.lmhjava.engine.dfa.DFANode;
+import io.github.lmhjava.engine.exception.DFAFormatException;
+import io.github.lmhjava.engine.io.DFAFormat;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Headless HTTP front end of the engine, bound to the loopback interface.
+ * All bodies are UTF-8 text:
+ * <ul>
+ *     <li>{@code GET /dfa} lists the loaded DFAs, one name per line</li>
+ *     <li>{@code PUT /dfa/NAME} loads a DFA in {@link DFAFormat}, replacing the old one of the same name</li>
+ *     <li>{@code DELETE /dfa/NAME} unloads a DFA</li>
+ *     <li>{@code POST /dfa/NAME/accepts} takes one input per line, and answers {@code true} or
+ *     {@code false} per line</li>
+ *     <li>{@code POST /dfa/NAME/run} takes one input per line, and answers
+ *     {@code ACCEPTED LAST_STATE STEPS} per line, the state is {@code -} once the run is dead</li>
+ *     <li>{@code GET /stats} reports the throughput and the latency percentiles of every endpoint</li>
+ * </ul>
+ * By default every code point of a line is an alphabet. With {@code ?symbols=tokens},
+ * the alphabets of a line are separated by whitespace instead.
+ *
+ * @implNote Loaded DFAs are compiled into immutable {@link CompiledDFA}s, so requests never lock.
+ * Batches are streamed: each result is written as soon as its line is read, so a batch of any size
+ * runs in constant memory. Requests run on virtual threads where the JDK has them (Java 21+),
+ * otherwise on a cached pool of daemon threads.
+ */
+public final class SimulationServer {
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_.-]+");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, CompiledDFA> dfas;
+    private final Map<String, LatencyRecorder> latencies;
+    private final AtomicLong inputCount;
+    private final long startNanos;
+
+    /**
+     * Creates a server on the loopback interface, call {@link #start()} to serve.
+     *
+     * @param port port to listen on, or 0 for any free port
+     * @throws IOException if the port can not be bound
+     */
+    public SimulationServer(int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = newRequestExecutor();
+        this.dfas = new ConcurrentHashMap<>();
+        this.latencies = new ConcurrentHashMap<>();
+        this.inputCount = new AtomicLong();
+        this.startNanos = System.nanoTime();
+        server.setExecutor(executor);
+        server.createContext("/dfa", this::handleDFA);
+        server.createContext("/stats", this::handleStats);
+    }
+
+    /**
+     * Creates an executor with one virtual thread per task, or a cached thread pool before Java 21.
+     *
+     * @return executor of requests
+     */
+    public static ExecutorService newRequestExecutor() {
+        try {
+            final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // missing before Java 19, and a disabled preview in Java 19 and 20
+            return Executors.newCachedThreadPool((Runnable r) -> {
+                final Thread thread = new Thread(r, "simulation-request");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops serving.
+     *
+     * @param delaySeconds seconds to wait for the running requests
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Loads a DFA, replacing the old one of the same name.
+     *
+     * @param name name of the DFA, letters, digits, "_", "." and "-" only
+     * @param controller DFA to load, later edits are NOT reflected
+     */
+    public void load(String name, DFAController controller) {
+        if (!NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException(String.format("Invalid DFA name %s", name));
+        }
+        dfas.put(name, CompiledDFA.compile(controller));
+    }
+
+    /**
+     * Loads a DFA file, replacing the old one of the same name.
+     *
+     * @param name name of the DFA
+     * @param path file in {@link DFAFormat}
+     * @throws IOException if the file can not be read
+     * @throws DFAFormatException if the file is malformed
+     */
+    public void load(String name, Path path) throws IOException, DFAFormatException {
+        load(name, DFAFormat.read(path).getController());
+    }
+
+    public boolean unload(String name) {
+        return dfas.remove(name) != null;
+    }
+
+    public LatencyRecorder getLatency(String endpoint) {
+        return latencies.computeIfAbsent(endpoint, (String e) -> new LatencyRecorder());
+    }
+
+    public long getInputCount() {
+        return inputCount.get();
+    }
+
+    private void handleDFA(HttpExchange exchange) throws IOException {
+        final long start = System.nanoTime();
+        String endpoint = "other";
+        try {
+            // "/dfa", "/dfa/NAME" or "/dfa/NAME/ACTION"
+            final String[] parts = exchange.getRequestURI().getPath().substring(1).split("/");
+            final String method = exchange.getRequestMethod();
+            if (parts.length == 1) {
+                endpoint = "list";
+                if (!method.equals("GET")) {
+                    respond(exchange, 405, "GET only");
+                    return;
+                }
+                final StringBuilder names = new StringBuilder();
+                new TreeSet<>(dfas.keySet()).forEach((String name) -> names.append(name).append('\n'));
+                respond(exchange, 200, names.toString());
+                return;
+            }
+            final String name = parts[1];
+            if (parts.length == 2) {
+                endpoint = "load";
+                handleLoad(exchange, method, name);
+                return;
+            }
+            endpoint = parts[2];
+            final CompiledDFA dfa = dfas.get(name);
+            if (parts.length > 3 || !(endpoint.equals("accepts") || endpoint.equals("run"))) {
+                endpoint = "other";
+                respond(exchange, 404, "Unknown path");
+            } else if (!method.equals("POST")) {
+                respond(exchange, 405, "POST only");
+            } else if (dfa == null) {
+                respond(exchange, 404, String.format("Unknown DFA %s", name));
+            } else {
+                final boolean isTokenized = "symbols=tokens".equals(exchange.getRequestURI().getQuery());
+                stream(exchange, dfa, endpoint.equals("run"), isTokenized);
+            }
+        } finally {
+            // recorded before the response completes, so that a client reading /stats afterwards sees it
+            getLatency(endpoint).record((System.nanoTime() - start) / 1000);
+            exchange.close();
+        }
+    }
+
+    private void handleLoad(HttpExchange exchange, String method, String name) throws IOException {
+        switch (method) {
+            case "PUT" -> {
+                if (!NAME.matcher(name).matches()) {
+                    respond(exchange, 400, String.format("Invalid DFA name %s", name));
+                    return;
+                }
+                try {
+                    final DFAController controller = DFAFormat.read(
+                            new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)).getController();
+                    load(name, controller);
+                    respond(exchange, 200, String.format("Loaded %s with %d states\n", name, controller.getNodeSet().size()));
+                } catch (DFAFormatException e) {
+                    respond(exchange, 400, e.getMessage());
+                }
+            }
+            case "DELETE" -> {
+                if (unload(name)) {
+                    respond(exchange, 200, String.format("Unloaded %s\n", name));
+                } else {
+                    respond(exchange, 404, String.format("Unknown DFA %s", name));
+                }
+            }
+            default -> respond(exchange, 405, "PUT or DELETE only");
+        }
+    }
+
+    // answers every line of the request as soon as it is read
+    private void stream(HttpExchange exchange, CompiledDFA dfa, boolean isRun, boolean isTokenized) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        // chunked, since the length is unknown
+        exchange.sendResponseHeaders(200, 0);
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+        String line;
+        long count = 0;
+        while ((line = reader.readLine()) != null) {
+            int state = dfa.getInitialState();
+            int steps = 0;
+            if (isTokenized) {
+                for (String alphabet : line.trim().split("\\s+")) {
+                    if (alphabet.isEmpty() || state == CompiledDFA.DEAD) continue;
+                    state = dfa.step(state, dfa.classOf(alphabet));
+                    steps++;
+                }
+            } else {
+                for (int i = 0; i < line.length() && state != CompiledDFA.DEAD; ) {
+                    final int codePoint = line.codePointAt(i);
+                    state = dfa.step(state, dfa.classOfCodePoint(codePoint));
+                    steps++;
+                    i += Character.charCount(codePoint);
+                }
+            }
+            final boolean isAccepted = dfa.isAccepting(state);
+            if (isRun) {
+                final DFANode node = state == CompiledDFA.DEAD ? null : dfa.getNode(state);
+                writer.write(String.format("%b %s %d\n", isAccepted, node == null ? "-" : node.getContent(), steps));
+            } else {
+                writer.write(isAccepted ? "true\n" : "false\n");
+            }
+            count++;
+        }
+        writer.flush();
+        inputCount.addAndGet(count);
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try {
+            final double seconds = (System.nanoTime() - startNanos) / 1e9;
+            final StringBuilder stats = new StringBuilder();
+            stats.append(String.format("uptime_seconds=%.3f\n", seconds));
+            stats.append(String.format("inputs=%d\n", inputCount.get()));
+            stats.append(String.format("inputs_per_second=%.1f\n", inputCount.get() / seconds));
+            for (String endpoint : new TreeSet<>(latencies.keySet())) {
+                final LatencyRecorder latency = latencies.get(endpoint);
+                stats.append(String.format("%s count=%d mean_us=%.1f p50_us=%d p90_us=%d p99_us=%d max_us=%d\n",
+                        endpoint, latency.getCount(), latency.getMean(), latency.getPercentile(50),
+                        latency.getPercentile(90), latency.getPercentile(99), latency.getMax()));
+            }
+            respond(exchange, 200, stats.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String text) throws IOException {
+        final byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length == 0) return;
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.lmhjava.benchmark;
+
+import io.github.lmhjava.engine.dfa.DFANode;
+import io.github.lmhjava.engine.dfa.EditJournal;
+import io.github.lmhjava.engine.exception.JournalException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the replay of an {@link EditJournal}, and the undo and redo of a single step.
+ * The journal builds a chain of nodes, with undo and redo of every tenth edge on the way.
+ * Run with {@code mvn test-compile -Pbenchmark -Dbenchmark=EditJournalBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class EditJournalBenchmark {
+
+    @Param({"1000000"})
+    public int operationCount;
+
+    private byte[] bytes;
+    private EditJournal journal;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        journal = new EditJournal();
+        journal.registerAlphabet("a");
+        DFANode previous = journal.addNode("S0");
+        for (int i = 1; journal.getStepCount() < operationCount; i++) {
+            final DFANode node = journal.addNode("S" + i);
+            journal.addEdge(previous, node, "a");
+            if (i % 10 == 0) {
+                journal.undo();
+                journal.redo();
+            }
+            journal.setAccepted(node, i % 2 == 0);
+            previous = node;
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        journal.appendTo(out);
+        bytes = out.toByteArray();
+    }
+
+    @Benchmark
+    public EditJournal replay() throws IOException, JournalException {
+        return EditJournal.replay(new ByteArrayInputStream(bytes));
+    }
+
+    @Benchmark
+    public boolean undoRedo() {
+        journal.undo();
+        return journal.redo();
+    }
+}
@@ -0,0 +1,102 @@
+package io.github.lmhjava.benchmark;
+
+import io.github.lmhjava.engine.compiled.CompiledDFA;
+import io.github.lmhjava.engine.compiled.IncrementalDFA;
+import io.github.lmhjava.engine.dfa.DFAController;
+import io.github.lmhjava.engine.dfa.DFAEdge;
+import io.github.lmhjava.engine.dfa.DFANode;
+import io.github.lmhjava.engine.exception.DFAValidationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of a single edit on a large DFA, followed by a run over the edited table:
+ * patching the rows of an {@link IncrementalDFA} against compiling a {@link CompiledDFA} again.
+ * Run with {@code mvn test-compile -Pbenchmark -Dbenchmark=IncrementalDFABenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@State(Scope.Benchmark)
+public class IncrementalDFABenchmark {
+
+    @Param({"1000000"})
+    public int stateCount;
+
+    private DFAController controller;
+    private DFAEdge[] edges;
+    private IncrementalDFA incremental;
+    private Random random;
+
+    // a ring of nodes, each one reads "a" to the next one
+    @Setup(Level.Trial)
+    public void setup() throws DFAValidationException {
+        final DFANode[] nodes = new DFANode[stateCount];
+        edges = new DFAEdge[stateCount];
+        for (int i = 0; i < stateCount; i++) {
+            nodes[i] = new DFANode("S" + i);
+            nodes[i].setAccepted(i % 2 == 0);
+        }
+        for (int i = 0; i < stateCount; i++) {
+            edges[i] = new DFAEdge(nodes[i], nodes[(i + 1) % stateCount]);
+        }
+        controller = new DFAController();
+        controller.edit(tx -> {
+            tx.registerAlphabet("a");
+            tx.registerAlphabet("b");
+            for (DFANode node : nodes) {
+                tx.registerNode(node);
+            }
+            for (DFAEdge edge : edges) {
+                tx.registerEdge(edge);
+                tx.registerEdgeAlphabet(edge, "a");
+            }
+            tx.setInitialNode(nodes[0]);
+        });
+        incremental = new IncrementalDFA(controller);
+        random = new Random(37);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        incremental.detach();
+    }
+
+    // toggles "b" on a random edge
+    private void edit() {
+        final DFAEdge edge = edges[random.nextInt(stateCount)];
+        if (edge.getAlphabets().contains("b")) {
+            edge.unregisterAlphabet("b");
+        } else {
+            edge.registerAlphabet("b");
+        }
+    }
+
+    @Benchmark
+    public boolean incrementalEdit() {
+        edit();
+        return incremental.accepts("abab");
+    }
+
+    @Benchmark
+    public boolean fullRecompile() {
+        edit();
+        return CompiledDFA.compile(controller).accepts("abab");
+    }
+}
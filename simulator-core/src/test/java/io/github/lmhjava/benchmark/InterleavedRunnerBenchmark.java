@@ -0,0 +1,144 @@
+package io.github.lmhjava.benchmark;
+
+import io.github.lmhjava.engine.compiled.CompiledDFA;
+import io.github.lmhjava.engine.compiled.InterleavedRunner;
+import io.github.lmhjava.engine.dfa.DFAController;
+import io.github.lmhjava.engine.dfa.DFAEdge;
+import io.github.lmhjava.engine.dfa.DFANode;
+import io.github.lmhjava.engine.exception.DFAValidationException;
+import io.github.lmhjava.engine.exception.NextNodeUndefException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares one-input-at-a-time runs with interleaved runs on a random DFA whose
+ * transition table (states * 17 classes * 4 bytes) is larger than a typical L2 cache.
+ * Run with {@code mvn test-compile -Pbenchmark -Dbenchmark=InterleavedRunnerBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InterleavedRunnerBenchmark {
+    private static final int ALPHABET_SIZE = 16;
+    private static final int INPUT_COUNT = 256;
+    private static final int INPUT_LENGTH = 256;
+
+    @Param({"32768"})
+    public int stateCount;
+
+    private DFAController controller;
+    private CompiledDFA dfa;
+    private List<List<String>> inputs;
+    private int[][] classes;
+
+    /**
+     * The runner of the interleaved benchmark, so that only that benchmark runs once per width.
+     */
+    @State(Scope.Benchmark)
+    public static class Interleaved {
+        @Param({"1", "4", "8", "16"})
+        public int width;
+
+        private InterleavedRunner runner;
+        private boolean[] results;
+
+        @Setup(Level.Trial)
+        public void setup(InterleavedRunnerBenchmark benchmark) {
+            runner = new InterleavedRunner(benchmark.dfa, width);
+            results = new boolean[INPUT_COUNT];
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws DFAValidationException {
+        final Random random = new Random(32);
+        final DFANode[] nodes = new DFANode[stateCount];
+        for (int i = 0; i < stateCount; i++) {
+            nodes[i] = new DFANode("S" + i);
+            nodes[i].setAccepted(random.nextBoolean());
+        }
+        final List<DFAEdge> edges = new ArrayList<>();
+        final Map<DFAEdge, List<String>> edgeAlphabets = new HashMap<>();
+        for (DFANode node : nodes) {
+            final Map<DFANode, DFAEdge> edgeTo = new HashMap<>();
+            for (int a = 0; a < ALPHABET_SIZE; a++) {
+                final DFANode head = nodes[random.nextInt(stateCount)];
+                final DFAEdge edge = edgeTo.computeIfAbsent(head, (DFANode h) -> new DFAEdge(node, h));
+                edgeAlphabets.computeIfAbsent(edge, (DFAEdge e) -> new ArrayList<>()).add(Integer.toString(a));
+            }
+            edges.addAll(edgeTo.values());
+        }
+        controller = new DFAController();
+        controller.edit(tx -> {
+            for (int a = 0; a < ALPHABET_SIZE; a++) {
+                tx.registerAlphabet(Integer.toString(a));
+            }
+            for (DFANode node : nodes) {
+                tx.registerNode(node);
+            }
+            for (DFAEdge edge : edges) {
+                tx.registerEdge(edge);
+                edgeAlphabets.get(edge).forEach((String alphabet) -> tx.registerEdgeAlphabet(edge, alphabet));
+            }
+            tx.setInitialNode(nodes[0]);
+        });
+
+        dfa = CompiledDFA.compile(controller);
+        inputs = new ArrayList<>();
+        classes = new int[INPUT_COUNT][INPUT_LENGTH];
+        for (int i = 0; i < INPUT_COUNT; i++) {
+            final List<String> input = new ArrayList<>();
+            for (int j = 0; j < INPUT_LENGTH; j++) {
+                final String alphabet = Integer.toString(random.nextInt(ALPHABET_SIZE));
+                input.add(alphabet);
+                classes[i][j] = dfa.classOf(alphabet);
+            }
+            inputs.add(input);
+        }
+    }
+
+    @Benchmark
+    public void controller(Blackhole blackhole) throws NextNodeUndefException {
+        for (List<String> input : inputs) {
+            controller.reset();
+            for (String alphabet : input) {
+                controller.next(alphabet);
+            }
+            blackhole.consume(controller.onAcceptState());
+        }
+    }
+
+    @Benchmark
+    public void compiledSequential(Blackhole blackhole) {
+        for (int[] input : classes) {
+            blackhole.consume(dfa.accepts(input, 0, input.length));
+        }
+    }
+
+    @Benchmark
+    public boolean[] interleaved(Interleaved interleaved) {
+        interleaved.runner.acceptsAll(classes, interleaved.results);
+        return interleaved.results;
+    }
+}
@@ -0,0 +1,130 @@
+package io.github.lmhjava.cli;
+
+import io.github.lmhjava.Main;
+import io.github.lmhjava.engine.compiled.CompiledDFA;
+import io.github.lmhjava.engine.exception.DFAFormatException;
+import io.github.lmhjava.engine.io.DFAFormat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test for multi-threaded corpus runs and the command line
+public class BatchRunnerTest {
+
+    // even number of "a"s, over the alphabet {a, b, begin}
+    private static final String EVEN = String.join("\n",
+            "alphabet a b begin",
+            "node even initial accepted",
+            "node odd",
+            "edge even odd : a",
+            "edge odd even : a",
+            "edge even even : b begin",
+            "edge odd odd : b begin",
+            "");
+
+    private CompiledDFA dfa;
+
+    @BeforeEach
+    public void init() throws IOException, DFAFormatException {
+        dfa = CompiledDFA.compile(DFAFormat.read(new StringReader(EVEN)).getController());
+    }
+
+    private static String corpus(int count) {
+        final StringBuilder corpus = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            corpus.append("a".repeat(i % 5)).append("b".repeat(i % 3)).append('\n');
+        }
+        return corpus.toString();
+    }
+
+    @Test
+    public void testOrderAndSummary() throws IOException, InterruptedException {
+        // small batches and a tiny queue, so that the reader blocks many times
+        final BatchRunner runner = new BatchRunner(dfa, 4, 2, 7, null);
+        final StringWriter results = new StringWriter();
+        final BatchRunner.Summary summary = runner.run(new BufferedReader(new StringReader(corpus(10000))), results);
+
+        final String[] lines = results.toString().split("\n");
+        assertEquals(10000, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(Boolean.toString(i % 5 % 2 == 0), lines[i], "input " + i);
+        }
+        assertEquals(10000, summary.getInputCount());
+        assertEquals(6000, summary.getAcceptedCount());
+        assertEquals(10000, summary.getLatency().getCount());
+        assertTrue(summary.getThroughput() > 0);
+        assertTrue(summary.toString().startsWith("inputs=10000 accepted=6000 "));
+    }
+
+    @Test
+    public void testDelimiterAndEmptyCorpus() throws IOException, InterruptedException {
+        final BatchRunner runner = new BatchRunner(dfa, 2, 1, BatchRunner.DEFAULT_BATCH_SIZE, ",");
+        final StringWriter results = new StringWriter();
+        runner.run(new BufferedReader(new StringReader("begin,a,a\na,begin\n\nab")), results);
+        // "ab" is not an alphabet
+        assertEquals("true\nfalse\ntrue\nfalse\n", results.toString());
+
+        final BatchRunner.Summary empty = runner.run(new BufferedReader(new StringReader("")), null);
+        assertEquals(0, empty.getInputCount());
+    }
+
+    @Test
+    public void testFailures() {
+        final BatchRunner runner = new BatchRunner(dfa, 2, 1, 1, null);
+        // the corpus fails while the threads are busy
+        final BufferedReader failing = new BufferedReader(new StringReader(corpus(1000))) {
+            private int count;
+
+            @Override
+            public String readLine() throws IOException {
+                if (++count == 500) throw new IOException("disk");
+                return super.readLine();
+            }
+        };
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(IOException.class, () -> runner.run(failing, new StringWriter())));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            Thread.currentThread().interrupt();
+            assertThrows(InterruptedException.class, () -> runner.run(new BufferedReader(new StringReader(corpus(1000))), null));
+        });
+        assertTrue(Thread.getAllStackTraces().keySet().stream().noneMatch((Thread thread) -> thread.getName().startsWith("batch-")));
+    }
+
+    @Test
+    public void testCommandLine(@TempDir Path directory) throws IOException {
+        final Path dfaFile = directory.resolve("even.dfa");
+        final Path input = directory.resolve("corpus.txt");
+        final Path output = directory.resolve("results.txt");
+        Files.writeString(dfaFile, EVEN);
+        Files.writeString(input, corpus(100));
+
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        final int status = Main.run(new String[]{"run", dfaFile.toString(), "--input", input.toString(),
+                "--output", output.toString(), "--threads", "3"}, System.out, new PrintStream(err, true, StandardCharsets.UTF_8));
+        assertEquals(0, status);
+        final List<String> results = Files.readAllLines(output);
+        assertEquals(100, results.size());
+        assertEquals("false", results.get(1));
+        assertTrue(err.toString(StandardCharsets.UTF_8).startsWith("inputs=100 accepted=60 "));
+
+        final PrintStream quiet = new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8);
+        assertEquals(2, Main.run(new String[]{}, quiet, quiet));
+        assertEquals(2, Main.run(new String[]{"walk"}, quiet, quiet));
+        assertEquals(2, Main.run(new String[]{"run", dfaFile.toString(), "--threads", "0"}, quiet, quiet));
+        assertEquals(1, Main.run(new String[]{"run", directory.resolve("missing.dfa").toString()}, quiet, quiet));
+    }
+}
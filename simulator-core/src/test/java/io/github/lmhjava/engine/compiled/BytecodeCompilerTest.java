@@ -0,0 +1,82 @@
+package io.github.lmhjava.engine.compiled;
+
+import io.github.lmhjava.engine.dfa.DFAController;
+import io.github.lmhjava.engine.exception.RegexSyntaxException;
+import io.github.lmhjava.engine.regex.RegexCompiler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test for generated DFA classes
+public class BytecodeCompilerTest {
+
+    private RegexCompiler compiler;
+
+    @BeforeEach
+    public void init() {
+        compiler = new RegexCompiler(Set.of("a", "b", "c", "d"));
+    }
+
+    private static void assertSameAs(CompiledDFA dfa, DFAMatcher matcher, long seed) {
+        final Random random = new Random(seed);
+        for (int round = 0; round < 2000; round++) {
+            final int[] classes = new int[random.nextInt(16)];
+            for (int i = 0; i < classes.length; i++) {
+                classes[i] = random.nextInt(dfa.getClassCount());
+            }
+            final int from = classes.length == 0 ? 0 : random.nextInt(classes.length);
+            assertEquals(dfa.accepts(classes, from, classes.length), matcher.accepts(classes, from, classes.length));
+        }
+    }
+
+    @Test
+    public void testGeneratedMatcher() throws RegexSyntaxException {
+        final DFAController controller = compiler.compile("(a|b)*abb(c|d)?");
+        final CompiledDFA dfa = CompiledDFA.compile(controller);
+        final DFAMatcher matcher = BytecodeCompiler.generate(dfa);
+        assertNotSame(dfa, matcher);
+        assertNotEquals(CompiledDFA.class, matcher.getClass());
+
+        final int[] input = {dfa.classOf("a"), dfa.classOf("b"), dfa.classOf("b"), dfa.classOf("c")};
+        assertTrue(matcher.accepts(input, 0, 4));
+        assertTrue(matcher.accepts(input, 0, 3));
+        assertFalse(matcher.accepts(input, 1, 4));
+        assertFalse(matcher.accepts(input, 0, 0));
+        assertSameAs(dfa, matcher, 31);
+    }
+
+    @Test
+    public void testRandomPatterns() throws RegexSyntaxException {
+        final String[] pieces = {"a", "b", "[cd]", ".", "(ab|c)*", "d?", "b+", "a{2,3}", "(a|b){3}"};
+        final Random random = new Random(131);
+        for (int round = 0; round < 50; round++) {
+            final StringBuilder regex = new StringBuilder();
+            for (int i = 0; i < 1 + random.nextInt(5); i++) {
+                regex.append(pieces[random.nextInt(pieces.length)]);
+            }
+            final CompiledDFA dfa = CompiledDFA.compile(compiler.compile(regex.toString()));
+            assertSameAs(dfa, BytecodeCompiler.generate(dfa), round);
+        }
+    }
+
+    @Test
+    public void testFallback() throws RegexSyntaxException {
+        // 2^9 states
+        final CompiledDFA dfa = CompiledDFA.compile(compiler.compile("(a|b)*a(a|b){8}"));
+        assertTrue(dfa.getStateCount() > 256);
+        assertSame(dfa, BytecodeCompiler.generate(dfa, 256));
+        assertFalse(BytecodeCompiler.isGeneratable(dfa, 256));
+
+        final DFAMatcher matcher = BytecodeCompiler.generate(dfa, 1024);
+        assertNotSame(dfa, matcher);
+        assertSameAs(dfa, matcher, 7);
+
+        // a DFA without an initial state can not be generated
+        final CompiledDFA empty = CompiledDFA.compile(new DFAController());
+        assertSame(empty, BytecodeCompiler.generate(empty));
+    }
+}
@@ -0,0 +1,115 @@
+package io.github.lmhjava.engine.compiled;
+
+import io.github.lmhjava.engine.dfa.AlphabetRange;
+import io.github.lmhjava.engine.dfa.DFAController;
+import io.github.lmhjava.engine.dfa.DFAEdge;
+import io.github.lmhjava.engine.dfa.DFANode;
+import io.github.lmhjava.engine.exception.NextNodeUndefException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test for compiled DFAs and alphabet partitions
+public class CompiledDFATest {
+
+    private DFAController controller;
+    private DFANode node1;
+    private DFANode node2;
+    private DFANode node3;
+
+    // A - ([a-z], "begin") -> B - ([0-9]) -> C (accepted)
+    //                           \ (x, "end") -> A
+    // C - (ELSE) -> C
+    @BeforeEach
+    public void init() {
+        controller = new DFAController();
+        node1 = new DFANode("A");
+        node2 = new DFANode("B");
+        node3 = new DFANode("C");
+        node3.setAccepted(true);
+        controller.registerAlphabet(Set.of("x", "y", "begin", "end"));
+        controller.registerAlphabetRange(AlphabetRange.of("a", "z"));
+        controller.registerAlphabetRange(AlphabetRange.of("0", "9"));
+        controller.registerNode(node1);
+        controller.registerNode(node2);
+        controller.registerNode(node3);
+        controller.setInitialNode(node1);
+        final DFAEdge edge12 = new DFAEdge(node1, node2, AlphabetRange.of("a", "z"));
+        edge12.registerAlphabet("begin");
+        final DFAEdge edge23 = new DFAEdge(node2, node3, AlphabetRange.of("0", "9"));
+        final DFAEdge edge21 = new DFAEdge(node2, node1, "x");
+        edge21.registerAlphabet("end");
+        final DFAEdge edge33 = new DFAEdge(node3, node3);
+        edge33.setElseEdge(true);
+        assertTrue(controller.registerEdge(edge12));
+        assertTrue(controller.registerEdge(edge23));
+        assertTrue(controller.registerEdge(edge21));
+        assertTrue(controller.registerEdge(edge33));
+    }
+
+    @Test
+    public void testEquivalenceClasses() {
+        final AlphabetPartition partition = CompiledDFA.compile(controller).getPartition();
+        // OTHER, [a-w y z], [0-9], x, end
+        assertEquals(5, partition.getClassCount());
+        assertEquals(partition.classOf("begin"), partition.classOf("q"));
+        // "x" triggers A -> B as well, but "end" does not
+        assertNotEquals(partition.classOf("end"), partition.classOf("x"));
+        assertEquals(partition.classOf("y"), partition.classOf("a"));
+        assertNotEquals(partition.classOf("x"), partition.classOf("y"));
+        assertEquals(AlphabetPartition.OTHER_CLASS, partition.classOf("A"));
+        assertEquals(AlphabetPartition.OTHER_CLASS, partition.classOf("unknown"));
+        assertEquals(AlphabetPartition.OTHER_CLASS, partition.classOfCodePoint(0x1F600));
+        assertIterableEquals(List.of(Set.of("begin", "y"), Set.of("end"), Set.of("x")),
+                partition.group(controller.getAlphabetSet()));
+    }
+
+    @Test
+    public void testAccepts() {
+        final CompiledDFA dfa = CompiledDFA.compile(controller);
+        assertEquals(3, dfa.getStateCount());
+        assertEquals(node1, dfa.getNode(dfa.getInitialState()));
+        assertTrue(dfa.accepts("a1"));
+        assertTrue(dfa.accepts("ax" + "b7" + "anything"));
+        assertFalse(dfa.accepts("ab"));
+        assertFalse(dfa.accepts(""));
+        assertTrue(dfa.accepts(List.of("begin", "5")));
+        assertTrue(dfa.accepts(List.of("begin", "end", "q", "0", "end")));
+        assertFalse(dfa.accepts(List.of("end")));
+        assertEquals(CompiledDFA.DEAD, dfa.next(dfa.getInitialState(), "0"));
+        assertFalse(dfa.isAccepting(CompiledDFA.DEAD));
+    }
+
+    @Test
+    public void testSameAsController() {
+        final CompiledDFA dfa = CompiledDFA.compile(controller);
+        final List<String> alphabets = List.of("a", "m", "x", "y", "z", "0", "9", "begin", "end", "A", "?");
+        final Random random = new Random(42);
+        for (int round = 0; round < 1000; round++) {
+            final List<String> input = new ArrayList<>();
+            final int length = random.nextInt(8);
+            for (int i = 0; i < length; i++) {
+                input.add(alphabets.get(random.nextInt(alphabets.size())));
+            }
+            assertEquals(runController(input), dfa.accepts(input), input.toString());
+        }
+    }
+
+    private boolean runController(List<String> input) {
+        controller.reset();
+        try {
+            for (String alphabet : input) {
+                controller.next(alphabet);
+            }
+        } catch (NextNodeUndefException e) {
+            return false;
+        }
+        return input.isEmpty() ? controller.getInitialNode().isAccepted() : controller.onAcceptState();
+    }
+}
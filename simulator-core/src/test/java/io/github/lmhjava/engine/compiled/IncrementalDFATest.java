@@ -0,0 +1,201 @@
+package io.github.lmhjava.engine.compiled;
+
+import io.github.lmhjava.engine.dfa.AlphabetRange;
+import io.github.lmhjava.engine.dfa.DFAController;
+import io.github.lmhjava.engine.dfa.DFAEdge;
+import io.github.lmhjava.engine.dfa.DFANode;
+import io.github.lmhjava.engine.exception.DFAValidationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test for compiled tables which follow the edits of a DFA
+public class IncrementalDFATest {
+
+    private DFAController controller;
+    private DFANode node1;
+    private DFANode node2;
+    private DFANode node3;
+    private DFAEdge edge12;
+    private DFAEdge edge23;
+    private IncrementalDFA dfa;
+
+    // A - (a) -> B - ([0-9]) -> C (accepted)
+    @BeforeEach
+    public void init() {
+        controller = new DFAController();
+        node1 = new DFANode("A");
+        node2 = new DFANode("B");
+        node3 = new DFANode("C");
+        node3.setAccepted(true);
+        controller.registerAlphabet(Set.of("a", "b", "begin"));
+        controller.registerAlphabetRange(new AlphabetRange('0', '9'));
+        controller.registerNode(node1);
+        controller.registerNode(node2);
+        controller.registerNode(node3);
+        controller.setInitialNode(node1);
+        edge12 = new DFAEdge(node1, node2, "a");
+        edge23 = new DFAEdge(node2, node3, new AlphabetRange('0', '9'));
+        assertTrue(controller.registerEdge(edge12));
+        assertTrue(controller.registerEdge(edge23));
+        // compaction runs right away, on the editing thread
+        dfa = new IncrementalDFA(controller, Runnable::run, 0.5);
+    }
+
+    @Test
+    public void testEditsRebuildOneRow() {
+        assertTrue(dfa.accepts("a5"));
+        assertFalse(dfa.accepts("b5"));
+        assertFalse(dfa.accepts(List.of("begin", "5")));
+
+        long rebuilt = dfa.getRebuiltRowCount();
+        edge12.registerAlphabet("begin");
+        assertEquals(rebuilt + 1, dfa.getRebuiltRowCount());
+        assertTrue(dfa.accepts(List.of("begin", "5")));
+
+        rebuilt = dfa.getRebuiltRowCount();
+        node2.setAccepted(true);
+        assertEquals(rebuilt + 1, dfa.getRebuiltRowCount());
+        assertTrue(dfa.accepts("a"));
+
+        // ELSE edge toggle
+        final DFAEdge loop = new DFAEdge(node3, node3);
+        assertTrue(controller.registerEdge(loop));
+        loop.setElseEdge(true);
+        assertTrue(dfa.accepts("a5xyz"));
+        loop.setElseEdge(false);
+        assertFalse(dfa.accepts("a5xyz"));
+
+        // the graph itself is never touched by a run
+        assertNull(controller.getCurrentNode());
+    }
+
+    @Test
+    public void testRemoveAndReuseState() {
+        final int state3 = dfa.stateOf(node3);
+        controller.removeNode(node3);
+        assertEquals(IncrementalDFA.DEAD, dfa.stateOf(node3));
+        assertEquals(2, dfa.getStateCount());
+        assertFalse(dfa.accepts("a5"));
+
+        // the free row is taken by the next node
+        final DFANode node4 = new DFANode("D");
+        node4.setAccepted(true);
+        controller.registerNode(node4);
+        assertEquals(state3, dfa.stateOf(node4));
+        assertTrue(controller.registerEdge(new DFAEdge(node2, node4, "b")));
+        assertTrue(dfa.accepts("ab"));
+        assertFalse(dfa.accepts("a5"));
+
+        controller.removeNode(node1);
+        assertEquals(IncrementalDFA.DEAD, dfa.getInitialState());
+        assertFalse(dfa.accepts("ab"));
+    }
+
+    @Test
+    public void testSplitAndCompaction() {
+        final int oldClass = dfa.classOf("5");
+        // [5-7] splits [0-9], the old rows fall back to the class of [0-9]
+        final DFAEdge edge13 = new DFAEdge(node1, node3, new AlphabetRange('5', '7'));
+        assertTrue(controller.registerEdge(edge13));
+        assertNotEquals(oldClass, dfa.classOf("5"));
+        assertEquals(dfa.classOf("5"), dfa.classOf("7"));
+        assertNotEquals(dfa.classOf("5"), dfa.classOf("8"));
+        assertTrue(dfa.accepts("6"));
+        assertFalse(dfa.accepts("8"));
+        assertTrue(dfa.accepts("a6"));
+        assertTrue(dfa.accepts("a9"));
+
+        // 2 of 3 rows were short, which crossed the threshold
+        assertEquals(1, dfa.getCompactionCount());
+        assertEquals(0, dfa.getFragmentation());
+        assertTrue(dfa.accepts("a6"));
+        assertTrue(dfa.accepts("a0"));
+        assertFalse(dfa.accepts("a"));
+    }
+
+    @Test
+    public void testTransaction() throws DFAValidationException {
+        final DFANode node4 = new DFANode("D");
+        final DFAEdge edge34 = new DFAEdge(node3, node4);
+        controller.edit(tx -> {
+            tx.registerNode(node4);
+            tx.registerEdge(edge34);
+            tx.registerEdgeAlphabet(edge34, "b");
+            tx.setAccepted(node4, true);
+            tx.setAccepted(node3, false);
+            tx.removeEdge(edge12);
+            tx.registerEdgeAlphabet(edge23, "a");
+        });
+        assertFalse(dfa.accepts("a5"));
+        controller.edit(tx -> tx.setInitialNode(node2));
+        assertTrue(dfa.accepts("ab"));
+        assertTrue(dfa.accepts("5b"));
+        assertFalse(dfa.accepts("5"));
+        assertEquals(4, dfa.getStateCount());
+    }
+
+    @Test
+    public void testDetach() {
+        dfa.detach();
+        edge12.registerAlphabet("b");
+        assertFalse(dfa.accepts("b5"));
+    }
+
+    // random edits are checked against a table compiled from scratch
+    @Test
+    public void testAgainstCompiledDFA() {
+        final Random random = new Random(37);
+        final List<String> alphabets = List.of("a", "b", "c", "0", "5", "9", "begin", "end");
+        controller.registerAlphabet(Set.copyOf(alphabets));
+        final List<DFANode> nodes = new ArrayList<>(List.of(node1, node2, node3));
+        final List<DFAEdge> edges = new ArrayList<>(List.of(edge12, edge23));
+        for (int round = 0; round < 300; round++) {
+            final int action = random.nextInt(6);
+            if (action == 0) {
+                final DFANode node = new DFANode("N" + round);
+                node.setAccepted(random.nextBoolean());
+                controller.registerNode(node);
+                nodes.add(node);
+            } else if (action == 1 && nodes.size() > 2) {
+                final DFANode node = nodes.remove(random.nextInt(nodes.size()));
+                if (node == controller.getInitialNode()) controller.setInitialNode(nodes.get(0));
+                controller.removeNode(node);
+                edges.removeIf((DFAEdge e) -> e.getTail() == node || e.getHead() == node);
+            } else if (action == 2) {
+                final DFANode tail = nodes.get(random.nextInt(nodes.size()));
+                final DFANode head = nodes.get(random.nextInt(nodes.size()));
+                final DFAEdge edge = random.nextInt(4) == 0
+                        ? new DFAEdge(tail, head, new AlphabetRange('0', '5'))
+                        : new DFAEdge(tail, head, alphabets.get(random.nextInt(alphabets.size())));
+                if (controller.registerEdge(edge)) edges.add(edge);
+            } else if (action == 3 && !edges.isEmpty()) {
+                final DFAEdge edge = edges.remove(random.nextInt(edges.size()));
+                controller.removeEdge(edge);
+            } else if (action == 4 && !edges.isEmpty()) {
+                final DFAEdge edge = edges.get(random.nextInt(edges.size()));
+                final DFAEdge elseEdge = edge.getTail().getElseEdge();
+                if (elseEdge == edge || elseEdge == null) edge.setElseEdge(!edge.isElseEdge());
+            } else {
+                nodes.get(random.nextInt(nodes.size())).setAccepted(random.nextBoolean());
+            }
+
+            final CompiledDFA compiled = CompiledDFA.compile(controller);
+            for (int sample = 0; sample < 20; sample++) {
+                final List<String> input = new ArrayList<>();
+                final int length = random.nextInt(6);
+                for (int i = 0; i < length; i++) {
+                    input.add(random.nextInt(10) == 0 ? "zzz" : alphabets.get(random.nextInt(alphabets.size())));
+                }
+                assertEquals(compiled.accepts(input), dfa.accepts(input), "round " + round + " on " + input);
+            }
+        }
+        assertTrue(dfa.getCompactionCount() > 0);
+    }
+}
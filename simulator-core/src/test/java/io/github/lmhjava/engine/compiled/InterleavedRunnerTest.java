@@ -0,0 +1,45 @@
+package io.github.lmhjava.engine.compiled;
+
+import io.github.lmhjava.engine.dfa.DFAController;
+import io.github.lmhjava.engine.exception.RegexSyntaxException;
+import io.github.lmhjava.engine.regex.RegexCompiler;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test for interleaved runs of compiled DFAs
+public class InterleavedRunnerTest {
+
+    @Test
+    public void testSameAsSequentialRuns() throws RegexSyntaxException {
+        final DFAController controller = new RegexCompiler(Set.of("a", "b", "c")).compile("(a|b)*a(a|b|c){3}c*");
+        final CompiledDFA dfa = CompiledDFA.compile(controller);
+        final Random random = new Random(32);
+        // inputs of different lengths, including empty ones
+        final int[][] inputs = new int[100][];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = new int[random.nextInt(20)];
+            for (int j = 0; j < inputs[i].length; j++) {
+                inputs[i][j] = 1 + random.nextInt(dfa.getClassCount() - 1);
+            }
+        }
+        for (int width : new int[]{1, 3, 8, 200}) {
+            final boolean[] results = new InterleavedRunner(dfa, width).acceptsAll(inputs);
+            for (int i = 0; i < inputs.length; i++) {
+                assertEquals(dfa.accepts(inputs[i], 0, inputs[i].length), results[i], "width " + width);
+            }
+        }
+        assertEquals(0, new InterleavedRunner(dfa).acceptsAll(new int[0][]).length);
+    }
+
+    @Test
+    public void testWithoutInitialState() {
+        final CompiledDFA dfa = CompiledDFA.compile(new DFAController());
+        final boolean[] results = {true, true};
+        new InterleavedRunner(dfa).acceptsAll(new int[][]{{}, {0}}, results);
+        assertArrayEquals(new boolean[]{false, false}, results);
+    }
+}
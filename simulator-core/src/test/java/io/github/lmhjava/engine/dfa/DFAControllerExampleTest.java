@@ -113,4 +113,47 @@ public class DFAControllerExampleTest {
             assertEquals(node1, controller.next("a"));
         }
     }
+
+    // A - ([a-z]) -> B - ([0-9], _) -> A
+    //   \
+    //     - (ELSE) -> A
+    @Test
+    public void testRangeEdges() throws NextNodeUndefException {
+        DFANode node1 = new DFANode("A");
+        DFANode node2 = new DFANode("B");
+        DFAEdge letters = new DFAEdge(node1, node2, AlphabetRange.of("a", "z"));
+        DFAEdge digits = new DFAEdge(node2, node1, AlphabetRange.of("0", "9"));
+        digits.registerAlphabet("_");
+        DFAEdge elseEdge = new DFAEdge(node1, node1);
+        elseEdge.setElseEdge(true);
+        DFAController controller = new DFAController();
+        controller.registerAlphabetRange(AlphabetRange.of("a", "z"));
+        controller.registerNode(node1);
+        controller.registerNode(node2);
+        controller.setInitialNode(node1);
+        // Rejected, [0-9] and "_" are not registered into the DFA.
+        assertFalse(controller.registerEdge(digits));
+        controller.registerAlphabetRange(new AlphabetRange('0', '9'));
+        controller.registerAlphabet("_");
+        assertTrue(controller.registerEdge(letters));
+        assertTrue(controller.registerEdge(digits));
+        assertTrue(controller.registerEdge(elseEdge));
+
+        assertEquals(node2, controller.next("q"));
+        assertEquals(node1, controller.next("7"));
+        assertEquals(node1, controller.next("A"));
+        assertEquals(node2, controller.next("z"));
+        assertEquals(node1, controller.next("_"));
+
+        // "m" is occupied by the range of another edge
+        DFAEdge overlap = new DFAEdge(node1, node1, "m");
+        assertFalse(controller.registerEdge(overlap));
+        controller.reset();
+        controller.registerAlphabetRange(AlphabetRange.of("A", "Z"));
+        letters.registerRange(AlphabetRange.of("A", "Z"));
+        assertEquals(node2, controller.next("B"));
+        controller.unregisterAlphabetRange(AlphabetRange.of("A", "Z"));
+        controller.reset();
+        assertEquals(node1, controller.next("B"));
+    }
 }
@@ -1,10 +1,13 @@
 package io.github.lmhjava.engine.dfa;
 
 
+import io.github.lmhjava.engine.exception.DFAValidationException;
 import io.github.lmhjava.engine.exception.NextNodeUndefException;
+import io.github.lmhjava.engine.observable.MutationListener;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -100,6 +103,31 @@ public class DFAControllerTest {
         assertEquals(1, controller.getEdgeSet().size());
     }
 
+    // Test labels added to a registered edge which conflict with a sibling edge
+    @Test
+    public void testRegisterConflictingLabels() throws NextNodeUndefException {
+        initDFA();
+        controller.registerAlphabet("B");
+        controller.registerAlphabetRange(AlphabetRange.of("a", "z"));
+        final DFAEdge loop = new DFAEdge(testNode1, testNode1, "B");
+        assertTrue(controller.registerEdge(loop));
+        assertTrue(loop.registerRange(AlphabetRange.of("a", "m")));
+
+        // rejected, and neither the edge nor the tail changes
+        assertFalse(loop.registerAlphabet("A"));
+        assertFalse(loop.getAlphabets().contains("A"));
+        assertFalse(testEdge.registerRange(AlphabetRange.of("k", "z")));
+        assertTrue(testEdge.getRanges().isEmpty());
+        assertEquals(testNode2, testNode1.getNextNode("A"));
+        assertEquals(testNode1, testNode1.getNextNode("k"));
+
+        // removing the rejected labels does not break the sibling edge
+        loop.unregisterAlphabet("A");
+        testEdge.unregisterRange(AlphabetRange.of("k", "z"));
+        assertEquals(testNode2, testNode1.getNextNode("A"));
+        assertEquals(testNode1, testNode1.getNextNode("k"));
+    }
+
     // Test addNode
     @Test
     public void testRegisterNode() {
@@ -254,6 +282,51 @@ public class DFAControllerTest {
         assertNotEquals(controller.getCurrentNode(), clone.getCurrentNode());
     }
 
+    // Test that a clone sees edits of the shared nodes until it is released
+    @Test
+    public void testCloneRelease() {
+        initDFA();
+        controller.setInitialNode(testNode1);
+        final DFAController clone = controller.cloneDFA();
+        final List<DFANode> changed = new ArrayList<>();
+        clone.addMutationListener(new MutationListener() {
+            @Override
+            public void nodeChanged(DFANode node) {
+                changed.add(node);
+            }
+        });
+
+        // editing the original invalidates what the clone derived from its version
+        long version = clone.getVersion();
+        testNode2.setAccepted(true);
+        assertTrue(clone.getVersion() > version);
+        assertEquals(List.of(testNode2), changed);
+
+        clone.release();
+        version = clone.getVersion();
+        final long originalVersion = controller.getVersion();
+        testNode2.setAccepted(false);
+        assertEquals(version, clone.getVersion());
+        assertEquals(1, changed.size());
+        assertTrue(controller.getVersion() > originalVersion);
+    }
+
+    // Test that the shared nodes do not keep a dropped clone alive
+    @Test
+    public void testDroppedClone() throws InterruptedException {
+        initDFA();
+        final WeakReference<DFAController> clone = new WeakReference<>(controller.cloneDFA());
+        for (int i = 0; i < 100 && clone.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(clone.get());
+        // the collected owner is dropped on the next notification
+        final long version = controller.getVersion();
+        testNode1.setAccepted(true);
+        assertTrue(controller.getVersion() > version);
+    }
+
     // Test event listeners
     @Test
     public void testStateListeners() throws NextNodeUndefException {
@@ -273,4 +346,37 @@ public class DFAControllerTest {
         controller.next("B");
         assertIterableEquals(path, List.of(testNode2, testNode1, testNode2, testNode1, testNode2, testNode1));
     }
+
+    // Test that only the edges carrying a removed alphabet are reported
+    @Test
+    public void testEdgeChangedListeners() throws DFAValidationException {
+        initDFA();
+        final DFAEdge newEdge = new DFAEdge(testNode2, testNode1, "B");
+        controller.registerAlphabet("B");
+        controller.registerEdge(newEdge);
+        final List<Object> changes = new ArrayList<>();
+        controller.addMutationListener(new MutationListener() {
+            @Override
+            public void nodeChanged(DFANode node) {
+                changes.add(node);
+            }
+
+            @Override
+            public void edgeChanged(DFAEdge edge) {
+                // the edge is already updated when it is reported
+                assertFalse(edge.getAlphabets().contains("A"));
+                changes.add(edge);
+            }
+        });
+        controller.unregisterAlphabet("A");
+        assertIterableEquals(List.of(testEdge, testNode1), changes);
+
+        changes.clear();
+        newEdge.setElseEdge(true);
+        assertIterableEquals(List.of(newEdge, testNode2), changes);
+
+        changes.clear();
+        controller.edit(tx -> tx.unregisterAlphabet("B"));
+        assertIterableEquals(List.of(newEdge, testNode2), changes);
+    }
 }
@@ -0,0 +1,167 @@
+package io.github.lmhjava.engine.dfa;
+
+import io.github.lmhjava.engine.exception.DFAValidationException;
+import io.github.lmhjava.engine.exception.NextNodeUndefException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test for batch edits of DFA Controller
+public class DFATransactionTest {
+
+    private DFAController controller;
+    private DFANode node1;
+    private DFANode node2;
+
+    @BeforeEach
+    public void init() {
+        controller = new DFAController();
+        node1 = new DFANode("NODE1");
+        node2 = new DFANode("NODE2");
+    }
+
+    // A - (a, b) -> B - (ELSE) -> A
+    @Test
+    public void testBuildInOneTransaction() throws DFAValidationException, NextNodeUndefException {
+        final DFAEdge edge12 = new DFAEdge(node1, node2);
+        final DFAEdge edge21 = new DFAEdge(node2, node1);
+        controller.edit(tx -> {
+            tx.registerAlphabet("a");
+            tx.registerAlphabet("b");
+            tx.registerNode(node1);
+            tx.registerNode(node2);
+            tx.registerEdge(edge12);
+            tx.registerEdge(edge21);
+            tx.registerEdgeAlphabet(edge12, "a");
+            tx.registerEdgeAlphabet(edge12, "b");
+            tx.setElseEdge(edge21, true);
+            tx.setAccepted(node2, true);
+            tx.setInitialNode(node1);
+        });
+
+        assertEquals(Set.of("a", "b"), controller.getAlphabetSet());
+        assertEquals(2, controller.getEdgeSet().size());
+        assertEquals(node1, controller.getInitialNode());
+        assertEquals(Set.of("a", "b"), edge12.getAlphabets());
+        assertEquals(edge21, node2.getElseEdge());
+        assertTrue(node1.getEdges().contains(edge12));
+        assertTrue(node2.getEdges().isEmpty());
+        assertTrue(node2.isAccepted());
+
+        assertEquals(node2, controller.next("b"));
+        assertEquals(node1, controller.next("b"));
+        assertEquals(node2, controller.next("a"));
+        assertTrue(controller.onAcceptState());
+
+        // edges are still editable one by one after the transaction
+        controller.reset();
+        edge12.unregisterAlphabet("b");
+        assertThrows(NextNodeUndefException.class, () -> controller.next("b"));
+    }
+
+    @Test
+    public void testRollbackOnConflict() throws DFAValidationException {
+        final DFAEdge edge12 = new DFAEdge(node1, node2, "a");
+        controller.edit(tx -> {
+            tx.registerAlphabet("a");
+            tx.registerNode(node1);
+            tx.registerNode(node2);
+            tx.registerEdge(edge12);
+        });
+
+        // the new edge occupies "a" which is already registered in node1
+        final DFANode node3 = new DFANode("NODE3");
+        final DFAEdge edge13 = new DFAEdge(node1, node3, "a");
+        assertThrows(DFAValidationException.class, () -> controller.edit(tx -> {
+            tx.registerAlphabet("b");
+            tx.registerNode(node3);
+            tx.registerEdge(edge13);
+            tx.setAccepted(node1, true);
+        }));
+        assertEquals(Set.of("a"), controller.getAlphabetSet());
+        assertEquals(2, controller.getNodeSet().size());
+        assertEquals(1, controller.getEdgeSet().size());
+        assertFalse(node1.isAccepted());
+        assertEquals(Set.of(edge12), node1.getEdges());
+
+        // two ELSE edges on one node
+        final DFAEdge else11 = new DFAEdge(node1, node1);
+        final DFAEdge else12 = new DFAEdge(node1, node2);
+        assertThrows(DFAValidationException.class, () -> controller.edit(tx -> {
+            tx.registerEdge(else11);
+            tx.registerEdge(else12);
+            tx.setElseEdge(else11, true);
+            tx.setElseEdge(else12, true);
+        }));
+        assertNull(node1.getElseEdge());
+        assertFalse(else11.isElseEdge());
+
+        // alphabet not registered in the DFA
+        assertThrows(DFAValidationException.class, () -> controller.edit(tx -> tx.registerEdgeAlphabet(edge12, "c")));
+        assertEquals(Set.of("a"), edge12.getAlphabets());
+    }
+
+    @Test
+    public void testRemoveAlphabetAndNode() throws DFAValidationException, NextNodeUndefException {
+        final DFANode node3 = new DFANode("NODE3");
+        final DFAEdge edge12 = new DFAEdge(node1, node2);
+        edge12.registerAllAlphabet("a", "b");
+        final DFAEdge edge23 = new DFAEdge(node2, node3, "a");
+        controller.edit(tx -> {
+            tx.registerAlphabet("a");
+            tx.registerAlphabet("b");
+            tx.registerNode(node1);
+            tx.registerNode(node2);
+            tx.registerNode(node3);
+            tx.registerEdge(edge12);
+            tx.registerEdge(edge23);
+            tx.setInitialNode(node1);
+        });
+
+        controller.edit(tx -> {
+            tx.unregisterAlphabet("b");
+            tx.removeNode(node3);
+        });
+        assertEquals(Set.of("a"), controller.getAlphabetSet());
+        assertEquals(Set.of("a"), edge12.getAlphabets());
+        assertEquals(1, controller.getEdgeSet().size());
+        assertTrue(node2.getEdges().isEmpty());
+        assertThrows(NextNodeUndefException.class, () -> controller.peek("b"));
+        assertEquals(node2, controller.next("a"));
+        assertThrows(NextNodeUndefException.class, () -> controller.next("a"));
+    }
+
+    @Test
+    public void testOverlappedRanges() throws DFAValidationException {
+        final DFAEdge lower = new DFAEdge(node1, node2);
+        final DFAEdge upper = new DFAEdge(node1, node1);
+        // Rejected, the range is not registered into the DFA.
+        assertThrows(DFAValidationException.class, () -> controller.edit(tx -> {
+            tx.registerNode(node1);
+            tx.registerNode(node2);
+            tx.registerEdge(lower);
+            tx.registerEdge(upper);
+            tx.registerEdgeRange(lower, AlphabetRange.of("a", "z"));
+        }));
+        assertTrue(lower.getRanges().isEmpty());
+        assertTrue(controller.getNodeSet().isEmpty());
+        controller.registerAlphabetRange(new AlphabetRange(0, 0x10FFFF));
+        controller.edit(tx -> {
+            tx.registerNode(node1);
+            tx.registerNode(node2);
+            tx.registerEdge(lower);
+            tx.registerEdge(upper);
+            tx.registerEdgeRange(lower, AlphabetRange.of("a", "z"));
+            tx.registerEdgeRange(upper, AlphabetRange.of("A", "Z"));
+        });
+        assertEquals(Set.of(AlphabetRange.of("a", "z")), lower.getRanges());
+
+        assertThrows(DFAValidationException.class, () -> controller.edit(tx -> tx.registerEdgeRange(upper, AlphabetRange.of("X", "b"))));
+        assertThrows(DFAValidationException.class, () -> controller.edit(tx -> tx.registerEdgeAlphabet(upper, "c")));
+        assertEquals(Set.of(AlphabetRange.of("A", "Z")), upper.getRanges());
+        assertTrue(upper.getAlphabets().isEmpty());
+    }
+}
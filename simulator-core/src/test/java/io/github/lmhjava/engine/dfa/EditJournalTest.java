@@ -0,0 +1,237 @@
+package io.github.lmhjava.engine.dfa;
+
+import io.github.lmhjava.engine.exception.JournalException;
+import io.github.lmhjava.engine.exception.NextNodeUndefException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test for the edit journal of DFA Controller
+public class EditJournalTest {
+
+    private EditJournal journal;
+    private DFANode node1;
+    private DFANode node2;
+
+    // A - (a) -> B - (ELSE) -> A, B accepted
+    @BeforeEach
+    public void init() {
+        journal = new EditJournal();
+        journal.registerAlphabet("a");
+        journal.registerAlphabet("b");
+        node1 = journal.addNode("A");
+        node2 = journal.addNode("B");
+        journal.setInitialNode(node1);
+        journal.setAccepted(node2, true);
+        journal.addEdge(node1, node2, "a");
+        journal.setElseEdge(journal.addEdge(node2, node1), true);
+    }
+
+    // every node with its edges, independent of the object identities
+    private static String describe(DFAController controller) {
+        final Set<String> lines = new TreeSet<>();
+        controller.getNodeSet().forEach((DFANode node) -> lines.add(String.format("node %s accepted=%b initial=%b",
+                node.getContent(), node.isAccepted(), node == controller.getInitialNode())));
+        controller.getEdgeSet().forEach((DFAEdge edge) -> lines.add(String.format("edge %s %s %s %s else=%b",
+                edge.getTail().getContent(), edge.getHead().getContent(), new TreeSet<>(edge.getAlphabets()),
+                new TreeSet<>(edge.getRanges()), edge.isElseEdge())));
+        lines.add("alphabets " + new TreeSet<>(controller.getAlphabetSet()));
+        lines.add("ranges " + new TreeSet<>(controller.getAlphabetRanges()));
+        return String.join("\n", lines);
+    }
+
+    private static EditJournal replay(EditJournal journal) throws IOException, JournalException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        journal.appendTo(out);
+        return EditJournal.replay(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    @Test
+    public void testUndoRedo() throws NextNodeUndefException {
+        final DFAController controller = journal.getController();
+        final String built = describe(controller);
+        assertEquals(9, journal.getStepCount());
+
+        // removing A removes both edges in one step
+        assertTrue(journal.removeNode(node1));
+        assertEquals(1, controller.getNodeSet().size());
+        assertTrue(controller.getEdgeSet().isEmpty());
+        assertNull(controller.getInitialNode());
+        assertTrue(journal.undo());
+        assertEquals(built, describe(controller));
+        assertEquals(node1, controller.getInitialNode());
+        assertEquals(node2, controller.next("a"));
+        assertEquals(node1, controller.next("b"));
+
+        // back to the empty DFA, and forward again
+        while (journal.canUndo()) {
+            journal.undo();
+        }
+        assertTrue(controller.getNodeSet().isEmpty());
+        assertTrue(controller.getAlphabetSet().isEmpty());
+        assertFalse(journal.undo());
+        while (journal.canRedo()) {
+            journal.redo();
+        }
+        assertEquals(10, journal.getPosition());
+        assertEquals(1, controller.getNodeSet().size());
+        journal.undo();
+        assertEquals(built, describe(controller));
+
+        // an edit after undo drops the redo branch
+        journal.undo();
+        assertTrue(journal.setAccepted(node1, true));
+        assertFalse(journal.canRedo());
+        assertEquals(9, journal.getStepCount());
+        assertTrue(node1.isAccepted());
+        assertNull(node2.getElseEdge());
+    }
+
+    @Test
+    public void testRejectedEdits() {
+        final long bytes = journal.getByteCount();
+        // "c" is not registered, "a" is taken by A -> B, and B has an ELSE edge already
+        assertNull(journal.addEdge(node1, node1, "c"));
+        assertNull(journal.addEdge(node1, node1, "a"));
+        assertFalse(journal.setElseEdge(journal.addEdge(node2, node2, "b"), true));
+        assertFalse(journal.setAccepted(node2, true));
+        assertFalse(journal.addEdgeAlphabet(node2.getEdge("b"), "b"));
+        // only the edge B -> B is recorded
+        assertEquals(10, journal.getStepCount());
+        assertTrue(journal.getByteCount() > bytes);
+        assertFalse(journal.removeNode(new DFANode("C")));
+    }
+
+    @Test
+    public void testReplay() throws IOException, JournalException, NextNodeUndefException {
+        journal.registerAlphabetRange(new AlphabetRange('0', '9'));
+        final DFAEdge edge = node1.getEdge("a");
+        assertTrue(journal.addEdgeRange(edge, new AlphabetRange('0', '4')));
+        assertTrue(journal.addEdgeAlphabet(edge, "b"));
+        assertTrue(journal.removeEdgeAlphabet(edge, "a"));
+        journal.undo();
+        journal.undo();
+        journal.redo();
+
+        final EditJournal replayed = replay(journal);
+        assertEquals(describe(journal.getController()), describe(replayed.getController()));
+        assertEquals(journal.getByteCount(), replayed.getByteCount());
+        assertEquals(journal.getPosition(), replayed.getPosition());
+        assertEquals(journal.getStepCount(), replayed.getStepCount());
+        final DFAController controller = replayed.getController();
+        assertEquals("B", controller.next("3").getContent());
+        assertEquals("A", controller.next("b").getContent());
+        assertEquals("B", controller.next("a").getContent());
+
+        // the history survives the replay
+        assertTrue(replayed.redo());
+        assertEquals(Set.of("b"), replayed.getNode(0).getEdge("b").getAlphabets());
+        while (replayed.canUndo()) {
+            replayed.undo();
+        }
+        assertTrue(controller.getNodeSet().isEmpty());
+    }
+
+    @Test
+    public void testAppend() throws IOException, JournalException {
+        final ByteArrayOutputStream file = new ByteArrayOutputStream();
+        journal.appendTo(file);
+        final String before = describe(journal.getController());
+        final int byteCount = journal.getByteCount();
+        final int stepCount = journal.getStepCount();
+        journal.removeNode(node2);
+        journal.undo();
+        final int count = journal.appendTo(file);
+        // STEP, two EDGE_REMOVE, NODE_REMOVE, STEP_END, UNDO
+        assertEquals(10, count);
+        assertEquals(0, journal.appendTo(file));
+        assertEquals(describe(journal.getController()), describe(EditJournal.replay(new ByteArrayInputStream(file.toByteArray())).getController()));
+
+        // a crash before the end of the step drops the whole step, not only its last record
+        final byte[] bytes = file.toByteArray();
+        for (int cut = 2; cut <= 9; cut++) {
+            final EditJournal truncated = EditJournal.replay(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - cut)));
+            assertEquals(byteCount, truncated.getByteCount());
+            assertEquals(stepCount, truncated.getStepCount());
+            assertEquals(stepCount, truncated.getPosition());
+            assertEquals(before, describe(truncated.getController()));
+        }
+        // a crash before the UNDO only loses the UNDO
+        final EditJournal beforeUndo = EditJournal.replay(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1)));
+        assertEquals(bytes.length - 1, beforeUndo.getByteCount());
+        assertEquals(1, beforeUndo.getController().getNodeSet().size());
+
+        // the steps undone before the dropped step can be redone again
+        journal.addNode("C");
+        journal.appendTo(file);
+        final byte[] redoBytes = file.toByteArray();
+        final EditJournal redone = EditJournal.replay(new ByteArrayInputStream(Arrays.copyOf(redoBytes, redoBytes.length - 1)));
+        assertTrue(redone.canRedo());
+        assertTrue(redone.redo());
+        assertEquals(1, redone.getController().getNodeSet().size());
+
+        assertThrows(JournalException.class, () -> EditJournal.replay(new ByteArrayInputStream("garbage".getBytes())));
+        bytes[bytes.length - 1] = 99;
+        assertThrows(JournalException.class, () -> EditJournal.replay(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    public void testCorruptedJournal() throws IOException, JournalException {
+        final ByteArrayOutputStream file = new ByteArrayOutputStream();
+        new EditJournal().appendTo(file);
+        final byte[] header = file.toByteArray();
+        // STEP, then a SYMBOL of length -1 as a 5-byte varint
+        final byte[] negativeSymbol = concat(header, new byte[]{1, 4, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F, 'a', 18});
+        assertThrows(JournalException.class, () -> EditJournal.replay(new ByteArrayInputStream(negativeSymbol)));
+        // a varint longer than 5 bytes
+        final byte[] longVarint = concat(header, new byte[]{1, 4, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 1, 'a', 18});
+        assertThrows(JournalException.class, () -> EditJournal.replay(new ByteArrayInputStream(longVarint)));
+        // STEP, NODE_ADD 0, NODE_ADD 1, then EDGE_ADD 0 0 1 with a negative count
+        final byte[] negativeCount = concat(header, new byte[]{1, 5, 0, 0, 18, 1, 5, 1, 0, 18,
+                1, 9, 0, 0, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F, 0, 18});
+        assertThrows(JournalException.class, () -> EditJournal.replay(new ByteArrayInputStream(negativeCount)));
+
+        // a count past the end of the journal reads as a cut record, its step is dropped without allocating it
+        final byte[] hugeCount = concat(header, new byte[]{1, 5, 0, 0, 18, 1, 5, 1, 0, 18,
+                1, 9, 0, 0, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0, 18});
+        final EditJournal replayed = EditJournal.replay(new ByteArrayInputStream(hugeCount));
+        assertEquals(2, replayed.getController().getNodeSet().size());
+        assertTrue(replayed.getController().getEdgeSet().isEmpty());
+        assertEquals(header.length + 10, replayed.getByteCount());
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        final byte[] bytes = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, bytes, first.length, second.length);
+        return bytes;
+    }
+
+    @Test
+    public void testLargeJournal() throws IOException, JournalException {
+        final EditJournal large = new EditJournal();
+        large.registerAlphabet("a");
+        DFANode previous = large.addNode(null);
+        for (int i = 0; i < 100_000; i++) {
+            final DFANode node = large.addNode(null);
+            large.addEdge(previous, node, "a");
+            previous = node;
+        }
+        // ids take 3 bytes here, NODE_ADD about 7 bytes and EDGE_ADD about 14 bytes with their STEP and STEP_END
+        assertTrue(large.getByteCount() < 100_000 * 22, "bytes " + large.getByteCount());
+        final EditJournal replayed = replay(large);
+        assertEquals(100_001, replayed.getController().getNodeSet().size());
+        assertEquals(100_000, replayed.getController().getEdgeSet().size());
+        assertEquals(Set.of(1), replayed.getController().getEdgeSet().stream()
+                .map((DFAEdge e) -> replayed.getNodeId(e.getHead()) - replayed.getNodeId(e.getTail()))
+                .collect(Collectors.toSet()));
+    }
+}
@@ -0,0 +1,121 @@
+package io.github.lmhjava.engine.io;
+
+import io.github.lmhjava.engine.compiled.CompiledDFA;
+import io.github.lmhjava.engine.dfa.AlphabetRange;
+import io.github.lmhjava.engine.dfa.DFAController;
+import io.github.lmhjava.engine.dfa.DFAEdge;
+import io.github.lmhjava.engine.dfa.DFANode;
+import io.github.lmhjava.engine.exception.DFAFormatException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test for the DFA text format
+public class DFAFormatTest {
+
+    private static final String TEXT = String.join("\n",
+            "# a number, or the keyword \"begin\"",
+            "alphabet a b begin \":\"",
+            "range U+0030 U+0039",
+            "node start initial",
+            "node num label \"a number\" accepted output 2 at 120.0 40.5",
+            "node kw accepted",
+            "edge start num range 48 57",
+            "edge num num range U+0030 U+0039",
+            "edge start kw output 7 : begin \":\"   # trailing comment",
+            "");
+
+    private DFADocument document;
+
+    @BeforeEach
+    public void init() throws IOException, DFAFormatException {
+        document = DFAFormat.read(new StringReader(TEXT));
+    }
+
+    @Test
+    public void testRead() {
+        final DFAController controller = document.getController();
+        assertEquals(List.of("start", "num", "kw"), List.copyOf(document.getNodes().keySet()));
+        assertEquals(document.getNode("start"), controller.getInitialNode());
+        assertEquals("a number", document.getNode("num").getContent());
+        assertEquals(2, document.getNode("num").getOutput());
+        assertArrayEquals(new double[]{120.0, 40.5}, document.getPosition(document.getNode("num")));
+        assertNull(document.getPosition(document.getNode("kw")));
+        assertEquals(Set.of("a", "b", "begin", ":"), controller.getAlphabetSet());
+
+        final CompiledDFA dfa = CompiledDFA.compile(controller);
+        assertTrue(dfa.accepts("2023"));
+        assertTrue(dfa.accepts(List.of("begin")));
+        assertTrue(dfa.accepts(List.of(":")));
+        assertFalse(dfa.accepts(List.of("begin", "begin")));
+        assertFalse(dfa.accepts("a"));
+        assertEquals(7, document.getNode("start").getEdge("begin").getOutput());
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException, DFAFormatException {
+        final DFAController controller = document.getController();
+        final DFANode loop = new DFANode("odd \"name\"");
+        controller.registerNode(loop);
+        final DFAEdge elseEdge = new DFAEdge(document.getNode("kw"), loop);
+        elseEdge.setElseEdge(true);
+        assertTrue(controller.registerEdge(elseEdge));
+
+        final StringWriter first = new StringWriter();
+        DFAFormat.write(controller, (DFANode node) -> node == loop ? new double[]{1, 2} : null, first);
+        final DFADocument copy = DFAFormat.read(new StringReader(first.toString()));
+        final StringWriter second = new StringWriter();
+        DFAFormat.write(copy.getController(), (DFANode node) -> copy.getPosition(node), second);
+        // written the same way, the initial node first
+        assertEquals(first.toString(), second.toString());
+        assertTrue(first.toString().startsWith("alphabet \":\" a b begin\nrange U+0030 U+0039\nnode q0 label start initial\n"));
+
+        final CompiledDFA dfa = CompiledDFA.compile(copy.getController());
+        assertTrue(dfa.accepts("42"));
+        assertFalse(dfa.accepts(List.of("begin", "a")));
+        final DFANode copiedLoop = copy.getController().getNodeSet().stream()
+                .filter((DFANode n) -> n.getContent().equals("odd \"name\"")).findFirst().orElseThrow();
+        assertArrayEquals(new double[]{1, 2}, copy.getPosition(copiedLoop));
+    }
+
+    @Test
+    public void testErrors() {
+        assertError("node a\nnode a", 2);
+        assertError("node a\nedge a b : x", 2);
+        assertError("vertex a", 1);
+        assertError("node a output x", 1);
+        assertError("range U+0039 U+0030", 1);
+        assertError("alphabet \"a", 1);
+        assertError("node a initial\nnode b initial", 2);
+        // not deterministic, reported as a whole
+        final DFAFormatException e = assertThrows(DFAFormatException.class, () -> DFAFormat.read(new StringReader(
+                "alphabet a\nnode p\nnode q\nedge p q : a\nedge p p : a")));
+        assertTrue(e.getMessage().startsWith("Invalid DFA"));
+        // the alphabet is not registered
+        assertThrows(DFAFormatException.class, () -> DFAFormat.read(new StringReader("node p\nedge p p : a")));
+        assertThrows(DFAFormatException.class, () -> DFAFormat.read(new StringReader(
+                "node p\nedge p p range U+0030 U+0031")));
+    }
+
+    private static void assertError(String text, int line) {
+        final DFAFormatException e = assertThrows(DFAFormatException.class, () -> DFAFormat.read(new StringReader(text)));
+        assertTrue(e.getMessage().endsWith("at line " + line), e.getMessage());
+    }
+
+    @Test
+    public void testQuote() {
+        assertEquals("abc", DFAFormat.quote("abc"));
+        assertEquals("\"a b\"", DFAFormat.quote("a b"));
+        assertEquals("\"\"", DFAFormat.quote(""));
+        assertEquals("\"\\\"\\\\\\n\"", DFAFormat.quote("\"\\\n"));
+        assertEquals("\"#\"", DFAFormat.quote("#"));
+        assertEquals(new AlphabetRange(48, 57), document.getController().getAlphabetRanges().iterator().next());
+    }
+}
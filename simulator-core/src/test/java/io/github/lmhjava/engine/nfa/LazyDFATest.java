@@ -0,0 +1,149 @@
+package io.github.lmhjava.engine.nfa;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test for NFA graphs and the lazy DFA runner
+public class LazyDFATest {
+
+    private NFAController controller;
+
+    // (a|b)* a (a|b){n}, i.e. the (n+1)-th symbol from the end is "a"
+    // a full DFA of it needs 2^(n+1) states
+    //
+    // S - (a, b) -> S
+    // S - (a) -> N0 - (a, b) -> N1 - ... -> Nn (accepted)
+    private static NFAController nthFromEnd(int n) {
+        final NFAController controller = new NFAController();
+        controller.registerAlphabet(Set.of("a", "b"));
+        final NFANode start = new NFANode("S");
+        controller.registerNode(start);
+        controller.setInitialNode(start);
+        final NFAEdge loop = new NFAEdge(start, start);
+        loop.registerAllAlphabet("a", "b");
+        controller.registerEdge(loop);
+        NFANode previous = new NFANode("N0");
+        controller.registerNode(previous);
+        controller.registerEdge(new NFAEdge(start, previous, "a"));
+        for (int i = 1; i <= n; i++) {
+            final NFANode node = new NFANode("N" + i);
+            controller.registerNode(node);
+            final NFAEdge edge = new NFAEdge(previous, node);
+            edge.registerAllAlphabet("a", "b");
+            controller.registerEdge(edge);
+            previous = node;
+        }
+        previous.setAccepted(true);
+        return controller;
+    }
+
+    @BeforeEach
+    public void init() {
+        controller = nthFromEnd(3);
+    }
+
+    @Test
+    public void testNFAController() {
+        final NFANode node = new NFANode("X");
+        // unregistered node and alphabet are rejected
+        assertFalse(controller.registerEdge(new NFAEdge(controller.getInitialNode(), node, "a")));
+        controller.registerNode(node);
+        assertFalse(controller.registerEdge(new NFAEdge(controller.getInitialNode(), node, "c")));
+        assertTrue(controller.registerEdge(NFAEdge.epsilon(controller.getInitialNode(), node)));
+
+        final NFA nfa = controller.toNFA();
+        assertEquals(6, nfa.getStateCount());
+        assertEquals(List.of("a", "b"), controller.getAlphabets());
+
+        controller.removeNode(node);
+        assertEquals(5, controller.getNodeSet().size());
+        assertEquals(5, controller.getEdgeSet().size());
+    }
+
+    @Test
+    public void testEpsilonEdges() {
+        // A - (eps) -> B - (a) -> C (accepted), A - (b) -> C
+        final NFAController nfa = new NFAController();
+        nfa.registerAlphabet(Set.of("a", "b"));
+        final NFANode a = new NFANode("A");
+        final NFANode b = new NFANode("B");
+        final NFANode c = new NFANode("C");
+        c.setAccepted(true);
+        nfa.registerNode(a);
+        nfa.registerNode(b);
+        nfa.registerNode(c);
+        nfa.setInitialNode(a);
+        nfa.registerEdge(NFAEdge.epsilon(a, b));
+        nfa.registerEdge(new NFAEdge(b, c, "a"));
+        nfa.registerEdge(new NFAEdge(a, c, "b"));
+
+        final LazyDFA lazy = new LazyDFA(nfa, 1 << 16);
+        assertTrue(lazy.accepts(List.of("a")));
+        assertTrue(lazy.accepts(List.of("b")));
+        assertFalse(lazy.accepts(List.of("a", "a")));
+        assertFalse(lazy.accepts(List.of()));
+        assertFalse(lazy.accepts(List.of("c")));
+    }
+
+    @Test
+    public void testSameAsSubsetConstruction() {
+        final NFA nfa = controller.toNFA();
+        final DFATable table = SubsetConstruction.determinize(nfa);
+        assertEquals(16, table.minimize().getStateCount());
+        // a tiny cache which is flushed all the time
+        final LazyDFA lazy = new LazyDFA(nfa, 0);
+        final Random random = new Random(30);
+        for (int round = 0; round < 500; round++) {
+            final int[] symbols = new int[random.nextInt(12)];
+            for (int i = 0; i < symbols.length; i++) {
+                symbols[i] = random.nextInt(2);
+            }
+            assertEquals(table.accepts(symbols), lazy.accepts(symbols));
+        }
+        assertTrue(lazy.getFlushCount() > 0);
+        assertTrue(lazy.getCachedStateCount() <= 4);
+    }
+
+    @Test
+    public void testExponentialNFA() {
+        // 2^21 states if fully determinized
+        final NFA nfa = nthFromEnd(20).toNFA();
+        assertThrows(IllegalStateException.class, () -> SubsetConstruction.determinize(nfa, 10_000));
+
+        final LazyDFA lazy = new LazyDFA(nfa, 1 << 20);
+        final int[] input = new int[10_000];
+        final Random random = new Random(31);
+        for (int i = 0; i < input.length; i++) {
+            input[i] = random.nextInt(2);
+        }
+        input[input.length - 21] = 0;
+        assertTrue(lazy.accepts(input));
+        input[input.length - 21] = 1;
+        assertFalse(lazy.accepts(input));
+        assertTrue(lazy.getCacheBytes() <= 1 << 20);
+    }
+
+    @Test
+    public void testCacheHits() {
+        final LazyDFA lazy = new LazyDFA(controller, 1 << 16);
+        final int[] input = {0, 1, 1, 0, 1, 0, 0, 1};
+        lazy.accepts(input);
+        assertEquals(0, lazy.getCacheHits());
+        assertEquals(input.length, lazy.getCacheMisses());
+        lazy.accepts(input);
+        assertEquals(input.length, lazy.getCacheHits());
+        assertEquals(0.5, lazy.getHitRate());
+        assertEquals(0, lazy.getFlushCount());
+
+        lazy.resetStatistics();
+        lazy.flush();
+        assertEquals(0, lazy.getCachedStateCount());
+        assertTrue(lazy.accepts(0, 1, 1, 1));
+    }
+}
@@ -0,0 +1,134 @@
+package io.github.lmhjava.engine.regex;
+
+import io.github.lmhjava.engine.dfa.DFAController;
+import io.github.lmhjava.engine.exception.NextNodeUndefException;
+import io.github.lmhjava.engine.exception.RegexSyntaxException;
+import io.github.lmhjava.engine.nfa.DFATable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test for the regex to DFA compiler
+public class RegexCompilerTest {
+
+    private RegexCompiler compiler;
+
+    @BeforeEach
+    public void init() {
+        compiler = new RegexCompiler(Set.of("a", "b", "c", "0", "1", "_", "begin"));
+    }
+
+    private static boolean run(DFAController controller, List<String> input) {
+        controller.reset();
+        try {
+            for (String alphabet : input) {
+                controller.next(alphabet);
+            }
+        } catch (NextNodeUndefException e) {
+            return false;
+        }
+        return controller.onAcceptState();
+    }
+
+    @Test
+    public void testClassesAndAlternation() throws RegexSyntaxException {
+        final DFAController dfa = compiler.compile("[a-b]\\d|<begin>_?");
+        assertTrue(run(dfa, List.of("a", "0")));
+        assertTrue(run(dfa, List.of("b", "1")));
+        assertTrue(run(dfa, List.of("begin")));
+        assertTrue(run(dfa, List.of("begin", "_")));
+        assertFalse(run(dfa, List.of("c", "0")));
+        assertFalse(run(dfa, List.of("a")));
+        assertFalse(run(dfa, List.of("begin", "_", "_")));
+        assertEquals(Set.of("a", "b", "c", "0", "1", "_", "begin"), dfa.getAlphabetSet());
+        assertEquals("q0", dfa.getInitialNode().getContent());
+    }
+
+    @Test
+    public void testStarAndNegatedClass() throws RegexSyntaxException {
+        final DFAController dfa = compiler.compile("(ab)*[^ab]");
+        assertTrue(run(dfa, List.of("c")));
+        assertTrue(run(dfa, List.of("a", "b", "a", "b", "begin")));
+        assertFalse(run(dfa, List.of("a", "b", "a")));
+        assertFalse(run(dfa, List.of("a", "b", "b")));
+    }
+
+    @Test
+    public void testBoundedRepetition() throws RegexSyntaxException {
+        final DFATable table = compiler.compileTable("a{2,4}", true);
+        final int a = compiler.getAlphabets().indexOf("a");
+        assertFalse(table.accepts(a));
+        assertTrue(table.accepts(a, a));
+        assertTrue(table.accepts(a, a, a, a));
+        assertFalse(table.accepts(a, a, a, a, a));
+        // 0 to 4 "a"s read
+        assertEquals(5, table.getStateCount());
+
+        final DFATable atLeast = compiler.compileTable("a{3,}", true);
+        assertFalse(atLeast.accepts(a, a));
+        assertTrue(atLeast.accepts(a, a, a, a, a, a, a));
+        assertEquals(4, atLeast.getStateCount());
+    }
+
+    @Test
+    public void testMinimization() throws RegexSyntaxException {
+        // (a|b)*abb, the classic example with 4 minimal states
+        final DFATable raw = compiler.compileTable("(a|b)*abb", false);
+        final DFATable minimal = compiler.compileTable("(a|b)*abb", true);
+        assertTrue(raw.getStateCount() >= minimal.getStateCount());
+        assertEquals(4, minimal.getStateCount());
+        assertEquals(4, compiler.compile("(a|b)*abb").getNodeSet().size());
+
+        // empty language keeps a single rejecting node
+        final DFATable empty = compiler.compileTable("[^\\w\\W]", true);
+        assertEquals(1, empty.getStateCount());
+        assertFalse(empty.accepts());
+    }
+
+    @Test
+    public void testSyntaxErrors() {
+        assertThrows(RegexSyntaxException.class, () -> compiler.compile("(ab"));
+        assertThrows(RegexSyntaxException.class, () -> compiler.compile("ab)"));
+        assertThrows(RegexSyntaxException.class, () -> compiler.compile("*a"));
+        assertThrows(RegexSyntaxException.class, () -> compiler.compile("a{3,2}"));
+        assertThrows(RegexSyntaxException.class, () -> compiler.compile("a{5000}"));
+        assertThrows(RegexSyntaxException.class, () -> compiler.compile("[ab"));
+        assertThrows(RegexSyntaxException.class, () -> compiler.compile("<end>"));
+        assertThrows(RegexSyntaxException.class, () -> compiler.compile("\\q"));
+        // "z" is not registered
+        final RegexSyntaxException e = assertThrows(RegexSyntaxException.class, () -> compiler.compile("abz"));
+        assertTrue(e.getMessage().contains("index 2"));
+    }
+
+    // random regexes over {a, b, c} are checked against java.util.regex
+    @Test
+    public void testAgainstJavaRegex() throws RegexSyntaxException {
+        final RegexCompiler abc = new RegexCompiler(Set.of("a", "b", "c"));
+        final Random random = new Random(29);
+        final String[] pieces = {"a", "b", "c", ".", "[ab]", "[^a]", "(a|bc)", "(ab)*", "c?", "b+", "a{1,2}", "(a|b){2}"};
+        for (int round = 0; round < 200; round++) {
+            final StringBuilder regex = new StringBuilder();
+            final int length = 1 + random.nextInt(4);
+            for (int i = 0; i < length; i++) {
+                regex.append(pieces[random.nextInt(pieces.length)]);
+            }
+            final DFATable table = abc.compileTable(regex.toString(), random.nextBoolean());
+            final Pattern pattern = Pattern.compile(regex.toString());
+            for (int sample = 0; sample < 30; sample++) {
+                final int[] symbols = new int[random.nextInt(7)];
+                final StringBuilder text = new StringBuilder();
+                for (int i = 0; i < symbols.length; i++) {
+                    symbols[i] = random.nextInt(3);
+                    text.append(abc.getAlphabets().get(symbols[i]));
+                }
+                assertEquals(pattern.matcher(text).matches(), table.accepts(symbols), regex + " on " + text);
+            }
+        }
+    }
+}
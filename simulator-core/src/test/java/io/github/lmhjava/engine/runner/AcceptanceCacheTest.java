@@ -0,0 +1,111 @@
+package io.github.lmhjava.engine.runner;
+
+import io.github.lmhjava.engine.dfa.DFAController;
+import io.github.lmhjava.engine.dfa.DFAEdge;
+import io.github.lmhjava.engine.dfa.DFANode;
+import io.github.lmhjava.engine.exception.NextNodeUndefException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test for versioned acceptance caches
+public class AcceptanceCacheTest {
+
+    private DFAController controller;
+    private DFANode node1;
+    private DFANode node2;
+    private DFAEdge edge12;
+
+    // A - (a) -> B (accepted)
+    @BeforeEach
+    public void init() {
+        controller = new DFAController();
+        node1 = new DFANode("A");
+        node2 = new DFANode("B");
+        node2.setAccepted(true);
+        controller.registerAlphabet(Set.of("a", "b"));
+        controller.registerNode(node1);
+        controller.registerNode(node2);
+        controller.setInitialNode(node1);
+        edge12 = new DFAEdge(node1, node2, "a");
+        assertTrue(controller.registerEdge(edge12));
+    }
+
+    @Test
+    public void testVersion() throws NextNodeUndefException {
+        long version = controller.getVersion();
+        edge12.registerAlphabet("b");
+        assertTrue(controller.getVersion() > version);
+
+        version = controller.getVersion();
+        node2.setAccepted(false);
+        assertTrue(controller.getVersion() > version);
+
+        // moving between nodes is not a modification
+        version = controller.getVersion();
+        controller.reset();
+        controller.peek("a");
+        assertEquals(version, controller.getVersion());
+
+        // a removed node no longer bumps the controller
+        controller.removeNode(node2);
+        version = controller.getVersion();
+        node2.setAccepted(true);
+        assertEquals(version, controller.getVersion());
+
+        // both the clone and the original see edits of shared nodes
+        final DFAController clone = controller.cloneDFA();
+        final long cloneVersion = clone.getVersion();
+        version = controller.getVersion();
+        node1.setAccepted(true);
+        assertTrue(clone.getVersion() > cloneVersion);
+        assertTrue(controller.getVersion() > version);
+    }
+
+    @Test
+    public void testHitsAndInvalidation() {
+        final AcceptanceCache cache = new AcceptanceCache(controller, 16);
+        final List<String> input = new ArrayList<>(List.of("a"));
+        assertTrue(cache.accepts(input));
+        assertTrue(cache.accepts(List.of("a")));
+        assertFalse(cache.accepts(List.of("b")));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        // modifying the input list does not corrupt the cache
+        input.set(0, "b");
+        assertTrue(cache.accepts(List.of("a")));
+        assertEquals(2, cache.getHits());
+
+        // edits drop the old results
+        edge12.registerAlphabet("b");
+        assertTrue(cache.accepts(List.of("b")));
+        assertEquals(1, cache.size());
+        node2.setAccepted(false);
+        assertFalse(cache.accepts(List.of("a")));
+        assertFalse(cache.accepts(List.of()));
+        // the controller is never moved
+        assertNull(controller.getCurrentNode());
+    }
+
+    @Test
+    public void testEviction() {
+        final AcceptanceCache cache = new AcceptanceCache(controller, 2);
+        cache.accepts(List.of("a"));
+        cache.accepts(List.of("b"));
+        // "a" is the most recently used
+        cache.accepts(List.of("a"));
+        cache.accepts(List.of("a", "a"));
+        assertEquals(2, cache.size());
+        final long misses = cache.getMisses();
+        cache.accepts(List.of("a"));
+        assertEquals(misses, cache.getMisses());
+        cache.accepts(List.of("b"));
+        assertEquals(misses + 1, cache.getMisses());
+    }
+}
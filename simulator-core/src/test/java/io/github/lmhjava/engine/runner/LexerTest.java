@@ -0,0 +1,107 @@
+package io.github.lmhjava.engine.runner;
+
+import io.github.lmhjava.engine.dfa.AlphabetRange;
+import io.github.lmhjava.engine.dfa.DFAController;
+import io.github.lmhjava.engine.dfa.DFAEdge;
+import io.github.lmhjava.engine.dfa.DFANode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test for longest-match lexers
+public class LexerTest {
+    private static final int IDENTIFIER = 1;
+    private static final int NUMBER = 2;
+    private static final int ASSIGN = 3;
+    private static final int EQUALS = 4;
+    private static final int SPACE = 5;
+
+    private DFAController controller;
+    private DFANode identifier;
+    private DFANode number;
+    private DFANode assign;
+    private DFANode equals;
+
+    //   S - ([a-z]) -> ID - ([a-z0-9]) -> ID
+    //   S - ([0-9]) -> NUM - ([0-9]) -> NUM
+    //   S - (=) -> ASSIGN - (=) -> EQUALS
+    //   S - (" ") -> SPACE
+    @BeforeEach
+    public void init() {
+        controller = new DFAController();
+        final DFANode start = new DFANode("S");
+        identifier = new DFANode("ID");
+        number = new DFANode("NUM");
+        assign = new DFANode("ASSIGN");
+        equals = new DFANode("EQUALS");
+        final DFANode space = new DFANode("SPACE");
+        for (DFANode node : List.of(identifier, number, assign, equals, space)) {
+            node.setAccepted(true);
+        }
+        space.setOutput(SPACE);
+        controller.registerAlphabet("=");
+        controller.registerAlphabet(" ");
+        controller.registerAlphabetRange(AlphabetRange.of("a", "z"));
+        controller.registerAlphabetRange(AlphabetRange.of("0", "9"));
+        for (DFANode node : List.of(start, identifier, number, assign, equals, space)) {
+            controller.registerNode(node);
+        }
+        controller.setInitialNode(start);
+        final DFAEdge identifierLoop = new DFAEdge(identifier, identifier, AlphabetRange.of("a", "z"));
+        identifierLoop.registerRange(AlphabetRange.of("0", "9"));
+        assertTrue(controller.registerEdge(new DFAEdge(start, identifier, AlphabetRange.of("a", "z"))));
+        assertTrue(controller.registerEdge(identifierLoop));
+        assertTrue(controller.registerEdge(new DFAEdge(start, number, AlphabetRange.of("0", "9"))));
+        assertTrue(controller.registerEdge(new DFAEdge(number, number, AlphabetRange.of("0", "9"))));
+        assertTrue(controller.registerEdge(new DFAEdge(start, assign, "=")));
+        assertTrue(controller.registerEdge(new DFAEdge(assign, equals, "=")));
+        assertTrue(controller.registerEdge(new DFAEdge(start, space, " ")));
+    }
+
+    private Lexer lexer() {
+        return new Lexer(controller, Map.of(identifier, IDENTIFIER, number, NUMBER, assign, ASSIGN, equals, EQUALS));
+    }
+
+    @Test
+    public void testLongestMatch() {
+        final String text = "x1 = 42 == y";
+        final List<int[]> tokens = new ArrayList<>();
+        final int count = lexer().tokenize(text, (int type, int start, int end) -> tokens.add(new int[]{type, start, end}));
+        assertEquals(9, count);
+        assertArrayEquals(new int[]{IDENTIFIER, 0, 2}, tokens.get(0));
+        assertArrayEquals(new int[]{SPACE, 2, 3}, tokens.get(1));
+        assertArrayEquals(new int[]{ASSIGN, 3, 4}, tokens.get(2));
+        assertArrayEquals(new int[]{NUMBER, 5, 7}, tokens.get(4));
+        assertArrayEquals(new int[]{EQUALS, 8, 10}, tokens.get(6));
+        assertArrayEquals(new int[]{IDENTIFIER, 11, 12}, tokens.get(8));
+    }
+
+    @Test
+    public void testErrorTokens() {
+        final List<int[]> tokens = new ArrayList<>();
+        // "#" and the emoji are not tokens, the emoji is one code point of two chars
+        lexer().tokenize("a#😀b", (int type, int start, int end) -> tokens.add(new int[]{type, start, end}));
+        assertEquals(4, tokens.size());
+        assertArrayEquals(new int[]{Lexer.ERROR_TOKEN, 1, 2}, tokens.get(1));
+        assertArrayEquals(new int[]{Lexer.ERROR_TOKEN, 2, 4}, tokens.get(2));
+        assertArrayEquals(new int[]{IDENTIFIER, 4, 5}, tokens.get(3));
+    }
+
+    @Test
+    public void testAlphabetList() {
+        final List<int[]> tokens = new ArrayList<>();
+        // the output of the space node is the default type
+        final int count = new Lexer(controller).tokenize(List.of("a", "b", " ", "=", "=", "="),
+                (int type, int start, int end) -> tokens.add(new int[]{type, start, end}));
+        assertEquals(4, count);
+        assertArrayEquals(new int[]{Lexer.DEFAULT_TOKEN, 0, 2}, tokens.get(0));
+        assertArrayEquals(new int[]{SPACE, 2, 3}, tokens.get(1));
+        assertArrayEquals(new int[]{Lexer.DEFAULT_TOKEN, 3, 5}, tokens.get(2));
+        assertArrayEquals(new int[]{Lexer.DEFAULT_TOKEN, 5, 6}, tokens.get(3));
+    }
+}
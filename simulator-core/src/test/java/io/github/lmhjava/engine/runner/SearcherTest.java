@@ -0,0 +1,120 @@
+package io.github.lmhjava.engine.runner;
+
+import io.github.lmhjava.engine.compiled.CompiledDFA;
+import io.github.lmhjava.engine.exception.RegexSyntaxException;
+import io.github.lmhjava.engine.regex.RegexCompiler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test for unanchored searches
+public class SearcherTest {
+
+    private RegexCompiler compiler;
+
+    @BeforeEach
+    public void init() {
+        compiler = new RegexCompiler(Set.of("a", "b", "c", "E", "R", "O", ":", " "));
+    }
+
+    private static List<int[]> search(Searcher searcher, String text) {
+        final List<int[]> matches = new ArrayList<>();
+        final int count = searcher.search(text, (int start, int end) -> matches.add(new int[]{start, end}));
+        assertEquals(matches.size(), count);
+        return matches;
+    }
+
+    // earliest end, leftmost start, optionally extended to the longest, non-overlapping
+    private static List<int[]> bruteForce(CompiledDFA dfa, String text, boolean isLongest) {
+        final List<int[]> matches = new ArrayList<>();
+        int restart = 0;
+        outer:
+        for (int end = 1; end <= text.length(); end++) {
+            for (int start = restart; start < end; start++) {
+                if (dfa.accepts(text.substring(start, end))) {
+                    int longest = end;
+                    if (isLongest) {
+                        for (int e = end + 1; e <= text.length(); e++) {
+                            if (dfa.accepts(text.substring(start, e))) longest = e;
+                        }
+                    }
+                    matches.add(new int[]{start, longest});
+                    restart = longest;
+                    end = longest;
+                    continue outer;
+                }
+            }
+        }
+        return matches;
+    }
+
+    @Test
+    public void testFindAll() throws RegexSyntaxException {
+        final CompiledDFA dfa = CompiledDFA.compile(compiler.compile("ERROR:( [abc]+)?"));
+        final String log = "a ERROR: b ERRERROR: abc c ERROR";
+        final List<int[]> earliest = search(new Searcher(dfa, false, Searcher.DEFAULT_CACHE_BYTES), log);
+        assertEquals(2, earliest.size());
+        assertArrayEquals(new int[]{2, 8}, earliest.get(0));
+        assertArrayEquals(new int[]{14, 20}, earliest.get(1));
+
+        final List<int[]> longest = search(new Searcher(dfa, true, Searcher.DEFAULT_CACHE_BYTES), log);
+        assertArrayEquals(new int[]{2, 10}, longest.get(0));
+        assertArrayEquals(new int[]{14, 24}, longest.get(1));
+    }
+
+    @Test
+    public void testLeftmostStart() throws RegexSyntaxException {
+        // "aaab" ends before "abcb", so "abcb" is never reported even though it is longer
+        final CompiledDFA dfa = CompiledDFA.compile(compiler.compile("abcb|c|a*b"));
+        final List<int[]> matches = search(new Searcher(dfa, false, Searcher.DEFAULT_CACHE_BYTES), "aaabcb");
+        assertArrayEquals(new int[]{0, 4}, matches.get(0));
+        assertArrayEquals(new int[]{4, 5}, matches.get(1));
+        assertArrayEquals(new int[]{5, 6}, matches.get(2));
+    }
+
+    @Test
+    public void testEmptyMatches() throws RegexSyntaxException {
+        // the pattern accepts the empty string, which is never reported
+        final CompiledDFA dfa = CompiledDFA.compile(compiler.compile("a*"));
+        final List<int[]> earliest = search(new Searcher(dfa, false, Searcher.DEFAULT_CACHE_BYTES), "baab");
+        assertEquals(2, earliest.size());
+        assertArrayEquals(new int[]{1, 2}, earliest.get(0));
+        assertArrayEquals(new int[]{2, 3}, earliest.get(1));
+
+        final List<int[]> longest = search(new Searcher(dfa, true, Searcher.DEFAULT_CACHE_BYTES), "baab");
+        assertEquals(1, longest.size());
+        assertArrayEquals(new int[]{1, 3}, longest.get(0));
+        assertTrue(search(new Searcher(dfa, true, Searcher.DEFAULT_CACHE_BYTES), "bcb").isEmpty());
+    }
+
+    @Test
+    public void testAgainstBruteForce() throws RegexSyntaxException {
+        final String[] patterns = {"a", "ab*", "(a|b)*c", "a(a|b){3}", "b+", "c(ab)*c", "a?b", "a*", "(ab)*|c"};
+        final Random random = new Random(35);
+        for (String pattern : patterns) {
+            final CompiledDFA dfa = CompiledDFA.compile(compiler.compile(pattern));
+            for (boolean isLongest : new boolean[]{false, true}) {
+                // a tiny cache to exercise flushes
+                final Searcher searcher = new Searcher(dfa, isLongest, 0);
+                for (int round = 0; round < 100; round++) {
+                    final StringBuilder text = new StringBuilder();
+                    for (int i = 0; i < random.nextInt(30); i++) {
+                        text.append("abc".charAt(random.nextInt(3)));
+                    }
+                    final List<int[]> expected = bruteForce(dfa, text.toString(), isLongest);
+                    final List<int[]> actual = search(searcher, text.toString());
+                    assertEquals(expected.size(), actual.size(), pattern + " on " + text);
+                    for (int i = 0; i < expected.size(); i++) {
+                        assertArrayEquals(expected.get(i), actual.get(i), pattern + " on " + text);
+                    }
+                }
+            }
+        }
+    }
+}
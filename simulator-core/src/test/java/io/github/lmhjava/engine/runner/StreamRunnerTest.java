@@ -0,0 +1,144 @@
+package io.github.lmhjava.engine.runner;
+
+import io.github.lmhjava.engine.compiled.CompiledDFA;
+import io.github.lmhjava.engine.compiled.DFAFingerprint;
+import io.github.lmhjava.engine.exception.CheckpointException;
+import io.github.lmhjava.engine.exception.DFAFormatException;
+import io.github.lmhjava.engine.io.DFAFormat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test for checkpointed stream runs
+public class StreamRunnerTest {
+
+    // any text whose last code point is "x" or an emoji
+    private static final String ENDS_WITH_X = String.join("\n",
+            "range U+0000 U+10FFFF",
+            "node other initial",
+            "node x accepted",
+            "edge other x range U+0078 U+0078 range U+1F600 U+1F64F",
+            "edge x x range U+0078 U+0078 range U+1F600 U+1F64F",
+            "edge other other else",
+            "edge x other else",
+            "");
+
+    @TempDir
+    public Path directory;
+
+    private CompiledDFA dfa;
+    private Path checkpoint;
+    private String stream;
+
+    @BeforeEach
+    public void init() throws IOException, DFAFormatException {
+        dfa = CompiledDFA.compile(DFAFormat.read(new StringReader(ENDS_WITH_X)).getController());
+        checkpoint = directory.resolve("run.checkpoint");
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            text.append(i % 7 == 0 ? "😀" : i % 3 == 0 ? "x" : "a");
+        }
+        stream = text.toString();
+    }
+
+    // fails after some chars, like a process killed in the middle of a run
+    private static Reader crashingAfter(String text, int chars) {
+        return new Reader() {
+            private int position;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                if (position >= chars) throw new IOException("crash");
+                final int count = Math.min(Math.min(length, 100), text.length() - position);
+                if (count <= 0) return -1;
+                text.getChars(position, position + count, buffer, offset);
+                position += count;
+                return count;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Test
+    public void testResumeAfterCrash() throws IOException, CheckpointException {
+        final StreamRunner whole = new StreamRunner(dfa, directory.resolve("whole.checkpoint"), 1000);
+        whole.run(new StringReader(stream));
+        assertEquals(stream.length(), whole.getOffset());
+        assertEquals(0, whole.getResumedOffset());
+
+        final StreamRunner crashed = new StreamRunner(dfa, checkpoint, 1000);
+        assertThrows(IOException.class, () -> crashed.run(crashingAfter(stream, 3333)));
+        final Checkpoint saved = Checkpoint.read(checkpoint);
+        assertTrue(saved.getOffset() >= 3000 && saved.getOffset() <= 3333, "offset " + saved.getOffset());
+
+        final StreamRunner resumed = new StreamRunner(dfa, checkpoint, 1000);
+        resumed.run(new StringReader(stream));
+        assertEquals(saved.getOffset(), resumed.getResumedOffset());
+        assertEquals(whole.getOffset(), resumed.getOffset());
+        assertEquals(whole.getAcceptedCount(), resumed.getAcceptedCount());
+        assertEquals(whole.isAccepting(), resumed.isAccepting());
+        assertEquals(Checkpoint.read(directory.resolve("whole.checkpoint")).getCounters(), Checkpoint.read(checkpoint).getCounters());
+
+        // resuming a finished run reads nothing new
+        final StreamRunner again = new StreamRunner(dfa, checkpoint, 1000);
+        again.run(new StringReader(stream));
+        assertEquals(stream.length(), again.getResumedOffset());
+        assertEquals(whole.getAcceptedCount(), again.getAcceptedCount());
+    }
+
+    @Test
+    public void testFingerprint() throws IOException, DFAFormatException, CheckpointException {
+        // a copy read again numbers its states differently, but behaves the same
+        final CompiledDFA copy = CompiledDFA.compile(DFAFormat.read(new StringReader(ENDS_WITH_X)).getController());
+        final DFAFingerprint fingerprint = DFAFingerprint.of(dfa);
+        assertEquals(fingerprint.getHash(), DFAFingerprint.of(copy).getHash());
+        assertEquals(2, fingerprint.getReachableCount());
+        assertEquals(0, fingerprint.toCanonical(dfa.getInitialState()));
+        assertEquals(dfa.getInitialState(), fingerprint.fromCanonical(0));
+        assertEquals(CompiledDFA.DEAD, fingerprint.fromCanonical(2));
+
+        // "y" instead of "x" is another automaton
+        final CompiledDFA other = CompiledDFA.compile(DFAFormat.read(new StringReader(
+                ENDS_WITH_X.replace("U+0078", "U+0079"))).getController());
+        assertNotEquals(fingerprint.getHash(), DFAFingerprint.of(other).getHash());
+        new StreamRunner(dfa, checkpoint, 1000).run(new StringReader(stream));
+        final CheckpointException e = assertThrows(CheckpointException.class,
+                () -> new StreamRunner(other, checkpoint, 1000).run(new StringReader(stream)));
+        assertTrue(e.getMessage().startsWith("Checkpoint of another DFA"));
+    }
+
+    @Test
+    public void testCheckpointFile() throws IOException, CheckpointException {
+        assertNull(Checkpoint.read(checkpoint));
+        new Checkpoint("abc", 3, 42, Map.of("accepted", 7L, "lines", 2L)).write(checkpoint);
+        final Checkpoint read = Checkpoint.read(checkpoint);
+        assertEquals("abc", read.getFingerprint());
+        assertEquals(3, read.getState());
+        assertEquals(42, read.getOffset());
+        assertEquals(Map.of("accepted", 7L, "lines", 2L), read.getCounters());
+        assertEquals(0, read.getCounter("missing"));
+        // no temporary file is left behind
+        assertEquals(1, Files.list(directory).count());
+
+        Files.writeString(checkpoint, Files.readString(checkpoint).replace("offset 42", "offset 43"));
+        assertThrows(CheckpointException.class, () -> Checkpoint.read(checkpoint));
+        Files.writeString(checkpoint, "garbage\n");
+        assertThrows(CheckpointException.class, () -> Checkpoint.read(checkpoint));
+
+        // a checkpoint beyond the end of the stream
+        new Checkpoint(DFAFingerprint.of(dfa).getHash(), 0, stream.length() + 1, Map.of()).write(checkpoint);
+        assertThrows(CheckpointException.class, () -> new StreamRunner(dfa, checkpoint, 1000).run(new StringReader(stream)));
+    }
+}
@@ -0,0 +1,120 @@
+package io.github.lmhjava.engine.runner;
+
+import io.github.lmhjava.engine.compiled.CompiledDFA;
+import io.github.lmhjava.engine.dfa.AlphabetRange;
+import io.github.lmhjava.engine.dfa.DFAController;
+import io.github.lmhjava.engine.dfa.DFAEdge;
+import io.github.lmhjava.engine.dfa.DFANode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test for Mealy-machine transducers
+public class TransducerTest {
+
+    private DFAController controller;
+    private DFANode node1;
+    private DFANode node2;
+    private DFAEdge edge12;
+
+    // labels every character of a word with its position kind
+    //
+    // A - ([a-z]) / 1 -> B (output 2)
+    // B - ([a-z]) -> B
+    // B - (ELSE) / 0 -> A
+    // A - (" ") -> A (no output)
+    @BeforeEach
+    public void init() {
+        controller = new DFAController();
+        node1 = new DFANode("A");
+        node2 = new DFANode("B");
+        node1.setAccepted(true);
+        node2.setAccepted(true);
+        node2.setOutput(2);
+        controller.registerAlphabet(" ");
+        controller.registerAlphabetRange(AlphabetRange.of("a", "z"));
+        controller.registerNode(node1);
+        controller.registerNode(node2);
+        controller.setInitialNode(node1);
+        edge12 = new DFAEdge(node1, node2, AlphabetRange.of("a", "z"));
+        edge12.setOutput(1);
+        final DFAEdge edge22 = new DFAEdge(node2, node2, AlphabetRange.of("a", "z"));
+        final DFAEdge edge21 = new DFAEdge(node2, node1);
+        edge21.setElseEdge(true);
+        edge21.setOutput(0);
+        final DFAEdge edge11 = new DFAEdge(node1, node1, " ");
+        assertTrue(controller.registerEdge(edge12));
+        assertTrue(controller.registerEdge(edge22));
+        assertTrue(controller.registerEdge(edge21));
+        assertTrue(controller.registerEdge(edge11));
+    }
+
+    private static List<String> split(String text) {
+        final List<String> input = new ArrayList<>();
+        text.codePoints().forEach((int cp) -> input.add(new String(Character.toChars(cp))));
+        return input;
+    }
+
+    @Test
+    public void testOutputs() {
+        final int[] expected = {1, 2, 0, DFAEdge.NO_OUTPUT, 1, 2, 2};
+        final List<String> input = split("ab  cde");
+        for (Transducer transducer : List.of(new Transducer(controller), new Transducer(CompiledDFA.compile(controller)))) {
+            final int[] out = new int[input.size() + 1];
+            assertEquals(input.size(), transducer.run(input, out, 1));
+            assertArrayEquals(expected, Arrays.copyOfRange(out, 1, out.length));
+            assertTrue(transducer.isAccepted());
+
+            final List<Integer> received = new ArrayList<>();
+            assertEquals(input.size(), transducer.run(input, received::add));
+            assertEquals(expected.length, received.size());
+            assertEquals(1, received.get(0));
+
+            final ByteBuffer buffer = ByteBuffer.allocate(64);
+            assertEquals(input.size(), transducer.run(input, buffer));
+            assertEquals(expected.length * Integer.BYTES, buffer.position());
+            assertEquals(2, buffer.getInt(Integer.BYTES));
+        }
+        // the controller is not moved by transducers
+        assertNull(controller.getCurrentNode());
+    }
+
+    @Test
+    public void testUndefinedTransition() {
+        final Transducer transducer = new Transducer(controller);
+        // "!" is only defined by the ELSE edge of B
+        final int[] out = new int[4];
+        assertEquals(2, transducer.run(split("a!!b"), out, 0));
+        assertFalse(transducer.isAccepted());
+        assertArrayEquals(new int[]{1, 0, 0, 0}, out);
+    }
+
+    @Test
+    public void testCompiledClasses() {
+        final CompiledDFA dfa = CompiledDFA.compile(controller);
+        assertTrue(dfa.hasOutputs());
+        final Transducer transducer = new Transducer(dfa);
+        final int[] classes = {dfa.classOf("x"), dfa.classOf("y"), dfa.classOf(" ")};
+        final int[] out = new int[3];
+        assertEquals(3, transducer.run(classes, 0, 3, out));
+        assertArrayEquals(new int[]{1, 2, 0}, out);
+        assertThrows(IllegalStateException.class, () -> new Transducer(controller).run(classes, 0, 3, out));
+
+        // edits are reflected by the object graph only
+        edge12.setOutput(DFAEdge.NO_OUTPUT);
+        final int[] graphOut = new int[1];
+        new Transducer(controller).run(List.of("x"), graphOut, 0);
+        assertEquals(2, graphOut[0]);
+        assertEquals(1, dfa.output(dfa.getInitialState(), dfa.classOf("x")));
+
+        final DFAController plain = new DFAController();
+        plain.registerNode(node1);
+        assertFalse(CompiledDFA.compile(plain).hasOutputs());
+    }
+}
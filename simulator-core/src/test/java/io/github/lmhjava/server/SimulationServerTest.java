@@ -0,0 +1,132 @@
+package io.github.lmhjava.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test for the headless simulation server
+public class SimulationServerTest {
+
+    // identifiers: a letter followed by letters or digits
+    private static final String IDENTIFIER = String.join("\n",
+            "alphabet _",
+            "range U+0061 U+007A",
+            "range U+0030 U+0039",
+            "node start initial",
+            "node id accepted",
+            "edge start id range U+0061 U+007A : _",
+            "edge id id range U+0061 U+007A range U+0030 U+0039 : _",
+            "");
+
+    private SimulationServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    public void init() throws IOException, InterruptedException {
+        server = new SimulationServer(0);
+        server.start();
+        client = HttpClient.newHttpClient();
+        assertEquals(200, send("PUT", "/dfa/identifier", IDENTIFIER).statusCode());
+    }
+
+    @AfterEach
+    public void close() {
+        server.stop(0);
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        final HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    public void testAcceptsAndRun() throws IOException, InterruptedException {
+        final HttpResponse<String> accepts = send("POST", "/dfa/identifier/accepts", "abc\n_x1\n1abc\n\nok_2");
+        assertEquals(200, accepts.statusCode());
+        assertEquals("true\ntrue\nfalse\nfalse\ntrue\n", accepts.body());
+
+        final HttpResponse<String> run = send("POST", "/dfa/identifier/run", "a1\n1a\n");
+        assertEquals("true id 2\nfalse - 1\n", run.body());
+
+        // tokens may be any registered alphabet
+        final HttpResponse<String> tokens = send("POST", "/dfa/identifier/accepts?symbols=tokens", "a _ 1\n1 a");
+        assertEquals("true\nfalse\n", tokens.body());
+        assertEquals(9, server.getInputCount());
+    }
+
+    @Test
+    public void testManagement() throws IOException, InterruptedException {
+        assertEquals("identifier\n", send("GET", "/dfa", null).body());
+        assertEquals(404, send("POST", "/dfa/missing/accepts", "a").statusCode());
+        assertEquals(404, send("POST", "/dfa/identifier/explode", "a").statusCode());
+        assertEquals(405, send("GET", "/dfa/identifier/accepts", null).statusCode());
+
+        final HttpResponse<String> malformed = send("PUT", "/dfa/broken", "node a\nedge a b");
+        assertEquals(400, malformed.statusCode());
+        assertTrue(malformed.body().contains("line 2"));
+
+        assertEquals(200, send("DELETE", "/dfa/identifier", null).statusCode());
+        assertEquals(404, send("DELETE", "/dfa/identifier", null).statusCode());
+        assertEquals("", send("GET", "/dfa", null).body());
+    }
+
+    @Test
+    public void testConcurrentBatchesAndStats() throws IOException, InterruptedException {
+        final StringBuilder batch = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            batch.append(i % 2 == 0 ? "x" + i : i + "x").append('\n');
+        }
+        final List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            final HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + "/dfa/identifier/accepts"))
+                    .POST(HttpRequest.BodyPublishers.ofString(batch.toString()))
+                    .build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            final String[] results = response.join().body().split("\n");
+            assertEquals(1000, results.length);
+            assertEquals("true", results[0]);
+            assertEquals("false", results[1]);
+        }
+        assertEquals(16000, server.getInputCount());
+        assertEquals(16, server.getLatency("accepts").getCount());
+
+        final String stats = send("GET", "/stats", null).body();
+        assertTrue(stats.contains("inputs=16000\n"), stats);
+        assertTrue(stats.contains("accepts count=16 "), stats);
+        assertTrue(stats.contains("p99_us="), stats);
+    }
+
+    @Test
+    public void testLatencyRecorder() {
+        final LatencyRecorder recorder = new LatencyRecorder();
+        assertEquals(0, recorder.getPercentile(50));
+        for (int value = 1; value <= 1000; value++) {
+            recorder.record(value);
+        }
+        assertEquals(1000, recorder.getCount());
+        assertEquals(1000, recorder.getMax());
+        assertEquals(500.5, recorder.getMean());
+        // at most 1/16 above the exact value
+        assertTrue(recorder.getPercentile(50) >= 500 && recorder.getPercentile(50) <= 500 * 17 / 16);
+        assertTrue(recorder.getPercentile(99) >= 990 && recorder.getPercentile(99) <= 1000);
+        assertEquals(1, recorder.getPercentile(0));
+        assertEquals(1000, recorder.getPercentile(100));
+        recorder.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, recorder.getPercentile(100));
+    }
+}
@@ -2,6 +2,7 @@ package io.github.lmhjava.ui;
 
 import io.github.lmhjava.ui.controller.BaseAppController;
 import io.github.lmhjava.ui.controller.CanvasController;
+import io.github.lmhjava.ui.controller.MessageBarController;
 import io.github.lmhjava.ui.controller.PropertyViewerController;
 import io.github.lmhjava.ui.controller.ToolboxController;
 import io.github.lmhjava.ui.debug.controller.DebugController;
@@ -45,6 +46,11 @@ public class Main extends Application {
         final CanvasController canvasController = (CanvasController) GlobalContext.controllers.get("CanvasController");
         canvasController.initModel(canvasModel);
 
+        // load message bar, which shows the progress of opening a file
+        final MessageBarController messageBarController = (MessageBarController) GlobalContext.controllers.get("MessageBarController");
+        messageBarController.showProgress(canvasController.getDfaLoadController().getMessageProperty(),
+                canvasController.getDfaLoadController().getProgressProperty());
+
         // load properties view
         final PropertyViewerController propertyViewerController = (PropertyViewerController) GlobalContext.controllers.get("PropertyViewerController");
         propertyViewerController.initModel(canvasModel);
@@ -0,0 +1,159 @@
+package io.github.lmhjava.ui.controller;
+
+import io.github.lmhjava.ui.layout.GraphLayout;
+import io.github.lmhjava.ui.layout.LayoutGraph;
+import io.github.lmhjava.ui.model.CanvasModel;
+import io.github.lmhjava.ui.object.CanvasComponent;
+import io.github.lmhjava.ui.object.DFAEdgeComponent;
+import io.github.lmhjava.ui.object.DFANodeComponent;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.concurrent.Task;
+import javafx.concurrent.WorkerStateEvent;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs a {@link GraphLayout} over the nodes on the canvas in the background.
+ * <p>
+ * The graph is copied on the FX thread, laid out on a worker thread, and the intermediate positions are
+ * published back to the nodes with {@link CanvasComponent#setPosition(int, int)} as the layout goes, so that
+ * the user sees the graph settle. Starting another layout or {@link #cancel()} stops the running one, and the
+ * nodes keep the last positions published.
+ *
+ * @implNote the worker publishes a copy of the positions at most every {@link #PUBLISH_INTERVAL_MILLIS}, and
+ * {@link Task#updateValue} keeps at most one of them waiting on the FX thread, so a slow FX thread skips
+ * positions rather than queueing them. A batch moves all the nodes, then updates the spatial index once.
+ */
+@Slf4j
+public class AutoLayoutController {
+    public static final long PUBLISH_INTERVAL_MILLIS = 50;
+
+    private final CanvasModel canvasModel;
+    private final ReadOnlyDoubleWrapper progress;
+    private Task<double[]> task;
+
+    public AutoLayoutController(CanvasModel canvasModel) {
+        this.canvasModel = canvasModel;
+        this.progress = new ReadOnlyDoubleWrapper(0);
+    }
+
+    /**
+     * Lays out the nodes on the canvas in the background, after cancelling the running layout if any.
+     *
+     * @param layout layout algorithm
+     */
+    public void start(GraphLayout layout) {
+        cancel();
+        final List<DFANodeComponent> nodes = new ArrayList<>();
+        final List<DFAEdgeComponent> edges = new ArrayList<>();
+        final Map<DFANodeComponent, Integer> indices = new HashMap<>();
+        for (CanvasComponent component : canvasModel.getComponents()) {
+            if (component instanceof DFANodeComponent node) {
+                indices.put(node, nodes.size());
+                nodes.add(node);
+            } else if (component instanceof DFAEdgeComponent edge && edge.isSettled()) {
+                edges.add(edge);
+            }
+        }
+        final double[] x = new double[nodes.size()], y = new double[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            x[i] = nodes.get(i).getCenterXProperty().doubleValue();
+            y[i] = nodes.get(i).getCenterYProperty().doubleValue();
+        }
+        final int[] tails = new int[edges.size()], heads = new int[edges.size()];
+        for (int e = 0; e < edges.size(); e++) {
+            tails[e] = indices.get(edges.get(e).getTailNode());
+            heads[e] = indices.get(edges.get(e).getHeadNode());
+        }
+        final DFANodeComponent initialNode = canvasModel.getInitialNodeComponent().get();
+        final LayoutGraph graph = new LayoutGraph(x, y, tails, heads, initialNode == null ? -1 : indices.getOrDefault(initialNode, -1));
+
+        final Task<double[]> layoutTask = new Task<>() {
+            @Override
+            protected double[] call() {
+                final Task<double[]> self = this;
+                final long startTime = System.nanoTime();
+                layout.layout(graph, CanvasModel.CANVAS_WIDTH, CanvasModel.CANVAS_HEIGHT, new GraphLayout.Monitor() {
+                    private long lastPublished = startTime;
+
+                    @Override
+                    public void progress(long done, long total) {
+                        updateProgress(done, total);
+                        final long now = System.nanoTime();
+                        if (now - lastPublished >= PUBLISH_INTERVAL_MILLIS * 1_000_000) {
+                            lastPublished = now;
+                            updateValue(copyPositions(graph));
+                        }
+                    }
+
+                    @Override
+                    public boolean isCancelled() {
+                        return self.isCancelled();
+                    }
+                });
+                log.debug("Laid out {} nodes with {} in {} ms", graph.getNodeCount(), layout.getClass().getSimpleName(),
+                        (System.nanoTime() - startTime) / 1_000_000);
+                return copyPositions(graph);
+            }
+        };
+        layoutTask.valueProperty().addListener((ob, oldValue, newValue) -> {
+            // a batch of a cancelled layout may still arrive after the next one started
+            if (newValue != null && task == layoutTask) applyPositions(nodes, newValue);
+        });
+        layoutTask.setOnFailed((WorkerStateEvent event) -> log.error("Auto layout failed", layoutTask.getException()));
+        progress.bind(layoutTask.progressProperty());
+        task = layoutTask;
+
+        final Thread thread = new Thread(layoutTask, "auto-layout");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // x and y of every node, interleaved
+    private static double[] copyPositions(LayoutGraph graph) {
+        final double[] positions = new double[2 * graph.getNodeCount()];
+        for (int i = 0; i < graph.getNodeCount(); i++) {
+            positions[2 * i] = graph.getX()[i];
+            positions[2 * i + 1] = graph.getY()[i];
+        }
+        return positions;
+    }
+
+    private void applyPositions(List<DFANodeComponent> nodes, double[] positions) {
+        final int offset = DFANodeComponent.NODE_CIRCLE_RADIUS + DFANodeComponent.SELECTION_CIRCLE_THICKNESS;
+        for (int i = 0; i < nodes.size(); i++) {
+            nodes.get(i).setPosition((int) Math.round(positions[2 * i]) - offset, (int) Math.round(positions[2 * i + 1]) - offset);
+        }
+        canvasModel.updateBounds(nodes);
+    }
+
+    /**
+     * Stops the running layout, if any.
+     */
+    public void cancel() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+            progress.unbind();
+            progress.set(0);
+        }
+    }
+
+    public boolean isRunning() {
+        return task != null && task.isRunning();
+    }
+
+    /**
+     * Returns the progress of the running layout.
+     *
+     * @return progress from 0 to 1, or -1 when unknown
+     */
+    public ReadOnlyDoubleProperty getProgressProperty() {
+        return progress.getReadOnlyProperty();
+    }
+}
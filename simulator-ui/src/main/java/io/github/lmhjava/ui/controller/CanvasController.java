@@ -1,28 +1,44 @@
 package io.github.lmhjava.ui.controller;
 
 
+import io.github.lmhjava.ui.layout.ForceLayout;
+import io.github.lmhjava.ui.layout.LayeredLayout;
 import io.github.lmhjava.ui.model.CanvasModel;
 import io.github.lmhjava.ui.object.CanvasComponent;
 import io.github.lmhjava.ui.object.DFAEdgeComponent;
 import io.github.lmhjava.ui.object.DFANodeComponent;
-import javafx.application.Platform;
+import io.github.lmhjava.ui.render.CanvasRenderer;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
-import javafx.collections.SetChangeListener;
 import javafx.event.ActionEvent;
+import javafx.event.Event;
 import javafx.event.EventHandler;
 import javafx.fxml.FXML;
 import javafx.geometry.Bounds;
 import javafx.scene.control.*;
 import javafx.scene.input.*;
 import javafx.scene.layout.Pane;
+import javafx.stage.FileChooser;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Canvas controller
  */
 @Slf4j
 public class CanvasController extends BaseAppController {
+    /**
+     * A click on the blank canvas within this distance of a node, in canvas pixels, selects the node
+     */
+    public static final double NODE_SNAP_DISTANCE = 12;
+    /**
+     * A click within this distance of an edge, in canvas pixels, hits the edge when the canvas renderer is on
+     */
+    public static final double EDGE_HIT_DISTANCE = 6;
 
     @FXML
     private ScrollPane scrollPane;
@@ -40,6 +56,39 @@ public class CanvasController extends BaseAppController {
 
     private ContextMenu contextMenu;
 
+    /**
+     * attaches and detaches the components as the viewport moves
+     */
+    private ViewportController viewportController;
+
+    /**
+     * lays out the edges after their nodes move
+     */
+    private EdgeLayoutController edgeLayoutController;
+
+    /**
+     * places the nodes automatically in the background
+     */
+    private AutoLayoutController autoLayoutController;
+
+    /**
+     * opens DFA files in the background
+     */
+    @Getter
+    private DFALoadController dfaLoadController;
+
+    /**
+     * draws the components on one canvas instead, when enabled
+     */
+    private CanvasRenderer canvasRenderer;
+
+    /**
+     * node being dragged while the canvas renderer is on
+     */
+    private DFANodeComponent draggedNode;
+    private double dragAnchorX;
+    private double dragAnchorY;
+
     /**
      * Initialize the data model and the controller
      *
@@ -52,18 +101,21 @@ public class CanvasController extends BaseAppController {
         }
         this.canvasModel = canvasModel;
         this.canvasModel.setCurrentSelection(null);
-        canvasModel.getComponents().forEach((component) -> canvasPane.getChildren().add(component));
 
         // bind the scale factor
         this.canvasModel.getScale().bindBidirectional(canvasPane.scaleXProperty());
         this.canvasModel.getScale().bindBidirectional(canvasPane.scaleYProperty());
 
-        this.canvasModel.getComponents().addListener((SetChangeListener.Change<? extends CanvasComponent> c) -> {
-            log.debug("Components in canvas model is changed, syncing to render");
-            if (c.wasAdded()) {
-                canvasPane.getChildren().add(c.getElementAdded());
-            } else if (c.wasRemoved()) {
-                canvasPane.getChildren().remove(c.getElementRemoved());
+        // only the components around the viewport are rendered, see ViewportController
+        viewportController = new ViewportController(scrollPane, canvasPane, canvasModel);
+        edgeLayoutController = new EdgeLayoutController(canvasModel);
+        canvasRenderer = new CanvasRenderer(canvasModel);
+        autoLayoutController = new AutoLayoutController(canvasModel);
+        dfaLoadController = new DFALoadController(canvasModel, (CanvasComponent component) -> {
+            if (component instanceof DFANodeComponent node) {
+                initNodeHandlers(node);
+            } else if (component instanceof DFAEdgeComponent edge) {
+                initEdgeHandlers(edge);
             }
         });
 
@@ -80,11 +132,49 @@ public class CanvasController extends BaseAppController {
      */
     private void initDefaultContextMenu() {
         contextMenu = new ContextMenu();
+        // replace the DFA with one read from a file
+        final MenuItem openItem = new MenuItem("Open DFA...");
+        openItem.setOnAction((ActionEvent event) -> {
+            final FileChooser fileChooser = new FileChooser();
+            fileChooser.setTitle("Open DFA");
+            fileChooser.getExtensionFilters().addAll(
+                    new FileChooser.ExtensionFilter("DFA Files", "*.dfa"),
+                    new FileChooser.ExtensionFilter("All Files", "*.*"));
+            final File file = fileChooser.showOpenDialog(canvasPane.getScene().getWindow());
+            if (file != null) dfaLoadController.load(file.toPath(), viewportController.getVisibleBounds());
+        });
+
         MenuItem addNodeItem = new MenuItem("Add Node");
         addNodeItem.setOnAction((ActionEvent event) ->
                 addNode(canvasModel.getContextMenuX().get(), canvasModel.getContextMenuY().get()));
 
+        // lay out the whole graph in the background
+        final Menu autoLayoutMenu = new Menu("Auto Layout");
+        final MenuItem forceLayoutItem = new MenuItem("Force-Directed");
+        forceLayoutItem.setOnAction((ActionEvent event) -> autoLayoutController.start(new ForceLayout()));
+        final MenuItem layeredLayoutItem = new MenuItem("Layered");
+        layeredLayoutItem.setOnAction((ActionEvent event) -> autoLayoutController.start(new LayeredLayout()));
+        final MenuItem cancelLayoutItem = new MenuItem("Cancel");
+        cancelLayoutItem.setOnAction((ActionEvent event) -> autoLayoutController.cancel());
+        autoLayoutMenu.getItems().addAll(forceLayoutItem, layeredLayoutItem, new SeparatorMenuItem(), cancelLayoutItem);
+        autoLayoutMenu.setOnShowing((Event event) -> cancelLayoutItem.setDisable(!autoLayoutController.isRunning()));
+
+        final CheckMenuItem canvasRenderingItem = new CheckMenuItem("Fast Rendering");
+        canvasRenderingItem.selectedProperty().addListener((ob, oldValue, newValue) -> setCanvasRendering(newValue));
+
         canvasPane.setOnContextMenuRequested((ContextMenuEvent event) -> {
+            // the components drawn on the canvas get no events of their own
+            if (canvasRenderer.isRunning()) {
+                final CanvasComponent component = canvasRenderer.getComponentAt(event.getX(), event.getY(), EDGE_HIT_DISTANCE);
+                final ContextMenu menu = component instanceof DFANodeComponent node ? getNodeContextMenu(node)
+                        : component instanceof DFAEdgeComponent edge ? getEdgeContextMenu(edge) : null;
+                if (menu != null) {
+                    canvasModel.setCurrentSelection(component);
+                    menu.show(canvasPane, event.getScreenX(), event.getScreenY());
+                    event.consume();
+                    return;
+                }
+            }
             log.debug("Default contextMenu requested at [x={}, y={}]", event.getX(), event.getY());
             canvasModel.getContextMenuX().setValue(event.getX());
             canvasModel.getContextMenuY().setValue(event.getY());
@@ -92,7 +182,7 @@ public class CanvasController extends BaseAppController {
             event.consume();
         });
 
-        contextMenu.getItems().add(addNodeItem);
+        contextMenu.getItems().addAll(openItem, new SeparatorMenuItem(), addNodeItem, new SeparatorMenuItem(), autoLayoutMenu, canvasRenderingItem);
     }
 
     /**
@@ -104,12 +194,36 @@ public class CanvasController extends BaseAppController {
                 contextMenu.hide();
                 event.consume();
             }
-            // reset selection when click else where
+            // select the node right next to the click, e.g. to settle an edge, or reset selection when click else where
             if (event.getButton() == MouseButton.PRIMARY) {
-                canvasModel.setCurrentSelection(null);
+                final CanvasComponent hit = canvasRenderer.isRunning()
+                        ? canvasRenderer.getComponentAt(event.getX(), event.getY(), EDGE_HIT_DISTANCE)
+                        : null;
+                canvasModel.setCurrentSelection(hit != null ? hit : canvasModel.getNearestNode(event.getX(), event.getY(), NODE_SNAP_DISTANCE));
                 event.consume();
             }
         });
+
+        // drag the nodes drawn on the canvas, like DraggableCanvasComponentController does for the components
+        canvasPane.setOnMousePressed((MouseEvent event) -> {
+            if (!canvasRenderer.isRunning() || !event.isPrimaryButtonDown()) return;
+            if (canvasRenderer.getComponentAt(event.getX(), event.getY(), 0) instanceof DFANodeComponent node) {
+                draggedNode = node;
+                dragAnchorX = event.getX() - node.getXProperty().get();
+                dragAnchorY = event.getY() - node.getYProperty().get();
+            }
+        });
+        canvasPane.setOnMouseDragged((MouseEvent event) -> {
+            if (draggedNode != null) {
+                draggedNode.setPosition((int) (event.getX() - dragAnchorX), (int) (event.getY() - dragAnchorY));
+            }
+        });
+        canvasPane.setOnMouseReleased((MouseEvent event) -> {
+            if (draggedNode != null) {
+                canvasModel.updateBounds(draggedNode);
+                draggedNode = null;
+            }
+        });
     }
 
     /**
@@ -155,6 +269,26 @@ public class CanvasController extends BaseAppController {
         });
     }
 
+    /**
+     * Switch between drawing the components on one canvas and keeping them in the scene graph.
+     *
+     * @param isEnabled whether the canvas renderer draws the components
+     * @implNote an edge being added follows the mouse in the scene graph either way, until it is settled.
+     */
+    public void setCanvasRendering(boolean isEnabled) {
+        if (isEnabled == canvasRenderer.isRunning()) return;
+        if (isEnabled) {
+            canvasPane.getChildren().add(canvasRenderer.getCanvas());
+            viewportController.setBoundedHidden(true);
+            canvasRenderer.start();
+        } else {
+            canvasRenderer.stop();
+            canvasPane.getChildren().remove(canvasRenderer.getCanvas());
+            viewportController.setBoundedHidden(false);
+        }
+        log.debug("Canvas rendering {}", isEnabled ? "enabled" : "disabled");
+    }
+
     /**
      * Add a node to the DFA
      *
@@ -162,26 +296,61 @@ public class CanvasController extends BaseAppController {
      * @param y y position of the node
      */
     public void addNode(int x, int y) {
-        // Delegate click event handler to every node object
         final DFANodeComponent node = new DFANodeComponent(x, y);
-        final ContextMenu nodeMenu = getNodeContextMenu(node);
+        initNodeHandlers(node);
+        canvasModel.getDfaController().registerNode(node.getNode());
+        canvasModel.getComponents().add(node);
+        log.debug("Add a node at [x={}, y={}]", x, y);
+    }
+
+    /**
+     * Delegates the event handlers to a node, e.g. a new one or one read from a file.
+     *
+     * @param node node component
+     */
+    private void initNodeHandlers(DFANodeComponent node) {
         node.setOnMouseClicked((MouseEvent event) -> {
             // select current node
             this.canvasModel.setCurrentSelection(node);
             event.consume();
         });
-        // show the context menu for a node
+        // show the context menu for a node, built on request
         node.setOnContextMenuRequested((ContextMenuEvent event) -> {
-            nodeMenu.show(node, event.getScreenX(), event.getScreenY());
+            getNodeContextMenu(node).show(node, event.getScreenX(), event.getScreenY());
             event.consume();
         });
 
         // make the node draggable
         new DraggableCanvasComponentController(node, true, canvasModel);
-        canvasModel.getDfaController().registerNode(node.getNode());
         node.getNode().setOnCurrentStateUpdate(() -> canvasModel.setHighlightedComponent(node));
-        canvasModel.getComponents().add(node);
-        log.debug("Add a node at [x={}, y={}]", x, y);
+    }
+
+    /**
+     * Delegates the event handlers to a settled edge.
+     *
+     * @param edge edge component
+     */
+    private void initEdgeHandlers(DFAEdgeComponent edge) {
+        // allows user to bend the arrow
+        if (!edge.isSelfLoop()) {
+            new DragToAdjustComponentController(edge, true, canvasModel, (deltaX, deltaY) -> {
+                if (edge.isVertical()) {
+                    edge.setArrowControl(deltaX * (edge.isUpToDown() ? -1 : 1));
+                } else {
+                    edge.setArrowControl(deltaY * (!edge.isLeftToRight() ? -1 : 1));
+                }
+            });
+        }
+        // mouse click listener
+        edge.setOnMouseClicked((MouseEvent event) -> {
+            canvasModel.setCurrentSelection(edge);
+            event.consume();
+        });
+        // context menu request listener, the menu is built on request
+        edge.setContextMenu((ContextMenuEvent event) -> {
+            getEdgeContextMenu(edge).show(edge, event.getScreenX(), event.getScreenY());
+            event.consume();
+        });
     }
 
     /**
@@ -199,28 +368,9 @@ public class CanvasController extends BaseAppController {
                 @Override
                 public void changed(ObservableValue<? extends CanvasComponent> ob, CanvasComponent oldValue, CanvasComponent newValue) {
                     if (newValue instanceof DFANodeComponent headNode) {
-                        final ContextMenu edgeMenu = getEdgeContextMenu(edge);
                         edge.settle(headNode, canvasPane);
-                        // allows user to bend the arrow
-                        if (!edge.isSelfLoop()) {
-                            new DragToAdjustComponentController(edge, true, canvasModel, (deltaX, deltaY) -> {
-                                if (edge.isVertical()) {
-                                    edge.setArrowControl(deltaX * (edge.isUpToDown() ? -1 : 1));
-                                } else {
-                                    edge.setArrowControl(deltaY * (!edge.isLeftToRight() ? -1 : 1));
-                                }
-                            });
-                        }
-                        // mouse click listener
-                        edge.setOnMouseClicked((MouseEvent event) -> {
-                            canvasModel.setCurrentSelection(edge);
-                            event.consume();
-                        });
-                        // context menu request listener
-                        edge.setContextMenu((ContextMenuEvent event) -> {
-                            edgeMenu.show(edge, event.getScreenX(), event.getScreenY());
-                            event.consume();
-                        });
+                        canvasModel.updateBounds(edge);
+                        initEdgeHandlers(edge);
                         // remove this listener
                         canvasModel.getSelectedComponent().removeListener(this);
                         canvasModel.getDfaController().registerEdge(edge.getEdge());
@@ -286,15 +436,15 @@ public class CanvasController extends BaseAppController {
      */
     private void removeComponent(CanvasComponent component) {
         assert canvasModel.getComponents().contains(component);
-        canvasModel.getComponents().remove(component);
-        // if user deletes a node, also delete relevant edges.
-        // NOTE: run this task in the background to save resources
-        if (component instanceof DFANodeComponent c) {
-            Platform.runLater(() -> canvasModel.getComponents().removeIf((CanvasComponent comp) -> comp instanceof DFAEdgeComponent edge && (edge.getTailNode() == c || edge.getHeadNode() == c)));
-        }
+        final List<CanvasComponent> removed = new ArrayList<>();
+        removed.add(component);
+        // if user deletes a node, also delete relevant edges, found by the index of the model
+        if (component instanceof DFANodeComponent node) removed.addAll(canvasModel.getEdgesOf(node));
+        canvasModel.getComponents().removeAll(removed);
         // if the instance being deleted is selected, set the current selection to null
-        if (component == canvasModel.getCurrentSelection()) {
+        if (removed.contains(canvasModel.getCurrentSelection())) {
             canvasModel.setCurrentSelection(null);
         }
+        log.debug("Removed {} components", removed.size());
     }
 }
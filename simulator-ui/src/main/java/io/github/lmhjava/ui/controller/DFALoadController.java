@@ -0,0 +1,356 @@
+package io.github.lmhjava.ui.controller;
+
+import io.github.lmhjava.engine.dfa.AlphabetRange;
+import io.github.lmhjava.engine.dfa.DFAController;
+import io.github.lmhjava.engine.dfa.DFAEdge;
+import io.github.lmhjava.engine.dfa.DFANode;
+import io.github.lmhjava.engine.dfa.DFATransaction;
+import io.github.lmhjava.engine.exception.DFAValidationException;
+import io.github.lmhjava.engine.io.DFADocument;
+import io.github.lmhjava.engine.io.DFAFormat;
+import io.github.lmhjava.ui.model.CanvasModel;
+import io.github.lmhjava.ui.object.CanvasComponent;
+import io.github.lmhjava.ui.object.DFAEdgeComponent;
+import io.github.lmhjava.ui.object.DFANodeComponent;
+import javafx.animation.AnimationTimer;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.concurrent.Task;
+import javafx.concurrent.WorkerStateEvent;
+import javafx.geometry.Bounds;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Opens a DFA file, see {@link DFAFormat}, and replaces the DFA on the canvas with it.
+ * <p>
+ * The file is read on a worker thread, with its progress in bytes. The DFA is then registered into the
+ * controller of the model in one transaction, and its components are added to the canvas over the next
+ * pulses, {@link #BATCH_SIZE} at a time, nearest to the viewport first. The message and the progress of both
+ * steps are published for the message bar.
+ *
+ * @implNote the order of the components is computed by the worker: the nodes by their distance to the
+ * viewport, every edge right after the later of its two nodes. Adding a batch is one pass of an
+ * {@link AnimationTimer}, so the FX thread stays responsive however large the file is, and no
+ * {@code Platform.runLater} is queued per component.
+ */
+@Slf4j
+public class DFALoadController {
+    public static final int BATCH_SIZE = 500;
+    private static final int NODE_OFFSET = DFANodeComponent.NODE_CIRCLE_RADIUS + DFANodeComponent.SELECTION_CIRCLE_THICKNESS;
+    // nodes without a position are placed on a grid of this spacing
+    private static final int GRID_SPACING = 3 * NODE_OFFSET;
+
+    private final CanvasModel canvasModel;
+    private final Consumer<CanvasComponent> componentInitializer;
+    private final ReadOnlyStringWrapper message;
+    private final ReadOnlyDoubleWrapper progress;
+    private final AnimationTimer timer;
+    private Task<LoadPlan> task;
+
+    // components being added
+    private LoadPlan plan;
+    private Map<DFANode, DFANodeComponent> nodeComponents;
+    private int added;
+
+    /**
+     * @param canvasModel model of the canvas
+     * @param componentInitializer attaches the event handlers to a new component, before it is added
+     */
+    public DFALoadController(CanvasModel canvasModel, Consumer<CanvasComponent> componentInitializer) {
+        this.canvasModel = canvasModel;
+        this.componentInitializer = componentInitializer;
+        this.message = new ReadOnlyStringWrapper("");
+        this.progress = new ReadOnlyDoubleWrapper(0);
+        this.timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                addBatch();
+            }
+        };
+    }
+
+    /**
+     * Opens a DFA file in the background, after cancelling the running load if any.
+     *
+     * @param path path of the file
+     * @param priorityRegion the components nearest to the center of this region are added first,
+     *                       or {@code null} to add them in the order of the file
+     */
+    public void load(Path path, Bounds priorityRegion) {
+        cancel();
+        final double centerX = priorityRegion == null ? Double.NaN : priorityRegion.getCenterX();
+        final double centerY = priorityRegion == null ? Double.NaN : priorityRegion.getCenterY();
+        final Task<LoadPlan> loadTask = new Task<>() {
+            @Override
+            protected LoadPlan call() throws Exception {
+                updateMessage("Reading " + path.getFileName());
+                final long size = Math.max(Files.size(path), 1);
+                final long startTime = System.nanoTime();
+                final DFADocument document;
+                final InputStream input = new CountingInputStream(Files.newInputStream(path), (long count) -> updateProgress(count, size));
+                try (Reader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+                    document = DFAFormat.read(reader);
+                }
+                final LoadPlan loadPlan = new LoadPlan(document, centerX, centerY);
+                log.debug("Read {} in {} ms", path, (System.nanoTime() - startTime) / 1_000_000);
+                return loadPlan;
+            }
+        };
+        loadTask.setOnSucceeded((WorkerStateEvent event) -> {
+            if (task == loadTask) start(path, loadTask.getValue());
+        });
+        loadTask.setOnFailed((WorkerStateEvent event) -> {
+            if (task != loadTask) return;
+            log.error("Failed to open {}", path, loadTask.getException());
+            task = null;
+            message.unbind();
+            progress.unbind();
+            message.set("Failed to open " + path.getFileName() + ": " + loadTask.getException().getMessage());
+            progress.set(0);
+        });
+        message.bind(loadTask.messageProperty());
+        progress.bind(loadTask.progressProperty());
+        task = loadTask;
+
+        final Thread thread = new Thread(loadTask, "dfa-load");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // registers the DFA read into the model and starts adding its components
+    private void start(Path path, LoadPlan loadPlan) {
+        task = null;
+        message.unbind();
+        progress.unbind();
+        final DFAController controller = canvasModel.getDfaController();
+        final DFAController source = loadPlan.document.getController();
+        final Set<AlphabetRange> ranges = source.getAlphabetRanges();
+        // the edges of the file need their ranges at commit, a transaction can not stage ranges
+        final List<AlphabetRange> newRanges = new ArrayList<>();
+        for (AlphabetRange range : ranges) {
+            if (controller.registerAlphabetRange(range)) newRanges.add(range);
+        }
+        try {
+            controller.edit((DFATransaction tx) -> {
+                controller.getNodeSet().forEach(tx::removeNode);
+                controller.getAlphabetSet().forEach(tx::unregisterAlphabet);
+                source.getAlphabetSet().forEach(tx::registerAlphabet);
+                source.getNodeSet().forEach(tx::registerNode);
+                source.getEdgeSet().forEach(tx::registerEdge);
+                tx.setInitialNode(source.getInitialNode());
+            });
+        } catch (DFAValidationException e) {
+            newRanges.forEach(controller::unregisterAlphabetRange);
+            log.error("Failed to open {}", path, e);
+            message.set("Failed to open " + path.getFileName() + ": " + e.getMessage());
+            progress.set(0);
+            return;
+        }
+        // the nodes moved to the engine, the document must not be notified of their edits any more
+        source.release();
+        // the engine already has the new initial node, its component is set once added
+        canvasModel.setCurrentSelection(null);
+        canvasModel.setHighlightedComponent(null);
+        canvasModel.getInitialNodeComponent().set(null);
+        canvasModel.getComponents().clear();
+        controller.getAlphabetRanges().stream()
+                .filter((AlphabetRange range) -> !ranges.contains(range))
+                .forEach(controller::unregisterAlphabetRange);
+        canvasModel.getDfaAlphabet().retainAll(source.getAlphabetSet());
+        canvasModel.getDfaAlphabet().addAll(source.getAlphabetSet());
+
+        plan = loadPlan;
+        nodeComponents = new HashMap<>();
+        added = 0;
+        message.set("Opening " + path.getFileName());
+        progress.set(0);
+        timer.start();
+    }
+
+    private void addBatch() {
+        final List<CanvasComponent> batch = new ArrayList<>(BATCH_SIZE);
+        DFANodeComponent initialNode = null;
+        while (batch.size() < BATCH_SIZE && added < plan.order.size()) {
+            final Object item = plan.order.get(added++);
+            final CanvasComponent component;
+            if (item instanceof DFANode node) {
+                final double[] position = plan.positions.get(node);
+                final DFANodeComponent nodeComponent = new DFANodeComponent(node,
+                        (int) Math.round(position[0]) - NODE_OFFSET, (int) Math.round(position[1]) - NODE_OFFSET);
+                nodeComponents.put(node, nodeComponent);
+                if (node == canvasModel.getDfaController().getInitialNode()) initialNode = nodeComponent;
+                component = nodeComponent;
+            } else {
+                final DFAEdge edge = (DFAEdge) item;
+                component = new DFAEdgeComponent(nodeComponents.get(edge.getTail()), nodeComponents.get(edge.getHead()), edge);
+            }
+            componentInitializer.accept(component);
+            batch.add(component);
+        }
+        canvasModel.getComponents().addAll(batch);
+        if (initialNode != null) canvasModel.setInitialNode(initialNode);
+        progress.set(added / (double) plan.order.size());
+        if (added == plan.order.size()) {
+            message.set(String.format("Opened %d nodes and %d edges", nodeComponents.size(), added - nodeComponents.size()));
+            log.info("Opened a DFA of {} nodes and {} edges", nodeComponents.size(), added - nodeComponents.size());
+            stop();
+        }
+    }
+
+    private void stop() {
+        timer.stop();
+        plan = null;
+        nodeComponents = null;
+    }
+
+    /**
+     * Stops the running load, if any. Once the DFA of the file is registered, the canvas would only show a
+     * part of it, so both the controller and the canvas are cleared instead.
+     */
+    public void cancel() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+            message.unbind();
+            progress.unbind();
+        }
+        if (plan != null) {
+            stop();
+            clear();
+        }
+        message.set("");
+        progress.set(0);
+    }
+
+    // removes the whole DFA from the controller of the model and from the canvas
+    private void clear() {
+        final DFAController controller = canvasModel.getDfaController();
+        try {
+            controller.edit((DFATransaction tx) -> {
+                controller.getNodeSet().forEach(tx::removeNode);
+                controller.getAlphabetSet().forEach(tx::unregisterAlphabet);
+            });
+        } catch (DFAValidationException e) {
+            // an empty DFA is always valid
+            throw new IllegalStateException(e);
+        }
+        controller.getAlphabetRanges().forEach(controller::unregisterAlphabetRange);
+        canvasModel.setCurrentSelection(null);
+        canvasModel.setHighlightedComponent(null);
+        canvasModel.getInitialNodeComponent().set(null);
+        canvasModel.getComponents().clear();
+        canvasModel.getDfaAlphabet().clear();
+    }
+
+    public boolean isRunning() {
+        return task != null || plan != null;
+    }
+
+    public ReadOnlyStringProperty getMessageProperty() {
+        return message.getReadOnlyProperty();
+    }
+
+    /**
+     * Returns the progress of the running step of the load.
+     *
+     * @return progress from 0 to 1, or -1 when unknown
+     */
+    public ReadOnlyDoubleProperty getProgressProperty() {
+        return progress.getReadOnlyProperty();
+    }
+
+    /**
+     * Reports the number of bytes read so far after every read.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private final LongConsumer onRead;
+        private long count;
+
+        private CountingInputStream(InputStream in, LongConsumer onRead) {
+            super(in);
+            this.onRead = onRead;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b >= 0) onRead.accept(++count);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            final int n = super.read(buffer, offset, length);
+            if (n > 0) onRead.accept(count += n);
+            return n;
+        }
+    }
+
+    /**
+     * A DFA read from a file, with the center of every node and the order to add the components in.
+     */
+    private static final class LoadPlan {
+        private final DFADocument document;
+        private final Map<DFANode, double[]> positions;
+        // nodes and edges, every edge after both its nodes
+        private final List<Object> order;
+
+        private LoadPlan(DFADocument document, double centerX, double centerY) {
+            this.document = document;
+            final List<DFANode> nodes = new ArrayList<>(document.getNodes().values());
+            this.positions = new HashMap<>();
+            final int columns = Math.max(1, (int) (CanvasModel.CANVAS_WIDTH / GRID_SPACING) - 1);
+            for (int i = 0; i < nodes.size(); i++) {
+                final double[] position = document.getPosition(nodes.get(i));
+                positions.put(nodes.get(i), position != null ? position
+                        : new double[]{(i % columns + 1) * GRID_SPACING, (i / columns + 1) * GRID_SPACING});
+            }
+            if (!Double.isNaN(centerX)) {
+                nodes.sort(Comparator.comparingDouble((DFANode node) -> {
+                    final double[] position = positions.get(node);
+                    return Math.hypot(position[0] - centerX, position[1] - centerY);
+                }));
+            }
+
+            final Map<DFANode, List<DFAEdge>> edgesByNode = new HashMap<>();
+            for (DFAEdge edge : document.getController().getEdgeSet()) {
+                edgesByNode.computeIfAbsent(edge.getTail(), (DFANode n) -> new ArrayList<>()).add(edge);
+                if (edge.getHead() != edge.getTail()) {
+                    edgesByNode.computeIfAbsent(edge.getHead(), (DFANode n) -> new ArrayList<>()).add(edge);
+                }
+            }
+            this.order = new ArrayList<>();
+            final Set<DFANode> ordered = new HashSet<>();
+            for (DFANode node : nodes) {
+                order.add(node);
+                ordered.add(node);
+                // an edge follows the later of its nodes
+                for (DFAEdge edge : edgesByNode.getOrDefault(node, List.of())) {
+                    final DFANode other = edge.getTail() == node ? edge.getHead() : edge.getTail();
+                    if (ordered.contains(other)) order.add(edge);
+                }
+            }
+        }
+    }
+}
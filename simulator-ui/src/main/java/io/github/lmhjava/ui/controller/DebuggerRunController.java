@@ -0,0 +1,175 @@
+package io.github.lmhjava.ui.controller;
+
+import io.github.lmhjava.engine.compiled.CompiledDFA;
+import io.github.lmhjava.engine.dfa.DFANode;
+import io.github.lmhjava.ui.model.CanvasModel;
+import io.github.lmhjava.ui.object.CanvasComponent;
+import io.github.lmhjava.ui.object.DFANodeComponent;
+import javafx.animation.AnimationTimer;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs a whole input through the DFA on the canvas, and plays the run back by highlighting the current node.
+ * <p>
+ * The DFA is compiled on the FX thread, the input runs on a worker thread, and the states it goes through
+ * are played back at {@link #getSpeedProperty() speed} steps per second. Playback starts at once and
+ * follows the worker. Once the playback ends, the engine is left on the last node, so the debugger can step
+ * on from there.
+ *
+ * @implNote every code point of the input is an alphabet, like {@link CompiledDFA#accepts(CharSequence)}.
+ * Playback runs on an {@link AnimationTimer}: however many steps a pulse covers, only the last state is
+ * highlighted, so the scene graph is restyled at most once per pulse.
+ */
+@Slf4j
+public class DebuggerRunController {
+    public static final double DEFAULT_SPEED = 10;
+    // the worker publishes its progress every this many steps
+    private static final int PUBLISH_STEPS = 1024;
+
+    private final CanvasModel canvasModel;
+    private final DoubleProperty speed;
+    private final AnimationTimer timer;
+
+    private CompiledDFA dfa;
+    private Map<DFANode, DFANodeComponent> components;
+    private Run run;
+    private int position;
+    private double pendingSteps;
+    private long lastFrame;
+
+    public DebuggerRunController(CanvasModel canvasModel) {
+        this.canvasModel = canvasModel;
+        this.speed = new SimpleDoubleProperty(DEFAULT_SPEED);
+        this.timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                play(now);
+            }
+        };
+    }
+
+    /**
+     * Runs an input from the initial node, after stopping the current run if any.
+     *
+     * @param input input text
+     * @return whether the run started, i.e. the DFA has an initial node
+     */
+    public boolean start(String input) {
+        stop();
+        dfa = CompiledDFA.compile(canvasModel.getDfaController());
+        if (dfa.getInitialState() == CompiledDFA.DEAD) {
+            log.warn("The DFA has no initial node to run from");
+            return false;
+        }
+        components = new HashMap<>();
+        for (CanvasComponent component : canvasModel.getComponents()) {
+            if (component instanceof DFANodeComponent node) components.put(node.getNode(), node);
+        }
+        final Run newRun = new Run(input.codePointCount(0, input.length()) + 1);
+        final CompiledDFA runDfa = dfa;
+        newRun.trace[0] = runDfa.getInitialState();
+        final Thread worker = new Thread(() -> {
+            int state = runDfa.getInitialState();
+            int step = 0;
+            for (int i = 0; i < input.length() && state != CompiledDFA.DEAD && !newRun.isCancelled; ) {
+                final int codePoint = input.codePointAt(i);
+                state = runDfa.step(state, runDfa.classOfCodePoint(codePoint));
+                newRun.trace[++step] = state;
+                i += Character.charCount(codePoint);
+                // the volatile write publishes the trace before it
+                if (step % PUBLISH_STEPS == 0) newRun.computed = step + 1;
+            }
+            newRun.computed = step + 1;
+            newRun.isComputed = true;
+        }, "debugger-run");
+        worker.setDaemon(true);
+        run = newRun;
+        worker.start();
+
+        position = 0;
+        pendingSteps = 0;
+        lastFrame = 0;
+        highlight(newRun.trace[0]);
+        timer.start();
+        log.debug("Run started on an input of {} alphabets", newRun.trace.length - 1);
+        return true;
+    }
+
+    /**
+     * Stops the current run, the highlighted node stays.
+     */
+    public void stop() {
+        timer.stop();
+        if (run != null) {
+            run.isCancelled = true;
+            run = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return run != null;
+    }
+
+    private void play(long now) {
+        if (lastFrame != 0) pendingSteps += speed.get() * (now - lastFrame) / 1e9;
+        lastFrame = now;
+        final boolean isDone = run.isComputed;
+        final int last = run.computed - 1;
+        final int steps = (int) pendingSteps;
+        pendingSteps -= steps;
+        final int next = (int) Math.min((long) position + steps, last);
+        // do not save up steps while waiting for the worker
+        if (next == last) pendingSteps = 0;
+        if (next != position) {
+            position = next;
+            highlight(run.trace[position]);
+        }
+        if (isDone && position == last) finish();
+    }
+
+    private void highlight(int state) {
+        canvasModel.setHighlightedComponent(components.get(dfa.getNode(state)));
+    }
+
+    private void finish() {
+        final int state = run.trace[position];
+        stop();
+        if (state == CompiledDFA.DEAD) {
+            log.info("Input rejected: no transition at alphabet {}", position);
+            canvasModel.getDfaController().reset();
+            return;
+        }
+        // leave the engine on the last node, which highlights it again
+        canvasModel.getDfaController().setCurrentNode(dfa.getNode(state));
+        log.info("Input {}", dfa.isAccepting(state) ? "accepted" : "rejected");
+    }
+
+    // one run of an input, shared with its worker thread
+    private static final class Run {
+        // state after every step of the input, trace[0] is the initial state
+        private final int[] trace;
+        // number of states of the trace computed by the worker so far
+        private volatile int computed;
+        private volatile boolean isComputed;
+        private volatile boolean isCancelled;
+
+        private Run(int length) {
+            this.trace = new int[length];
+            this.computed = 1;
+        }
+    }
+
+    /**
+     * Returns the playback speed.
+     *
+     * @return steps played per second
+     */
+    public DoubleProperty getSpeedProperty() {
+        return speed;
+    }
+}
@@ -34,6 +34,8 @@ public class DragToAdjustComponentController extends DraggableCanvasComponentCon
         };
         commitPositionOnRelease = event -> {
             target.setOpacity(1);
+            // the arrow is bent, so its bounds changed
+            canvasModel.updateBounds(target);
         };
     }
 
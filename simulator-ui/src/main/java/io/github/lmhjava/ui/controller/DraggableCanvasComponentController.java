@@ -67,6 +67,8 @@ public class DraggableCanvasComponentController {
                 target.setTranslateX(0);
                 target.setTranslateY(0);
                 target.setOpacity(1);
+                // the node and its edges moved
+                canvasModel.updateBounds(target);
             }
         };
     }
@@ -0,0 +1,126 @@
+package io.github.lmhjava.ui.controller;
+
+import io.github.lmhjava.ui.model.CanvasModel;
+import io.github.lmhjava.ui.object.CanvasComponent;
+import io.github.lmhjava.ui.object.DFAEdgeComponent;
+import io.github.lmhjava.ui.object.DFANodeComponent;
+import io.github.lmhjava.ui.object.EdgeGeometry;
+import javafx.animation.AnimationTimer;
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.collections.SetChangeListener;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lays out the edges on the canvas, once per pulse, after their nodes move or their bend changes.
+ * <p>
+ * A moved node marks itself dirty, and a bent edge marks itself dirty. On the next pulse, every dirty edge and
+ * every edge of a dirty node is laid out once with {@link DFAEdgeComponent#layout(EdgeGeometry)}, however many
+ * times its nodes moved in between.
+ *
+ * @implNote the edges of a node are looked up in {@link CanvasModel#getEdgesOf(DFANodeComponent)}, so a pass
+ * only visits the edges touching the dirty nodes. The pass runs on an {@link AnimationTimer}, i.e. before the
+ * layout and the rendering of the pulse, and the timer only runs while something is dirty.
+ */
+@Slf4j
+public final class EdgeLayoutController {
+    private final CanvasModel canvasModel;
+    private final EdgeGeometry geometry;
+    private final Set<DFANodeComponent> dirtyNodes;
+    private final Set<DFAEdgeComponent> dirtyEdges;
+    private final Map<CanvasComponent, InvalidationListener> watchers;
+    private final AnimationTimer timer;
+    private boolean isScheduled;
+
+    public EdgeLayoutController(CanvasModel canvasModel) {
+        this.canvasModel = canvasModel;
+        this.geometry = new EdgeGeometry();
+        this.dirtyNodes = new LinkedHashSet<>();
+        this.dirtyEdges = new LinkedHashSet<>();
+        this.watchers = new HashMap<>();
+        this.timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                layout();
+            }
+        };
+
+        canvasModel.getComponents().forEach(this::watch);
+        canvasModel.getComponents().addListener((SetChangeListener.Change<? extends CanvasComponent> c) -> {
+            if (c.wasAdded()) {
+                watch(c.getElementAdded());
+            } else if (c.wasRemoved()) {
+                unwatch(c.getElementRemoved());
+            }
+        });
+    }
+
+    private void watch(CanvasComponent component) {
+        if (component instanceof DFANodeComponent node) {
+            final InvalidationListener watcher = (Observable unused) -> markDirty(node);
+            watchers.put(node, watcher);
+            node.getXProperty().addListener(watcher);
+            node.getYProperty().addListener(watcher);
+        } else if (component instanceof DFAEdgeComponent edge) {
+            final InvalidationListener watcher = (Observable unused) -> {
+                if (edge.isSettled()) markDirty(edge);
+            };
+            watchers.put(edge, watcher);
+            edge.getHeadNodeProperty().addListener(watcher);
+            edge.getArrowControlProperty().addListener(watcher);
+            watcher.invalidated(null);
+        }
+    }
+
+    private void unwatch(CanvasComponent component) {
+        final InvalidationListener watcher = watchers.remove(component);
+        if (watcher == null) return;
+        if (component instanceof DFANodeComponent node) {
+            node.getXProperty().removeListener(watcher);
+            node.getYProperty().removeListener(watcher);
+            dirtyNodes.remove(node);
+        } else if (component instanceof DFAEdgeComponent edge) {
+            edge.getHeadNodeProperty().removeListener(watcher);
+            edge.getArrowControlProperty().removeListener(watcher);
+            dirtyEdges.remove(edge);
+        }
+    }
+
+    public void markDirty(DFANodeComponent node) {
+        dirtyNodes.add(node);
+        schedule();
+    }
+
+    public void markDirty(DFAEdgeComponent edge) {
+        dirtyEdges.add(edge);
+        schedule();
+    }
+
+    private void schedule() {
+        if (isScheduled) return;
+        isScheduled = true;
+        timer.start();
+    }
+
+    /**
+     * Lays out every dirty edge and every edge of a dirty node, each of them once.
+     */
+    public void layout() {
+        timer.stop();
+        isScheduled = false;
+        for (DFANodeComponent node : dirtyNodes) {
+            dirtyEdges.addAll(canvasModel.getEdgesOf(node));
+        }
+        for (DFAEdgeComponent edge : dirtyEdges) {
+            if (canvasModel.getComponents().contains(edge)) edge.layout(geometry);
+        }
+        log.trace("Laid out {} edges of {} nodes", dirtyEdges.size(), dirtyNodes.size());
+        dirtyNodes.clear();
+        dirtyEdges.clear();
+    }
+}
@@ -1,4 +1,34 @@
 package io.github.lmhjava.ui.controller;
 
-public class MessageBarController {
+import javafx.beans.binding.Bindings;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.fxml.FXML;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+
+/**
+ * Message bar at the bottom of the app, showing the message and the progress of a background job.
+ */
+public class MessageBarController extends BaseAppController {
+
+    @FXML
+    private Label messageLabel;
+
+    @FXML
+    private ProgressBar progressBar;
+
+    /**
+     * Shows the message and the progress of a background job, e.g. {@link DFALoadController}.
+     * The progress bar is hidden while the job is idle or done.
+     *
+     * @param message message of the job
+     * @param progress progress from 0 to 1, or -1 when unknown
+     */
+    public void showProgress(ReadOnlyStringProperty message, ReadOnlyDoubleProperty progress) {
+        messageLabel.textProperty().bind(message);
+        progressBar.progressProperty().bind(progress);
+        progressBar.visibleProperty().bind(Bindings.createBooleanBinding(
+                () -> progress.get() != 0 && progress.get() < 1, progress));
+    }
 }
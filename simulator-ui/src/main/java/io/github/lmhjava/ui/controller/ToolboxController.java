@@ -5,9 +5,11 @@ import io.github.lmhjava.engine.dfa.DFAEdge;
 import io.github.lmhjava.engine.dfa.DFANode;
 import io.github.lmhjava.engine.exception.NextNodeUndefException;
 import io.github.lmhjava.ui.model.CanvasModel;
+import javafx.beans.binding.Bindings;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
+import javafx.scene.control.Slider;
 import javafx.scene.control.TextField;
 import org.apache.logging.log4j.util.Strings;
 
@@ -25,6 +27,12 @@ public class ToolboxController extends BaseAppController {
     @FXML
     private Button stepOverDebuggerButton;
 
+    /**
+     * playback speed of the run mode, as the log10 of the steps per second
+     */
+    @FXML
+    private Slider playbackSpeedSlider;
+
     @FXML
     private Button addNodeButton;
 
@@ -44,6 +52,11 @@ public class ToolboxController extends BaseAppController {
 
     private CanvasModel canvasModel;
 
+    /**
+     * runs a whole input and plays it back, see onResumeDebuggerButtonClicked
+     */
+    private DebuggerRunController debuggerRunController;
+
     // current character on the input
     private String currentChar;
 
@@ -54,6 +67,9 @@ public class ToolboxController extends BaseAppController {
      */
     public void initModel(CanvasModel canvasModel) {
         this.canvasModel = canvasModel;
+        this.debuggerRunController = new DebuggerRunController(canvasModel);
+        debuggerRunController.getSpeedProperty().bind(Bindings.createDoubleBinding(
+                () -> Math.pow(10, playbackSpeedSlider.getValue()), playbackSpeedSlider.valueProperty()));
     }
 
     /**
@@ -87,7 +103,11 @@ public class ToolboxController extends BaseAppController {
 
     @FXML
     public void onResumeDebuggerButtonClicked(ActionEvent unused) {
-
+        // check validity
+        if (Strings.isBlank(inputTextField.getText())) {
+            return;
+        }
+        debuggerRunController.start(inputTextField.getText());
     }
 
     @FXML
@@ -110,6 +130,7 @@ public class ToolboxController extends BaseAppController {
     @FXML
     public void onStopDebuggerButtonClicked(ActionEvent unused) {
         currentChar = null;
+        debuggerRunController.stop();
 
     }
 }
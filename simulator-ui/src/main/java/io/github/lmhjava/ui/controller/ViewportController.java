@@ -0,0 +1,185 @@
+package io.github.lmhjava.ui.controller;
+
+import io.github.lmhjava.ui.model.CanvasModel;
+import io.github.lmhjava.ui.object.CanvasComponent;
+import io.github.lmhjava.ui.object.DFAEdgeComponent;
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.collections.SetChangeListener;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.layout.Pane;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps only the canvas components near the visible part of the canvas in the scene graph.
+ * <p>
+ * A component is attached to the canvas pane when its bounds intersect the viewport of the scroll pane,
+ * grown by a margin, and detached otherwise. The components are re-checked when the user pans or zooms,
+ * when a component is added, and when a component is moved.
+ *
+ * @implNote Every trigger only marks the viewport dirty, the components are re-checked at most once per
+ * pulse, and the scene graph is changed with one batched update of the children. Removed components are
+ * detached by that update too, so deleting a node with all its edges changes the children once. Edges are
+ * kept behind the nodes, like {@code DFAEdgeComponent.settle} does.
+ */
+@Slf4j
+public final class ViewportController {
+    /**
+     * Margin around the viewport, in canvas pixels, so that a short pan does not show blank areas.
+     */
+    public static final double VIEWPORT_MARGIN = 300;
+
+    private final ScrollPane scrollPane;
+    private final Pane canvasPane;
+    private final CanvasModel canvasModel;
+    // components currently in the scene graph
+    private final Set<CanvasComponent> attached;
+    private final InvalidationListener refreshListener;
+    private boolean isRefreshScheduled;
+    private boolean isBoundedHidden;
+
+    public ViewportController(ScrollPane scrollPane, Pane canvasPane, CanvasModel canvasModel) {
+        this.scrollPane = scrollPane;
+        this.canvasPane = canvasPane;
+        this.canvasModel = canvasModel;
+        this.attached = new HashSet<>();
+        this.refreshListener = (Observable unused) -> requestRefresh();
+
+        scrollPane.hvalueProperty().addListener(refreshListener);
+        scrollPane.vvalueProperty().addListener(refreshListener);
+        scrollPane.viewportBoundsProperty().addListener(refreshListener);
+        canvasPane.scaleXProperty().addListener(refreshListener);
+        canvasPane.scaleYProperty().addListener(refreshListener);
+
+        canvasModel.getComponents().forEach(this::watch);
+        canvasModel.getComponents().addListener((SetChangeListener.Change<? extends CanvasComponent> c) -> {
+            if (c.wasAdded()) {
+                watch(c.getElementAdded());
+            } else if (c.wasRemoved()) {
+                unwatch(c.getElementRemoved());
+            }
+        });
+        refresh();
+    }
+
+    private void watch(CanvasComponent component) {
+        component.getXProperty().addListener(refreshListener);
+        component.getYProperty().addListener(refreshListener);
+        // attach an edge being drawn at once, so that it can be used right away, e.g. by initShape(),
+        // the others are attached by the refresh if they are in the viewport
+        if (component.getCanvasBounds() == null && attached.add(component)) {
+            if (component instanceof DFAEdgeComponent) {
+                canvasPane.getChildren().add(0, component);
+            } else {
+                canvasPane.getChildren().add(component);
+            }
+        }
+        requestRefresh();
+    }
+
+    private void unwatch(CanvasComponent component) {
+        component.getXProperty().removeListener(refreshListener);
+        component.getYProperty().removeListener(refreshListener);
+        // detached with the next refresh, together with the other components removed meanwhile
+        if (attached.contains(component)) requestRefresh();
+    }
+
+    /**
+     * Schedules a re-check of all the components, once for all the triggers of a pulse.
+     */
+    public void requestRefresh() {
+        if (isRefreshScheduled) return;
+        isRefreshScheduled = true;
+        Platform.runLater(() -> {
+            isRefreshScheduled = false;
+            refresh();
+        });
+    }
+
+    /**
+     * Hides every component with bounds, e.g. while they are drawn by a
+     * {@link io.github.lmhjava.ui.render.CanvasRenderer}. Components without bounds, i.e. an edge being added,
+     * are still attached.
+     *
+     * @param isBoundedHidden whether the components with bounds are hidden
+     */
+    public void setBoundedHidden(boolean isBoundedHidden) {
+        this.isBoundedHidden = isBoundedHidden;
+        refresh();
+    }
+
+    /**
+     * Returns the visible part of the canvas, grown by {@link #VIEWPORT_MARGIN}.
+     *
+     * @return bounds in canvas coordinates, or {@code null} if the viewport is not laid out yet
+     */
+    public Bounds getVisibleBounds() {
+        // the viewport node is created by the skin of the scroll pane, i.e. once it is shown
+        final Node viewport = scrollPane.lookup(".viewport");
+        if (viewport == null || viewport.getScene() == null) return null;
+        final Bounds visible = canvasPane.sceneToLocal(viewport.localToScene(viewport.getLayoutBounds()));
+        return new BoundingBox(visible.getMinX() - VIEWPORT_MARGIN, visible.getMinY() - VIEWPORT_MARGIN,
+                visible.getWidth() + 2 * VIEWPORT_MARGIN, visible.getHeight() + 2 * VIEWPORT_MARGIN);
+    }
+
+    /**
+     * Attaches the components in the viewport and detaches the others.
+     *
+     * @implNote the components in the viewport are queried from the spatial index of the model, so only the
+     * components around the viewport and those attached before are visited.
+     */
+    public void refresh() {
+        final Bounds visible = getVisibleBounds();
+        // show everything until the viewport is known, and never hide the selection
+        final Set<CanvasComponent> toShow = new HashSet<>();
+        if (isBoundedHidden) {
+            toShow.addAll(canvasModel.getUnboundedComponents());
+        } else if (visible == null) {
+            toShow.addAll(canvasModel.getComponents());
+        } else {
+            toShow.addAll(canvasModel.getComponentsIn(visible));
+            toShow.addAll(canvasModel.getUnboundedComponents());
+            final CanvasComponent selection = canvasModel.getCurrentSelection();
+            if (selection != null && canvasModel.getComponents().contains(selection)) toShow.add(selection);
+        }
+        final List<CanvasComponent> edgesToAttach = new ArrayList<>();
+        final List<CanvasComponent> nodesToAttach = new ArrayList<>();
+        for (CanvasComponent component : toShow) {
+            if (!attached.contains(component)) {
+                (component instanceof DFAEdgeComponent ? edgesToAttach : nodesToAttach).add(component);
+            }
+        }
+        final Set<CanvasComponent> toDetach = new HashSet<>();
+        for (CanvasComponent component : attached) {
+            if (!toShow.contains(component)) toDetach.add(component);
+        }
+        if (edgesToAttach.isEmpty() && nodesToAttach.isEmpty() && toDetach.isEmpty()) return;
+
+        // one pass over the children for all the removals
+        canvasPane.getChildren().removeAll(toDetach);
+        attached.removeAll(toDetach);
+        canvasPane.getChildren().addAll(0, edgesToAttach);
+        canvasPane.getChildren().addAll(nodesToAttach);
+        attached.addAll(edgesToAttach);
+        attached.addAll(nodesToAttach);
+        log.debug("Viewport refreshed: {} attached, {} detached, {} in the scene graph",
+                edgesToAttach.size() + nodesToAttach.size(), toDetach.size(), attached.size());
+    }
+
+    public boolean isAttached(CanvasComponent component) {
+        return attached.contains(component);
+    }
+
+    public int getAttachedCount() {
+        return attached.size();
+    }
+}
@@ -0,0 +1,237 @@
+package io.github.lmhjava.ui.layout;
+
+import io.github.lmhjava.ui.object.DFANodeComponent;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Force-directed layout: every two nodes push each other away, every edge pulls its two nodes together,
+ * and the moves shrink over the iterations until the graph settles (Fruchterman and Reingold).
+ *
+ * @implNote the repulsion between all the pairs of nodes is approximated with a Barnes-Hut quadtree: a group
+ * of nodes far enough from a node pushes it as one node at its center of mass. An iteration takes
+ * O(n log n + e) instead of O(n^2 + e).
+ */
+public final class ForceLayout implements GraphLayout {
+    public static final int DEFAULT_ITERATIONS = 300;
+    /**
+     * Groups of nodes smaller than this ratio of their distance are approximated, 0 computes every pair
+     */
+    public static final double DEFAULT_THETA = 0.9;
+    private static final double NODE_DIAMETER = 2 * (DFANodeComponent.NODE_CIRCLE_RADIUS + DFANodeComponent.SELECTION_CIRCLE_THICKNESS);
+    // pull towards the center, so that disconnected parts stay together
+    private static final double GRAVITY = 0.05;
+    private static final double MIN_DISTANCE = 1;
+    private static final long SEED = 42;
+
+    private final int iterations;
+    private final double theta;
+
+    public ForceLayout() {
+        this(DEFAULT_ITERATIONS, DEFAULT_THETA);
+    }
+
+    public ForceLayout(int iterations, double theta) {
+        assert iterations > 0 && theta >= 0;
+        this.iterations = iterations;
+        this.theta = theta;
+    }
+
+    @Override
+    public void layout(LayoutGraph graph, double width, double height, Monitor monitor) {
+        final int n = graph.getNodeCount();
+        if (n == 0) return;
+        final double[] x = graph.getX(), y = graph.getY();
+        final double minX = NODE_DIAMETER, minY = NODE_DIAMETER;
+        final double maxX = Math.max(minX, width - NODE_DIAMETER), maxY = Math.max(minY, height - NODE_DIAMETER);
+        spreadCoincident(x, y, minX, minY, maxX, maxY);
+
+        // ideal distance between two nodes, so that they fill the area
+        final double k = Math.max(Math.sqrt((maxX - minX) * (maxY - minY) / n), 1.5 * NODE_DIAMETER);
+        final double k2 = k * k;
+        final double centerX = (minX + maxX) / 2, centerY = (minY + maxY) / 2;
+        final double[] dx = new double[n], dy = new double[n];
+        final BarnesHutTree tree = new BarnesHutTree(n);
+        double temperature = Math.max(maxX - minX, maxY - minY) / 10;
+        final double cooling = temperature / iterations;
+
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            if (monitor.isCancelled()) return;
+            tree.build(x, y);
+            for (int i = 0; i < n; i++) {
+                tree.repulse(i, x, y, k2, theta, dx, dy);
+                dx[i] -= (x[i] - centerX) * GRAVITY;
+                dy[i] -= (y[i] - centerY) * GRAVITY;
+            }
+            for (int e = 0; e < graph.getEdgeCount(); e++) {
+                final int tail = graph.getEdgeTail(e), head = graph.getEdgeHead(e);
+                if (tail == head) continue;
+                final double ex = x[tail] - x[head], ey = y[tail] - y[head];
+                final double distance = Math.max(Math.hypot(ex, ey), MIN_DISTANCE);
+                // d^2 / k along the edge
+                final double force = distance / k;
+                dx[tail] -= ex * force;
+                dy[tail] -= ey * force;
+                dx[head] += ex * force;
+                dy[head] += ey * force;
+            }
+            // every node moves at most by the temperature
+            for (int i = 0; i < n; i++) {
+                final double length = Math.max(Math.hypot(dx[i], dy[i]), MIN_DISTANCE);
+                final double move = Math.min(length, temperature);
+                x[i] = Math.min(maxX, Math.max(minX, x[i] + dx[i] / length * move));
+                y[i] = Math.min(maxY, Math.max(minY, y[i] + dy[i] / length * move));
+            }
+            Arrays.fill(dx, 0);
+            Arrays.fill(dy, 0);
+            temperature = Math.max(temperature - cooling, 1);
+            monitor.progress(iteration + 1, iterations);
+        }
+    }
+
+    // nodes at the same position, e.g. those of an imported DFA, get random positions instead
+    private static void spreadCoincident(double[] x, double[] y, double minX, double minY, double maxX, double maxY) {
+        final Random random = new Random(SEED);
+        final Set<Long> taken = new HashSet<>();
+        for (int i = 0; i < x.length; i++) {
+            if (!taken.add(Double.doubleToLongBits(x[i]) * 31 + Double.doubleToLongBits(y[i]))) {
+                x[i] = minX + random.nextDouble() * (maxX - minX);
+                y[i] = minY + random.nextDouble() * (maxY - minY);
+            }
+        }
+    }
+
+    /**
+     * Quadtree of points with the mass and the center of mass of every cell, stored in arrays and rebuilt
+     * in place on every iteration.
+     */
+    private static final class BarnesHutTree {
+        private static final int MAX_DEPTH = 32;
+        private static final int EMPTY = -1;
+        private static final int INTERNAL = -2;
+
+        private double[] cellMinX, cellMinY, cellSize;
+        private double[] sumX, sumY;
+        private int[] mass;
+        // the point of a leaf, EMPTY or INTERNAL
+        private int[] point;
+        // 4 children per cell, 0 when absent, as the root is never a child
+        private int[] children;
+        private int cellCount;
+        private final int[] stack;
+
+        private BarnesHutTree(int pointCount) {
+            allocate(2 * pointCount + 1);
+            this.stack = new int[4 * (MAX_DEPTH + 2)];
+        }
+
+        private void allocate(int capacity) {
+            cellMinX = cellMinX == null ? new double[capacity] : Arrays.copyOf(cellMinX, capacity);
+            cellMinY = cellMinY == null ? new double[capacity] : Arrays.copyOf(cellMinY, capacity);
+            cellSize = cellSize == null ? new double[capacity] : Arrays.copyOf(cellSize, capacity);
+            sumX = sumX == null ? new double[capacity] : Arrays.copyOf(sumX, capacity);
+            sumY = sumY == null ? new double[capacity] : Arrays.copyOf(sumY, capacity);
+            mass = mass == null ? new int[capacity] : Arrays.copyOf(mass, capacity);
+            point = point == null ? new int[capacity] : Arrays.copyOf(point, capacity);
+            children = children == null ? new int[4 * capacity] : Arrays.copyOf(children, 4 * capacity);
+        }
+
+        private int newCell(double minX, double minY, double size) {
+            if (cellCount == mass.length) allocate(2 * cellCount);
+            final int cell = cellCount++;
+            cellMinX[cell] = minX;
+            cellMinY[cell] = minY;
+            cellSize[cell] = size;
+            sumX[cell] = 0;
+            sumY[cell] = 0;
+            mass[cell] = 0;
+            point[cell] = EMPTY;
+            Arrays.fill(children, 4 * cell, 4 * cell + 4, 0);
+            return cell;
+        }
+
+        private void build(double[] x, double[] y) {
+            double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+            for (int i = 0; i < x.length; i++) {
+                minX = Math.min(minX, x[i]);
+                minY = Math.min(minY, y[i]);
+                maxX = Math.max(maxX, x[i]);
+                maxY = Math.max(maxY, y[i]);
+            }
+            cellCount = 0;
+            final int root = newCell(minX, minY, Math.max(Math.max(maxX - minX, maxY - minY), MIN_DISTANCE));
+            for (int i = 0; i < x.length; i++) {
+                insert(root, i, x, y);
+            }
+        }
+
+        private void insert(int cell, int i, double[] x, double[] y) {
+            for (int depth = 0; ; depth++) {
+                mass[cell]++;
+                sumX[cell] += x[i];
+                sumY[cell] += y[i];
+                if (mass[cell] == 1) {
+                    point[cell] = i;
+                    return;
+                }
+                // points this close are kept together in one leaf
+                if (depth >= MAX_DEPTH) return;
+                if (point[cell] >= 0) {
+                    final int other = point[cell];
+                    point[cell] = INTERNAL;
+                    final int child = childOf(cell, x[other], y[other]);
+                    mass[child] = 1;
+                    sumX[child] = x[other];
+                    sumY[child] = y[other];
+                    point[child] = other;
+                }
+                cell = childOf(cell, x[i], y[i]);
+            }
+        }
+
+        // the child of a cell around a position, created if absent
+        private int childOf(int cell, double px, double py) {
+            final double half = cellSize[cell] / 2;
+            final boolean isRight = px >= cellMinX[cell] + half, isBottom = py >= cellMinY[cell] + half;
+            final int slot = 4 * cell + (isRight ? 1 : 0) + (isBottom ? 2 : 0);
+            if (children[slot] == 0) {
+                final int child = newCell(cellMinX[cell] + (isRight ? half : 0), cellMinY[cell] + (isBottom ? half : 0), half);
+                // the arrays may have been reallocated
+                children[slot] = child;
+            }
+            return children[slot];
+        }
+
+        // adds the repulsion of all the other points on point i, k^2 / d per point
+        private void repulse(int i, double[] x, double[] y, double k2, double theta, double[] dx, double[] dy) {
+            int top = 0;
+            stack[top++] = 0;
+            while (top > 0) {
+                final int cell = stack[--top];
+                if (point[cell] == i) continue;
+                final double cx = sumX[cell] / mass[cell], cy = sumY[cell] / mass[cell];
+                double ex = x[i] - cx, ey = y[i] - cy;
+                double distance2 = ex * ex + ey * ey;
+                final boolean isLeaf = point[cell] != INTERNAL;
+                if (isLeaf || cellSize[cell] * cellSize[cell] < theta * theta * distance2) {
+                    if (distance2 < MIN_DISTANCE * MIN_DISTANCE) {
+                        // coincident points are pushed apart in a direction of their own
+                        ex = Math.cos(i);
+                        ey = Math.sin(i);
+                        distance2 = MIN_DISTANCE * MIN_DISTANCE;
+                    }
+                    final double force = k2 * mass[cell] / distance2;
+                    dx[i] += ex * force;
+                    dy[i] += ey * force;
+                } else {
+                    for (int slot = 4 * cell; slot < 4 * cell + 4; slot++) {
+                        if (children[slot] != 0) stack[top++] = children[slot];
+                    }
+                }
+            }
+        }
+    }
+}
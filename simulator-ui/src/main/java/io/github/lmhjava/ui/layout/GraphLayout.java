@@ -0,0 +1,40 @@
+package io.github.lmhjava.ui.layout;
+
+/**
+ * Algorithm which places the nodes of a graph on the canvas.
+ * <p>
+ * A layout runs on a background thread. It moves the nodes of the {@link LayoutGraph} in place, and reports
+ * to the {@link Monitor} as it goes, so that the intermediate positions can be shown and the run cancelled.
+ */
+public interface GraphLayout {
+
+    /**
+     * Lays out a graph.
+     *
+     * @param graph graph to lay out in place
+     * @param width width of the area to place the nodes in
+     * @param height height of the area to place the nodes in
+     * @param monitor receives the progress and tells when to stop
+     */
+    void layout(LayoutGraph graph, double width, double height, Monitor monitor);
+
+    /**
+     * Link between a running layout and the thread waiting for it.
+     */
+    interface Monitor {
+        /**
+         * Reports the progress, the positions of the graph may be published to the canvas.
+         *
+         * @param done work done so far
+         * @param total total work
+         */
+        void progress(long done, long total);
+
+        /**
+         * Tells whether the layout should stop, leaving the graph as it is.
+         *
+         * @return whether the layout is cancelled
+         */
+        boolean isCancelled();
+    }
+}
@@ -0,0 +1,167 @@
+package io.github.lmhjava.ui.layout;
+
+import io.github.lmhjava.ui.object.DFANodeComponent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Layered layout: the nodes are placed in columns by their distance from the initial node, left to right,
+ * and the nodes of every column are ordered to keep the edges between neighbouring columns short.
+ *
+ * @implNote the columns come from a breadth-first search from the initial node, then from every node not
+ * reached yet. The order within the columns is improved by sweeping the barycenter heuristic back and forth
+ * a few times, so a layout takes O((n + e) log n) per sweep.
+ */
+public final class LayeredLayout implements GraphLayout {
+    public static final int DEFAULT_SWEEPS = 8;
+    private static final double NODE_DIAMETER = 2 * (DFANodeComponent.NODE_CIRCLE_RADIUS + DFANodeComponent.SELECTION_CIRCLE_THICKNESS);
+    private static final double LAYER_SPACING = 2.5 * NODE_DIAMETER;
+    private static final double NODE_SPACING = 1.5 * NODE_DIAMETER;
+    private static final double MIN_SPACING = 1.1 * NODE_DIAMETER;
+
+    private final int sweeps;
+
+    public LayeredLayout() {
+        this(DEFAULT_SWEEPS);
+    }
+
+    public LayeredLayout(int sweeps) {
+        assert sweeps >= 0;
+        this.sweeps = sweeps;
+    }
+
+    @Override
+    public void layout(LayoutGraph graph, double width, double height, Monitor monitor) {
+        final int n = graph.getNodeCount();
+        if (n == 0) return;
+        // neighbours of every node in both directions, as adjacency arrays
+        final int[] degree = new int[n + 1];
+        for (int e = 0; e < graph.getEdgeCount(); e++) {
+            if (graph.getEdgeTail(e) == graph.getEdgeHead(e)) continue;
+            degree[graph.getEdgeTail(e)]++;
+            degree[graph.getEdgeHead(e)]++;
+        }
+        final int[] start = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            start[i + 1] = start[i] + degree[i];
+        }
+        final int[] neighbours = new int[start[n]];
+        final int[] filled = Arrays.copyOf(start, n);
+        for (int e = 0; e < graph.getEdgeCount(); e++) {
+            final int tail = graph.getEdgeTail(e), head = graph.getEdgeHead(e);
+            if (tail == head) continue;
+            neighbours[filled[tail]++] = head;
+            neighbours[filled[head]++] = tail;
+        }
+
+        final List<List<Integer>> layers = assignLayers(graph, start, neighbours);
+        final int[] layerOf = new int[n];
+        final double[] order = new double[n];
+        for (int l = 0; l < layers.size(); l++) {
+            final List<Integer> layer = layers.get(l);
+            for (int i = 0; i < layer.size(); i++) {
+                layerOf[layer.get(i)] = l;
+                order[layer.get(i)] = i;
+            }
+        }
+
+        // sweep right, then left, sorting every layer by the mean order of its neighbours in the previous one
+        for (int sweep = 0; sweep < sweeps; sweep++) {
+            if (monitor.isCancelled()) return;
+            final boolean isForward = sweep % 2 == 0;
+            for (int step = 1; step < layers.size(); step++) {
+                final int l = isForward ? step : layers.size() - 1 - step;
+                final int reference = isForward ? l - 1 : l + 1;
+                final List<Integer> layer = layers.get(l);
+                final double[] barycenter = new double[layer.size()];
+                for (int i = 0; i < layer.size(); i++) {
+                    final int node = layer.get(i);
+                    double sum = 0;
+                    int count = 0;
+                    for (int j = start[node]; j < start[node + 1]; j++) {
+                        if (layerOf[neighbours[j]] == reference) {
+                            sum += order[neighbours[j]];
+                            count++;
+                        }
+                    }
+                    // a node without neighbours there keeps its place
+                    barycenter[i] = count == 0 ? order[node] : sum / count;
+                }
+                final Integer[] sorted = new Integer[layer.size()];
+                for (int i = 0; i < sorted.length; i++) {
+                    sorted[i] = i;
+                }
+                Arrays.sort(sorted, Comparator.comparingDouble((Integer i) -> barycenter[i]));
+                final List<Integer> reordered = new ArrayList<>(layer.size());
+                for (int i = 0; i < sorted.length; i++) {
+                    final int node = layer.get(sorted[i]);
+                    reordered.add(node);
+                    order[node] = i;
+                }
+                layers.set(l, reordered);
+            }
+            monitor.progress(sweep + 1, sweeps + 1);
+        }
+
+        // a layer taller than the height wraps into several columns
+        final int rowsPerColumn = Math.max(1, (int) ((height - 2 * NODE_DIAMETER) / MIN_SPACING) + 1);
+        int maxRows = 0, wrappedColumns = 0;
+        for (List<Integer> layer : layers) {
+            maxRows = Math.max(maxRows, Math.min(layer.size(), rowsPerColumn));
+            wrappedColumns += (layer.size() - 1) / rowsPerColumn;
+        }
+        // columns fill the width and rows the height, but never closer than the nodes
+        final double layerSpacing = spacing(LAYER_SPACING, width - wrappedColumns * MIN_SPACING, layers.size());
+        final double nodeSpacing = spacing(NODE_SPACING, height, maxRows);
+        final double[] x = graph.getX(), y = graph.getY();
+        double left = NODE_DIAMETER;
+        for (List<Integer> layer : layers) {
+            final int rows = Math.min(layer.size(), rowsPerColumn);
+            // centered vertically
+            final double top = Math.max(NODE_DIAMETER, height / 2 - (rows - 1) / 2d * nodeSpacing);
+            for (int i = 0; i < layer.size(); i++) {
+                x[layer.get(i)] = left + (i / rowsPerColumn) * MIN_SPACING;
+                y[layer.get(i)] = top + (i % rowsPerColumn) * nodeSpacing;
+            }
+            left += (layer.size() - 1) / rowsPerColumn * MIN_SPACING + layerSpacing;
+        }
+        monitor.progress(sweeps + 1, sweeps + 1);
+    }
+
+    private static double spacing(double preferred, double length, int count) {
+        if (count <= 1) return preferred;
+        return Math.max(MIN_SPACING, Math.min(preferred, (length - 2 * NODE_DIAMETER) / (count - 1)));
+    }
+
+    // breadth-first layers from the initial node first, then from the nodes left
+    private static List<List<Integer>> assignLayers(LayoutGraph graph, int[] start, int[] neighbours) {
+        final int n = graph.getNodeCount();
+        final List<List<Integer>> layers = new ArrayList<>();
+        final int[] depth = new int[n];
+        Arrays.fill(depth, -1);
+        final int[] queue = new int[n];
+        final int first = graph.getInitialNode() >= 0 ? graph.getInitialNode() : 0;
+        for (int k = 0; k < n; k++) {
+            final int root = (first + k) % n;
+            if (depth[root] >= 0) continue;
+            int head = 0, tail = 0;
+            queue[tail++] = root;
+            depth[root] = 0;
+            while (head < tail) {
+                final int node = queue[head++];
+                if (depth[node] == layers.size()) layers.add(new ArrayList<>());
+                layers.get(depth[node]).add(node);
+                for (int j = start[node]; j < start[node + 1]; j++) {
+                    if (depth[neighbours[j]] < 0) {
+                        depth[neighbours[j]] = depth[node] + 1;
+                        queue[tail++] = neighbours[j];
+                    }
+                }
+            }
+        }
+        return layers;
+    }
+}
@@ -0,0 +1,62 @@
+package io.github.lmhjava.ui.layout;
+
+/**
+ * Snapshot of the graph on the canvas for a layout algorithm, detached from the scene graph so that it can be
+ * laid out on a background thread.
+ * <p>
+ * Nodes are numbered from 0, and their positions are those of their centers, in canvas coordinates.
+ */
+public final class LayoutGraph {
+    private final double[] x;
+    private final double[] y;
+    private final int[] edgeTails;
+    private final int[] edgeHeads;
+    private final int initialNode;
+
+    /**
+     * Creates a graph.
+     *
+     * @param x x of every node, laid out in place
+     * @param y y of every node, laid out in place
+     * @param edgeTails tail of every edge
+     * @param edgeHeads head of every edge
+     * @param initialNode initial node, or -1 if there is none
+     */
+    public LayoutGraph(double[] x, double[] y, int[] edgeTails, int[] edgeHeads, int initialNode) {
+        assert x.length == y.length && edgeTails.length == edgeHeads.length;
+        assert initialNode >= -1 && initialNode < x.length;
+        this.x = x;
+        this.y = y;
+        this.edgeTails = edgeTails;
+        this.edgeHeads = edgeHeads;
+        this.initialNode = initialNode;
+    }
+
+    public int getNodeCount() {
+        return x.length;
+    }
+
+    public int getEdgeCount() {
+        return edgeTails.length;
+    }
+
+    public double[] getX() {
+        return x;
+    }
+
+    public double[] getY() {
+        return y;
+    }
+
+    public int getEdgeTail(int edge) {
+        return edgeTails[edge];
+    }
+
+    public int getEdgeHead(int edge) {
+        return edgeHeads[edge];
+    }
+
+    public int getInitialNode() {
+        return initialNode;
+    }
+}
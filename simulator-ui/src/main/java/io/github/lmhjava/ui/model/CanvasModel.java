@@ -1,23 +1,62 @@
 package io.github.lmhjava.ui.model;
 
 import io.github.lmhjava.engine.dfa.DFAController;
+import io.github.lmhjava.engine.dfa.DFAEdge;
+import io.github.lmhjava.engine.dfa.DFANode;
+import io.github.lmhjava.engine.observable.MutationListener;
 import io.github.lmhjava.ui.object.CanvasComponent;
+import io.github.lmhjava.ui.object.DFAEdgeComponent;
 import io.github.lmhjava.ui.object.DFANodeComponent;
+import io.github.lmhjava.ui.util.QuadTree;
 import javafx.application.Platform;
 import javafx.beans.property.*;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableSet;
 import javafx.collections.SetChangeListener;
+import javafx.geometry.Bounds;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Data model class for all components being displayed on canvas.
  */
 @Getter
 @Slf4j
 public class CanvasModel {
+    /**
+     * Size of the canvas pane, i.e. the root cell of the spatial index
+     */
+    public static final double CANVAS_WIDTH = 3840;
+    public static final double CANVAS_HEIGHT = 2160;
+
     private final ObservableSet<CanvasComponent> components;
+    /**
+     * Components by their bounds on canvas, see {@link #updateBounds(Collection)}
+     */
+    private final QuadTree<CanvasComponent> spatialIndex;
+    /**
+     * Components without bounds, e.g. an edge being added, which are never culled
+     */
+    private final Set<CanvasComponent> unboundedComponents;
+    /**
+     * Settled edges by both their nodes, see {@link #getEdgesOf(DFANodeComponent)}
+     */
+    private final Map<DFANodeComponent, Set<DFAEdgeComponent>> edgesByNode;
+    /**
+     * Components by the engine node or edge they display, see {@link #syncLater(Object)}
+     */
+    private final Map<Object, CanvasComponent> componentsByModel;
+    // engine nodes and edges changed since the last sync
+    private final Set<Object> outOfSyncModels;
     private final ObjectProperty<CanvasComponent> selectedComponent;
     private final ObjectProperty<CanvasComponent> highlightedComponent;
     private final ObjectProperty<DFANodeComponent> initialNodeComponent;
@@ -32,6 +71,22 @@ public class CanvasModel {
 
     public CanvasModel() {
         components = FXCollections.observableSet();
+        spatialIndex = new QuadTree<>(0, 0, CANVAS_WIDTH, CANVAS_HEIGHT);
+        unboundedComponents = new HashSet<>();
+        edgesByNode = new HashMap<>();
+        componentsByModel = new HashMap<>();
+        outOfSyncModels = new LinkedHashSet<>();
+        components.addListener((SetChangeListener.Change<? extends CanvasComponent> c) -> {
+            if (c.wasAdded()) {
+                index(c.getElementAdded());
+            } else if (c.wasRemoved()) {
+                spatialIndex.remove(c.getElementRemoved());
+                unboundedComponents.remove(c.getElementRemoved());
+                unlink(c.getElementRemoved());
+                final Object model = modelOf(c.getElementRemoved());
+                if (model != null) componentsByModel.remove(model, c.getElementRemoved());
+            }
+        });
         selectedComponent = new SimpleObjectProperty<>();
         highlightedComponent = new SimpleObjectProperty<>();
         initialNodeComponent = new SimpleObjectProperty<>();
@@ -39,19 +94,146 @@ public class CanvasModel {
         contextMenuY = new SimpleIntegerProperty(0);
         scale = new SimpleDoubleProperty(1.0);
         dfaController = new DFAController();
+        // sync the components of the nodes and edges the engine reports
+        dfaController.addMutationListener(new MutationListener() {
+            @Override
+            public void nodeChanged(DFANode node) {
+                syncLater(node);
+            }
+
+            @Override
+            public void edgeChanged(DFAEdge edge) {
+                syncLater(edge);
+            }
+        });
         dfaAlphabet = FXCollections.observableSet();
         // sync this dfa alphabet to the engine
         dfaAlphabet.addListener((SetChangeListener.Change<? extends String> c) -> {
             if (c.wasAdded()) {
                 dfaController.registerAlphabet(c.getElementAdded());
             } else if (c.wasRemoved()) {
+                // the edges losing the alphabet are reported to the mutation listener
                 dfaController.unregisterAlphabet(c.getElementRemoved());
-                // sync all the components with engine models later
-                Platform.runLater(() -> components.forEach(CanvasComponent::sync));
             }
         });
     }
 
+    private static Object modelOf(CanvasComponent component) {
+        if (component instanceof DFANodeComponent node) return node.getNode();
+        if (component instanceof DFAEdgeComponent edge) return edge.getEdge();
+        return null;
+    }
+
+    /**
+     * Syncs the component of an engine node or edge with it later, once for all the changes made until then.
+     *
+     * @param model changed node or edge
+     * @implNote the sync is deferred, as the change may come from a listener of the component itself, and
+     * a single {@link Platform#runLater(Runnable)} is pending at any time. Only the components of the reported
+     * nodes and edges are synced, so an edit costs as much as the components it touches.
+     */
+    private void syncLater(Object model) {
+        if (!outOfSyncModels.add(model) || outOfSyncModels.size() > 1) return;
+        Platform.runLater(() -> {
+            final List<Object> models = List.copyOf(outOfSyncModels);
+            outOfSyncModels.clear();
+            for (Object m : models) {
+                final CanvasComponent component = componentsByModel.get(m);
+                if (component != null) component.sync();
+            }
+            log.trace("Synced {} changed nodes and edges", models.size());
+        });
+    }
+
+    private void index(CanvasComponent component) {
+        // an edge only gets its engine edge once settled, which updates its bounds as well
+        final Object model = modelOf(component);
+        if (model != null) componentsByModel.put(model, component);
+        if (component instanceof DFAEdgeComponent edge && edge.isSettled()) {
+            edgesByNode.computeIfAbsent(edge.getTailNode(), (DFANodeComponent n) -> new HashSet<>()).add(edge);
+            edgesByNode.computeIfAbsent(edge.getHeadNode(), (DFANodeComponent n) -> new HashSet<>()).add(edge);
+        }
+        final Bounds bounds = component.getCanvasBounds();
+        if (bounds == null) {
+            spatialIndex.remove(component);
+            unboundedComponents.add(component);
+        } else {
+            unboundedComponents.remove(component);
+            spatialIndex.put(component, bounds);
+        }
+    }
+
+    private void unlink(CanvasComponent component) {
+        if (component instanceof DFANodeComponent node) {
+            edgesByNode.remove(node);
+        } else if (component instanceof DFAEdgeComponent edge && edge.isSettled()) {
+            unlink(edge.getTailNode(), edge);
+            unlink(edge.getHeadNode(), edge);
+        }
+    }
+
+    private void unlink(DFANodeComponent node, DFAEdgeComponent edge) {
+        final Set<DFAEdgeComponent> edges = edgesByNode.get(node);
+        if (edges == null) return;
+        edges.remove(edge);
+        if (edges.isEmpty()) edgesByNode.remove(node);
+    }
+
+    /**
+     * Returns the settled edges starting or ending at a node.
+     *
+     * @param node node on canvas
+     * @return unmodifiable view of the edges, empty if there is none
+     */
+    public Set<DFAEdgeComponent> getEdgesOf(DFANodeComponent node) {
+        final Set<DFAEdgeComponent> edges = edgesByNode.get(node);
+        return edges == null ? Collections.emptySet() : Collections.unmodifiableSet(edges);
+    }
+
+    /**
+     * Updates the spatial index after some components are moved or reshaped, e.g. on a drag commit.
+     * The edges of a moved node are updated too.
+     *
+     * @param moved components whose bounds changed
+     * @implNote the edges of the moved nodes are looked up by node, so a batch costs as much as the nodes
+     * and their edges, and an edge shared by two moved nodes is indexed once.
+     */
+    public void updateBounds(Collection<? extends CanvasComponent> moved) {
+        final Set<DFAEdgeComponent> edges = new HashSet<>();
+        for (CanvasComponent component : moved) {
+            if (!components.contains(component)) continue;
+            index(component);
+            if (component instanceof DFANodeComponent node) edges.addAll(getEdgesOf(node));
+        }
+        edges.forEach(this::index);
+    }
+
+    public void updateBounds(CanvasComponent component) {
+        updateBounds(List.of(component));
+    }
+
+    /**
+     * Returns the components whose bounds intersect a region of the canvas, e.g. for culling or rubber-band selection.
+     *
+     * @param region region in canvas coordinates
+     * @return components in the region, those without bounds excluded
+     */
+    public List<CanvasComponent> getComponentsIn(Bounds region) {
+        return spatialIndex.query(region);
+    }
+
+    /**
+     * Returns the node closest to a point of the canvas.
+     *
+     * @param x x in canvas coordinates
+     * @param y y in canvas coordinates
+     * @param maxDistance nodes further than this from the point are ignored
+     * @return the closest node, or {@code null} if there is none within the distance
+     */
+    public DFANodeComponent getNearestNode(double x, double y, double maxDistance) {
+        return (DFANodeComponent) spatialIndex.nearest(x, y, maxDistance, (CanvasComponent c) -> c instanceof DFANodeComponent);
+    }
+
     public final CanvasComponent getCurrentSelection() {
         return selectedComponent.get();
     }
@@ -74,7 +256,7 @@ public class CanvasModel {
         if (component != null) {
             component.onHighlight();
         }
-        selectedComponent.set(component);
+        highlightedComponent.set(component);
     }
 
     public final void setInitialNode(DFANodeComponent node) {
@@ -2,6 +2,7 @@ package io.github.lmhjava.ui.object;
 
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
+import javafx.geometry.Bounds;
 import javafx.scene.layout.Region;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -43,6 +44,14 @@ public abstract class CanvasComponent extends Region implements Selectable {
      */
     public abstract void notifyUnselected();
 
+    /**
+     * Returns the area this component covers on the canvas, computed from the model rather than
+     * from the scene graph, so it stays valid while the component is detached from the canvas.
+     *
+     * @return bounds in canvas coordinates, or {@code null} if the component must always be displayed
+     */
+    public abstract Bounds getCanvasBounds();
+
     /**
      * Sync information with dfa engine model
      */
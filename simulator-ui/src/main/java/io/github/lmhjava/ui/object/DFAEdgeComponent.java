@@ -7,6 +7,8 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableSet;
 import javafx.collections.SetChangeListener;
 import javafx.event.EventHandler;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
 import javafx.scene.Cursor;
 import javafx.scene.control.Label;
 import javafx.scene.effect.Glow;
@@ -20,10 +22,12 @@ import javafx.scene.shape.LineTo;
 import javafx.scene.shape.MoveTo;
 import javafx.scene.shape.Path;
 import javafx.scene.shape.QuadCurveTo;
+import javafx.scene.transform.Rotate;
 import javafx.scene.transform.Transform;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Set;
 import java.util.StringJoiner;
 
 /**
@@ -33,15 +37,15 @@ import java.util.StringJoiner;
 @Slf4j
 public class DFAEdgeComponent extends CanvasComponent {
 
-    private static final Paint ARROW_COLOR = Color.RED;
-    private static final int ARROW_STROKE_THICKNESS = 2;
+    public static final Paint ARROW_COLOR = Color.RED;
+    public static final int ARROW_STROKE_THICKNESS = 2;
     private static final int SPACE_WIDTH = 10;
-    private static final int ARROW_HEAD_LENGTH = 20;
-    private static final int ARROW_HEAD_ANGLE = 30;
-    private static final double LABEL_ARROW_GAP = 15;
+    static final int ARROW_HEAD_LENGTH = 20;
+    static final int ARROW_HEAD_ANGLE = 30;
+    static final double LABEL_ARROW_GAP = 15;
     private static final double ARROW_HEAD_DELTA_Y = Math.sin(Math.toRadians(ARROW_HEAD_ANGLE)) * ARROW_HEAD_LENGTH;
-    private static final double SELF_LOOP_ARROW_HEAD_LENGTH = ARROW_HEAD_LENGTH / 2d;
-    private static final double SELF_LOOP_ARROW_HEAD_ANGLE = ARROW_HEAD_ANGLE / 2d;
+    static final double SELF_LOOP_ARROW_HEAD_LENGTH = ARROW_HEAD_LENGTH / 2d;
+    static final double SELF_LOOP_ARROW_HEAD_ANGLE = ARROW_HEAD_ANGLE / 2d;
 
     @Getter
     private DFAEdge edge;
@@ -65,9 +69,9 @@ public class DFAEdgeComponent extends CanvasComponent {
     @Getter
     private final BooleanProperty isElseProperty;
 
-    // These two following properties will not be used until edge is settled
-    private DoubleBinding elevationAngleProperty;
-    private IntegerBinding lengthProperty;
+    // These two following fields will not be used until edge is settled, see layout()
+    private final Rotate rotation;
+    private double elevationAngle;
 
     public DFAEdgeComponent(DFANodeComponent tailNode) {
         this.tailNodeObj = new SimpleObjectProperty<>(tailNode);
@@ -82,11 +86,25 @@ public class DFAEdgeComponent extends CanvasComponent {
         this.tipPoint = new MoveTo(0, 0);
         this.alphabetLabel = new Label();
         this.alphabets = FXCollections.observableSet();
-        this.elevationAngleProperty = null;
-        this.lengthProperty = null;
+        this.rotation = new Rotate(0, 0, ARROW_HEAD_DELTA_Y);
+        this.elevationAngle = 0;
         this.isElseProperty = new SimpleBooleanProperty(false);
     }
 
+    /**
+     * Constructs a settled component displaying an existing engine edge, e.g. one read from a file.
+     *
+     * @param tailNode component of the tail of the edge
+     * @param headNode component of the head of the edge
+     * @param edge engine edge
+     */
+    public DFAEdgeComponent(DFANodeComponent tailNode, DFANodeComponent headNode, DFAEdge edge) {
+        this(tailNode);
+        assert edge.getTail() == tailNode.getNode() && edge.getHead() == headNode.getNode();
+        initArrow();
+        settle(headNode, edge);
+    }
+
     /**
      * Initialize the properties listeners to sync information from the core DFA engine.
      */
@@ -116,38 +134,13 @@ public class DFAEdgeComponent extends CanvasComponent {
         });
     }
 
-    /**
-     * Initialize cursor to match the direction of the arrow.
-     *
-     * @implNote For better user experience, the cursor show display resize prompt in the direction
-     * perpendicular to the direction of the arrow.
-     */
-    private void initCursor() {
-        assert !isSelfLoop();
-        // show cursors depending on whether the arrow is vertical or horizontal.
-        this.cursorProperty().bind(new ObjectBinding<>() {
-            {
-                this.bind(elevationAngleProperty);
-            }
-
-            @Override
-            protected Cursor computeValue() {
-                return isVertical() ? Cursor.H_RESIZE : Cursor.V_RESIZE;
-            }
-        });
-    }
-
     /**
      * Initialize the shape of an edge component
      *
      * @implNote at this moment, {@code isSettle} is {@code false}.
      */
     public void initShape(Pane canvasPane) {
-        // construct an arrow based on head and tail node
-        arrow.setStroke(ARROW_COLOR);
-        arrow.setStrokeWidth(ARROW_STROKE_THICKNESS);
-        this.getXProperty().bind(tailNodeObj.get().getCenterXProperty());
-        this.getYProperty().bind(tailNodeObj.get().getCenterYProperty().subtract(ARROW_HEAD_DELTA_Y));
+        initArrow();
 
         // create a pseudo-node to help with locating the end node
         headNodeObj.set(null);
@@ -175,6 +168,14 @@ public class DFAEdgeComponent extends CanvasComponent {
             event.consume();
         };
         canvasPane.setOnMouseMoved(syncMouseHandler);
+    }
+
+    // construct an arrow based on head and tail node
+    private void initArrow() {
+        arrow.setStroke(ARROW_COLOR);
+        arrow.setStrokeWidth(ARROW_STROKE_THICKNESS);
+        this.getXProperty().bind(tailNodeObj.get().getCenterXProperty());
+        this.getYProperty().bind(tailNodeObj.get().getCenterYProperty().subtract(ARROW_HEAD_DELTA_Y));
         arrow.getElements().addAll(originPoint, baseLine, leftArrowHead, tipPoint, rightArrowHead);
 
         pane.getChildren().addAll(arrow, alphabetLabel);
@@ -183,8 +184,13 @@ public class DFAEdgeComponent extends CanvasComponent {
 
     public void settle(DFANodeComponent headNode, Pane canvasPane) {
         assert headNode != null && canvasPane != null;
-        isSettled = true;
         canvasPane.setOnMouseMoved(null);
+        // initiate an edge model
+        settle(headNode, new DFAEdge(tailNodeObj.get().getNode(), headNode.getNode()));
+    }
+
+    private void settle(DFANodeComponent headNode, DFAEdge edge) {
+        isSettled = true;
         headNodeObj.set(headNode);
         // self-loop edge
         if (isSelfLoop()) {
@@ -201,101 +207,71 @@ public class DFAEdgeComponent extends CanvasComponent {
             this.getTransforms().clear();
             this.getTransforms().add(Transform.rotate(-180, 0, 0));
             this.getTransforms().add(Transform.translate(-DFANodeComponent.NODE_CIRCLE_RADIUS, DFANodeComponent.NODE_CIRCLE_RADIUS - DFANodeComponent.SELECTION_CIRCLE_THICKNESS));
-            // mock elevation angle property for controlling the alphabet label
-            this.elevationAngleProperty = new DoubleBinding() {
-                @Override
-                protected double computeValue() {
-                    return -180;
-                }
-            };
         } else {
-            // unlike syncMouseHandler, we need to dynamic binding to calculate rotated degrees and length
-            this.elevationAngleProperty = Bindings.createDoubleBinding(() -> {
-                final int headX = headNodeObj.get().getXProperty().get(), headY = headNodeObj.get().getYProperty().get();
-                final int tailX = tailNodeObj.get().getXProperty().get(), tailY = tailNodeObj.get().getYProperty().get();
-                return Math.toDegrees(Math.atan2(headY - tailY, headX - tailX));
-            }, headNodeObj.get().getXProperty(), headNodeObj.get().getYProperty(), tailNodeObj.get().getXProperty(), tailNodeObj.get().getYProperty());
-
-            this.lengthProperty = Bindings.createIntegerBinding(() -> {
-                final int headX = headNodeObj.get().getXProperty().get(), headY = headNodeObj.get().getYProperty().get();
-                final int tailX = tailNodeObj.get().getXProperty().get(), tailY = tailNodeObj.get().getYProperty().get();
-                return (int) Math.sqrt(Math.pow(headX - tailX, 2) + Math.pow(headY - tailY, 2)) - DFANodeComponent.NODE_CIRCLE_RADIUS - DFANodeComponent.SELECTION_CIRCLE_THICKNESS;
-            }, headNodeObj.get().getXProperty(), headNodeObj.get().getYProperty(), tailNodeObj.get().getXProperty(), tailNodeObj.get().getYProperty());
-
-            // bind angle property
-            this.getTransforms().clear();
-            this.getTransforms().add(Transform.rotate(this.elevationAngleProperty.get(), 0, ARROW_HEAD_DELTA_Y));
-            this.elevationAngleProperty.addListener((ob, oldValue, newValue) -> {
-                this.getTransforms().clear();
-                this.getTransforms().add(Transform.rotate(this.elevationAngleProperty.get(), 0, ARROW_HEAD_DELTA_Y));
-            });
-
-            // bind length property
-            baseLine.xProperty().bind(this.lengthProperty);
-            baseLine.controlXProperty().bind(this.lengthProperty.divide(2));
-            // make two noses of the arrow
-            handleArrowNoses();
-
-            // translate Y and X of the region to complement the change in concurvity of the arrow
-            this.translateYProperty().bind(Bindings.createDoubleBinding(() -> baseLine.controlYProperty().get() < 0
-                            ? baseLine.getControlY() / 2 * Math.sin(Math.toRadians(90 - elevationAngleProperty.get()))
-                            : 0
-                    , baseLine.controlYProperty(), elevationAngleProperty));
-            this.translateXProperty().bind(Bindings.createDoubleBinding(() ->
-                            baseLine.controlYProperty().get() < 0
-                                    ? -baseLine.getControlY() / 2 * Math.cos(Math.toRadians(90 - elevationAngleProperty.get()))
-                                    : 0
-                    , baseLine.controlYProperty(), elevationAngleProperty));
-            initCursor();
+            // the angle and the length follow the nodes, see layout()
+            this.getTransforms().setAll(rotation);
         }
 
         // move two nodes on two ends to the front layer
         headNodeObj.get().toFront();
         tailNodeObj.get().toFront();
 
-        handleLabelPosition();
-
-        // initiate an edge model
-        this.edge = new DFAEdge(tailNodeObj.get().getNode(), headNodeObj.get().getNode());
+        this.edge = edge;
+        // an existing edge shows its alphabets, before they are synced back to it
+        alphabets.addAll(edge.getAlphabets());
+        isElseProperty.set(edge.isElseEdge());
         initPropertyListeners();
+        layout(new EdgeGeometry());
     }
 
     /**
-     * Calculates (dynamically) the arrow nose positions for non-self-loop edges
+     * Places the arrow and the label between the current positions of both nodes, with the current bend.
+     * <p>
+     * Nothing is bound to the nodes, so this is called again whenever a node or the bend moves, once per pulse
+     * for all the edges concerned, see {@code EdgeLayoutController}.
      *
-     * @implNote this function only handles non-self-loop edges
+     * @param geometry reused to compute the shape
+     * @implNote the path is drawn along the x-axis and rotated by the elevation angle. When the arrow bends
+     * upwards, the region is translated to complement the change of its bounds.
      */
-    private void handleArrowNoses() {
-        assert !isSelfLoop();
-        // the angle between the line connecting the vertex of the curve with one end of the curve and the original horizontal line before bending.
-        tipPoint.xProperty().bind(lengthProperty);
-        final DoubleBinding deltaAngle = Bindings.createDoubleBinding(() -> -Math.atan2(baseLine.getControlY(), (double) lengthProperty.get() / 2), baseLine.controlYProperty(), lengthProperty);
-        final DoubleBinding originalX = this.lengthProperty.subtract(Math.cos(Math.toRadians(ARROW_HEAD_ANGLE)) * ARROW_HEAD_LENGTH);
-        leftArrowHead.xProperty().bind(Bindings.createDoubleBinding(() -> (originalX.get() - lengthProperty.get()) * Math.cos(deltaAngle.get()) + ARROW_HEAD_DELTA_Y * Math.sin(deltaAngle.get()) + lengthProperty.get(), deltaAngle, originalX, lengthProperty));
-        leftArrowHead.yProperty().bind(Bindings.createDoubleBinding(() -> (originalX.get() - lengthProperty.get()) * Math.sin(deltaAngle.get()) - ARROW_HEAD_DELTA_Y * Math.cos(deltaAngle.get()), deltaAngle, lengthProperty));
-        rightArrowHead.xProperty().bind(Bindings.createDoubleBinding(() -> (originalX.get() - lengthProperty.get()) * Math.cos(deltaAngle.get()) - ARROW_HEAD_DELTA_Y * Math.sin(deltaAngle.get()) + lengthProperty.get(), deltaAngle, originalX, lengthProperty));
-        rightArrowHead.yProperty().bind(Bindings.createDoubleBinding(() -> (originalX.get() - lengthProperty.get()) * Math.sin(deltaAngle.get()) + ARROW_HEAD_DELTA_Y * Math.cos(deltaAngle.get()), deltaAngle, lengthProperty));
-    }
-
-    /**
-     * Calculates (dynamically) the edge label position according to the position of the arrow.
-     */
-    private void handleLabelPosition() {
+    public void layout(EdgeGeometry geometry) {
         assert isSettled;
+        if (isSelfLoop()) {
+            // the shape of a self-loop never changes, only the label
+            elevationAngle = -180;
+        } else {
+            geometry.update(this);
+            elevationAngle = geometry.getElevationAngle();
+            final int length = (int) geometry.getLength();
+            rotation.setAngle(elevationAngle);
+            baseLine.setX(length);
+            baseLine.setControlX(length / 2d);
+            tipPoint.setX(length);
+
+            // make two noses of the arrow, rotated by the angle between the tangent at the tip and the straight line
+            final double deltaAngle = -Math.atan2(baseLine.getControlY(), length / 2d);
+            final double originalX = length - Math.cos(Math.toRadians(ARROW_HEAD_ANGLE)) * ARROW_HEAD_LENGTH;
+            leftArrowHead.setX((originalX - length) * Math.cos(deltaAngle) + ARROW_HEAD_DELTA_Y * Math.sin(deltaAngle) + length);
+            leftArrowHead.setY((originalX - length) * Math.sin(deltaAngle) - ARROW_HEAD_DELTA_Y * Math.cos(deltaAngle));
+            rightArrowHead.setX((originalX - length) * Math.cos(deltaAngle) - ARROW_HEAD_DELTA_Y * Math.sin(deltaAngle) + length);
+            rightArrowHead.setY((originalX - length) * Math.sin(deltaAngle) + ARROW_HEAD_DELTA_Y * Math.cos(deltaAngle));
+
+            // translate Y and X of the region to complement the change in concurvity of the arrow
+            final double controlY = baseLine.getControlY();
+            setTranslateX(controlY < 0 ? -controlY / 2 * Math.cos(Math.toRadians(90 - elevationAngle)) : 0);
+            setTranslateY(controlY < 0 ? controlY / 2 * Math.sin(Math.toRadians(90 - elevationAngle)) : 0);
+
+            // show cursors depending on whether the arrow is vertical or horizontal.
+            setCursor(isVertical() ? Cursor.H_RESIZE : Cursor.V_RESIZE);
+        }
+
         // no matter which direction the arrow is, the label is always up and above the arrow.
-        // if the arrow goes from left to right (-90 < angle < 90)
-        // if the arrow goes from right to left (angle >= 90 || angle =< -90)
-        alphabetLabel.translateYProperty().bind(Bindings.createDoubleBinding(
-                () -> (isLeftToRight()
-                        ? -LABEL_ARROW_GAP
-                        : LABEL_ARROW_GAP + (isSelfLoop() ? LABEL_ARROW_GAP : 0))
-                        + (isSelfLoop() ? 0 : this.baseLine.getControlY() / 4)
-                , elevationAngleProperty, this.baseLine.controlYProperty()));
+        alphabetLabel.setTranslateY((isLeftToRight()
+                ? -LABEL_ARROW_GAP
+                : LABEL_ARROW_GAP + (isSelfLoop() ? LABEL_ARROW_GAP : 0))
+                + (isSelfLoop() ? 0 : baseLine.getControlY() / 4));
         // rotate the label to make sure the label is straight up.
-        alphabetLabel.rotateProperty().bind(Bindings.createDoubleBinding(
-                () -> isLeftToRight()
-                        ? 0d
-                        : 180d, elevationAngleProperty));
+        alphabetLabel.setRotate(isLeftToRight() ? 0 : 180);
     }
 
     public boolean isSelfLoop() {
@@ -303,16 +279,15 @@ public class DFAEdgeComponent extends CanvasComponent {
     }
 
     public boolean isVertical() {
-        return (45 < this.elevationAngleProperty.get() && this.elevationAngleProperty.get() < 135)
-                || (this.elevationAngleProperty.get() > -135 && this.elevationAngleProperty.get() < -45);
+        return (45 < elevationAngle && elevationAngle < 135) || (-135 < elevationAngle && elevationAngle < -45);
     }
 
     public boolean isLeftToRight() {
-        return -90 < elevationAngleProperty.get() && elevationAngleProperty.get() < 90;
+        return -90 < elevationAngle && elevationAngle < 90;
     }
 
     public boolean isUpToDown() {
-        return 45 < this.elevationAngleProperty.get() && this.elevationAngleProperty.get() < 135;
+        return 45 < elevationAngle && elevationAngle < 135;
     }
 
     @Override
@@ -334,6 +309,27 @@ public class DFAEdgeComponent extends CanvasComponent {
         this.baseLine.setControlY(newControlVal);
     }
 
+    public double getArrowControl() {
+        return this.baseLine.getControlY();
+    }
+
+    public DoubleProperty getArrowControlProperty() {
+        return this.baseLine.controlYProperty();
+    }
+
+    public boolean isSettled() {
+        return isSettled;
+    }
+
+    /**
+     * Returns the text of the label, i.e. the alphabets of this edge or ELSE.
+     *
+     * @return label text property
+     */
+    public ReadOnlyStringProperty getLabelTextProperty() {
+        return alphabetLabel.textProperty();
+    }
+
     /**
      * Set context menu of this edge
      *
@@ -352,10 +348,34 @@ public class DFAEdgeComponent extends CanvasComponent {
         return headNodeObj.get();
     }
 
+    public ReadOnlyObjectProperty<DFANodeComponent> getHeadNodeProperty() {
+        return headNodeObj;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @implNote the bounds of both ends, grown by the bend of the arrow and the label above it.
+     * An edge being drawn follows the mouse, so it is always displayed.
+     */
+    @Override
+    public Bounds getCanvasBounds() {
+        if (!isSettled) return null;
+        final Bounds tail = tailNodeObj.get().getCanvasBounds(), head = headNodeObj.get().getCanvasBounds();
+        final double margin = Math.abs(baseLine.getControlY()) + 2 * LABEL_ARROW_GAP;
+        final double minX = Math.min(tail.getMinX(), head.getMinX()) - margin;
+        final double minY = Math.min(tail.getMinY(), head.getMinY()) - margin;
+        final double maxX = Math.max(tail.getMaxX(), head.getMaxX()) + margin;
+        final double maxY = Math.max(tail.getMaxY(), head.getMaxY()) + margin;
+        return new BoundingBox(minX, minY, maxX - minX, maxY - minY);
+    }
+
     @Override
     public void sync() {
-        alphabets.clear();
-        alphabets.addAll(edge.getAlphabets());
+        // only the differences are written back to the engine edge
+        final Set<String> current = edge.getAlphabets();
+        alphabets.retainAll(current);
+        alphabets.addAll(current);
         isElseProperty.set(edge.isElseEdge());
     }
 
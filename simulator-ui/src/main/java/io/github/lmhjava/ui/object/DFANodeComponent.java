@@ -6,6 +6,8 @@ import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
 import javafx.scene.Cursor;
 import javafx.scene.control.Label;
 import javafx.scene.effect.Glow;
@@ -26,10 +28,12 @@ public class DFANodeComponent extends CanvasComponent {
      */
     public static final int NODE_CIRCLE_RADIUS = 40;
     public static final int SELECTION_CIRCLE_THICKNESS = 10;
-    private static final int NODE_CIRCLE_STROKE_WIDTH = 5;
-    private static final int SELECTION_CIRCLE_STROKE_WIDTH = 2;
-    private static final Paint NODE_CIRCLE_STROKE = Color.BLACK;
-    private static final Paint INITIAL_NODE_CIRCLE_STROKE = Color.GREEN;
+    public static final int NODE_CIRCLE_STROKE_WIDTH = 5;
+    public static final int SELECTION_CIRCLE_STROKE_WIDTH = 2;
+    public static final Paint NODE_CIRCLE_STROKE = Color.BLACK;
+    public static final Paint INITIAL_NODE_CIRCLE_STROKE = Color.GREEN;
+    public static final Paint HIGHLIGHTED_NODE_CIRCLE_FILL = Color.YELLOW;
+    public static final Paint NODE_LABEL_FILL = Color.WHITE;
 
     @Getter
     private final DFANode node;
@@ -51,8 +55,20 @@ public class DFANodeComponent extends CanvasComponent {
     private final NumberBinding centerYProperty;
 
     public DFANodeComponent(int x, int y) {
+        this(new DFANode("Default"), x, y);
+    }
+
+    /**
+     * Constructs a component displaying an existing engine node, e.g. one read from a file.
+     *
+     * @param node engine node
+     * @param x x of the component
+     * @param y y of the component
+     */
+    public DFANodeComponent(DFANode node, int x, int y) {
         super(x, y);
-        node = new DFANode("Default");
+        assert node != null;
+        this.node = node;
         pane = new StackPane();
         circle = new Circle();
         surroundingCircle = new Circle();
@@ -67,6 +83,7 @@ public class DFANodeComponent extends CanvasComponent {
 
         initShape();
         initPropertyListeners();
+        isAcceptProperty.set(node.isAccepted());
     }
 
     private void initShape() {
@@ -123,6 +140,12 @@ public class DFANodeComponent extends CanvasComponent {
         this.setEffect(null);
     }
 
+    @Override
+    public Bounds getCanvasBounds() {
+        final int diameter = 2 * (NODE_CIRCLE_RADIUS + SELECTION_CIRCLE_THICKNESS);
+        return new BoundingBox(xProperty.get(), yProperty.get(), diameter, diameter);
+    }
+
     @Override
     public void sync() {
         contentProperty.set(node.getContent());
@@ -131,7 +154,7 @@ public class DFANodeComponent extends CanvasComponent {
 
     @Override
     public void onHighlight() {
-        circle.setFill(Color.YELLOW);
+        circle.setFill(HIGHLIGHTED_NODE_CIRCLE_FILL);
     }
 
     @Override
@@ -0,0 +1,140 @@
+package io.github.lmhjava.ui.object;
+
+import lombok.Getter;
+
+/**
+ * Shape of an edge in canvas coordinates: a quadratic curve from the tail to the head, an arrow head at its end
+ * and the label beside it. This is the geometry {@link DFAEdgeComponent} builds from its bindings, computed in
+ * one go so that it can be drawn or laid out directly.
+ *
+ * @implNote one instance can be updated again and again, so that a pass over many edges does not allocate.
+ */
+@Getter
+public final class EdgeGeometry {
+    private static final int CURVE_SAMPLES = 16;
+
+    private double startX, startY;
+    private double controlX, controlY;
+    private double endX, endY;
+    private double leftHeadX, leftHeadY;
+    private double rightHeadX, rightHeadY;
+    private double labelX, labelY;
+    /**
+     * Rotation of the label in degrees, so that it is always straight up
+     */
+    private double labelAngle;
+    /**
+     * Angle from the tail to the head in degrees, -180 for a self-loop
+     */
+    private double elevationAngle;
+    /**
+     * Length of the straight arrow, from the center of the tail to the rim of the head
+     */
+    private double length;
+
+    /**
+     * Computes the shape of a settled edge.
+     *
+     * @param edge settled edge
+     */
+    public void update(DFAEdgeComponent edge) {
+        final DFANodeComponent tail = edge.getTailNode(), head = edge.getHeadNode();
+        assert head != null;
+        update(tail.getCenterXProperty().doubleValue(), tail.getCenterYProperty().doubleValue(),
+                head.getCenterXProperty().doubleValue(), head.getCenterYProperty().doubleValue(),
+                edge.getArrowControl(), tail == head);
+    }
+
+    /**
+     * Computes the shape of an edge.
+     *
+     * @param tailX x of the center of the tail node
+     * @param tailY y of the center of the tail node
+     * @param headX x of the center of the head node
+     * @param headY y of the center of the head node
+     * @param bend distance from the straight line to the control point of the curve, positive to the right of the arrow
+     * @param isSelfLoop whether the edge goes back to the tail, in which case the head and the bend are ignored
+     */
+    public void update(double tailX, double tailY, double headX, double headY, double bend, boolean isSelfLoop) {
+        final double radius = DFANodeComponent.NODE_CIRCLE_RADIUS;
+        if (isSelfLoop) {
+            // a loop above the node, from its rim at -120 degrees to its rim at -60 degrees
+            final double rimY = tailY - radius * Math.sin(Math.toRadians(60));
+            startX = tailX - radius / 2;
+            startY = rimY;
+            endX = tailX + radius / 2;
+            endY = rimY;
+            controlX = tailX;
+            controlY = tailY - 3 * radius;
+            elevationAngle = -180;
+            length = radius;
+            labelX = tailX;
+            labelY = tailY - 2 * radius - DFAEdgeComponent.LABEL_ARROW_GAP;
+            labelAngle = 0;
+            updateArrowHead(DFAEdgeComponent.SELF_LOOP_ARROW_HEAD_LENGTH, DFAEdgeComponent.SELF_LOOP_ARROW_HEAD_ANGLE);
+            return;
+        }
+        final double dx = headX - tailX, dy = headY - tailY;
+        final double distance = Math.max(Math.hypot(dx, dy), 1);
+        // unit vector along the arrow, and its normal, i.e. the local y-axis of the rotated edge
+        final double ux = dx / distance, uy = dy / distance;
+        final double nx = -uy, ny = ux;
+        elevationAngle = Math.toDegrees(Math.atan2(dy, dx));
+        length = distance - DFANodeComponent.NODE_CIRCLE_RADIUS - DFANodeComponent.SELECTION_CIRCLE_THICKNESS;
+        startX = tailX;
+        startY = tailY;
+        endX = tailX + ux * length;
+        endY = tailY + uy * length;
+        controlX = tailX + ux * length / 2 + nx * bend;
+        controlY = tailY + uy * length / 2 + ny * bend;
+        updateArrowHead(DFAEdgeComponent.ARROW_HEAD_LENGTH, DFAEdgeComponent.ARROW_HEAD_ANGLE);
+
+        // the label is always above the arrow, and follows a quarter of the bend like the component does
+        final boolean isLeftToRight = -90 < elevationAngle && elevationAngle < 90;
+        final double offset = (isLeftToRight ? -DFAEdgeComponent.LABEL_ARROW_GAP : DFAEdgeComponent.LABEL_ARROW_GAP) + bend / 4;
+        labelX = tailX + ux * length / 2 + nx * offset;
+        labelY = tailY + uy * length / 2 + ny * offset;
+        labelAngle = isLeftToRight ? elevationAngle : elevationAngle + 180;
+    }
+
+    // two noses along the tangent of the curve at its end
+    private void updateArrowHead(double headLength, double headAngle) {
+        final double tx = endX - controlX, ty = endY - controlY;
+        final double tangent = Math.max(Math.hypot(tx, ty), 1);
+        final double ux = tx / tangent, uy = ty / tangent;
+        final double back = Math.cos(Math.toRadians(headAngle)) * headLength;
+        final double side = Math.sin(Math.toRadians(headAngle)) * headLength;
+        leftHeadX = endX - ux * back + uy * side;
+        leftHeadY = endY - uy * back - ux * side;
+        rightHeadX = endX - ux * back - uy * side;
+        rightHeadY = endY - uy * back + ux * side;
+    }
+
+    /**
+     * Returns the distance from a point to the curve, e.g. to tell whether a click hits the edge.
+     *
+     * @param x x in canvas coordinates
+     * @param y y in canvas coordinates
+     * @return approximate distance to the curve
+     */
+    public double distanceTo(double x, double y) {
+        double min = Double.MAX_VALUE;
+        double prevX = startX, prevY = startY;
+        for (int i = 1; i <= CURVE_SAMPLES; i++) {
+            final double t = (double) i / CURVE_SAMPLES, s = 1 - t;
+            final double px = s * s * startX + 2 * s * t * controlX + t * t * endX;
+            final double py = s * s * startY + 2 * s * t * controlY + t * t * endY;
+            min = Math.min(min, distanceToSegment(x, y, prevX, prevY, px, py));
+            prevX = px;
+            prevY = py;
+        }
+        return min;
+    }
+
+    private static double distanceToSegment(double x, double y, double x1, double y1, double x2, double y2) {
+        final double dx = x2 - x1, dy = y2 - y1;
+        final double lengthSquared = dx * dx + dy * dy;
+        final double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, ((x - x1) * dx + (y - y1) * dy) / lengthSquared));
+        return Math.hypot(x - x1 - t * dx, y - y1 - t * dy);
+    }
+}
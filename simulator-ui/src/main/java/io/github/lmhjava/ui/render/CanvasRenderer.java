@@ -0,0 +1,326 @@
+package io.github.lmhjava.ui.render;
+
+import io.github.lmhjava.ui.model.CanvasModel;
+import io.github.lmhjava.ui.object.CanvasComponent;
+import io.github.lmhjava.ui.object.DFAEdgeComponent;
+import io.github.lmhjava.ui.object.DFANodeComponent;
+import io.github.lmhjava.ui.object.EdgeGeometry;
+import javafx.animation.AnimationTimer;
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.SetChangeListener;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.effect.Glow;
+import javafx.scene.paint.Color;
+import javafx.scene.text.TextAlignment;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Draws the whole DFA on one {@link Canvas}, instead of a scene graph of shapes per component.
+ * <p>
+ * The renderer watches the canvas model, and every change marks the area of the canvas it affects dirty:
+ * the old and the new bounds of a moved node and of its edges, a component whose content changed, the
+ * previous and the current selection or highlight. Once per pulse, every dirty area is cleared and the
+ * components in it are drawn again, edges behind nodes. The selection glows and the highlighted node is
+ * filled yellow, like the components do in the scene graph.
+ *
+ * @implNote the components in a dirty area are queried from the spatial index of the model, so a pulse only
+ * visits the components around the changes, plus the changed components themselves. The edges of a changed
+ * node are looked up in {@link CanvasModel#getEdgesOf(DFANodeComponent)}.
+ */
+@Slf4j
+public class CanvasRenderer {
+    /**
+     * Above this number of dirty areas in a pulse, they are merged into one
+     */
+    public static final int MAX_DIRTY_AREAS = 32;
+    /**
+     * Dirty areas are grown by this, in canvas pixels, to cover strokes and glows
+     */
+    private static final double DIRTY_PADDING = 6;
+    private static final Color EDGE_LABEL_FILL = Color.BLACK;
+
+    @Getter
+    private final Canvas canvas;
+    private final CanvasModel canvasModel;
+    private final GraphicsContext graphics;
+    private final EdgeGeometry geometry;
+    private final Glow selectionGlow;
+    // bounds of every component when it was last marked dirty, i.e. where it may be drawn now
+    private final Map<CanvasComponent, Bounds> drawnBounds;
+    private final Map<CanvasComponent, InvalidationListener> watchers;
+    private final List<Bounds> dirtyAreas;
+    // components marked dirty since the last pulse, which may not be at their indexed bounds yet, e.g. during a drag
+    private final Set<CanvasComponent> dirtyComponents;
+    private final SetChangeListener<CanvasComponent> componentsListener;
+    private final ChangeListener<CanvasComponent> markChangedListener;
+    private final AnimationTimer timer;
+    private boolean isRunning;
+
+    public CanvasRenderer(CanvasModel canvasModel) {
+        this.canvasModel = canvasModel;
+        this.canvas = new Canvas(CanvasModel.CANVAS_WIDTH, CanvasModel.CANVAS_HEIGHT);
+        this.graphics = canvas.getGraphicsContext2D();
+        this.geometry = new EdgeGeometry();
+        this.selectionGlow = new Glow(1.0);
+        this.drawnBounds = new HashMap<>();
+        this.watchers = new HashMap<>();
+        this.dirtyAreas = new ArrayList<>();
+        this.dirtyComponents = new HashSet<>();
+        this.componentsListener = (SetChangeListener.Change<? extends CanvasComponent> c) -> {
+            if (c.wasAdded()) {
+                watch(c.getElementAdded());
+            } else if (c.wasRemoved()) {
+                unwatch(c.getElementRemoved());
+            }
+        };
+        this.markChangedListener = (ObservableValue<? extends CanvasComponent> ob, CanvasComponent oldValue, CanvasComponent newValue) -> {
+            markDirty(oldValue);
+            markDirty(newValue);
+        };
+        this.timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                render();
+            }
+        };
+        graphics.setTextAlign(TextAlignment.CENTER);
+        graphics.setTextBaseline(VPos.CENTER);
+    }
+
+    /**
+     * Starts drawing the model, from a full redraw.
+     */
+    public void start() {
+        if (isRunning) return;
+        isRunning = true;
+        canvasModel.getComponents().forEach(this::watch);
+        canvasModel.getComponents().addListener(componentsListener);
+        canvasModel.getSelectedComponent().addListener(markChangedListener);
+        canvasModel.getHighlightedComponent().addListener(markChangedListener);
+        repaintAll();
+        timer.start();
+    }
+
+    /**
+     * Stops drawing the model and clears the canvas.
+     */
+    public void stop() {
+        if (!isRunning) return;
+        isRunning = false;
+        timer.stop();
+        canvasModel.getComponents().removeListener(componentsListener);
+        canvasModel.getSelectedComponent().removeListener(markChangedListener);
+        canvasModel.getHighlightedComponent().removeListener(markChangedListener);
+        new ArrayList<>(watchers.keySet()).forEach(this::unwatch);
+        dirtyAreas.clear();
+        dirtyComponents.clear();
+        graphics.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+    }
+
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    private void watch(CanvasComponent component) {
+        if (watchers.containsKey(component)) return;
+        final InvalidationListener watcher = (Observable unused) -> markDirty(component);
+        watchers.put(component, watcher);
+        if (component instanceof DFANodeComponent node) {
+            node.getXProperty().addListener(watcher);
+            node.getYProperty().addListener(watcher);
+            node.getContentProperty().addListener(watcher);
+            node.getIsAcceptProperty().addListener(watcher);
+            node.getIsInitialProperty().addListener(watcher);
+        } else if (component instanceof DFAEdgeComponent edge) {
+            edge.getLabelTextProperty().addListener(watcher);
+            edge.getArrowControlProperty().addListener(watcher);
+        }
+        markDirty(component);
+    }
+
+    private void unwatch(CanvasComponent component) {
+        final InvalidationListener watcher = watchers.remove(component);
+        if (watcher == null) return;
+        if (component instanceof DFANodeComponent node) {
+            node.getXProperty().removeListener(watcher);
+            node.getYProperty().removeListener(watcher);
+            node.getContentProperty().removeListener(watcher);
+            node.getIsAcceptProperty().removeListener(watcher);
+            node.getIsInitialProperty().removeListener(watcher);
+        } else if (component instanceof DFAEdgeComponent edge) {
+            edge.getLabelTextProperty().removeListener(watcher);
+            edge.getArrowControlProperty().removeListener(watcher);
+        }
+        dirtyComponents.remove(component);
+        markDirty(drawnBounds.remove(component));
+    }
+
+    /**
+     * Marks the old and the new area of a component dirty, and those of the edges of a node.
+     *
+     * @param component changed component, ignored if {@code null}
+     */
+    public void markDirty(CanvasComponent component) {
+        if (component == null) return;
+        markDrawn(component);
+        if (component instanceof DFANodeComponent node) {
+            canvasModel.getEdgesOf(node).forEach(this::markDrawn);
+        }
+    }
+
+    private void markDrawn(CanvasComponent component) {
+        final Bounds bounds = component.getCanvasBounds();
+        // components without bounds are left to the scene graph
+        if (bounds == null || !isRunning) return;
+        dirtyComponents.add(component);
+        markDirty(drawnBounds.put(component, bounds));
+        markDirty(bounds);
+    }
+
+    /**
+     * Marks an area of the canvas dirty, to be drawn again on the next pulse.
+     *
+     * @param area area in canvas coordinates, ignored if {@code null}
+     */
+    public void markDirty(Bounds area) {
+        if (area == null || !isRunning) return;
+        dirtyAreas.add(new BoundingBox(area.getMinX() - DIRTY_PADDING, area.getMinY() - DIRTY_PADDING,
+                area.getWidth() + 2 * DIRTY_PADDING, area.getHeight() + 2 * DIRTY_PADDING));
+    }
+
+    public void repaintAll() {
+        markDirty(new BoundingBox(0, 0, canvas.getWidth(), canvas.getHeight()));
+    }
+
+    private void render() {
+        if (dirtyAreas.isEmpty()) return;
+        List<Bounds> areas = dirtyAreas;
+        if (areas.size() > MAX_DIRTY_AREAS) {
+            double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+            for (Bounds area : areas) {
+                minX = Math.min(minX, area.getMinX());
+                minY = Math.min(minY, area.getMinY());
+                maxX = Math.max(maxX, area.getMaxX());
+                maxY = Math.max(maxY, area.getMaxY());
+            }
+            areas = List.of(new BoundingBox(minX, minY, maxX - minX, maxY - minY));
+        }
+        int drawn = 0;
+        for (Bounds area : areas) {
+            drawn += render(area);
+        }
+        log.trace("Rendered {} dirty areas, {} components", areas.size(), drawn);
+        dirtyAreas.clear();
+        dirtyComponents.clear();
+    }
+
+    // draws the components in an area, clipped to it
+    private int render(Bounds area) {
+        final Set<CanvasComponent> components = new LinkedHashSet<>(canvasModel.getComponentsIn(area));
+        for (CanvasComponent component : dirtyComponents) {
+            if (drawnBounds.get(component).intersects(area)) components.add(component);
+        }
+        graphics.save();
+        graphics.beginPath();
+        graphics.rect(area.getMinX(), area.getMinY(), area.getWidth(), area.getHeight());
+        graphics.clip();
+        graphics.clearRect(area.getMinX(), area.getMinY(), area.getWidth(), area.getHeight());
+        for (CanvasComponent component : components) {
+            if (component instanceof DFAEdgeComponent edge) drawEdge(edge);
+        }
+        for (CanvasComponent component : components) {
+            if (component instanceof DFANodeComponent node) drawNode(node);
+        }
+        graphics.restore();
+        return components.size();
+    }
+
+    private void drawNode(DFANodeComponent node) {
+        final double radius = DFANodeComponent.NODE_CIRCLE_RADIUS;
+        final double outerRadius = radius + DFANodeComponent.SELECTION_CIRCLE_THICKNESS;
+        final double centerX = node.getCenterXProperty().doubleValue(), centerY = node.getCenterYProperty().doubleValue();
+        final boolean isInitial = node.getIsInitialProperty().get();
+        graphics.setEffect(node == canvasModel.getCurrentSelection() ? selectionGlow : null);
+        graphics.setFill(node == canvasModel.getHighlightedComponent().get()
+                ? DFANodeComponent.HIGHLIGHTED_NODE_CIRCLE_FILL
+                : isInitial ? DFANodeComponent.INITIAL_NODE_CIRCLE_STROKE : DFANodeComponent.NODE_CIRCLE_STROKE);
+        graphics.setStroke(isInitial ? DFANodeComponent.INITIAL_NODE_CIRCLE_STROKE : DFANodeComponent.NODE_CIRCLE_STROKE);
+        graphics.setLineWidth(DFANodeComponent.NODE_CIRCLE_STROKE_WIDTH);
+        graphics.fillOval(centerX - radius, centerY - radius, 2 * radius, 2 * radius);
+        graphics.strokeOval(centerX - radius, centerY - radius, 2 * radius, 2 * radius);
+        if (node.getIsAcceptProperty().get()) {
+            graphics.setLineWidth(DFANodeComponent.SELECTION_CIRCLE_STROKE_WIDTH);
+            graphics.strokeOval(centerX - outerRadius, centerY - outerRadius, 2 * outerRadius, 2 * outerRadius);
+        }
+        graphics.setFill(DFANodeComponent.NODE_LABEL_FILL);
+        graphics.fillText(node.getContentProperty().get(), centerX, centerY, 2 * radius);
+        graphics.setEffect(null);
+    }
+
+    private void drawEdge(DFAEdgeComponent edge) {
+        geometry.update(edge);
+        graphics.setEffect(edge == canvasModel.getCurrentSelection() ? selectionGlow : null);
+        graphics.setStroke(DFAEdgeComponent.ARROW_COLOR);
+        graphics.setLineWidth(DFAEdgeComponent.ARROW_STROKE_THICKNESS);
+        graphics.beginPath();
+        graphics.moveTo(geometry.getStartX(), geometry.getStartY());
+        graphics.quadraticCurveTo(geometry.getControlX(), geometry.getControlY(), geometry.getEndX(), geometry.getEndY());
+        graphics.moveTo(geometry.getLeftHeadX(), geometry.getLeftHeadY());
+        graphics.lineTo(geometry.getEndX(), geometry.getEndY());
+        graphics.lineTo(geometry.getRightHeadX(), geometry.getRightHeadY());
+        graphics.stroke();
+
+        graphics.save();
+        graphics.translate(geometry.getLabelX(), geometry.getLabelY());
+        graphics.rotate(geometry.getLabelAngle());
+        graphics.setFill(EDGE_LABEL_FILL);
+        graphics.fillText(edge.getLabelTextProperty().get(), 0, 0);
+        graphics.restore();
+        graphics.setEffect(null);
+    }
+
+    /**
+     * Returns the component drawn at a point of the canvas, nodes before edges.
+     *
+     * @param x x in canvas coordinates
+     * @param y y in canvas coordinates
+     * @param tolerance how far from an edge a point still hits it
+     * @return component at the point, or {@code null} if there is none
+     */
+    public CanvasComponent getComponentAt(double x, double y, double tolerance) {
+        final double radius = DFANodeComponent.NODE_CIRCLE_RADIUS + DFANodeComponent.SELECTION_CIRCLE_THICKNESS;
+        final DFANodeComponent node = canvasModel.getNearestNode(x, y, radius);
+        if (node != null && Math.hypot(node.getCenterXProperty().doubleValue() - x, node.getCenterYProperty().doubleValue() - y) <= radius) {
+            return node;
+        }
+        DFAEdgeComponent closest = null;
+        double closestDistance = tolerance;
+        for (CanvasComponent component : canvasModel.getComponentsIn(new BoundingBox(x, y, 0, 0))) {
+            if (component instanceof DFAEdgeComponent edge) {
+                geometry.update(edge);
+                final double distance = geometry.distanceTo(x, y);
+                if (distance <= closestDistance) {
+                    closest = edge;
+                    closestDistance = distance;
+                }
+            }
+        }
+        return closest;
+    }
+}
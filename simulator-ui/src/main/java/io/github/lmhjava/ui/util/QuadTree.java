@@ -0,0 +1,306 @@
+package io.github.lmhjava.ui.util;
+
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Spatial index of items with rectangular bounds, e.g. canvas components.
+ * <p>
+ * Each item is kept in the smallest cell of the tree which contains its bounds entirely, so region queries and
+ * nearest lookups only visit the cells around the query, i.e. O(log n) cells for evenly spread items.
+ * Items outside of the root cell are kept in the root.
+ *
+ * @param <T> type of items, compared by {@code equals()}
+ * @implNote every item remembers its cell, so a removal or an update does not search the tree.
+ * A cell is split once it holds more than {@link #CELL_CAPACITY} items, and merged back once its subtree
+ * holds fewer.
+ */
+public final class QuadTree<T> {
+    public static final int CELL_CAPACITY = 8;
+    public static final int MAX_DEPTH = 16;
+
+    private final Cell root;
+    private final Map<T, Entry<T>> entries;
+
+    /**
+     * Creates an empty tree.
+     *
+     * @param minX left of the root cell
+     * @param minY top of the root cell
+     * @param width width of the root cell
+     * @param height height of the root cell
+     */
+    public QuadTree(double minX, double minY, double width, double height) {
+        assert width > 0 && height > 0;
+        this.root = new Cell(null, minX, minY, minX + width, minY + height, 0);
+        this.entries = new HashMap<>();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean contains(T item) {
+        return entries.containsKey(item);
+    }
+
+    /**
+     * Returns the bounds an item was last put with.
+     *
+     * @param item item
+     * @return bounds, or {@code null} if the item is not in the tree
+     */
+    public Bounds getBounds(T item) {
+        final Entry<T> entry = entries.get(item);
+        return entry == null ? null : new BoundingBox(entry.minX, entry.minY, entry.maxX - entry.minX, entry.maxY - entry.minY);
+    }
+
+    /**
+     * Inserts an item, or moves it if it is already in the tree.
+     *
+     * @param item item
+     * @param bounds bounds of the item
+     */
+    public void put(T item, Bounds bounds) {
+        assert item != null && bounds != null;
+        final Entry<T> old = entries.get(item);
+        if (old != null) {
+            // still in the same cell, only the bounds change
+            if (old.cell.contains(bounds) && !old.cell.fitsChild(bounds)) {
+                old.setBounds(bounds);
+                return;
+            }
+            remove(item);
+        }
+        final Entry<T> entry = new Entry<>(item);
+        entry.setBounds(bounds);
+        entries.put(item, entry);
+        root.insert(entry);
+    }
+
+    /**
+     * Removes an item.
+     *
+     * @param item item
+     * @return whether the item was in the tree
+     */
+    public boolean remove(T item) {
+        final Entry<T> entry = entries.remove(item);
+        if (entry == null) return false;
+        final Cell cell = entry.cell;
+        cell.entries.remove(entry);
+        for (Cell ancestor = cell; ancestor != null; ancestor = ancestor.parent) {
+            ancestor.size--;
+        }
+        cell.collapse();
+        return true;
+    }
+
+    public void clear() {
+        entries.clear();
+        root.entries.clear();
+        root.children = null;
+        root.size = 0;
+    }
+
+    /**
+     * Returns every item whose bounds intersect the region.
+     *
+     * @param region region
+     * @return items in no particular order
+     */
+    public List<T> query(Bounds region) {
+        final List<T> result = new ArrayList<>();
+        root.query(region.getMinX(), region.getMinY(), region.getMaxX(), region.getMaxY(), result);
+        return result;
+    }
+
+    /**
+     * Returns the item closest to a point, by the distance from the point to the bounds of the item.
+     *
+     * @param x x of the point
+     * @param y y of the point
+     * @param maxDistance items further than this are ignored, items exactly this far are not, e.g. with 0 only
+     *                    the items whose bounds contain the point are found
+     * @param filter items to consider, e.g. only nodes
+     * @return closest item, or {@code null} if there is none within the distance
+     */
+    public T nearest(double x, double y, double maxDistance, Predicate<T> filter) {
+        // the search keeps what is strictly closer than the bound, so the bound itself must match
+        final Nearest<T> nearest = new Nearest<>(Math.nextUp(maxDistance * maxDistance));
+        root.nearest(x, y, filter, nearest);
+        return nearest.item;
+    }
+
+    // squared distance from a point to a rectangle, 0 if the point is inside
+    private static double distanceSquared(double x, double y, double minX, double minY, double maxX, double maxY) {
+        final double dx = Math.max(0, Math.max(minX - x, x - maxX));
+        final double dy = Math.max(0, Math.max(minY - y, y - maxY));
+        return dx * dx + dy * dy;
+    }
+
+    private static final class Entry<T> {
+        private final T item;
+        private double minX, minY, maxX, maxY;
+        private QuadTree<T>.Cell cell;
+
+        private Entry(T item) {
+            this.item = item;
+        }
+
+        private void setBounds(Bounds bounds) {
+            minX = bounds.getMinX();
+            minY = bounds.getMinY();
+            maxX = bounds.getMaxX();
+            maxY = bounds.getMaxY();
+        }
+    }
+
+    private static final class Nearest<T> {
+        private double distanceSquared;
+        private T item;
+
+        private Nearest(double distanceSquared) {
+            this.distanceSquared = distanceSquared;
+        }
+    }
+
+    private final class Cell {
+        private final Cell parent;
+        private final double minX, minY, maxX, maxY;
+        private final int depth;
+        private final List<Entry<T>> entries;
+        // null for a leaf, otherwise NW, NE, SW, SE
+        private List<Cell> children;
+        // number of entries in this cell and its children
+        private int size;
+
+        private Cell(Cell parent, double minX, double minY, double maxX, double maxY, int depth) {
+            this.parent = parent;
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.depth = depth;
+            this.entries = new ArrayList<>(2);
+        }
+
+        private boolean contains(Bounds bounds) {
+            return this == root || fits(bounds);
+        }
+
+        private boolean fits(Bounds bounds) {
+            return minX <= bounds.getMinX() && bounds.getMaxX() <= maxX && minY <= bounds.getMinY() && bounds.getMaxY() <= maxY;
+        }
+
+        // whether the bounds fit in one of the children, once this cell is split
+        private boolean fitsChild(Bounds bounds) {
+            if (children == null) return false;
+            for (Cell child : children) {
+                if (child.fits(bounds)) return true;
+            }
+            return false;
+        }
+
+        private boolean fits(Entry<T> entry) {
+            return minX <= entry.minX && entry.maxX <= maxX && minY <= entry.minY && entry.maxY <= maxY;
+        }
+
+        private void insert(Entry<T> entry) {
+            size++;
+            if (children != null) {
+                for (Cell child : children) {
+                    if (child.fits(entry)) {
+                        child.insert(entry);
+                        return;
+                    }
+                }
+            }
+            entries.add(entry);
+            entry.cell = this;
+            if (children == null && entries.size() > CELL_CAPACITY && depth < MAX_DEPTH) split();
+        }
+
+        private void split() {
+            final double midX = (minX + maxX) / 2, midY = (minY + maxY) / 2;
+            children = List.of(
+                    new Cell(this, minX, minY, midX, midY, depth + 1),
+                    new Cell(this, midX, minY, maxX, midY, depth + 1),
+                    new Cell(this, minX, midY, midX, maxY, depth + 1),
+                    new Cell(this, midX, midY, maxX, maxY, depth + 1));
+            final List<Entry<T>> old = new ArrayList<>(entries);
+            entries.clear();
+            // the entries are inserted again, and were already counted
+            size -= old.size();
+            // entries which straddle the children stay here
+            old.forEach(this::insert);
+        }
+
+        // merges the children back once they are nearly empty, then tries the parent
+        private void collapse() {
+            Cell cell = children == null ? parent : this;
+            while (cell != null && cell.size <= CELL_CAPACITY / 2) {
+                if (cell.children != null) {
+                    for (Cell child : cell.children) {
+                        child.moveEntriesTo(cell);
+                    }
+                    cell.children = null;
+                }
+                cell = cell.parent;
+            }
+        }
+
+        private void moveEntriesTo(Cell target) {
+            for (Entry<T> entry : entries) {
+                entry.cell = target;
+                target.entries.add(entry);
+            }
+            entries.clear();
+            if (children != null) {
+                for (Cell child : children) {
+                    child.moveEntriesTo(target);
+                }
+            }
+        }
+
+        private void query(double qMinX, double qMinY, double qMaxX, double qMaxY, List<T> result) {
+            for (Entry<T> entry : entries) {
+                if (entry.minX <= qMaxX && qMinX <= entry.maxX && entry.minY <= qMaxY && qMinY <= entry.maxY) {
+                    result.add(entry.item);
+                }
+            }
+            if (children == null) return;
+            for (Cell child : children) {
+                if (child.minX <= qMaxX && qMinX <= child.maxX && child.minY <= qMaxY && qMinY <= child.maxY) {
+                    child.query(qMinX, qMinY, qMaxX, qMaxY, result);
+                }
+            }
+        }
+
+        private void nearest(double x, double y, Predicate<T> filter, Nearest<T> nearest) {
+            for (Entry<T> entry : entries) {
+                final double d = distanceSquared(x, y, entry.minX, entry.minY, entry.maxX, entry.maxY);
+                if (d < nearest.distanceSquared && filter.test(entry.item)) {
+                    nearest.distanceSquared = d;
+                    nearest.item = entry.item;
+                }
+            }
+            if (children == null) return;
+            // the closest children first, so the others are likely pruned
+            final List<Cell> ordered = new ArrayList<>(children);
+            ordered.sort((Cell a, Cell b) -> Double.compare(
+                    distanceSquared(x, y, a.minX, a.minY, a.maxX, a.maxY), distanceSquared(x, y, b.minX, b.minY, b.maxX, b.maxY)));
+            for (Cell child : ordered) {
+                if (distanceSquared(x, y, child.minX, child.minY, child.maxX, child.maxY) < nearest.distanceSquared) {
+                    child.nearest(x, y, filter, nearest);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package io.github.lmhjava.ui.render;
+
+import io.github.lmhjava.ui.model.CanvasModel;
+import io.github.lmhjava.ui.object.DFANodeComponent;
+import javafx.application.Platform;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Test for hit-testing the components drawn on the canvas
+public class CanvasRendererTest {
+
+    private static boolean isToolkitStarted;
+
+    // the components are controls, which need the toolkit, skipped without a display
+    @BeforeAll
+    public static void startToolkit() {
+        try {
+            Platform.startup(() -> {});
+            isToolkitStarted = true;
+        } catch (IllegalStateException e) {
+            // already started by another test
+            isToolkitStarted = true;
+        } catch (UnsupportedOperationException e) {
+            isToolkitStarted = false;
+        }
+    }
+
+    @Test
+    public void testNodeAt() {
+        assumeTrue(isToolkitStarted, "no display");
+        final CanvasModel canvasModel = new CanvasModel();
+        final DFANodeComponent node = new DFANodeComponent(100, 100);
+        canvasModel.getComponents().add(node);
+        final CanvasRenderer renderer = new CanvasRenderer(canvasModel);
+        final double centerX = node.getCenterXProperty().doubleValue(), centerY = node.getCenterYProperty().doubleValue();
+
+        // a press inside the node, at distance 0 from its bounds
+        assertSame(node, renderer.getComponentAt(centerX, centerY, 0));
+        assertSame(node, renderer.getComponentAt(centerX + DFANodeComponent.NODE_CIRCLE_RADIUS / 2, centerY, 0));
+        assertNull(renderer.getComponentAt(centerX + 10 * DFANodeComponent.NODE_CIRCLE_RADIUS, centerY, 0));
+    }
+}
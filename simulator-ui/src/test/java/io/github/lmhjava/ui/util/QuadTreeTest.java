@@ -0,0 +1,60 @@
+package io.github.lmhjava.ui.util;
+
+import javafx.geometry.BoundingBox;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test for the spatial index of the canvas
+public class QuadTreeTest {
+
+    @Test
+    public void testNearestDistanceIsInclusive() {
+        final QuadTree<String> tree = new QuadTree<>(0, 0, 100, 100);
+        tree.put("box", new BoundingBox(10, 10, 10, 10));
+        // a point inside the bounds is at distance 0
+        assertEquals("box", tree.nearest(15, 15, 0, (String s) -> true));
+        assertEquals("box", tree.nearest(25, 15, 5, (String s) -> true));
+        assertNull(tree.nearest(26, 15, 5, (String s) -> true));
+        assertNull(tree.nearest(15, 15, 0, (String s) -> !s.equals("box")));
+    }
+
+    @Test
+    public void testSplitAndCollapse() {
+        final QuadTree<Integer> tree = new QuadTree<>(0, 0, 1000, 1000);
+        final Random random = new Random(43);
+        final List<BoundingBox> bounds = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            bounds.add(new BoundingBox(random.nextInt(990), random.nextInt(990), 1 + random.nextInt(10), 1 + random.nextInt(10)));
+            tree.put(i, bounds.get(i));
+        }
+        // remove every other item, the cells merge back while the others stay findable
+        for (int i = 0; i < 500; i += 2) {
+            assertTrue(tree.remove(i));
+        }
+        assertEquals(250, tree.size());
+        final BoundingBox region = new BoundingBox(200, 200, 300, 300);
+        final Set<Integer> expected = new HashSet<>();
+        for (int i = 1; i < 500; i += 2) {
+            if (bounds.get(i).intersects(region)) expected.add(i);
+        }
+        assertEquals(expected, new HashSet<>(tree.query(region)));
+        for (int i = 1; i < 500; i += 2) {
+            final int index = i;
+            final BoundingBox b = bounds.get(i);
+            assertEquals(index, tree.nearest(b.getMinX(), b.getMinY(), 0, (Integer item) -> item == index));
+        }
+
+        for (int i = 1; i < 500; i += 2) {
+            tree.remove(i);
+        }
+        assertEquals(0, tree.size());
+        assertTrue(tree.query(new BoundingBox(0, 0, 1000, 1000)).isEmpty());
+    }
+}